@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.executor.BaseExecutor;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertTrue;
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+
+/**
+ * The bounded local cache of {@link BaseExecutor} replaces the unbounded {@link PerpetualCache}, which evicts the
+ * least recently used entries when the count of entries or the estimated bytes exceeds the limit.
+ * <p>
+ * The {@link org.apache.ibatis.executor.ExecutionPlaceholder#EXECUTION_PLACEHOLDER placeholders} of the queries in
+ * progress are never evicted, neither are the {@link #pin(Object) pinned} entries referenced by the deferred loads of
+ * {@link BaseExecutor}, which are loaded after the outermost query completes. Like {@link PerpetualCache}, this class
+ * is not thread-safe as it's confined in the session.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // at most 1000 entries or 64 MB
+ *   BoundedLocalCache localCache = new BoundedLocalCache("LocalCache", 1000, 64 * 1024 * 1024);
+ *   Executors.setLocalCache(executor, localCache);
+ *
+ *   localCache.getSize();
+ *   localCache.getEstimatedBytes();
+ *   localCache.getEvictionCount();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see PerpetualCache
+ * @see ObjectSizes
+ * @since 1.0.0
+ */
+public class BoundedLocalCache extends PerpetualCache {
+
+    private static final Logger logger = getLogger(BoundedLocalCache.class);
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Set<Object> pinnedKeys = new HashSet<>();
+
+    private int queryDepth;
+
+    private long estimatedBytes;
+
+    private long evictionCount;
+
+    private long evictedBytes;
+
+    /**
+     * Create a {@link BoundedLocalCache}
+     *
+     * @param id         the id of cache
+     * @param maxEntries the max count of entries, non-positive means unlimited
+     * @param maxBytes   the max estimated bytes of entries, non-positive means unlimited
+     * @throws IllegalArgumentException if both limits are unlimited
+     */
+    public BoundedLocalCache(String id, int maxEntries, long maxBytes) {
+        super(id);
+        assertTrue(maxEntries > 0 || maxBytes > 0, () -> "Either 'maxEntries' or 'maxBytes' must be positive");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        long bytes = value == EXECUTION_PLACEHOLDER ? 0 : estimate(value);
+        Entry previous = entries.put(key, new Entry(value, bytes));
+        if (previous != null) {
+            estimatedBytes -= previous.bytes;
+        }
+        estimatedBytes += bytes;
+        evictIfNecessary(key);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Entry entry = entries.get(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        Entry entry = entries.remove(key);
+        if (entry == null) {
+            return null;
+        }
+        estimatedBytes -= entry.bytes;
+        return entry.value;
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+        estimatedBytes = 0;
+    }
+
+    /**
+     * Mark the start of a query, the {@link #pin(Object) pinned} entries are kept until the outermost query
+     * {@link #endQuery() ends}.
+     */
+    public void beginQuery() {
+        queryDepth++;
+    }
+
+    /**
+     * Mark the end of a query, the {@link #pin(Object) pinned} entries are released and the overflowing entries are
+     * evicted after the outermost query ends.
+     */
+    public void endQuery() {
+        if (queryDepth > 0 && --queryDepth == 0) {
+            pinnedKeys.clear();
+            evictIfNecessary(null);
+        }
+    }
+
+    /**
+     * Pin the entry of the specified key until the outermost query {@link #endQuery() ends}, the entry referenced by
+     * the deferred load of {@link BaseExecutor} must survive until it's loaded.
+     *
+     * @param key the key of entry
+     * @return <code>true</code> if pinned, <code>false</code> if no query is in progress
+     */
+    public boolean pin(Object key) {
+        return queryDepth > 0 && pinnedKeys.add(key);
+    }
+
+    /**
+     * Is the entry of the specified key pinned or not
+     *
+     * @param key the key of entry
+     * @return <code>true</code> if pinned
+     */
+    public boolean isPinned(Object key) {
+        return pinnedKeys.contains(key);
+    }
+
+    /**
+     * Get the max count of entries
+     *
+     * @return non-positive means unlimited
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the max estimated bytes of entries
+     *
+     * @return non-positive means unlimited
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the estimated bytes of the current entries
+     *
+     * @return the estimated bytes
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Get the count of the evicted entries
+     *
+     * @return the count of the evicted entries
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the estimated bytes of the evicted entries
+     *
+     * @return the estimated bytes of the evicted entries
+     */
+    public long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    /**
+     * Estimate the bytes of the cached value
+     *
+     * @param value the cached value
+     * @return the estimated bytes
+     * @see ObjectSizes#estimate(Object)
+     */
+    protected long estimate(Object value) {
+        return maxBytes > 0 ? ObjectSizes.estimate(value) : 0;
+    }
+
+    /**
+     * The callback after the entry was evicted
+     *
+     * @param key   the key of entry
+     * @param value the value of entry
+     * @param bytes the estimated bytes of entry
+     */
+    protected void onEvicted(Object key, Object value, long bytes) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("The local cache['{}'] evicted the entry[key : {} , bytes : {}]", getId(), key, bytes);
+        }
+    }
+
+    private void evictIfNecessary(Object latestKey) {
+        if (!isOverflow()) {
+            return;
+        }
+        Iterator<Map.Entry<Object, Entry>> iterator = entries.entrySet().iterator();
+        while (isOverflow() && iterator.hasNext()) {
+            Map.Entry<Object, Entry> mapEntry = iterator.next();
+            Object key = mapEntry.getKey();
+            Entry entry = mapEntry.getValue();
+            if (key == latestKey || entry.value == EXECUTION_PLACEHOLDER || pinnedKeys.contains(key)) {
+                continue;
+            }
+            iterator.remove();
+            estimatedBytes -= entry.bytes;
+            evictionCount++;
+            evictedBytes += entry.bytes;
+            onEvicted(key, entry.value, entry.bytes);
+        }
+    }
+
+    private boolean isOverflow() {
+        return (maxEntries > 0 && entries.size() > maxEntries) || (maxBytes > 0 && estimatedBytes > maxBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedLocalCache{" +
+                "id='" + getId() + '\'' +
+                ", maxEntries=" + maxEntries +
+                ", maxBytes=" + maxBytes +
+                ", size=" + entries.size() +
+                ", estimatedBytes=" + estimatedBytes +
+                ", evictionCount=" + evictionCount +
+                ", evictedBytes=" + evictedBytes +
+                '}';
+    }
+
+    private record Entry(Object value, long bytes) {
+    }
+}
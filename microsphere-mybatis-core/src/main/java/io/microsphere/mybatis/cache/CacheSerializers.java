@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.util.Set;
+
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_SERIALIZATION_ALLOWED_CLASSES_PROPERTY_NAME;
+import static java.io.ObjectInputFilter.Status.ALLOWED;
+import static java.io.ObjectInputFilter.Status.REJECTED;
+import static java.io.ObjectInputFilter.Status.UNDECIDED;
+import static java.lang.System.getProperty;
+import static java.lang.reflect.Modifier.isStatic;
+import static java.lang.reflect.Modifier.isTransient;
+import static java.util.concurrent.ConcurrentHashMap.newKeySet;
+
+/**
+ * The utilities class to serialize the keys and values of the caches, whose classes are resolved by
+ * {@link Resources#classForName(String)} as {@link org.apache.ibatis.cache.decorators.SerializedCache} does.
+ * <p>
+ * The deserialized classes are checked by the {@link ObjectInputFilter} of an allow-list, because the bytes may be read
+ * from the files of {@link OffHeapCache} and {@link CacheSnapshot}. The allowed classes are :
+ * <ul>
+ *     <li>the JDK value types of {@link #DEFAULT_ALLOWED_CLASSES}</li>
+ *     <li>the patterns of the system property {@link io.microsphere.mybatis.constants.PropertyConstants#MICROSPHERE_MYBATIS_CACHE_SERIALIZATION_ALLOWED_CLASSES_PROPERTY_NAME}
+ *     in the syntax of {@link ObjectInputFilter.Config#createFilter(String)}</li>
+ *     <li>the {@link #allowResultTypes(Configuration) result types} of the statements</li>
+ *     <li>the {@link #allowClasses(Class[]) specified classes}</li>
+ *     <li>the classes serialized by {@link #serialize(Object)} in the current process</li>
+ * </ul>
+ * Anything else is rejected.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   byte[] bytes = CacheSerializers.serialize(users);
+ *   List<User> copy = (List<User>) CacheSerializers.deserialize(bytes, 0, bytes.length);
+ *
+ *   // allows the result types of the statements before reading the caches from the files
+ *   CacheSerializers.allowResultTypes(configuration);
+ *
+ *   // -Dmicrosphere.mybatis.cache.serialization.allowed-classes=com.acme.domain.**
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see org.apache.ibatis.cache.decorators.SerializedCache
+ * @since 1.0.0
+ */
+public abstract class CacheSerializers {
+
+    /**
+     * The default patterns of the allowed classes, the JDK value types and the cache keys
+     */
+    public static final String DEFAULT_ALLOWED_CLASSES = "java.lang.*;java.util.*;java.math.*;java.time.*;" +
+            "java.sql.Date;java.sql.Time;java.sql.Timestamp;" +
+            "org.apache.ibatis.cache.CacheKey;org.apache.ibatis.cache.NullCacheKey;" +
+            "io.microsphere.mybatis.cache.FingerprintCacheKey";
+
+    private static final ObjectInputFilter allowedClassesFilter = createAllowedClassesFilter();
+
+    private static final Set<String> allowedClassNames = newKeySet();
+
+    private static final ObjectInputFilter objectInputFilter = CacheSerializers::filter;
+
+    /**
+     * Serialize the specified object
+     *
+     * @param object the object, may be <code>null</code>
+     * @return non-null
+     * @throws CacheException if the object is not {@link Serializable}
+     */
+    public static byte[] serialize(Object object) throws CacheException {
+        if (object != null && !(object instanceof Serializable)) {
+            throw new CacheException("The object must be Serializable : " + object.getClass().getName());
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream objectOutputStream = new AllowingObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(object);
+        } catch (IOException e) {
+            throw new CacheException("Failed to serialize the object : " + object, e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Deserialize the object from the specified bytes
+     *
+     * @param bytes  the bytes
+     * @param offset the offset of bytes
+     * @param length the length of bytes
+     * @return the deserialized object, may be <code>null</code>
+     * @throws CacheException if failed or any class is not allowed
+     */
+    public static Object deserialize(byte[] bytes, int offset, int length) throws CacheException {
+        try (ObjectInputStream objectInputStream = new ResourcesObjectInputStream(new ByteArrayInputStream(bytes, offset, length))) {
+            return objectInputStream.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new CacheException("Failed to deserialize the object", e);
+        }
+    }
+
+    /**
+     * Allow the specified classes to be deserialized
+     *
+     * @param classes the classes
+     */
+    public static void allowClasses(Class<?>... classes) {
+        for (Class<?> type : classes) {
+            allowClass(type);
+        }
+    }
+
+    /**
+     * Allow the result types of the statements in the specified {@link Configuration} to be deserialized, including
+     * their super classes and the types of their fields.
+     *
+     * @param configuration {@link Configuration}
+     */
+    public static void allowResultTypes(Configuration configuration) {
+        for (Object resultMap : configuration.getResultMaps()) {
+            // the ambiguous entries of the strict map are not the instances of ResultMap
+            if (resultMap instanceof ResultMap) {
+                allowResultType(((ResultMap) resultMap).getType());
+            }
+        }
+    }
+
+    /**
+     * Is the specified class allowed to be deserialized or not
+     *
+     * @param type the class
+     * @return <code>true</code> if allowed
+     */
+    public static boolean isAllowed(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || allowedClassNames.contains(type.getName())) {
+            return true;
+        }
+        return allowedClassesFilter.checkInput(new ClassFilterInfo(type)) == ALLOWED;
+    }
+
+    static ObjectInputFilter.Status filter(ObjectInputFilter.FilterInfo filterInfo) {
+        Class<?> serialClass = filterInfo.serialClass();
+        if (serialClass == null) {
+            return UNDECIDED;
+        }
+        return isAllowed(serialClass) ? ALLOWED : REJECTED;
+    }
+
+    private static void allowResultType(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive() || type.isInterface() || isAllowed(type)) {
+            return;
+        }
+        allowClass(type);
+        for (Field field : type.getDeclaredFields()) {
+            int modifiers = field.getModifiers();
+            if (!isStatic(modifiers) && !isTransient(modifiers)) {
+                allowResultType(field.getType());
+            }
+        }
+        Class<?> superclass = type.getSuperclass();
+        if (superclass != null) {
+            allowResultType(superclass);
+        }
+    }
+
+    private static void allowClass(Class<?> type) {
+        allowedClassNames.add(type.getName());
+    }
+
+    private static ObjectInputFilter createAllowedClassesFilter() {
+        String allowedClasses = getProperty(MICROSPHERE_MYBATIS_CACHE_SERIALIZATION_ALLOWED_CLASSES_PROPERTY_NAME);
+        String pattern = allowedClasses == null || allowedClasses.isBlank() ? DEFAULT_ALLOWED_CLASSES :
+                DEFAULT_ALLOWED_CLASSES + ";" + allowedClasses;
+        return ObjectInputFilter.Config.createFilter(pattern);
+    }
+
+    private static class AllowingObjectOutputStream extends ObjectOutputStream {
+
+        AllowingObjectOutputStream(OutputStream out) throws IOException {
+            super(out);
+        }
+
+        @Override
+        protected void annotateClass(Class<?> type) {
+            // the classes serialized by the current process are trusted
+            allowClass(type);
+        }
+
+        @Override
+        protected void annotateProxyClass(Class<?> type) {
+            allowClass(type);
+        }
+    }
+
+    private static class ResourcesObjectInputStream extends ObjectInputStream {
+
+        ResourcesObjectInputStream(InputStream in) throws IOException {
+            super(in);
+            setObjectInputFilter(objectInputFilter);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+            return Resources.classForName(desc.getName());
+        }
+    }
+
+    private static class ClassFilterInfo implements ObjectInputFilter.FilterInfo {
+
+        private final Class<?> serialClass;
+
+        ClassFilterInfo(Class<?> serialClass) {
+            this.serialClass = serialClass;
+        }
+
+        @Override
+        public Class<?> serialClass() {
+            return serialClass;
+        }
+
+        @Override
+        public long arrayLength() {
+            return -1;
+        }
+
+        @Override
+        public long depth() {
+            return 1;
+        }
+
+        @Override
+        public long references() {
+            return 0;
+        }
+
+        @Override
+        public long streamBytes() {
+            return 0;
+        }
+    }
+
+    private CacheSerializers() {
+    }
+}
@@ -0,0 +1,663 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.executor.CachingExecutorFilter;
+import io.microsphere.mybatis.executor.ExecutorFilter;
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.zip.CRC32C;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.cache.CacheSerializers.deserialize;
+import static io.microsphere.mybatis.cache.CacheSerializers.serialize;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.ExceptionUtils.wrap;
+import static java.lang.Math.min;
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newOutputStream;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.Collections.singleton;
+
+/**
+ * The snapshot of the result caches in a compact binary file, which is saved on the graceful shutdown and loaded on
+ * the startup before the traffic arrives, so that the restarted application doesn't begin with the cold caches.
+ * <p>
+ * The second-level caches of {@link Configuration} and the caches of {@link CachingExecutorFilter} are taken if the
+ * keys can be enumerated, namely the {@link EnumerableCache} or the {@link PerpetualCache} decorated by the MyBatis
+ * decorators. The keys and values must be {@link java.io.Serializable}, the entries that can't be serialized are
+ * skipped, and the {@link FingerprintCacheKey} without the retained parameters is stored in 24 bytes. The second-level
+ * caches invalidated by the {@link TableInvalidationExecutorFilter} are excluded, because the restored entries are not
+ * tracked by the filter, and would be never invalidated by the tables.
+ * <p>
+ * The file starts with the schema version, and each cache region is stamped with the checksum of the Mapper XML
+ * resources and the statements using the cache, the whole file is discarded if the schema version mismatches, and
+ * the region is skipped if the checksum mismatches. The file is read sequentially by a {@link FileChannel}, and
+ * deleted after loading, so that an outdated snapshot won't be loaded again after the crash.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CacheSnapshot cacheSnapshot = new CacheSnapshot(Paths.get("/data/cache/mybatis.snapshot"), "2");
+ *
+ *   // on the startup
+ *   int loadedEntries = cacheSnapshot.load(configuration);
+ *
+ *   // on the graceful shutdown
+ *   int savedEntries = cacheSnapshot.save(configuration);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see EnumerableCache
+ * @see CachingExecutorFilter
+ * @see CacheSerializers
+ * @since 1.0.0
+ */
+public class CacheSnapshot {
+
+    private static final Logger logger = getLogger(CacheSnapshot.class);
+
+    /**
+     * The size of the buffer to read and write the file in bytes : 64 KB
+     */
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAGIC = 0x4D42_4353;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte SERIALIZED_KEY = 0;
+
+    private static final byte FINGERPRINT_KEY = 1;
+
+    private static final Field PERPETUAL_CACHE_FIELD = findField(PerpetualCache.class, "cache");
+
+    private static final ClassValue<Field> DELEGATE_FIELDS = new ClassValue<>() {
+        @Override
+        protected Field computeValue(Class<?> type) {
+            for (Class<?> declaringClass = type; declaringClass != null; declaringClass = declaringClass.getSuperclass()) {
+                Field field = findField(declaringClass, "delegate");
+                if (field != null && Cache.class.isAssignableFrom(field.getType())) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    };
+
+    private final Path file;
+
+    private final String schemaVersion;
+
+    /**
+     * Create a {@link CacheSnapshot}
+     *
+     * @param file          the path of snapshot file
+     * @param schemaVersion the version of schema, which should be changed if the cached types are changed
+     *                      incompatibly, may be <code>null</code>
+     */
+    public CacheSnapshot(String file, @Nullable String schemaVersion) {
+        this(Paths.get(file), schemaVersion);
+    }
+
+    /**
+     * Create a {@link CacheSnapshot}
+     *
+     * @param file          the path of snapshot file
+     * @param schemaVersion the version of schema, which should be changed if the cached types are changed
+     *                      incompatibly, may be <code>null</code>
+     */
+    public CacheSnapshot(Path file, @Nullable String schemaVersion) {
+        assertNotNull(file, () -> "The 'file' argument must not be null");
+        this.file = file;
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Save the caches of the specified {@link Configuration} into the file
+     *
+     * @param configuration {@link Configuration}
+     * @return the count of the saved entries
+     * @throws CacheException if the file can't be written
+     */
+    public int save(Configuration configuration) throws CacheException {
+        return save(singleton(configuration));
+    }
+
+    /**
+     * Save the caches of the specified {@link Configuration configurations} into the file, which is replaced
+     * atomically
+     *
+     * @param configurations {@link Configuration configurations}
+     * @return the count of the saved entries
+     * @throws CacheException if the file can't be written
+     */
+    public int save(Collection<Configuration> configurations) throws CacheException {
+        List<Region> regions = new ArrayList<>();
+        for (Map.Entry<Cache, Configuration> entry : getCaches(configurations).entrySet()) {
+            Region region = createRegion(entry.getKey(), entry.getValue());
+            if (region != null) {
+                regions.add(region);
+            }
+        }
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        int entries = 0;
+        try {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                createDirectories(directory);
+            }
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(newOutputStream(tempFile), BUFFER_SIZE))) {
+                output.writeInt(MAGIC);
+                output.writeInt(FORMAT_VERSION);
+                writeString(output, schemaVersion);
+                output.writeInt(regions.size());
+                for (Region region : regions) {
+                    writeString(output, region.id);
+                    output.writeLong(region.checksum);
+                    output.writeInt(region.entries);
+                    output.writeLong(region.body.size());
+                    region.body.writeTo(output);
+                    entries += region.entries;
+                }
+            }
+            move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tempFile);
+            throw new CacheException("Failed to save the cache snapshot : " + file, e);
+        }
+        logger.info("The cache snapshot saved {} entries of {} caches into the file : {}", entries, regions.size(), file);
+        return entries;
+    }
+
+    /**
+     * Load the caches of the specified {@link Configuration} from the file
+     *
+     * @param configuration {@link Configuration}
+     * @return the count of the loaded entries
+     * @throws CacheException if the file can't be read
+     */
+    public int load(Configuration configuration) throws CacheException {
+        return load(singleton(configuration));
+    }
+
+    /**
+     * Load the caches of the specified {@link Configuration configurations} from the file if present, the file is
+     * deleted after loading. The entries of the classes disallowed by {@link CacheSerializers} are skipped, the result
+     * types of the statements are {@link CacheSerializers#allowResultTypes(Configuration) allowed}.
+     *
+     * @param configurations {@link Configuration configurations}
+     * @return the count of the loaded entries
+     * @throws CacheException if the file can't be read
+     */
+    public int load(Collection<Configuration> configurations) throws CacheException {
+        if (!exists(file)) {
+            return 0;
+        }
+        configurations.forEach(CacheSerializers::allowResultTypes);
+        Map<Cache, Configuration> cacheConfigurations = getCaches(configurations);
+        Map<String, List<Cache>> caches = new TreeMap<>();
+        for (Cache cache : cacheConfigurations.keySet()) {
+            caches.computeIfAbsent(cache.getId(), id -> new ArrayList<>()).add(cache);
+        }
+        int entries = 0;
+        int skippedEntries = 0;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            SnapshotInput input = new SnapshotInput(channel);
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                logger.warn("The cache snapshot discards the unrecognized file : {}", file);
+                return 0;
+            }
+            String schemaVersion = input.readString();
+            if (!Objects.equals(this.schemaVersion, schemaVersion)) {
+                logger.warn("The cache snapshot discards the file : {} , caused by the schema version[{}] mismatches : {}",
+                        file, schemaVersion, this.schemaVersion);
+                return 0;
+            }
+            int regions = input.readInt();
+            for (int i = 0; i < regions; i++) {
+                String id = input.readString();
+                long checksum = input.readLong();
+                int count = input.readInt();
+                long length = input.readLong();
+                List<Cache> targets = new ArrayList<>();
+                for (Cache cache : caches.getOrDefault(id, List.of())) {
+                    if (checksum(cacheConfigurations.get(cache), cache) == checksum) {
+                        targets.add(cache);
+                    }
+                }
+                if (targets.isEmpty()) {
+                    logger.info("The cache snapshot skips {} entries of the cache['{}'] : absent or changed", count, id);
+                    input.skip(length);
+                    continue;
+                }
+                for (int j = 0; j < count; j++) {
+                    Object key;
+                    Object value;
+                    try {
+                        key = readKey(input);
+                        byte[] valueBytes = input.readBytes(input.readInt());
+                        value = deserialize(valueBytes, 0, valueBytes.length);
+                    } catch (CacheException e) {
+                        skippedEntries++;
+                        logger.trace("The cache snapshot skips the unreadable entry of the cache['{}']", id, e);
+                        continue;
+                    }
+                    for (Cache target : targets) {
+                        target.putObject(key, value);
+                    }
+                    entries++;
+                }
+            }
+        } catch (IOException e) {
+            throw new CacheException("Failed to load the cache snapshot : " + file, e);
+        } finally {
+            deleteQuietly(file);
+        }
+        logger.info("The cache snapshot loaded {} entries (skipped : {}) from the file : {}", entries, skippedEntries, file);
+        return entries;
+    }
+
+    /**
+     * Get the path of snapshot file
+     *
+     * @return non-null
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Get the version of schema
+     *
+     * @return <code>null</code> if not specified
+     */
+    @Nullable
+    public String getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * Get the caches of the specified {@link Configuration configurations}, including the second-level caches unless
+     * they are invalidated by the {@link TableInvalidationExecutorFilter}, and the caches of {@link CachingExecutorFilter}
+     *
+     * @param configurations {@link Configuration configurations}
+     * @return the identity map of {@link Cache} to its {@link Configuration}
+     */
+    static Map<Cache, Configuration> getCaches(Collection<Configuration> configurations) {
+        Map<Cache, Configuration> caches = new IdentityHashMap<>();
+        for (Configuration configuration : configurations) {
+            boolean tableInvalidated = false;
+            for (Interceptor interceptor : configuration.getInterceptors()) {
+                if (interceptor instanceof InterceptingExecutorInterceptor interceptingExecutorInterceptor) {
+                    for (ExecutorFilter filter : interceptingExecutorInterceptor.getExecutorFilters()) {
+                        if (filter instanceof CachingExecutorFilter cachingExecutorFilter) {
+                            for (Cache cache : cachingExecutorFilter.getCaches()) {
+                                caches.putIfAbsent(cache, configuration);
+                            }
+                        } else if (filter instanceof TableInvalidationExecutorFilter) {
+                            tableInvalidated = true;
+                        }
+                    }
+                }
+            }
+            if (tableInvalidated) {
+                logger.trace("The cache snapshot excludes the second-level caches invalidated by the tables");
+                continue;
+            }
+            // the ambiguous short names are mapped to the non-Cache objects
+            Collection<?> secondLevelCaches = configuration.getCaches();
+            for (Object object : secondLevelCaches) {
+                if (object instanceof Cache cache) {
+                    caches.putIfAbsent(cache, configuration);
+                }
+            }
+        }
+        return caches;
+    }
+
+    /**
+     * Get the keys of the specified {@link Cache}, the decorators are unwrapped until the {@link EnumerableCache} or
+     * the {@link PerpetualCache} is found.
+     *
+     * @param cache {@link Cache}
+     * @return <code>null</code> if the keys can't be enumerated
+     */
+    @Nullable
+    static List<Object> getKeys(Cache cache) {
+        Cache target = cache;
+        while (target != null) {
+            if (target instanceof EnumerableCache enumerableCache) {
+                return enumerableCache.getKeys();
+            }
+            if (target instanceof PerpetualCache) {
+                Map<Object, Object> map = getValue(target, PERPETUAL_CACHE_FIELD);
+                return map == null ? null : new ArrayList<>(map.keySet());
+            }
+            Field delegateField = DELEGATE_FIELDS.get(target.getClass());
+            target = delegateField == null ? null : getValue(target, delegateField);
+        }
+        return null;
+    }
+
+    /**
+     * Calculate the checksum of the Mapper resources and the statements using the specified {@link Cache}, or all
+     * statements if none uses it.
+     *
+     * @param configuration {@link Configuration}
+     * @param cache         {@link Cache}
+     * @return the checksum
+     */
+    static long checksum(Configuration configuration, Cache cache) {
+        Map<String, MappedStatement> statements = new TreeMap<>();
+        Map<String, MappedStatement> allStatements = new TreeMap<>();
+        Collection<?> mappedStatements = configuration.getMappedStatements();
+        for (Object object : mappedStatements) {
+            if (object instanceof MappedStatement ms) {
+                allStatements.put(ms.getId(), ms);
+                if (ms.getCache() == cache) {
+                    statements.put(ms.getId(), ms);
+                }
+            }
+        }
+        if (statements.isEmpty()) {
+            statements = allStatements;
+        }
+        CRC32C crc = new CRC32C();
+        Set<String> resources = new TreeSet<>();
+        for (MappedStatement ms : statements.values()) {
+            crc.update(ms.getId().getBytes(UTF_8));
+            crc.update(ms.getSqlCommandType().ordinal());
+            if (ms.getResource() != null) {
+                resources.add(ms.getResource());
+            }
+        }
+        for (String resource : resources) {
+            byte[] content = readResource(resource);
+            crc.update(content == null ? resource.getBytes(UTF_8) : content);
+        }
+        return crc.getValue();
+    }
+
+    @Nullable
+    private Region createRegion(Cache cache, Configuration configuration) {
+        String id = cache.getId();
+        List<Object> keys;
+        try {
+            keys = getKeys(cache);
+        } catch (RuntimeException e) {
+            logger.warn("The cache snapshot failed to enumerate the keys of the cache['{}']", id, e);
+            return null;
+        }
+        if (keys == null) {
+            logger.debug("The cache snapshot skips the cache['{}'] that can't be enumerated : {}", id, cache);
+            return null;
+        }
+        Region region = new Region(id, checksum(configuration, cache));
+        DataOutputStream output = new DataOutputStream(region.body);
+        int skippedEntries = 0;
+        for (Object key : keys) {
+            Object value = cache.getObject(key);
+            if (value == null) {
+                // releases the lock of BlockingCache if the entry was removed
+                cache.removeObject(key);
+                continue;
+            }
+            int size = region.body.size();
+            try {
+                writeKey(output, key);
+                byte[] valueBytes = serialize(value);
+                output.writeInt(valueBytes.length);
+                output.write(valueBytes);
+                region.entries++;
+            } catch (CacheException e) {
+                region.body.truncate(size);
+                skippedEntries++;
+                logger.trace("The cache snapshot skips the entry[key : {}] of the cache['{}']", key, id, e);
+            } catch (IOException e) {
+                throw wrap(e, IllegalStateException.class);
+            }
+        }
+        if (skippedEntries > 0) {
+            logger.warn("The cache snapshot skips {} non-serializable entries of the cache['{}']", skippedEntries, id);
+        }
+        return region;
+    }
+
+    private static void writeKey(DataOutputStream output, Object key) throws IOException {
+        if (key.getClass() == FingerprintCacheKey.class) {
+            FingerprintCacheKey cacheKey = (FingerprintCacheKey) key;
+            if (cacheKey.getParameterCount() == 0) {
+                long[] state = cacheKey.getState();
+                output.writeByte(FINGERPRINT_KEY);
+                output.writeLong(state[0]);
+                output.writeLong(state[1]);
+                output.writeLong(state[2]);
+                return;
+            }
+        }
+        byte[] keyBytes = serialize(key);
+        output.writeByte(SERIALIZED_KEY);
+        output.writeInt(keyBytes.length);
+        output.write(keyBytes);
+    }
+
+    private static Object readKey(SnapshotInput input) throws IOException {
+        byte type = input.readByte();
+        if (type == FINGERPRINT_KEY) {
+            return FingerprintCacheKey.restore(new long[]{input.readLong(), input.readLong(), input.readLong()});
+        }
+        byte[] keyBytes = input.readBytes(input.readInt());
+        return deserialize(keyBytes, 0, keyBytes.length);
+    }
+
+    private static void writeString(DataOutputStream output, @Nullable String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    @Nullable
+    private static byte[] readResource(String resource) {
+        try {
+            // the resources of Spring : "file [...]" or "class path resource [...]"
+            if (resource.startsWith("file [") && resource.endsWith("]")) {
+                return readAllBytes(Paths.get(resource.substring(6, resource.length() - 1)));
+            }
+            String path = resource;
+            if (resource.startsWith("class path resource [") && resource.endsWith("]")) {
+                path = resource.substring(21, resource.length() - 1);
+            }
+            try (InputStream inputStream = Resources.getResourceAsStream(path)) {
+                return inputStream.readAllBytes();
+            }
+        } catch (IOException | RuntimeException e) {
+            // e.g. "UserMapper.java (best guess)" of the annotated mapper
+            return null;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warn("The cache snapshot failed to delete the file : {}", path, e);
+        }
+    }
+
+    private static <T> T getValue(Object target, Field field) {
+        try {
+            return (T) field.get(target);
+        } catch (IllegalAccessException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
+    @Nullable
+    private static Field findField(Class<?> declaringClass, String name) {
+        try {
+            Field field = declaringClass.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static class Region {
+
+        private final String id;
+
+        private final long checksum;
+
+        private final TruncatableOutputStream body = new TruncatableOutputStream();
+
+        private int entries;
+
+        Region(String id, long checksum) {
+            this.id = id;
+            this.checksum = checksum;
+        }
+    }
+
+    private static class TruncatableOutputStream extends ByteArrayOutputStream {
+
+        TruncatableOutputStream() {
+            super(BUFFER_SIZE);
+        }
+
+        void truncate(int size) {
+            this.count = size;
+        }
+    }
+
+    /**
+     * The sequential reader of {@link FileChannel} with a direct buffer
+     */
+    private static class SnapshotInput {
+
+        private final FileChannel channel;
+
+        private final ByteBuffer buffer = allocateDirect(BUFFER_SIZE);
+
+        SnapshotInput(FileChannel channel) {
+            this.channel = channel;
+            this.buffer.flip();
+        }
+
+        byte readByte() throws IOException {
+            require(Byte.BYTES);
+            return buffer.get();
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        @Nullable
+        String readString() throws IOException {
+            int length = readInt();
+            return length < 0 ? null : new String(readBytes(length), UTF_8);
+        }
+
+        byte[] readBytes(int length) throws IOException {
+            if (length < 0) {
+                throw new IOException("The negative length : " + length);
+            }
+            byte[] bytes = new byte[length];
+            int offset = 0;
+            while (offset < length) {
+                if (!buffer.hasRemaining()) {
+                    require(1);
+                }
+                int size = min(buffer.remaining(), length - offset);
+                buffer.get(bytes, offset, size);
+                offset += size;
+            }
+            return bytes;
+        }
+
+        void skip(long length) throws IOException {
+            int buffered = (int) min(buffer.remaining(), length);
+            buffer.position(buffer.position() + buffered);
+            long remaining = length - buffered;
+            if (remaining > 0) {
+                channel.position(channel.position() + remaining);
+            }
+        }
+
+        private void require(int size) throws IOException {
+            if (buffer.remaining() >= size) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < size) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("The cache snapshot is truncated");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
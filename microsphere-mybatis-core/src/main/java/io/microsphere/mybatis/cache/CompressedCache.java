@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static io.microsphere.mybatis.cache.CacheSerializers.deserialize;
+import static io.microsphere.mybatis.cache.CacheSerializers.serialize;
+import static io.microsphere.util.Assert.assertNotNull;
+import static java.util.zip.Deflater.BEST_SPEED;
+
+/**
+ * The {@link Cache} stores the serialized and deflated values in the heap, which evicts the least recently used
+ * entries when the compressed bytes exceed the limit. The values are returned as the copies like
+ * {@link org.apache.ibatis.cache.decorators.SerializedCache} does.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CompressedCache cache = new CompressedCache("compressed", 256 * 1024 * 1024);
+ *   cache.putObject(cacheKey, users);
+ *   List<User> copy = (List<User>) cache.getObject(cacheKey);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Cache
+ * @see CacheSerializers
+ * @since 1.0.0
+ */
+public class CompressedCache implements EnumerableCache {
+
+    /**
+     * The default max bytes of the compressed values : 64 MB
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private final String id;
+
+    private long maxBytes = DEFAULT_MAX_BYTES;
+
+    private final LinkedHashMap<Object, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long compressedBytes;
+
+    private long evictionCount;
+
+    /**
+     * Create a {@link CompressedCache} with {@link #DEFAULT_MAX_BYTES}
+     *
+     * @param id the id of cache
+     */
+    public CompressedCache(String id) {
+        assertNotNull(id, () -> "The 'id' argument must not be null");
+        this.id = id;
+    }
+
+    /**
+     * Create a {@link CompressedCache}
+     *
+     * @param id       the id of cache
+     * @param maxBytes the max bytes of the compressed values
+     */
+    public CompressedCache(String id, long maxBytes) {
+        this(id);
+        setMaxBytes(maxBytes);
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        byte[] bytes = compress(serialize(value));
+        synchronized (entries) {
+            byte[] previous = entries.put(key, bytes);
+            if (previous != null) {
+                compressedBytes -= previous.length;
+            }
+            compressedBytes += bytes.length;
+            Iterator<Map.Entry<Object, byte[]>> iterator = entries.entrySet().iterator();
+            while (compressedBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<Object, byte[]> entry = iterator.next();
+                iterator.remove();
+                compressedBytes -= entry.getValue().length;
+                evictionCount++;
+            }
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        byte[] bytes;
+        synchronized (entries) {
+            bytes = entries.get(key);
+        }
+        if (bytes == null) {
+            return null;
+        }
+        byte[] serialized = decompress(bytes);
+        return deserialize(serialized, 0, serialized.length);
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        byte[] bytes;
+        synchronized (entries) {
+            bytes = entries.remove(key);
+            if (bytes != null) {
+                compressedBytes -= bytes.length;
+            }
+        }
+        // the removed value is not decompressed
+        return null;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            compressedBytes = 0;
+        }
+    }
+
+    @Override
+    public int getSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public List<Object> getKeys() {
+        synchronized (entries) {
+            return new ArrayList<>(entries.keySet());
+        }
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the bytes of the compressed values
+     *
+     * @return the bytes of the compressed values
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Get the count of the evicted entries
+     *
+     * @return the count of the evicted entries
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    static byte[] compress(byte[] bytes) {
+        Deflater deflater = new Deflater(BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                outputStream.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return outputStream.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static byte[] decompress(byte[] bytes) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(bytes.length * 3);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new CacheException("The compressed bytes are truncated");
+                }
+                outputStream.write(buffer, 0, count);
+            }
+            return outputStream.toByteArray();
+        } catch (DataFormatException e) {
+            throw new CacheException("The compressed bytes are malformed", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedCache{" +
+                "id='" + id + '\'' +
+                ", maxBytes=" + maxBytes +
+                ", size=" + entries.size() +
+                ", compressedBytes=" + compressedBytes +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+}
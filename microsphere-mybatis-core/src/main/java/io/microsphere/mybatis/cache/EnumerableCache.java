@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import org.apache.ibatis.cache.Cache;
+
+import java.util.List;
+
+/**
+ * The {@link Cache} whose keys can be enumerated, e.g. to take a {@link CacheSnapshot snapshot} of the entries.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   EnumerableCache cache = new CompressedCache("users");
+ *   cache.putObject(key, users);
+ *   for (Object key : cache.getKeys()) {
+ *       Object value = cache.getObject(key);
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Cache
+ * @see CacheSnapshot
+ * @since 1.0.0
+ */
+public interface EnumerableCache extends Cache {
+
+    /**
+     * Get the copy of the keys, ordered from the coldest to the hottest entry if the cache tracks the order, so that
+     * the order is retained when the entries are put back in turn.
+     *
+     * @return non-null
+     */
+    List<Object> getKeys();
+}
@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.reflection.ArrayUtil;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Date;
+import java.util.UUID;
+
+import static java.lang.Double.doubleToLongBits;
+import static java.lang.Float.floatToIntBits;
+import static java.lang.Long.rotateLeft;
+import static java.lang.Long.toHexString;
+import static java.util.Arrays.copyOf;
+
+/**
+ * The compact {@link CacheKey} that mixes all components into a 128-bit fingerprint rather than retaining them.
+ * <p>
+ * The values of the well-known immutable types ({@link String}, the primitive wrappers, {@link BigDecimal},
+ * {@link BigInteger}, {@link Date}, {@link Timestamp}, {@link UUID}, {@link Enum} and <code>byte[]</code>) are hashed
+ * by their content, so they may be discarded after mixing. The values of other types are only hashed by their
+ * {@link Object#hashCode() hash codes}, thus they are always retained in a compact parameter array, and compared by
+ * {@link Object#equals(Object)} as the {@link CacheKey} does.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   FingerprintCacheKey cacheKey = new FingerprintCacheKey(false, 1);
+ *   cacheKey.updateFingerprint(FingerprintCacheKey.fingerprint(ms.getId()));
+ *   cacheKey.update(1L);
+ *
+ *   // only the 128-bit fingerprint is retained
+ *   cacheKey.getParameterCount(); // 0
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheKey
+ * @since 1.0.0
+ */
+public class FingerprintCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = -2736431290418613825L;
+
+    private static final long C1 = 0x87c37b91114253d5L;
+
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private static final long NULL_TAG = 0x9e3779b97f4a7c15L;
+
+    private static final Object[] EMPTY_PARAMETERS = new Object[0];
+
+    private static final ClassValue<Long> TYPE_TAGS = new ClassValue<>() {
+        @Override
+        protected Long computeValue(Class<?> type) {
+            return fingerprint(type.getName())[0];
+        }
+    };
+
+    private final boolean retainParameters;
+
+    private long h1;
+
+    private long h2;
+
+    private int count;
+
+    private Object[] parameters;
+
+    private int parameterCount;
+
+    /**
+     * Create a {@link FingerprintCacheKey} that retains all parameters
+     */
+    public FingerprintCacheKey() {
+        this(true, 0);
+    }
+
+    /**
+     * Create a {@link FingerprintCacheKey}
+     *
+     * @param retainParameters whether all parameters are retained, or only those that can't be fingerprinted by content
+     * @param expectedParameters the expected count of parameters to size the compact parameter array
+     */
+    public FingerprintCacheKey(boolean retainParameters, int expectedParameters) {
+        this.retainParameters = retainParameters;
+        this.parameters = expectedParameters > 0 ? new Object[expectedParameters] : EMPTY_PARAMETERS;
+    }
+
+    /**
+     * Mix the specified object as the {@link CacheKey} does
+     *
+     * @param object the component of key, may be <code>null</code>
+     */
+    @Override
+    public void update(Object object) {
+        if (!mixValue(object) || retainParameters) {
+            addParameter(object);
+        }
+    }
+
+    /**
+     * Mix the specified <code>long</code> value without boxing
+     *
+     * @param value the <code>long</code> value
+     */
+    public void updateLong(long value) {
+        mix(value);
+    }
+
+    /**
+     * Mix the precomputed fingerprint
+     *
+     * @param fingerprint the 128-bit fingerprint from {@link #fingerprint(String)}
+     */
+    public void updateFingerprint(long[] fingerprint) {
+        mix(fingerprint[0]);
+        mix(fingerprint[1]);
+    }
+
+    /**
+     * Get the 128-bit fingerprint of this key
+     *
+     * @return the array with two elements
+     */
+    public long[] getFingerprint() {
+        return finish(h1, h2, count);
+    }
+
+    /**
+     * Get the state of this key, an equal key can be {@link #restore(long[]) restored} from it if no parameter is
+     * retained
+     *
+     * @return the array of the two lanes and the update count
+     * @see #restore(long[])
+     */
+    public long[] getState() {
+        return new long[]{h1, h2, count};
+    }
+
+    /**
+     * Get the count of the retained parameters
+     *
+     * @return the count of the retained parameters
+     */
+    public int getParameterCount() {
+        return parameterCount;
+    }
+
+    /**
+     * Are all parameters retained or not
+     *
+     * @return <code>true</code> if retained
+     */
+    public boolean isRetainParameters() {
+        return retainParameters;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof FingerprintCacheKey that)) {
+            return false;
+        }
+        if (h1 != that.h1 || h2 != that.h2 || count != that.count || parameterCount != that.parameterCount) {
+            return false;
+        }
+        for (int i = 0; i < parameterCount; i++) {
+            if (!ArrayUtil.equals(parameters[i], that.parameters[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        long hash = h1 ^ h2;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    @Override
+    public FingerprintCacheKey clone() throws CloneNotSupportedException {
+        FingerprintCacheKey clonedCacheKey = (FingerprintCacheKey) super.clone();
+        clonedCacheKey.parameters = parameters.clone();
+        return clonedCacheKey;
+    }
+
+    @Override
+    public String toString() {
+        long[] fingerprint = getFingerprint();
+        StringBuilder builder = new StringBuilder(64)
+                .append(toHexString(fingerprint[0]))
+                .append(toHexString(fingerprint[1]))
+                .append(':')
+                .append(count);
+        for (int i = 0; i < parameterCount; i++) {
+            builder.append(':').append(ArrayUtil.toString(parameters[i]));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Compute the 128-bit fingerprint of the specified {@link String}
+     *
+     * @param value the {@link String}
+     * @return the array with two elements
+     */
+    public static long[] fingerprint(String value) {
+        FingerprintCacheKey cacheKey = new FingerprintCacheKey(false, 0);
+        cacheKey.mixChars(value);
+        return cacheKey.getFingerprint();
+    }
+
+    /**
+     * Restore the {@link FingerprintCacheKey} without parameters from the specified state
+     *
+     * @param state the state from {@link #getState()}
+     * @return non-null
+     */
+    public static FingerprintCacheKey restore(long[] state) {
+        FingerprintCacheKey cacheKey = new FingerprintCacheKey(false, 0);
+        cacheKey.h1 = state[0];
+        cacheKey.h2 = state[1];
+        cacheKey.count = (int) state[2];
+        return cacheKey;
+    }
+
+    /**
+     * Mix the specified value by its content
+     *
+     * @param value the value
+     * @return <code>true</code> if the value was fingerprinted by its content, <code>false</code> if only
+     * {@link Object#hashCode()} was mixed
+     */
+    private boolean mixValue(Object value) {
+        if (value == null) {
+            mix(NULL_TAG);
+            return true;
+        }
+        Class<?> type = value.getClass();
+        mix(TYPE_TAGS.get(type));
+        if (value instanceof String string) {
+            mixChars(string);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            mix(((Number) value).longValue());
+        } else if (value instanceof Double number) {
+            mix(doubleToLongBits(number));
+        } else if (value instanceof Float number) {
+            mix(floatToIntBits(number));
+        } else if (value instanceof Boolean bool) {
+            mix(bool ? 1L : 0L);
+        } else if (value instanceof Character character) {
+            mix(character);
+        } else if (value instanceof BigDecimal || value instanceof BigInteger) {
+            // the canonical string representation keeps the scale of BigDecimal
+            mixChars(value.toString());
+        } else if (type == Date.class || type == java.sql.Date.class || type == Time.class) {
+            mix(((Date) value).getTime());
+        } else if (type == Timestamp.class) {
+            Timestamp timestamp = (Timestamp) value;
+            mix(timestamp.getTime());
+            mix(timestamp.getNanos());
+        } else if (value instanceof UUID uuid) {
+            mix(uuid.getMostSignificantBits());
+            mix(uuid.getLeastSignificantBits());
+        } else if (value instanceof Enum<?> constant) {
+            mix(constant.ordinal());
+        } else if (value instanceof byte[] bytes) {
+            mixBytes(bytes);
+        } else {
+            mix(ArrayUtil.hashCode(value));
+            return false;
+        }
+        return true;
+    }
+
+    private void mixChars(String value) {
+        int length = value.length();
+        mix(length);
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            mix(((long) value.charAt(i) << 48) | ((long) value.charAt(i + 1) << 32)
+                    | ((long) value.charAt(i + 2) << 16) | value.charAt(i + 3));
+        }
+        long tail = 0;
+        for (; i < length; i++) {
+            tail = (tail << 16) | value.charAt(i);
+        }
+        mix(tail);
+    }
+
+    private void mixBytes(byte[] bytes) {
+        int length = bytes.length;
+        mix(length);
+        long word = 0;
+        for (int i = 0; i < length; i++) {
+            word = (word << 8) | (bytes[i] & 0xffL);
+            if ((i & 7) == 7) {
+                mix(word);
+                word = 0;
+            }
+        }
+        mix(word);
+    }
+
+    /**
+     * Mix one 64-bit word into both lanes, the round function of MurmurHash3 x64 128
+     *
+     * @param word the 64-bit word
+     */
+    private void mix(long word) {
+        long k1 = rotateLeft(word * C1, 31) * C2;
+        h1 = (rotateLeft(h1 ^ k1, 27) + h2) * 5 + 0x52dce729;
+        long k2 = rotateLeft(word * C2, 33) * C1;
+        h2 = (rotateLeft(h2 ^ k2, 31) + h1) * 5 + 0x38495ab5;
+        count++;
+    }
+
+    private void addParameter(Object parameter) {
+        if (parameterCount == parameters.length) {
+            parameters = copyOf(parameters, parameterCount == 0 ? 4 : parameterCount << 1);
+        }
+        parameters[parameterCount++] = parameter;
+    }
+
+    private static long[] finish(long h1, long h2, int count) {
+        h1 ^= count;
+        h2 ^= count;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix(h1);
+        h2 = fmix(h2);
+        h1 += h2;
+        h2 += h1;
+        return new long[]{h1, h2};
+    }
+
+    private static long fmix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.reflect.Array.getLength;
+import static java.lang.reflect.Modifier.isStatic;
+
+/**
+ * The utilities class to estimate the retained sizes of the cached objects roughly, it assumes the 64-bit JVM with
+ * the compressed references. The object graph is traversed with the limited depth, and the objects of MyBatis and
+ * JDK internals are accounted shallowly.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   List<User> users = userMapper.selectAll();
+ *   long bytes = ObjectSizes.estimate(users);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @since 1.0.0
+ */
+public abstract class ObjectSizes {
+
+    /**
+     * The size of object header
+     */
+    public static final int OBJECT_HEADER_SIZE = 12;
+
+    /**
+     * The size of array header
+     */
+    public static final int ARRAY_HEADER_SIZE = 16;
+
+    /**
+     * The size of reference
+     */
+    public static final int REFERENCE_SIZE = 4;
+
+    /**
+     * The max depth of the object graph to be traversed
+     */
+    public static final int MAX_DEPTH = 8;
+
+    private static final ClassValue<ClassLayout> CLASS_LAYOUTS = new ClassValue<>() {
+        @Override
+        protected ClassLayout computeValue(Class<?> type) {
+            return new ClassLayout(type);
+        }
+    };
+
+    /**
+     * Estimate the retained size of the specified object in bytes
+     *
+     * @param object the object, may be <code>null</code>
+     * @return the estimated size in bytes
+     */
+    public static long estimate(Object object) {
+        return estimate(object, new IdentityHashMap<>(), 0);
+    }
+
+    static long estimate(Object object, IdentityHashMap<Object, Boolean> visited, int depth) {
+        if (object == null || visited.put(object, Boolean.TRUE) != null) {
+            return 0;
+        }
+        if (object instanceof String string) {
+            // the compact strings are assumed
+            return align(OBJECT_HEADER_SIZE + 12) + align(ARRAY_HEADER_SIZE + string.length());
+        }
+        if (object instanceof Number || object instanceof Boolean || object instanceof Character) {
+            if (object instanceof BigDecimal || object instanceof BigInteger) {
+                return align(OBJECT_HEADER_SIZE + 20) + align(ARRAY_HEADER_SIZE + (object.toString().length() >> 1));
+            }
+            return align(OBJECT_HEADER_SIZE + 8);
+        }
+        if (object instanceof Date) {
+            return align(OBJECT_HEADER_SIZE + 12);
+        }
+        Class<?> type = object.getClass();
+        if (type.isArray()) {
+            return estimateArray(object, type.getComponentType(), visited, depth);
+        }
+        boolean traversable = depth < MAX_DEPTH;
+        if (object instanceof Collection<?> collection) {
+            // the node or slot of the element
+            long size = align(OBJECT_HEADER_SIZE + 16) + (long) collection.size() * (REFERENCE_SIZE + 16);
+            if (traversable) {
+                for (Object element : collection) {
+                    size += estimate(element, visited, depth + 1);
+                }
+            }
+            return size;
+        }
+        if (object instanceof Map<?, ?> map) {
+            long size = align(OBJECT_HEADER_SIZE + 32) + (long) map.size() * (REFERENCE_SIZE + 32);
+            if (traversable) {
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    size += estimate(entry.getKey(), visited, depth + 1);
+                    size += estimate(entry.getValue(), visited, depth + 1);
+                }
+            }
+            return size;
+        }
+        ClassLayout layout = CLASS_LAYOUTS.get(type);
+        long size = layout.shallowSize;
+        if (traversable) {
+            Field[] referenceFields = layout.referenceFields;
+            for (int i = 0; i < referenceFields.length; i++) {
+                try {
+                    size += estimate(referenceFields[i].get(object), visited, depth + 1);
+                } catch (IllegalAccessException e) {
+                    // ignore the inaccessible field
+                }
+            }
+        }
+        return size;
+    }
+
+    private static long estimateArray(Object array, Class<?> componentType, IdentityHashMap<Object, Boolean> visited,
+                                      int depth) {
+        int length = getLength(array);
+        if (componentType.isPrimitive()) {
+            return align(ARRAY_HEADER_SIZE + (long) length * primitiveSize(componentType));
+        }
+        long size = align(ARRAY_HEADER_SIZE + (long) length * REFERENCE_SIZE);
+        if (depth < MAX_DEPTH) {
+            Object[] elements = (Object[]) array;
+            for (int i = 0; i < length; i++) {
+                size += estimate(elements[i], visited, depth + 1);
+            }
+        }
+        return size;
+    }
+
+    static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        }
+        return 1;
+    }
+
+    /**
+     * The shallow size and the traversable reference fields of a class
+     */
+    private static class ClassLayout {
+
+        private static final Field[] NO_FIELDS = new Field[0];
+
+        private final long shallowSize;
+
+        private final Field[] referenceFields;
+
+        ClassLayout(Class<?> type) {
+            long size = OBJECT_HEADER_SIZE;
+            boolean traversable = isTraversable(type);
+            List<Field> referenceFields = new ArrayList<>();
+            for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+                for (Field field : current.getDeclaredFields()) {
+                    if (isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    Class<?> fieldType = field.getType();
+                    if (fieldType.isPrimitive()) {
+                        size += primitiveSize(fieldType);
+                    } else {
+                        size += REFERENCE_SIZE;
+                        if (traversable && trySetAccessible(field)) {
+                            referenceFields.add(field);
+                        }
+                    }
+                }
+            }
+            this.shallowSize = align(size);
+            this.referenceFields = referenceFields.isEmpty() ? NO_FIELDS : referenceFields.toArray(NO_FIELDS);
+        }
+
+        private static boolean isTraversable(Class<?> type) {
+            String name = type.getName();
+            return !(name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+                    || name.startsWith("sun.") || name.startsWith("org.apache.ibatis."));
+        }
+
+        private static boolean trySetAccessible(Field field) {
+            try {
+                return field.trySetAccessible();
+            } catch (SecurityException e) {
+                return false;
+            }
+        }
+    }
+
+    private ObjectSizes() {
+    }
+}
@@ -0,0 +1,736 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.cache.CacheSerializers.deserialize;
+import static io.microsphere.mybatis.cache.CacheSerializers.serialize;
+import static io.microsphere.mybatis.cache.FingerprintCacheKey.fingerprint;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.lang.Math.min;
+import static java.nio.ByteBuffer.allocateDirect;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * The second-level {@link Cache} stores the serialized keys and values off-heap, either in the direct
+ * {@link ByteBuffer buffers} or in a memory-mapped file, only the index of the keys resides in the heap.
+ * <p>
+ * The storage is a ring of segments (at most {@link #MAX_SEGMENT_SIZE} bytes each) that records are appended to,
+ * the oldest records are evicted when the ring wraps around. When the storage is a file, the records are recovered
+ * after the restart if the {@link #setSchemaVersion(String) schema version} matches, or the file will be reformatted.
+ * <p>
+ * Use the {@link FingerprintCacheKey} (see {@code FingerprintCacheKeyExecutorFilter}) to keep both the in-heap index
+ * and the serialized keys compact.
+ * <p>
+ * The records recovered from the file are deserialized by the allow-list of {@link CacheSerializers}, the result types
+ * should be {@link CacheSerializers#allowResultTypes(org.apache.ibatis.session.Configuration) allowed} before reading
+ * them, otherwise the values of the disallowed classes are missed.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   <!-- Mapper XML -->
+ *   <cache type="io.microsphere.mybatis.cache.OffHeapCache">
+ *       <property name="capacity" value="4294967296"/>
+ *       <property name="file" value="/data/cache/users.cache"/>
+ *       <property name="schemaVersion" value="2"/>
+ *   </cache>
+ *
+ *   // or the shared Cache bean for @EnableMyBatis(cache = "offHeapCache")
+ *   @Bean(destroyMethod = "close")
+ *   public OffHeapCache offHeapCache() {
+ *       return new OffHeapCache("offHeapCache", 1L << 32, "/data/cache/shared.cache", "2");
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Cache
+ * @see CacheSerializers
+ * @since 1.0.0
+ */
+public class OffHeapCache implements EnumerableCache, InitializingObject, Closeable {
+
+    private static final Logger logger = getLogger(OffHeapCache.class);
+
+    /**
+     * The default capacity in bytes : 64 MB
+     */
+    public static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+
+    /**
+     * The max size of segment in bytes : 1 GB
+     */
+    public static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+    /**
+     * The size of storage header in bytes
+     */
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * The size of record header in bytes : marker(4) + key length(4) + value length(4) + lap(4) + sequence(8)
+     */
+    static final int RECORD_HEADER_SIZE = 24;
+
+    private static final int MAGIC = 0x4D42_4F48;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int END = 0;
+
+    private static final int LIVE = 0x4C49_5645;
+
+    private static final int DELETED = 0x4445_4C45;
+
+    private static final int SKIP = 0x534B_4950;
+
+    private final String id;
+
+    private long capacity = DEFAULT_CAPACITY;
+
+    private int segmentSize;
+
+    private String file;
+
+    private String schemaVersion = "";
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Object, Record> index = new HashMap<>();
+
+    // the records in the order of writing
+    private final ArrayDeque<Record> records = new ArrayDeque<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private volatile ByteBuffer[] segments;
+
+    private FileChannel channel;
+
+    private int segment;
+
+    private int offset;
+
+    private int lap;
+
+    private long sequence;
+
+    private long usedBytes;
+
+    private long evictionCount;
+
+    private boolean recovered;
+
+    /**
+     * Create an {@link OffHeapCache} to be configured by the setters, which is initialized by {@link #initialize()}
+     * or lazily.
+     *
+     * @param id the id of cache
+     */
+    public OffHeapCache(String id) {
+        assertNotNull(id, () -> "The 'id' argument must not be null");
+        this.id = id;
+    }
+
+    /**
+     * Create an initialized {@link OffHeapCache}
+     *
+     * @param id            the id of cache
+     * @param capacity      the capacity in bytes
+     * @param file          the path of memory-mapped file, <code>null</code> means the direct buffers
+     * @param schemaVersion the version of schema to reuse the file
+     */
+    public OffHeapCache(String id, long capacity, String file, String schemaVersion) {
+        this(id);
+        setCapacity(capacity);
+        setFile(file);
+        setSchemaVersion(schemaVersion);
+        initialize();
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        byte[] keyBytes = serialize(key);
+        byte[] valueBytes = serialize(value);
+        ByteBuffer[] segments = segments();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            write(segments, key, keyBytes, valueBytes);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        ByteBuffer[] segments = segments();
+        byte[] valueBytes;
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            Record record = index.get(key);
+            if (record == null) {
+                missCount.increment();
+                return null;
+            }
+            valueBytes = new byte[record.valueLength];
+            segments[record.segment].get(record.offset + RECORD_HEADER_SIZE + record.keyLength, valueBytes);
+        } finally {
+            readLock.unlock();
+        }
+        try {
+            Object value = deserialize(valueBytes, 0, valueBytes.length);
+            hitCount.increment();
+            return value;
+        } catch (CacheException e) {
+            logger.debug("The OffHeapCache['{}'] misses the unreadable value of the key : {}", id, key, e);
+            missCount.increment();
+            return null;
+        }
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        ByteBuffer[] segments = segments();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            Record record = index.remove(key);
+            if (record != null) {
+                markDeleted(segments, record);
+            }
+            // the removed value is not deserialized
+            return null;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        ByteBuffer[] segments = segments();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            format(segments, false);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int getSize() {
+        segments();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return index.size();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Get the keys ordered by the sequence of records, from the oldest to the newest
+     *
+     * @return non-null
+     */
+    @Override
+    public List<Object> getKeys() {
+        segments();
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            return index.values().stream()
+                    .sorted(comparingLong(record -> record.sequence))
+                    .map(record -> record.key)
+                    .toList();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Initialize the storage, the file will be recovered if possible.
+     *
+     * @throws CacheException if the file can't be mapped
+     */
+    @Override
+    public void initialize() throws CacheException {
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (this.segments != null) {
+                return;
+            }
+            assertTrue(capacity > HEADER_SIZE * 2L, () -> "The 'capacity' must be greater than " + HEADER_SIZE * 2);
+            int segmentSize = this.segmentSize > 0 ? min(this.segmentSize, MAX_SEGMENT_SIZE) : (int) min(capacity, MAX_SEGMENT_SIZE);
+            assertTrue(segmentSize > HEADER_SIZE * 2, () -> "The 'segmentSize' must be greater than " + HEADER_SIZE * 2);
+            this.segmentSize = segmentSize;
+            ByteBuffer[] segments = new ByteBuffer[(int) ((capacity + segmentSize - 1) / segmentSize)];
+            if (file == null) {
+                for (int i = 0; i < segments.length; i++) {
+                    segments[i] = allocateDirect((int) min(segmentSize, capacity - (long) i * segmentSize));
+                }
+                format(segments, true);
+            } else {
+                mapFile(segments);
+            }
+            this.segments = segments;
+            logger.trace("The OffHeapCache['{}'] was initialized : {}", id, this);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Force the content of the memory-mapped file to be written into the storage device
+     */
+    public void flush() {
+        Lock readLock = lock.readLock();
+        readLock.lock();
+        try {
+            ByteBuffer[] segments = this.segments;
+            if (segments != null && channel != null) {
+                for (ByteBuffer segment : segments) {
+                    ((MappedByteBuffer) segment).force();
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Flush and close the channel of the memory-mapped file, the mapping remains valid until it's garbage
+     * collected.
+     */
+    @Override
+    public void close() {
+        flush();
+        Lock writeLock = lock.writeLock();
+        writeLock.lock();
+        try {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.warn("The OffHeapCache['{}'] failed to close the file : {}", id, file, e);
+                }
+                channel = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(long capacity) {
+        this.capacity = capacity;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    public void setFile(String file) {
+        this.file = file;
+    }
+
+    public String getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public void setSchemaVersion(String schemaVersion) {
+        this.schemaVersion = schemaVersion == null ? "" : schemaVersion;
+    }
+
+    /**
+     * Were the records recovered from the file or not
+     *
+     * @return <code>true</code> if the file was reused
+     */
+    public boolean isRecovered() {
+        return recovered;
+    }
+
+    /**
+     * Get the bytes occupied by the records that are not evicted yet, including the removed ones
+     *
+     * @return the used bytes
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Get the count of the hits
+     *
+     * @return the count of the hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the count of the misses
+     *
+     * @return the count of the misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the count of the live entries evicted by the ring
+     *
+     * @return the count of the evicted entries
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    private ByteBuffer[] segments() {
+        ByteBuffer[] segments = this.segments;
+        if (segments == null) {
+            initialize();
+            segments = this.segments;
+        }
+        return segments;
+    }
+
+    private void write(ByteBuffer[] segments, Object key, byte[] keyBytes, byte[] valueBytes) {
+        Record previous = index.remove(key);
+        if (previous != null) {
+            markDeleted(segments, previous);
+        }
+        int length = align(RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length);
+        if (length > segmentSize - HEADER_SIZE) {
+            logger.debug("The OffHeapCache['{}'] can't store the record[key : {} , length : {}]", id, key, length);
+            return;
+        }
+        if (offset + length > segments[segment].capacity()) {
+            nextSegment(segments);
+            if (offset + length > segments[segment].capacity()) {
+                // the last segment may be smaller
+                nextSegment(segments);
+            }
+        }
+        int end = offset + length;
+        evict(segments, end);
+
+        ByteBuffer buffer = segments[segment];
+        Record record = new Record(key, segment, offset, keyBytes.length, valueBytes.length, length, lap, ++sequence);
+        buffer.putInt(offset + 4, keyBytes.length);
+        buffer.putInt(offset + 8, valueBytes.length);
+        buffer.putInt(offset + 12, lap);
+        buffer.putLong(offset + 16, record.sequence);
+        buffer.put(offset + RECORD_HEADER_SIZE, keyBytes);
+        buffer.put(offset + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+        // the marker is written at last
+        buffer.putInt(offset, LIVE);
+
+        records.addLast(record);
+        index.put(key, record);
+        usedBytes += length;
+        offset = end;
+        writeTail(buffer);
+    }
+
+    /**
+     * Evict the records of the previous lap in current segment that overlap the region before the specified end
+     */
+    private void evict(ByteBuffer[] segments, int end) {
+        Record head;
+        while ((head = records.peekFirst()) != null && head.lap < lap && head.segment == segment && head.offset < end) {
+            records.removeFirst();
+            usedBytes -= head.length;
+            if (head.live) {
+                head.live = false;
+                index.remove(head.key, head);
+                evictionCount++;
+            }
+        }
+    }
+
+    /**
+     * Mark the end of the records in current segment, or skip the gap before the oldest record of the previous lap
+     */
+    private void writeTail(ByteBuffer buffer) {
+        Record head = records.peekFirst();
+        if (head != null && head.lap < lap && head.segment == segment) {
+            if (head.offset > offset) {
+                buffer.putInt(offset + 4, head.offset - offset);
+                buffer.putInt(offset, SKIP);
+            }
+        } else if (offset + 8 <= buffer.capacity()) {
+            buffer.putInt(offset, END);
+        }
+    }
+
+    private void nextSegment(ByteBuffer[] segments) {
+        // evict the rest records of the previous lap in current segment
+        evict(segments, Integer.MAX_VALUE);
+        ByteBuffer buffer = segments[segment];
+        if (offset + 8 <= buffer.capacity()) {
+            buffer.putInt(offset, END);
+        }
+        if (++segment == segments.length) {
+            segment = 0;
+            lap++;
+        }
+        offset = dataStart(segment);
+    }
+
+    private void markDeleted(ByteBuffer[] segments, Record record) {
+        record.live = false;
+        segments[record.segment].putInt(record.offset, DELETED);
+    }
+
+    private void format(ByteBuffer[] segments, boolean writeHeader) {
+        if (writeHeader) {
+            ByteBuffer header = segments[0];
+            long[] schemaFingerprint = fingerprint(schemaVersion);
+            header.putInt(0, MAGIC);
+            header.putInt(4, FORMAT_VERSION);
+            header.putLong(8, capacity);
+            header.putInt(16, segmentSize);
+            header.putLong(24, schemaFingerprint[0]);
+            header.putLong(32, schemaFingerprint[1]);
+        }
+        for (int i = 0; i < segments.length; i++) {
+            segments[i].putInt(dataStart(i), END);
+        }
+        reset();
+    }
+
+    private void reset() {
+        index.clear();
+        records.clear();
+        segment = 0;
+        offset = HEADER_SIZE;
+        lap = 0;
+        usedBytes = 0;
+    }
+
+    private void mapFile(ByteBuffer[] segments) throws CacheException {
+        Path path = Paths.get(file).toAbsolutePath();
+        try {
+            createDirectories(path.getParent());
+            FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE);
+            for (int i = 0; i < segments.length; i++) {
+                long position = (long) i * segmentSize;
+                segments[i] = channel.map(READ_WRITE, position, min(segmentSize, capacity - position));
+            }
+            this.channel = channel;
+        } catch (IOException e) {
+            throw new CacheException("The OffHeapCache['" + id + "'] failed to map the file : " + path, e);
+        }
+        if (isCompatible(segments[0])) {
+            recover(segments);
+        } else {
+            logger.info("The OffHeapCache['{}'] formats the file : {}", id, path);
+            format(segments, true);
+        }
+    }
+
+    private boolean isCompatible(ByteBuffer header) {
+        long[] schemaFingerprint = fingerprint(schemaVersion);
+        return header.getInt(0) == MAGIC
+                && header.getInt(4) == FORMAT_VERSION
+                && header.getLong(8) == capacity
+                && header.getInt(16) == segmentSize
+                && header.getLong(24) == schemaFingerprint[0]
+                && header.getLong(32) == schemaFingerprint[1];
+    }
+
+    /**
+     * Recover the records from the reused file
+     */
+    private void recover(ByteBuffer[] segments) {
+        List<Record> liveRecords = new ArrayList<>();
+        for (int i = 0; i < segments.length; i++) {
+            ByteBuffer buffer = segments[i];
+            int limit = buffer.capacity();
+            int position = dataStart(i);
+            while (position + 8 <= limit) {
+                int marker = buffer.getInt(position);
+                if (marker == SKIP) {
+                    int gap = buffer.getInt(position + 4);
+                    if (gap <= 0) {
+                        break;
+                    }
+                    position += gap;
+                    continue;
+                }
+                if ((marker != LIVE && marker != DELETED) || position + RECORD_HEADER_SIZE > limit) {
+                    break;
+                }
+                int keyLength = buffer.getInt(position + 4);
+                int valueLength = buffer.getInt(position + 8);
+                if (keyLength < 0 || valueLength < 0 || (long) position + RECORD_HEADER_SIZE + keyLength + valueLength > limit) {
+                    break;
+                }
+                int length = align(RECORD_HEADER_SIZE + keyLength + valueLength);
+                if (marker == LIVE) {
+                    byte[] keyBytes = new byte[keyLength];
+                    buffer.get(position + RECORD_HEADER_SIZE, keyBytes);
+                    try {
+                        Object key = deserialize(keyBytes, 0, keyLength);
+                        liveRecords.add(new Record(key, i, position, keyLength, valueLength, length,
+                                buffer.getInt(position + 12), buffer.getLong(position + 16)));
+                    } catch (CacheException e) {
+                        logger.debug("The OffHeapCache['{}'] discards the unreadable record at [segment : {} , offset : {}]", id, i, position, e);
+                        buffer.putInt(position, DELETED);
+                    }
+                }
+                position += length;
+            }
+        }
+
+        reset();
+        if (liveRecords.isEmpty()) {
+            return;
+        }
+        liveRecords.sort(comparingLong(record -> record.sequence));
+        Record last = liveRecords.get(liveRecords.size() - 1);
+        this.lap = last.lap;
+        this.segment = last.segment;
+        this.offset = last.offset + last.length;
+        this.sequence = last.sequence;
+        for (Record record : liveRecords) {
+            // the records of the previous lap must be ahead of the current position
+            boolean valid = record.lap == lap || (record.lap == lap - 1
+                    && (record.segment > segment || (record.segment == segment && record.offset >= offset)));
+            if (valid) {
+                restore(segments, record);
+            } else {
+                segments[record.segment].putInt(record.offset, DELETED);
+            }
+        }
+        recovered = true;
+        logger.info("The OffHeapCache['{}'] recovered {} records from the file : {}", id, index.size(), file);
+    }
+
+    private void restore(ByteBuffer[] segments, Record record) {
+        Record previous = index.put(record.key, record);
+        if (previous != null) {
+            markDeleted(segments, previous);
+        }
+        records.addLast(record);
+        usedBytes += record.length;
+    }
+
+    private static int dataStart(int segment) {
+        return segment == 0 ? HEADER_SIZE : 0;
+    }
+
+    private static int align(int size) {
+        return (size + 7) & ~7;
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapCache{" +
+                "id='" + id + '\'' +
+                ", capacity=" + capacity +
+                ", segmentSize=" + segmentSize +
+                ", file='" + file + '\'' +
+                ", schemaVersion='" + schemaVersion + '\'' +
+                ", size=" + index.size() +
+                ", usedBytes=" + usedBytes +
+                ", evictionCount=" + evictionCount +
+                '}';
+    }
+
+    private static class Record {
+
+        private final Object key;
+
+        private final int segment;
+
+        private final int offset;
+
+        private final int keyLength;
+
+        private final int valueLength;
+
+        private final int length;
+
+        private final int lap;
+
+        private final long sequence;
+
+        private boolean live = true;
+
+        Record(Object key, int segment, int offset, int keyLength, int valueLength, int length, int lap, long sequence) {
+            this.key = key;
+            this.segment = segment;
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+            this.length = length;
+            this.lap = lap;
+            this.sequence = sequence;
+        }
+    }
+}
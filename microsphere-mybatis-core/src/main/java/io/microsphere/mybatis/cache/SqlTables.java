@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static java.lang.Character.isLetterOrDigit;
+import static java.lang.Character.isWhitespace;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * The tables read and written by a SQL statement, which are extracted by a lightweight tokenizer rather than a full
+ * SQL grammar:
+ * <ul>
+ *     <li>read : <code>FROM</code> lists, <code>JOIN</code> and <code>USING</code> clauses</li>
+ *     <li>write : <code>INSERT/REPLACE/MERGE INTO</code>, <code>UPDATE</code>, <code>DELETE FROM</code> and
+ *     <code>TRUNCATE</code></li>
+ * </ul>
+ * The table names are lower-cased without the quotes and the schema qualifiers, the names of the common table
+ * expressions are excluded.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   SqlTables tables = SqlTables.parse("INSERT INTO audit (id) SELECT id FROM users u JOIN roles r ON u.id = r.id");
+ *   tables.getWriteTables(); // [audit]
+ *   tables.getReadTables();  // [users, roles]
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @since 1.0.0
+ */
+public class SqlTables {
+
+    private static final Set<String> CLAUSE_KEYWORDS = Set.of("WHERE", "JOIN", "INNER", "LEFT", "RIGHT", "FULL",
+            "OUTER", "CROSS", "NATURAL", "ON", "USING", "GROUP", "ORDER", "HAVING", "LIMIT", "OFFSET", "UNION",
+            "EXCEPT", "INTERSECT", "MINUS", "FETCH", "FOR", "WINDOW", "SET", "VALUES", "SELECT", "RETURNING",
+            "LATERAL", "AS", "WHEN", "THEN", "START", "CONNECT", "PARTITION", "SAMPLE", "QUALIFY", "DEFAULT");
+
+    /**
+     * The unknown tables, e.g. the tables of the dynamic SQL that vary with the renderings
+     */
+    public static final SqlTables UNKNOWN = new SqlTables(emptySet(), emptySet());
+
+    private final Set<String> readTables;
+
+    private final Set<String> writeTables;
+
+    SqlTables(Set<String> readTables, Set<String> writeTables) {
+        this.readTables = readTables.isEmpty() ? emptySet() : unmodifiableSet(readTables);
+        this.writeTables = writeTables.isEmpty() ? emptySet() : unmodifiableSet(writeTables);
+    }
+
+    /**
+     * Get the names of the tables read by the SQL
+     *
+     * @return non-null
+     */
+    public Set<String> getReadTables() {
+        return readTables;
+    }
+
+    /**
+     * Get the names of the tables written by the SQL
+     *
+     * @return non-null
+     */
+    public Set<String> getWriteTables() {
+        return writeTables;
+    }
+
+    /**
+     * Does the SQL read any of the specified tables or not
+     *
+     * @param tables the names of tables
+     * @return <code>true</code> if read
+     */
+    public boolean isReadingAny(Collection<String> tables) {
+        for (String table : tables) {
+            if (readTables.contains(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Parse the tables from the specified SQL
+     *
+     * @param sql the SQL
+     * @return non-null
+     */
+    public static SqlTables parse(String sql) {
+        List<String> tokens = tokenize(sql);
+        Set<String> readTables = new LinkedHashSet<>();
+        Set<String> writeTables = new LinkedHashSet<>();
+        Set<String> cteNames = new LinkedHashSet<>();
+        int size = tokens.size();
+        for (int i = 0; i < size; i++) {
+            String token = tokens.get(i);
+            String keyword = keyword(token);
+            switch (keyword) {
+                case "FROM" -> {
+                    if (isKeyword(tokens, i - 1, "DELETE")) {
+                        addTable(tokens, i + 1, writeTables, true);
+                    } else {
+                        addTables(tokens, i + 1, readTables);
+                    }
+                }
+                case "JOIN", "USING" -> addTable(tokens, i + 1, readTables, false);
+                case "INTO" -> addTable(tokens, i + 1, writeTables, true);
+                case "UPDATE" -> {
+                    if (!isKeyword(tokens, i - 1, "FOR") && !isKeyword(tokens, i - 1, "KEY")
+                            && !isKeyword(tokens, i - 1, "ON")) {
+                        addTable(tokens, i + 1, writeTables, true);
+                    }
+                }
+                case "TRUNCATE" -> addTable(tokens, isKeyword(tokens, i + 1, "TABLE") ? i + 2 : i + 1, writeTables, true);
+                default -> {
+                    // the name of common table expression : name AS (
+                    if (isIdentifier(token) && isKeyword(tokens, i + 1, "AS") && i + 2 < size && "(".equals(tokens.get(i + 2))
+                            && (isKeyword(tokens, i - 1, "WITH") || isKeyword(tokens, i - 1, "RECURSIVE")
+                            || (i > 0 && ",".equals(tokens.get(i - 1))))) {
+                        cteNames.add(normalize(token));
+                    }
+                }
+            }
+        }
+        readTables.removeAll(cteNames);
+        writeTables.removeAll(cteNames);
+        return new SqlTables(readTables, writeTables);
+    }
+
+    private static void addTables(List<String> tokens, int index, Set<String> tables) {
+        int size = tokens.size();
+        int i = index;
+        while (i < size) {
+            i = addTable(tokens, i, tables, false);
+            if (i < 0) {
+                return;
+            }
+            // skip the alias
+            if (isKeyword(tokens, i, "AS")) {
+                i++;
+            }
+            if (i < size && isIdentifier(tokens.get(i)) && !CLAUSE_KEYWORDS.contains(keyword(tokens.get(i)))) {
+                i++;
+            }
+            if (i < size && ",".equals(tokens.get(i))) {
+                i++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Add the table at the specified index
+     *
+     * @return the index of next token, or <code>-1</code> if the token is not a table
+     */
+    private static int addTable(List<String> tokens, int index, Set<String> tables, boolean write) {
+        if (index >= tokens.size()) {
+            return -1;
+        }
+        String token = tokens.get(index);
+        if (!isIdentifier(token) || CLAUSE_KEYWORDS.contains(keyword(token))) {
+            return -1;
+        }
+        if (!write && index + 1 < tokens.size() && "(".equals(tokens.get(index + 1))) {
+            // the function : FROM generate_series(1, 10)
+            return -1;
+        }
+        tables.add(normalize(token));
+        return index + 1;
+    }
+
+    private static boolean isKeyword(List<String> tokens, int index, String keyword) {
+        return index >= 0 && index < tokens.size() && keyword.equals(keyword(tokens.get(index)));
+    }
+
+    private static String keyword(String token) {
+        return isQuoted(token.charAt(0)) ? token : token.toUpperCase(Locale.ROOT);
+    }
+
+    private static boolean isIdentifier(String token) {
+        char c = token.charAt(0);
+        return isQuoted(c) || Character.isLetter(c) || c == '_';
+    }
+
+    private static boolean isQuoted(char c) {
+        return c == '"' || c == '`' || c == '[';
+    }
+
+    static String normalize(String name) {
+        StringBuilder builder = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                // drop the qualifier
+                builder.setLength(0);
+            } else if (!isQuoted(c) && c != ']') {
+                builder.append(Character.toLowerCase(c));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Split the SQL into the tokens, the literals and comments are skipped, the qualified names are kept in one token
+     */
+    static List<String> tokenize(String sql) {
+        List<String> tokens = new ArrayList<>();
+        int length = sql.length();
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (isWhitespace(c)) {
+                i++;
+            } else if (c == '\'') {
+                i = skipQuoted(sql, i, '\'');
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+            } else if (isQuoted(c) || isLetterOrDigit(c) || c == '_' || c == '$') {
+                int start = i;
+                while (i < length) {
+                    char ch = sql.charAt(i);
+                    if (ch == '"' || ch == '`') {
+                        i = skipQuoted(sql, i, ch);
+                    } else if (ch == '[') {
+                        i = skipQuoted(sql, i, ']');
+                    } else if (isLetterOrDigit(ch) || ch == '_' || ch == '$' || ch == '.') {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                tokens.add(sql.substring(start, i));
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int end = sql.indexOf(quote, start + 1);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "SqlTables{" +
+                "readTables=" + readTables +
+                ", writeTables=" + writeTables +
+                '}';
+    }
+}
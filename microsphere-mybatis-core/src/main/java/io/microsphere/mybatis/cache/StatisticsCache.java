@@ -0,0 +1,581 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.executor.ExecutorFilter;
+import io.microsphere.mybatis.executor.ExecutorFilterChain;
+import io.microsphere.mybatis.executor.ExecutorFilterPlacement;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.reflect.FieldUtils.getFieldValue;
+import static io.microsphere.reflect.FieldUtils.setFieldValue;
+import static io.microsphere.util.Assert.assertNotNull;
+import static java.lang.Boolean.TRUE;
+import static java.lang.System.nanoTime;
+
+/**
+ * The {@link Cache} decorator records the statistics of the second-level cache by the lock-free counters:
+ * <ul>
+ *     <li>the hits and misses of the lookups, and the time spent looking up the decorated cache</li>
+ *     <li>the loads of the missed entries, and the time spent from the miss to the end of the query loading the entry
+ *     from the database, which is timed by an {@link ExecutorFilterPlacement#OUTSIDE outside} {@link ExecutorFilter}
+ *     registered by {@link #decorate(Configuration)}</li>
+ *     <li>the puts, removals and clears</li>
+ *     <li>the evictions, which are counted under the MyBatis eviction decorators, namely {@link LruCache},
+ *     {@link FifoCache}, {@link SoftCache} and {@link WeakCache}, as they remove the evicted entries from their
+ *     delegates, the evictions of the other caches are not counted</li>
+ * </ul>
+ * The {@link StatisticsCache} equals only itself, so that it's never mistaken for the decorated cache.
+ * The caches of a {@link Configuration} are decorated by {@link #decorate(Configuration)} after the mappers are
+ * parsed, including the ones referenced by the {@link MappedStatement statements}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   Map<String, StatisticsCache> caches = StatisticsCache.decorate(sqlSessionFactory.getConfiguration());
+ *   StatisticsCache cache = caches.get("io.microsphere.mybatis.test.mapper.UserMapper");
+ *   double hitRatio = cache.getHitRatio();
+ *   long evictionCount = cache.getEvictionCount();
+ *   double averageLoadTime = cache.getAverageLoadTime();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Cache
+ * @see org.apache.ibatis.cache.decorators.LoggingCache
+ * @since 1.0.0
+ */
+public class StatisticsCache implements Cache {
+
+    private static final Logger logger = getLogger(StatisticsCache.class);
+
+    private static final Set<Class<?>> EVICTION_CACHE_TYPES = Set.of(LruCache.class, FifoCache.class, SoftCache.class,
+            WeakCache.class);
+
+    private static final String DELEGATE_FIELD_NAME = "delegate";
+
+    /**
+     * The explicit removal of current thread, which is not an eviction
+     */
+    private static final ThreadLocal<Boolean> removing = new ThreadLocal<>();
+
+    /**
+     * The innermost query loading by current thread
+     */
+    private static final ThreadLocal<Load> loads = new ThreadLocal<>();
+
+    private static final ExecutorFilter LOAD_TIME_FILTER = new LoadTimeExecutorFilter();
+
+    private final Cache delegate;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder lookupTime = new LongAdder();
+
+    private final LongAdder loadCount = new LongAdder();
+
+    private final LongAdder loadTime = new LongAdder();
+
+    private final LongAdder putCount = new LongAdder();
+
+    private final LongAdder removalCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder clearCount = new LongAdder();
+
+    /**
+     * Create a {@link StatisticsCache}, the evictions are counted under the MyBatis eviction decorator of the specified
+     * {@link Cache} if present
+     *
+     * @param delegate the decorated {@link Cache}
+     */
+    public StatisticsCache(Cache delegate) {
+        assertNotNull(delegate, () -> "The 'delegate' argument must not be null");
+        this.delegate = delegate;
+        installEvictionCounter(delegate);
+    }
+
+    @Override
+    public String getId() {
+        return delegate.getId();
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        delegate.putObject(key, value);
+        putCount.increment();
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        long startTime = nanoTime();
+        Object value = delegate.getObject(key);
+        long endTime = nanoTime();
+        lookupTime.add(endTime - startTime);
+        if (value == null) {
+            missCount.increment();
+            Load load = loads.get();
+            if (load != null && load.cache == this && !load.missed) {
+                load.missed = true;
+                load.missTime = endTime;
+            }
+        } else {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        removalCount.increment();
+        Boolean previous = removing.get();
+        removing.set(TRUE);
+        try {
+            return delegate.removeObject(key);
+        } finally {
+            if (previous == null) {
+                removing.remove();
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        clearCount.increment();
+        delegate.clear();
+    }
+
+    @Override
+    public int getSize() {
+        return delegate.getSize();
+    }
+
+    private Load beginLoad() {
+        Load load = new Load(this, loads.get());
+        loads.set(load);
+        return load;
+    }
+
+    private void endLoad(Load load) {
+        if (load.previous == null) {
+            loads.remove();
+        } else {
+            loads.set(load.previous);
+        }
+        if (load.missed) {
+            loadTime.add(nanoTime() - load.missTime);
+            loadCount.increment();
+        }
+    }
+
+    /**
+     * Get the decorated {@link Cache}
+     *
+     * @return non-null
+     */
+    public Cache getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the count of the lookups that found the entries
+     *
+     * @return the count of hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the count of the lookups that found nothing
+     *
+     * @return the count of misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the count of the lookups
+     *
+     * @return the count of hits and misses
+     */
+    public long getRequestCount() {
+        return getHitCount() + getMissCount();
+    }
+
+    /**
+     * Get the ratio of the hits to the lookups
+     *
+     * @return <code>0</code> if no lookup
+     */
+    public double getHitRatio() {
+        long hits = getHitCount();
+        long requests = hits + getMissCount();
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    /**
+     * Get the count of the puts
+     *
+     * @return the count of puts
+     */
+    public long getPutCount() {
+        return putCount.sum();
+    }
+
+    /**
+     * Get the count of the explicit removals
+     *
+     * @return the count of removals
+     */
+    public long getRemovalCount() {
+        return removalCount.sum();
+    }
+
+    /**
+     * Get the count of the evictions under the MyBatis eviction decorator
+     *
+     * @return the count of evictions
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Get the count of the clears
+     *
+     * @return the count of clears
+     */
+    public long getClearCount() {
+        return clearCount.sum();
+    }
+
+    /**
+     * Get the total time spent looking up the decorated cache
+     *
+     * @return the total lookup time in nanoseconds
+     */
+    public long getTotalLookupTime() {
+        return lookupTime.sum();
+    }
+
+    /**
+     * Get the average time spent looking up the decorated cache
+     *
+     * @return the average lookup time in nanoseconds, <code>0</code> if no lookup
+     */
+    public double getAverageLookupTime() {
+        long requests = getRequestCount();
+        return requests == 0 ? 0 : (double) getTotalLookupTime() / requests;
+    }
+
+    /**
+     * Get the count of the queries that loaded the missed entries from the database
+     *
+     * @return the count of loads
+     */
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    /**
+     * Get the total time spent loading the missed entries from the database
+     *
+     * @return the total load time in nanoseconds
+     */
+    public long getTotalLoadTime() {
+        return loadTime.sum();
+    }
+
+    /**
+     * Get the average time spent loading a missed entry from the database
+     *
+     * @return the average load time in nanoseconds, <code>0</code> if no load
+     */
+    public double getAverageLoadTime() {
+        long loads = getLoadCount();
+        return loads == 0 ? 0 : (double) getTotalLoadTime() / loads;
+    }
+
+    /**
+     * Reset all counters
+     */
+    public void reset() {
+        hitCount.reset();
+        missCount.reset();
+        lookupTime.reset();
+        loadCount.reset();
+        loadTime.reset();
+        putCount.reset();
+        removalCount.reset();
+        evictionCount.reset();
+        clearCount.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticsCache{" +
+                "id='" + getId() + '\'' +
+                ", size=" + getSize() +
+                ", hitCount=" + getHitCount() +
+                ", missCount=" + getMissCount() +
+                ", putCount=" + getPutCount() +
+                ", removalCount=" + getRemovalCount() +
+                ", evictionCount=" + getEvictionCount() +
+                ", clearCount=" + getClearCount() +
+                ", totalLookupTime=" + getTotalLookupTime() +
+                ", loadCount=" + getLoadCount() +
+                ", totalLoadTime=" + getTotalLoadTime() +
+                '}';
+    }
+
+    /**
+     * Decorate the second-level caches of the specified {@link Configuration} by {@link StatisticsCache}, which
+     * replaces the caches of the {@link Configuration} and the {@link MappedStatement statements}, and registers the
+     * {@link ExecutorFilter} timing the loads of the missed entries. The decorated caches are kept.
+     *
+     * @param configuration {@link Configuration}
+     * @return the {@link StatisticsCache statistics caches} by the cache ids
+     */
+    public static Map<String, StatisticsCache> decorate(Configuration configuration) {
+        Map<Cache, StatisticsCache> statisticsCaches = new IdentityHashMap<>();
+        Map<String, Object> caches = getFieldValue(configuration, "caches");
+        // the short names may map to the same cache
+        for (String name : new ArrayList<>(caches.keySet())) {
+            if (caches.get(name) instanceof Cache cache) {
+                caches.replace(name, decorate(cache, statisticsCaches));
+            }
+        }
+        for (Object value : new ArrayList<>(configuration.getMappedStatements())) {
+            if (value instanceof MappedStatement ms && ms.getCache() != null) {
+                setFieldValue(ms, "cache", decorate(ms.getCache(), statisticsCaches));
+            }
+        }
+        addLoadTimeFilter(configuration);
+        logger.trace("The caches of Configuration are decorated : {}", statisticsCaches.values());
+        return toMap(statisticsCaches);
+    }
+
+    /**
+     * Get the {@link StatisticsCache statistics caches} of the specified {@link Configuration}
+     *
+     * @param configuration {@link Configuration}
+     * @return the {@link StatisticsCache statistics caches} by the cache ids
+     * @see #decorate(Configuration)
+     */
+    public static Map<String, StatisticsCache> getStatisticsCaches(Configuration configuration) {
+        Map<Cache, StatisticsCache> statisticsCaches = new IdentityHashMap<>();
+        for (Object value : configuration.getCaches()) {
+            if (value instanceof StatisticsCache statisticsCache) {
+                statisticsCaches.put(statisticsCache, statisticsCache);
+            }
+        }
+        return toMap(statisticsCaches);
+    }
+
+    private static StatisticsCache decorate(Cache cache, Map<Cache, StatisticsCache> statisticsCaches) {
+        if (cache instanceof StatisticsCache statisticsCache) {
+            statisticsCaches.put(statisticsCache, statisticsCache);
+            return statisticsCache;
+        }
+        StatisticsCache statisticsCache = statisticsCaches.get(cache);
+        if (statisticsCache == null) {
+            statisticsCache = new StatisticsCache(cache);
+            statisticsCaches.put(cache, statisticsCache);
+            statisticsCaches.put(statisticsCache, statisticsCache);
+        }
+        return statisticsCache;
+    }
+
+    private static void addLoadTimeFilter(Configuration configuration) {
+        for (Interceptor interceptor : configuration.getInterceptors()) {
+            if (interceptor instanceof InterceptingExecutorInterceptor interceptingExecutorInterceptor
+                    && List.of(interceptingExecutorInterceptor.getExecutorFilters()).contains(LOAD_TIME_FILTER)) {
+                return;
+            }
+        }
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[]{LOAD_TIME_FILTER}));
+    }
+
+    private void installEvictionCounter(Cache cache) {
+        Cache target = cache;
+        while (target != null && !EVICTION_CACHE_TYPES.contains(target.getClass())) {
+            target = hasDelegate(target) ? getFieldValue(target, DELEGATE_FIELD_NAME) : null;
+        }
+        if (target == null) {
+            logger.trace("The evictions of the cache['{}'] are not counted without the eviction decorator", getId());
+            return;
+        }
+        // the evicted entries are removed from the delegate of the eviction decorator
+        Cache evictionDelegate = getFieldValue(target, DELEGATE_FIELD_NAME);
+        setFieldValue(target, DELEGATE_FIELD_NAME, new EvictionCountingCache(evictionDelegate, evictionCount));
+    }
+
+    private static boolean hasDelegate(Cache cache) {
+        for (Class<?> type = cache.getClass(); type != null; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (DELEGATE_FIELD_NAME.equals(field.getName()) && Cache.class.isAssignableFrom(field.getType())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, StatisticsCache> toMap(Map<Cache, StatisticsCache> statisticsCaches) {
+        Map<String, StatisticsCache> caches = new LinkedHashMap<>();
+        for (StatisticsCache statisticsCache : statisticsCaches.values()) {
+            caches.put(statisticsCache.getId(), statisticsCache);
+        }
+        return caches;
+    }
+
+    /**
+     * The query loading the missed entry of a {@link StatisticsCache}, which is confined to the thread of query
+     */
+    private static class Load {
+
+        private final StatisticsCache cache;
+
+        private final Load previous;
+
+        private boolean missed;
+
+        private long missTime;
+
+        private Load(StatisticsCache cache, Load previous) {
+            this.cache = cache;
+            this.previous = previous;
+        }
+    }
+
+    /**
+     * The {@link Cache} under the eviction decorator counts the entries removed by the decorator rather than the
+     * explicit removals
+     */
+    private static class EvictionCountingCache implements Cache {
+
+        private final Cache delegate;
+
+        private final LongAdder evictionCount;
+
+        private EvictionCountingCache(Cache delegate, LongAdder evictionCount) {
+            this.delegate = delegate;
+            this.evictionCount = evictionCount;
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public void putObject(Object key, Object value) {
+            delegate.putObject(key, value);
+        }
+
+        @Override
+        public Object getObject(Object key) {
+            return delegate.getObject(key);
+        }
+
+        @Override
+        public Object removeObject(Object key) {
+            Object value = delegate.removeObject(key);
+            if (value != null && removing.get() == null) {
+                evictionCount.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public void clear() {
+            delegate.clear();
+        }
+
+        @Override
+        public int getSize() {
+            return delegate.getSize();
+        }
+    }
+
+    /**
+     * The {@link ExecutorFilter} wraps the {@link org.apache.ibatis.executor.CachingExecutor} to time the queries
+     * whose lookups missed the {@link StatisticsCache}
+     */
+    private static class LoadTimeExecutorFilter implements ExecutorFilter {
+
+        @Override
+        public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                 CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+            if (!(ms.getCache() instanceof StatisticsCache cache)) {
+                return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+            }
+            Load load = cache.beginLoad();
+            try {
+                return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+            } finally {
+                cache.endLoad(load);
+            }
+        }
+
+        @Override
+        public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                 ExecutorFilterChain chain) throws SQLException {
+            if (!(ms.getCache() instanceof StatisticsCache cache)) {
+                return chain.query(ms, parameter, rowBounds, resultHandler);
+            }
+            Load load = cache.beginLoad();
+            try {
+                return chain.query(ms, parameter, rowBounds, resultHandler);
+            } finally {
+                cache.endLoad(load);
+            }
+        }
+
+        @Override
+        public ExecutorFilterPlacement getPlacement() {
+            return ExecutorFilterPlacement.OUTSIDE;
+        }
+    }
+}
@@ -0,0 +1,571 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.Collections.emptyList;
+
+/**
+ * The two-tier {@link Cache} with a small on-heap L1 tier of the deserialized objects in front of a large L2 tier of
+ * the serialized values, e.g. {@link CompressedCache} (default) or {@link OffHeapCache}:
+ * <ul>
+ *     <li>the entries are put into L1, and demoted to L2 when they are evicted from L1 in LRU order</li>
+ *     <li>the entries are promoted from L2 to L1 when they are accessed</li>
+ * </ul>
+ * <p>
+ * The objects of L1 are shared by the callers like the read-only caches, the statistics of the tiers are tracked per
+ * instance, namely per namespace when it's configured by the <code>&lt;cache&gt;</code> element of Mapper XML.
+ * <p>
+ * The lock of L1 is never held across the serialization and I/O of L2, the accesses of L2 are ordered by the striped
+ * locks of the keys, hence the L2 {@link Cache} must be thread-safe. The L2 created by {@link #initialize()} is owned
+ * and released by {@link #close()}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   <!-- Mapper XML -->
+ *   <cache type="io.microsphere.mybatis.cache.TieredCache">
+ *       <property name="l1MaxEntries" value="256"/>
+ *       <property name="l2Capacity" value="1073741824"/>
+ *       <!-- optional, the L2 tier will be OffHeapCache backed by the file -->
+ *       <property name="l2File" value="/data/cache/users.cache"/>
+ *   </cache>
+ *
+ *   // or programmatically
+ *   TieredCache cache = new TieredCache("users", 256, new OffHeapCache("users-l2", 1L << 30, null, null));
+ *   cache.getL1Statistics().getHitCount();
+ *   cache.getL2Statistics().getHitCount();
+ *
+ *   // the shared Cache bean for @EnableMyBatis(cache = "tieredCache")
+ *   @Bean(destroyMethod = "close")
+ *   public TieredCache tieredCache() {
+ *       TieredCache cache = new TieredCache("tieredCache");
+ *       cache.setL2File("/data/cache/shared.cache");
+ *       return cache;
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CompressedCache
+ * @see OffHeapCache
+ * @since 1.0.0
+ */
+public class TieredCache implements EnumerableCache, InitializingObject, Closeable {
+
+    private static final Logger logger = getLogger(TieredCache.class);
+
+    /**
+     * The default max entries of L1
+     */
+    public static final int DEFAULT_L1_MAX_ENTRIES = 256;
+
+    private static final int KEY_LOCKS = 32;
+
+    private final String id;
+
+    private int l1MaxEntries = DEFAULT_L1_MAX_ENTRIES;
+
+    private long l2Capacity = CompressedCache.DEFAULT_MAX_BYTES;
+
+    private String l2File;
+
+    private boolean l2OffHeap;
+
+    private String schemaVersion;
+
+    // guards L1 and the demoting entries, never held across the access of L2
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // the striped locks of the keys order the accesses of L2 for the same key
+    private final ReentrantLock[] keyLocks = new ReentrantLock[KEY_LOCKS];
+
+    private final LinkedHashMap<Object, Object> l1 = new LinkedHashMap<>(16, 0.75f, true);
+
+    // the entries evicted from L1 that are being written into L2
+    private final Map<Object, Object> demotingEntries = new HashMap<>();
+
+    private volatile Cache l2;
+
+    private boolean l2Owned;
+
+    private final TierStatistics l1Statistics = new TierStatistics();
+
+    private final TierStatistics l2Statistics = new TierStatistics();
+
+    private final LongAdder promotionCount = new LongAdder();
+
+    private final LongAdder demotionCount = new LongAdder();
+
+    /**
+     * Create a {@link TieredCache} to be configured by the setters, which is initialized by {@link #initialize()}
+     * or lazily.
+     *
+     * @param id the id of cache
+     */
+    public TieredCache(String id) {
+        assertNotNull(id, () -> "The 'id' argument must not be null");
+        this.id = id;
+        for (int i = 0; i < KEY_LOCKS; i++) {
+            keyLocks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Create a {@link TieredCache}
+     *
+     * @param id           the id of cache
+     * @param l1MaxEntries the max entries of L1
+     * @param l2           the {@link Cache} of L2 that stores the serialized values
+     */
+    public TieredCache(String id, int l1MaxEntries, Cache l2) {
+        this(id);
+        assertNotNull(l2, () -> "The 'l2' argument must not be null");
+        setL1MaxEntries(l1MaxEntries);
+        this.l2 = l2;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public void putObject(Object key, Object value) {
+        Cache l2 = l2();
+        List<Map.Entry<Object, Object>> demotedEntries;
+        ReentrantLock keyLock = keyLock(key);
+        keyLock.lock();
+        try {
+            lock.lock();
+            try {
+                l1.put(key, value);
+                demotingEntries.remove(key);
+                demotedEntries = evictL1();
+            } finally {
+                lock.unlock();
+            }
+            // the stale value of L2
+            l2.removeObject(key);
+        } finally {
+            keyLock.unlock();
+        }
+        demote(l2, demotedEntries);
+    }
+
+    @Override
+    public Object getObject(Object key) {
+        Cache l2 = l2();
+        lock.lock();
+        try {
+            Object value = l1.get(key);
+            if (value != null || l1.containsKey(key)) {
+                l1Statistics.hitCount.increment();
+                return value;
+            }
+        } finally {
+            lock.unlock();
+        }
+        l1Statistics.missCount.increment();
+        Object value;
+        List<Map.Entry<Object, Object>> demotedEntries;
+        ReentrantLock keyLock = keyLock(key);
+        keyLock.lock();
+        try {
+            lock.lock();
+            try {
+                // the entry was put or is being demoted while waiting for the lock of key
+                if (l1.containsKey(key)) {
+                    return l1.get(key);
+                }
+                if (demotingEntries.containsKey(key)) {
+                    return demotingEntries.get(key);
+                }
+            } finally {
+                lock.unlock();
+            }
+            value = l2.getObject(key);
+            if (value == null) {
+                l2Statistics.missCount.increment();
+                return null;
+            }
+            l2Statistics.hitCount.increment();
+            // promote
+            l2.removeObject(key);
+            lock.lock();
+            try {
+                l1.put(key, value);
+                demotedEntries = evictL1();
+            } finally {
+                lock.unlock();
+            }
+            promotionCount.increment();
+        } finally {
+            keyLock.unlock();
+        }
+        demote(l2, demotedEntries);
+        return value;
+    }
+
+    @Override
+    public Object removeObject(Object key) {
+        Cache l2 = l2();
+        ReentrantLock keyLock = keyLock(key);
+        keyLock.lock();
+        try {
+            Object value;
+            lock.lock();
+            try {
+                value = l1.containsKey(key) ? l1.remove(key) : demotingEntries.remove(key);
+            } finally {
+                lock.unlock();
+            }
+            l2.removeObject(key);
+            return value;
+        } finally {
+            keyLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        Cache l2 = l2();
+        // the demotions in progress must not survive the clearing
+        for (ReentrantLock keyLock : keyLocks) {
+            keyLock.lock();
+        }
+        try {
+            lock.lock();
+            try {
+                l1.clear();
+                demotingEntries.clear();
+            } finally {
+                lock.unlock();
+            }
+            l2.clear();
+        } finally {
+            for (int i = KEY_LOCKS - 1; i >= 0; i--) {
+                keyLocks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public int getSize() {
+        Cache l2 = l2();
+        int size;
+        lock.lock();
+        try {
+            size = l1.size() + demotingEntries.size();
+        } finally {
+            lock.unlock();
+        }
+        return size + l2.getSize();
+    }
+
+    /**
+     * Get the keys of L2 if it's {@link EnumerableCache enumerable}, followed by the keys of L1
+     *
+     * @return non-null
+     */
+    @Override
+    public List<Object> getKeys() {
+        Cache l2 = l2();
+        List<Object> l1Keys;
+        lock.lock();
+        try {
+            l1Keys = new ArrayList<>(demotingEntries.size() + l1.size());
+            l1Keys.addAll(demotingEntries.keySet());
+            l1Keys.addAll(l1.keySet());
+        } finally {
+            lock.unlock();
+        }
+        List<Object> keys = new ArrayList<>(l2.getSize() + l1Keys.size());
+        if (l2 instanceof EnumerableCache enumerableCache) {
+            keys.addAll(enumerableCache.getKeys());
+        }
+        keys.addAll(l1Keys);
+        return keys;
+    }
+
+    /**
+     * Initialize the L2 tier from the properties if absent
+     */
+    @Override
+    public synchronized void initialize() {
+        if (l2 != null) {
+            return;
+        }
+        assertTrue(l1MaxEntries > 0, () -> "The 'l1MaxEntries' must be positive");
+        String l2Id = id + ".L2";
+        if (l2OffHeap || l2File != null) {
+            l2 = new OffHeapCache(l2Id, l2Capacity, l2File, schemaVersion);
+        } else {
+            l2 = new CompressedCache(l2Id, l2Capacity);
+        }
+        l2Owned = true;
+        logger.trace("The TieredCache['{}'] was initialized with L2 : {}", id, l2);
+    }
+
+    /**
+     * Close the L2 tier if it's created by {@link #initialize()}, the L2 passed by the constructor is closed by its
+     * owner.
+     */
+    @Override
+    public synchronized void close() {
+        if (l2Owned && l2 instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                logger.warn("The TieredCache['{}'] failed to close the L2 : {}", id, l2, e);
+            }
+        }
+    }
+
+    private Cache l2() {
+        Cache l2 = this.l2;
+        if (l2 == null) {
+            initialize();
+            l2 = this.l2;
+        }
+        return l2;
+    }
+
+    private ReentrantLock keyLock(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        return keyLocks[(hash ^ (hash >>> 16)) & (KEY_LOCKS - 1)];
+    }
+
+    /**
+     * Evict the least recently used entries of L1 into the demoting entries, must be guarded by the lock of L1
+     *
+     * @return the evicted entries to be demoted
+     */
+    private List<Map.Entry<Object, Object>> evictL1() {
+        if (l1.size() <= l1MaxEntries) {
+            return emptyList();
+        }
+        List<Map.Entry<Object, Object>> evictedEntries = new ArrayList<>(l1.size() - l1MaxEntries);
+        Iterator<Map.Entry<Object, Object>> iterator = l1.entrySet().iterator();
+        while (l1.size() > l1MaxEntries && iterator.hasNext()) {
+            Map.Entry<Object, Object> entry = iterator.next();
+            iterator.remove();
+            demotingEntries.put(entry.getKey(), entry.getValue());
+            evictedEntries.add(entry);
+        }
+        return evictedEntries;
+    }
+
+    private void demote(Cache l2, List<Map.Entry<Object, Object>> entries) {
+        for (Map.Entry<Object, Object> entry : entries) {
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            ReentrantLock keyLock = keyLock(key);
+            keyLock.lock();
+            try {
+                boolean demoting;
+                lock.lock();
+                try {
+                    // the entry may be put, removed or cleared in the meantime
+                    demoting = demotingEntries.remove(key, value);
+                } finally {
+                    lock.unlock();
+                }
+                if (demoting) {
+                    l2.putObject(key, value);
+                    demotionCount.increment();
+                }
+            } finally {
+                keyLock.unlock();
+            }
+        }
+    }
+
+    public int getL1MaxEntries() {
+        return l1MaxEntries;
+    }
+
+    public void setL1MaxEntries(int l1MaxEntries) {
+        this.l1MaxEntries = l1MaxEntries;
+    }
+
+    public long getL2Capacity() {
+        return l2Capacity;
+    }
+
+    public void setL2Capacity(long l2Capacity) {
+        this.l2Capacity = l2Capacity;
+    }
+
+    public String getL2File() {
+        return l2File;
+    }
+
+    public void setL2File(String l2File) {
+        this.l2File = l2File;
+    }
+
+    public boolean isL2OffHeap() {
+        return l2OffHeap;
+    }
+
+    public void setL2OffHeap(boolean l2OffHeap) {
+        this.l2OffHeap = l2OffHeap;
+    }
+
+    public String getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    public void setSchemaVersion(String schemaVersion) {
+        this.schemaVersion = schemaVersion;
+    }
+
+    /**
+     * Get the {@link Cache} of L2
+     *
+     * @return non-null
+     */
+    public Cache getL2() {
+        return l2();
+    }
+
+    /**
+     * Get the size of L1
+     *
+     * @return the size of L1
+     */
+    public int getL1Size() {
+        lock.lock();
+        try {
+            return l1.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the {@link TierStatistics} of L1
+     *
+     * @return non-null
+     */
+    public TierStatistics getL1Statistics() {
+        return l1Statistics;
+    }
+
+    /**
+     * Get the {@link TierStatistics} of L2, only the misses of L1 are looked up in L2
+     *
+     * @return non-null
+     */
+    public TierStatistics getL2Statistics() {
+        return l2Statistics;
+    }
+
+    /**
+     * Get the count of the entries promoted from L2 to L1
+     *
+     * @return the count of the promotions
+     */
+    public long getPromotionCount() {
+        return promotionCount.sum();
+    }
+
+    /**
+     * Get the count of the entries demoted from L1 to L2
+     *
+     * @return the count of the demotions
+     */
+    public long getDemotionCount() {
+        return demotionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "TieredCache{" +
+                "id='" + id + '\'' +
+                ", l1MaxEntries=" + l1MaxEntries +
+                ", l2=" + l2 +
+                ", l1Statistics=" + l1Statistics +
+                ", l2Statistics=" + l2Statistics +
+                ", promotionCount=" + promotionCount +
+                ", demotionCount=" + demotionCount +
+                '}';
+    }
+
+    /**
+     * The statistics of a tier
+     */
+    public static class TierStatistics {
+
+        private final LongAdder hitCount = new LongAdder();
+
+        private final LongAdder missCount = new LongAdder();
+
+        /**
+         * Get the count of the hits
+         *
+         * @return the count of the hits
+         */
+        public long getHitCount() {
+            return hitCount.sum();
+        }
+
+        /**
+         * Get the count of the misses
+         *
+         * @return the count of the misses
+         */
+        public long getMissCount() {
+            return missCount.sum();
+        }
+
+        /**
+         * Get the ratio of the hits
+         *
+         * @return <code>0</code> if no request
+         */
+        public double getHitRatio() {
+            long hits = getHitCount();
+            long requests = hits + getMissCount();
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+
+        @Override
+        public String toString() {
+            return "TierStatistics{" +
+                    "hitCount=" + hitCount +
+                    ", missCount=" + missCount +
+                    '}';
+        }
+    }
+}
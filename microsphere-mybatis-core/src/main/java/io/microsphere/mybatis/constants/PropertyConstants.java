@@ -62,4 +62,47 @@ public interface PropertyConstants {
             source = APPLICATION_SOURCE
     )
     String MICROSPHERE_MYBATIS_ENABLED_PROPERTY_NAME = MICROSPHERE_MYBATIS_PROPERTY_NAME_PREFIX + DOT + ENABLED_PROPERTY_NAME;
+
+    /**
+     * The property name prefix of the cache snapshot : "microsphere.mybatis.cache.snapshot"
+     */
+    String MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_PROPERTY_NAME_PREFIX = MICROSPHERE_MYBATIS_PROPERTY_NAME_PREFIX + DOT + "cache.snapshot";
+
+    /**
+     * The property name of the cache snapshot file : "microsphere.mybatis.cache.snapshot.file"
+     */
+    @ConfigurationProperty(
+            type = String.class,
+            source = APPLICATION_SOURCE
+    )
+    String MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME = MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_PROPERTY_NAME_PREFIX + DOT + "file";
+
+    /**
+     * The property name of the cache snapshot schema version : "microsphere.mybatis.cache.snapshot.schema-version"
+     */
+    @ConfigurationProperty(
+            type = String.class,
+            source = APPLICATION_SOURCE
+    )
+    String MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_SCHEMA_VERSION_PROPERTY_NAME = MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_PROPERTY_NAME_PREFIX + DOT + "schema-version";
+
+    /**
+     * The property name of the cache statistics enabled : "microsphere.mybatis.cache.statistics.enabled"
+     */
+    @ConfigurationProperty(
+            type = boolean.class,
+            defaultValue = "false",
+            source = APPLICATION_SOURCE
+    )
+    String MICROSPHERE_MYBATIS_CACHE_STATISTICS_ENABLED_PROPERTY_NAME = MICROSPHERE_MYBATIS_PROPERTY_NAME_PREFIX + DOT + "cache.statistics" + DOT + ENABLED_PROPERTY_NAME;
+
+    /**
+     * The system property name of the classes allowed to be deserialized from the caches in addition to the JDK value
+     * types, whose value is the patterns of {@link java.io.ObjectInputFilter.Config#createFilter(String)} :
+     * "microsphere.mybatis.cache.serialization.allowed-classes"
+     */
+    @ConfigurationProperty(
+            type = String.class
+    )
+    String MICROSPHERE_MYBATIS_CACHE_SERIALIZATION_ALLOWED_CLASSES_PROPERTY_NAME = MICROSPHERE_MYBATIS_PROPERTY_NAME_PREFIX + DOT + "cache.serialization.allowed-classes";
 }
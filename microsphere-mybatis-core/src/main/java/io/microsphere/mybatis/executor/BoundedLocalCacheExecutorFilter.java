@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.mybatis.cache.BoundedLocalCache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.executor.BaseExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.mybatis.executor.Executors.getLocalCache;
+import static io.microsphere.mybatis.executor.Executors.setLocalCache;
+import static io.microsphere.util.Assert.assertTrue;
+
+/**
+ * The {@link ExecutorFilter} replaces the unbounded local cache of {@link BaseExecutor} with the
+ * {@link BoundedLocalCache} before the first query of the session, which limits the count of entries or the estimated
+ * bytes with LRU eviction. The entries referenced by the deferred loads are pinned until the outermost query
+ * completes.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // at most 1000 entries or 64 MB per session
+ *   BoundedLocalCacheExecutorFilter filter = new BoundedLocalCacheExecutorFilter(1000, 64 * 1024 * 1024);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ *
+ *   // the statistics of all sessions
+ *   filter.getEvictionCount();
+ *
+ *   // the statistics of a session
+ *   BoundedLocalCache localCache = BoundedLocalCacheExecutorFilter.getBoundedLocalCache(executor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see BoundedLocalCache
+ * @see Executors#setLocalCache(Executor, PerpetualCache)
+ * @since 1.0.0
+ */
+public class BoundedLocalCacheExecutorFilter implements ExecutorFilter {
+
+    private final int maxEntries;
+
+    private final long maxBytes;
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder evictedBytes = new LongAdder();
+
+    /**
+     * Create a {@link BoundedLocalCacheExecutorFilter}
+     *
+     * @param maxEntries the max count of entries per session, non-positive means unlimited
+     * @param maxBytes   the max estimated bytes of entries per session, non-positive means unlimited
+     * @throws IllegalArgumentException if both limits are unlimited
+     */
+    public BoundedLocalCacheExecutorFilter(int maxEntries, long maxBytes) {
+        assertTrue(maxEntries > 0 || maxBytes > 0, () -> "Either 'maxEntries' or 'maxBytes' must be positive");
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        BoundedLocalCache localCache = beginQuery(chain.getExecutor());
+        try {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        } finally {
+            endQuery(localCache);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        BoundedLocalCache localCache = beginQuery(chain.getExecutor());
+        try {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        } finally {
+            endQuery(localCache);
+        }
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType,
+                          ExecutorFilterChain chain) {
+        BoundedLocalCache localCache = getBoundedLocalCache(chain.getExecutor());
+        if (localCache != null) {
+            // the deferred load is executed after the outermost query, its entry must not be evicted in the meantime
+            localCache.pin(key);
+        }
+        chain.deferLoad(ms, resultObject, property, key, targetType);
+    }
+
+    /**
+     * Install the {@link BoundedLocalCache} into the specified {@link Executor} if its local cache is empty and not
+     * bounded.
+     *
+     * @param executor {@link Executor}
+     * @return <code>true</code> if installed
+     */
+    protected boolean installLocalCache(Executor executor) {
+        PerpetualCache localCache = getLocalCache(executor);
+        if (localCache == null || localCache instanceof BoundedLocalCache || localCache.getSize() > 0) {
+            return false;
+        }
+        return setLocalCache(executor, createLocalCache(localCache.getId()));
+    }
+
+    @Nullable
+    private BoundedLocalCache beginQuery(Executor executor) {
+        installLocalCache(executor);
+        BoundedLocalCache localCache = getBoundedLocalCache(executor);
+        if (localCache != null) {
+            localCache.beginQuery();
+        }
+        return localCache;
+    }
+
+    private static void endQuery(@Nullable BoundedLocalCache localCache) {
+        if (localCache != null) {
+            localCache.endQuery();
+        }
+    }
+
+    /**
+     * Create a new {@link BoundedLocalCache}
+     *
+     * @param id the id of cache
+     * @return non-null
+     */
+    protected BoundedLocalCache createLocalCache(String id) {
+        return new BoundedLocalCache(id, maxEntries, maxBytes) {
+            @Override
+            protected void onEvicted(Object key, Object value, long bytes) {
+                super.onEvicted(key, value, bytes);
+                evictionCount.increment();
+                evictedBytes.add(bytes);
+            }
+        };
+    }
+
+    /**
+     * Get the max count of entries per session
+     *
+     * @return non-positive means unlimited
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the max estimated bytes of entries per session
+     *
+     * @return non-positive means unlimited
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the count of the evicted entries of all sessions
+     *
+     * @return the count of the evicted entries
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Get the estimated bytes of the evicted entries of all sessions
+     *
+     * @return the estimated bytes of the evicted entries
+     */
+    public long getEvictedBytes() {
+        return evictedBytes.sum();
+    }
+
+    /**
+     * Get the {@link BoundedLocalCache} of the specified {@link Executor}
+     *
+     * @param executor {@link Executor}
+     * @return <code>null</code> if not installed
+     */
+    @Nullable
+    public static BoundedLocalCache getBoundedLocalCache(Executor executor) {
+        return getLocalCache(executor) instanceof BoundedLocalCache localCache ? localCache : null;
+    }
+}
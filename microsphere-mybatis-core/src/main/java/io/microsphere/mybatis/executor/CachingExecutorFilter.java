@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import org.apache.ibatis.cache.Cache;
+
+import java.util.Collection;
+
+/**
+ * The {@link ExecutorFilter} holds the {@link Cache caches} shared by the sessions, which are taken in the
+ * {@link io.microsphere.mybatis.cache.CacheSnapshot snapshot} like the second-level caches.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   public class ResultCachingExecutorFilter implements CachingExecutorFilter {
+ *
+ *       private final Cache cache = new CompressedCache("results");
+ *
+ *       @Override
+ *       public Collection<Cache> getCaches() {
+ *           return List.of(cache);
+ *       }
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ExecutorFilter
+ * @see io.microsphere.mybatis.cache.CacheSnapshot
+ * @since 1.0.0
+ */
+public interface CachingExecutorFilter extends ExecutorFilter {
+
+    /**
+     * Get the {@link Cache caches} shared by the sessions, whose ids should be unique
+     *
+     * @return non-null
+     */
+    Collection<? extends Cache> getCaches();
+}
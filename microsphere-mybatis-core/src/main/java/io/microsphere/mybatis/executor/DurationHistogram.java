@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.Arrays.binarySearch;
+
+/**
+ * The histogram of the durations in milliseconds with the fixed exponential buckets, all counters are updated
+ * without any lock.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   DurationHistogram histogram = new DurationHistogram();
+ *   histogram.record(35);
+ *   long p99 = histogram.getPercentile(0.99);
+ *   long[] counts = histogram.getBucketCounts(); // the counts of DurationHistogram.getBucketBounds() and the overflow
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see TransactionMetricsExecutorFilter
+ * @since 1.0.0
+ */
+public class DurationHistogram {
+
+    /**
+     * The inclusive upper bounds of the buckets in milliseconds, the durations beyond the last one are counted by the
+     * overflow bucket
+     */
+    private static final long[] BUCKET_BOUNDS = {1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000,
+            60000, 300000};
+
+    private final LongAdder[] buckets;
+
+    private final LongAdder total = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public DurationHistogram() {
+        LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+        this.buckets = buckets;
+    }
+
+    /**
+     * Record a duration
+     *
+     * @param millis the duration in milliseconds
+     */
+    public void record(long millis) {
+        long duration = Math.max(millis, 0);
+        int index = binarySearch(BUCKET_BOUNDS, duration);
+        buckets[index < 0 ? -index - 1 : index].increment();
+        total.add(duration);
+        max.accumulate(duration);
+    }
+
+    /**
+     * Get the count of the recorded durations
+     *
+     * @return the count of the recorded durations
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Get the total of the recorded durations in milliseconds
+     *
+     * @return the total of the recorded durations in milliseconds
+     */
+    public long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Get the max of the recorded durations in milliseconds
+     *
+     * @return the max of the recorded durations in milliseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of the recorded durations in milliseconds
+     *
+     * @return <code>0</code> if no duration was recorded
+     */
+    public long getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : getTotal() / count;
+    }
+
+    /**
+     * Get the estimated percentile in milliseconds, which is the upper bound of the bucket containing it, or the max
+     * if it's in the overflow bucket
+     *
+     * @param percentile the percentile between 0 and 1, e.g. 0.99
+     * @return <code>0</code> if no duration was recorded
+     */
+    public long getPercentile(double percentile) {
+        assertTrue(percentile > 0 && percentile <= 1, () -> "The 'percentile' argument must be in (0, 1]");
+        long[] counts = getBucketCounts();
+        long count = 0;
+        for (long c : counts) {
+            count += c;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(percentile * count);
+        long accumulated = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            accumulated += counts[i];
+            if (accumulated >= rank) {
+                return Math.min(BUCKET_BOUNDS[i], getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Get the inclusive upper bounds of the buckets in milliseconds
+     *
+     * @return the copy of the bounds
+     */
+    public static long[] getBucketBounds() {
+        return BUCKET_BOUNDS.clone();
+    }
+
+    /**
+     * Get the counts of the buckets, the last element is the count of the overflow bucket
+     *
+     * @return non-null
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    /**
+     * Reset all counters
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        total.reset();
+        max.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "DurationHistogram{" +
+                "count=" + getCount() +
+                ", mean=" + getMean() +
+                ", p50=" + getPercentile(0.5) +
+                ", p99=" + getPercentile(0.99) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
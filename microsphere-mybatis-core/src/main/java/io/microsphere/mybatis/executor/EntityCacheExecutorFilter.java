@@ -0,0 +1,646 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.cache.SqlTables;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.ResultFlag;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.Executors.createCacheKey;
+import static io.microsphere.mybatis.executor.Executors.isStaticSql;
+import static io.microsphere.mybatis.executor.TableInvalidationExecutorFilter.UNKNOWN_TABLE;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static java.util.regex.Pattern.DOTALL;
+import static java.util.regex.Pattern.compile;
+import static java.util.regex.Pattern.quote;
+import static org.apache.ibatis.mapping.SqlCommandType.INSERT;
+import static org.apache.ibatis.mapping.SqlCommandType.SELECT;
+import static org.apache.ibatis.session.RowBounds.NO_ROW_LIMIT;
+import static org.apache.ibatis.session.RowBounds.NO_ROW_OFFSET;
+
+/**
+ * The {@link ExecutorFilter} shares the rows across the statements by a bounded identity map, whose entries are keyed
+ * by the result type, the read tables and the id of the rows:
+ * <ul>
+ *     <li>every query whose flat {@link ResultMap} declares a single id feeds the identity map with its rows, so
+ *     that the statements sharing the {@link ResultMap}, e.g. the lookups by id, by name, and the list queries, share
+ *     the cached instances</li>
+ *     <li>the lookup by id, whose SQL ends with the single condition <code>WHERE id = ?</code> on the id column, is
+ *     served from the identity map without the query</li>
+ *     <li>the update or delete whose SQL ends with the single condition <code>WHERE id = ?</code>, whose value is
+ *     carried by either the entity or the id parameter, invalidates the row only, otherwise it invalidates all rows
+ *     of the types read from the written tables, both on the execution and on the commit</li>
+ *     <li>the tables of the dynamic SQL are unknown, since the first rendering doesn't represent the others, so its
+ *     rows are not cached, and its writes invalidate all rows</li>
+ *     <li>the versions of the tables are captured before the query, so the rows that raced with a write are not
+ *     cached, and the transaction with the pending writes bypasses the identity map of the tables it wrote</li>
+ * </ul>
+ * The cached instances are shared by all sessions, they must be treated as read-only like the entries of the
+ * read-only second-level cache.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   EntityCacheExecutorFilter filter = new EntityCacheExecutorFilter(10000);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlTables
+ * @see NegativeCacheExecutorFilter
+ * @since 1.0.0
+ */
+public class EntityCacheExecutorFilter implements ExecutorFilter {
+
+    private static final Logger logger = getLogger(EntityCacheExecutorFilter.class);
+
+    /**
+     * The default max count of the cached entities
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    private static final EntityType NO_ENTITY_TYPE = new EntityType(Object.class, null, null, null);
+
+    private final int maxEntries;
+
+    private final Entities entities = new Entities();
+
+    private final ConcurrentMap<MappedStatement, StatementMetadata> statementMetadataMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Class<?>, EntityType> entityTypes = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    private final WeakExecutorMap<PendingWrites> pendingWritesMap = new WeakExecutorMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder invalidatedCount = new LongAdder();
+
+    /**
+     * Create an {@link EntityCacheExecutorFilter} with {@link #DEFAULT_MAX_ENTRIES}
+     */
+    public EntityCacheExecutorFilter() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create an {@link EntityCacheExecutorFilter}
+     *
+     * @param maxEntries the max count of the cached entities
+     */
+    public EntityCacheExecutorFilter(int maxEntries) {
+        assertTrue(maxEntries > 0, () -> "The 'maxEntries' must be positive");
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        int rows = chain.update(ms, parameter);
+        StatementMetadata statementMetadata = getStatementMetadata(ms, () -> boundSql);
+        PendingWrites pendingWrites = pendingWritesMap.computeIfAbsent(executor, e -> new PendingWrites());
+        pendingWrites.tables.addAll(statementMetadata.tables);
+        if (ms.getSqlCommandType() != INSERT) {
+            // the new rows can't be cached yet
+            resolveInvalidation(ms, parameter, boundSql, statementMetadata.tables, pendingWrites);
+        }
+        // the committed writes of the auto-commit transaction
+        apply(pendingWrites);
+        return rows;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        StatementMetadata statementMetadata = getEntityStatementMetadata(ms, resultHandler, () -> boundSql);
+        if (statementMetadata == null) {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, statementMetadata, chain);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        StatementMetadata statementMetadata = getEntityStatementMetadata(ms, resultHandler, () -> ms.getBoundSql(parameter));
+        if (statementMetadata == null) {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        }
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey cacheKey = createCacheKey(chain, ms, parameter, rowBounds, boundSql);
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, statementMetadata, chain);
+    }
+
+    @Override
+    public void commit(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        chain.commit(required);
+        applyPendingWrites(executor);
+    }
+
+    @Override
+    public void rollback(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.rollback(required);
+        } finally {
+            pendingWritesMap.remove(executor);
+        }
+    }
+
+    @Override
+    public void close(boolean forceRollback, ExecutorFilterChain chain) {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.close(forceRollback);
+        } finally {
+            if (forceRollback) {
+                pendingWritesMap.remove(executor);
+            } else {
+                applyPendingWrites(executor);
+            }
+        }
+    }
+
+    <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey, BoundSql boundSql,
+                        StatementMetadata statementMetadata, ExecutorFilterChain chain) throws SQLException {
+        Set<String> tables = statementMetadata.tables;
+        if (isPending(chain.getExecutor(), tables)) {
+            // sees its own uncommitted writes
+            return chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        }
+        EntityType entityType = statementMetadata.entityType;
+        String resultMapId = statementMetadata.resultMapId;
+        if (isDefault(rowBounds) && entityType.isIdLookup(boundSql)) {
+            Object id = getParameterValue(ms, boundSql, parameter);
+            if (id != null) {
+                Entity entity = entities.get(new EntityKey(entityType.type, tables, id));
+                if (entity != null && resultMapId.equals(entity.resultMapId)) {
+                    hitCount.increment();
+                    List<E> result = new ArrayList<>(1);
+                    result.add((E) entity.value);
+                    return result;
+                }
+                missCount.increment();
+            }
+        }
+        long[] versions = getVersions(tables);
+        List<E> result = chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        // the rows raced with a write are not cached
+        if (!result.isEmpty() && Arrays.equals(versions, getVersions(tables))) {
+            Configuration configuration = ms.getConfiguration();
+            for (E row : result) {
+                if (entityType.type.isInstance(row)) {
+                    Object id = configuration.newMetaObject(row).getValue(entityType.idProperty);
+                    if (id != null) {
+                        entities.put(new EntityKey(entityType.type, tables, id), new Entity(resultMapId, row));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Invalidate the cached entities of the specified type and id read from any tables
+     *
+     * @param type the result type
+     * @param id   the id of the row
+     * @return <code>true</code> if any entity was cached
+     */
+    public boolean invalidate(Class<?> type, Object id) {
+        EntityType entityType = entityTypes.get(type);
+        if (entityType == null) {
+            return false;
+        }
+        boolean invalidated = false;
+        for (Set<String> tables : entityType.readTables) {
+            invalidated |= invalidate(new EntityKey(type, tables, id));
+        }
+        return invalidated;
+    }
+
+    /**
+     * Invalidate all cached entities of the specified types
+     *
+     * @param types the result types
+     * @return the count of the invalidated entities
+     */
+    public int invalidate(Set<Class<?>> types) {
+        int count = entities.removeAll(types);
+        invalidatedCount.add(count);
+        return count;
+    }
+
+    /**
+     * Get the cached entity of the specified type and id read from any tables
+     *
+     * @param type the result type
+     * @param id   the id of the row
+     * @param <T>  the result type
+     * @return <code>null</code> if absent
+     */
+    @Nullable
+    public <T> T getEntity(Class<T> type, Object id) {
+        EntityType entityType = entityTypes.get(type);
+        if (entityType != null) {
+            for (Set<String> tables : entityType.readTables) {
+                Entity entity = entities.get(new EntityKey(type, tables, id));
+                if (entity != null) {
+                    return type.cast(entity.value);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the max count of the cached entities
+     *
+     * @return the max count of the cached entities
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the count of the cached entities
+     *
+     * @return the count of the cached entities
+     */
+    public int getSize() {
+        return entities.size();
+    }
+
+    /**
+     * Get the count of the lookups by id served from the identity map
+     *
+     * @return the count of the hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the count of the lookups by id missed the identity map
+     *
+     * @return the count of the misses
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get the count of the invalidated entities
+     *
+     * @return the count of the invalidated entities
+     */
+    public long getInvalidatedCount() {
+        return invalidatedCount.sum();
+    }
+
+    @Nullable
+    private StatementMetadata getEntityStatementMetadata(MappedStatement ms, ResultHandler resultHandler,
+                                                         Supplier<BoundSql> boundSqlSupplier) {
+        if (resultHandler != null || ms.getSqlCommandType() != SELECT) {
+            return null;
+        }
+        StatementMetadata statementMetadata = getStatementMetadata(ms, boundSqlSupplier);
+        return statementMetadata.entityType == NO_ENTITY_TYPE ? null : statementMetadata;
+    }
+
+    private StatementMetadata getStatementMetadata(MappedStatement ms, Supplier<BoundSql> boundSqlSupplier) {
+        StatementMetadata statementMetadata = statementMetadataMap.get(ms);
+        if (statementMetadata == null) {
+            statementMetadata = statementMetadataMap.computeIfAbsent(ms, m -> analyze(m, boundSqlSupplier));
+        }
+        return statementMetadata;
+    }
+
+    private StatementMetadata analyze(MappedStatement ms, Supplier<BoundSql> boundSqlSupplier) {
+        if (!isStaticSql(ms)) {
+            // the first rendering of the dynamic SQL doesn't represent the others
+            return new StatementMetadata(Set.of(UNKNOWN_TABLE), NO_ENTITY_TYPE, null);
+        }
+        SqlTables sqlTables = SqlTables.parse(boundSqlSupplier.get().getSql());
+        if (ms.getSqlCommandType() != SELECT) {
+            return new StatementMetadata(toTables(sqlTables.getWriteTables()), NO_ENTITY_TYPE, null);
+        }
+        Set<String> tables = toTables(sqlTables.getReadTables());
+        List<ResultMap> resultMaps = ms.getResultMaps();
+        if (resultMaps.size() != 1) {
+            return new StatementMetadata(tables, NO_ENTITY_TYPE, null);
+        }
+        ResultMap resultMap = resultMaps.get(0);
+        EntityType entityType = resolveEntityType(resultMap);
+        if (entityType != NO_ENTITY_TYPE) {
+            EntityType existedEntityType = entityTypes.putIfAbsent(entityType.type, entityType);
+            if (existedEntityType != null) {
+                entityType = existedEntityType;
+            }
+            entityType.readTables.add(tables);
+            logger.trace("The statement['{}'] feeds the entities of {}", ms.getId(), entityType.type);
+        }
+        return new StatementMetadata(tables, entityType, resultMap.getId());
+    }
+
+    private EntityType resolveEntityType(ResultMap resultMap) {
+        if (resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null) {
+            return NO_ENTITY_TYPE;
+        }
+        ResultMapping idResultMapping = null;
+        for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+            if (resultMapping.getFlags().contains(ResultFlag.ID)) {
+                if (idResultMapping != null) {
+                    // the composite id is not supported
+                    return NO_ENTITY_TYPE;
+                }
+                idResultMapping = resultMapping;
+            }
+        }
+        if (idResultMapping == null || idResultMapping.getProperty() == null || idResultMapping.getColumn() == null) {
+            return NO_ENTITY_TYPE;
+        }
+        EntityType entityType = entityTypes.get(resultMap.getType());
+        if (entityType != null) {
+            return entityType;
+        }
+        return new EntityType(resultMap.getType(), idResultMapping.getProperty(), idResultMapping.getColumn(),
+                ConcurrentHashMap.newKeySet());
+    }
+
+    private void resolveInvalidation(MappedStatement ms, Object parameter, BoundSql boundSql, Set<String> tables,
+                                     PendingWrites pendingWrites) {
+        if (tables.contains(UNKNOWN_TABLE)) {
+            pendingWrites.types.addAll(entityTypes.keySet());
+            return;
+        }
+        for (EntityType entityType : entityTypes.values()) {
+            // the id of the entity parameter is not the written row unless the SQL is conditioned by it
+            Object id = entityType.isIdPredicate(boundSql) ? getParameterValue(ms, boundSql, parameter) : null;
+            for (Set<String> readTables : entityType.readTables) {
+                if (!reads(readTables, tables)) {
+                    continue;
+                }
+                if (id == null) {
+                    pendingWrites.types.add(entityType.type);
+                } else {
+                    pendingWrites.keys.add(new EntityKey(entityType.type, readTables, id));
+                }
+            }
+        }
+    }
+
+    private boolean isPending(Executor executor, Set<String> tables) {
+        PendingWrites pendingWrites = pendingWritesMap.get(executor);
+        if (pendingWrites == null) {
+            return false;
+        }
+        Set<String> writtenTables = pendingWrites.tables;
+        if (writtenTables.contains(UNKNOWN_TABLE) || tables.contains(UNKNOWN_TABLE)) {
+            return true;
+        }
+        for (String table : tables) {
+            if (writtenTables.contains(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void applyPendingWrites(Executor executor) {
+        PendingWrites pendingWrites = pendingWritesMap.remove(executor);
+        if (pendingWrites != null) {
+            apply(pendingWrites);
+        }
+    }
+
+    private void apply(PendingWrites pendingWrites) {
+        bumpVersions(pendingWrites.tables);
+        for (EntityKey key : pendingWrites.keys) {
+            invalidate(key);
+        }
+        if (!pendingWrites.types.isEmpty()) {
+            invalidate(pendingWrites.types);
+        }
+    }
+
+    private boolean invalidate(EntityKey key) {
+        if (entities.remove(key) != null) {
+            invalidatedCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private void bumpVersions(Set<String> tables) {
+        if (tables.contains(UNKNOWN_TABLE)) {
+            globalVersion.incrementAndGet();
+        } else {
+            for (String table : tables) {
+                getVersion(table).incrementAndGet();
+            }
+        }
+        // the statements whose tables are unknown
+        getVersion(UNKNOWN_TABLE).incrementAndGet();
+    }
+
+    private long[] getVersions(Set<String> tables) {
+        long[] versions = new long[tables.size() + 1];
+        versions[0] = globalVersion.get();
+        int i = 1;
+        for (String table : tables) {
+            versions[i++] = getVersion(table).get();
+        }
+        return versions;
+    }
+
+    private AtomicLong getVersion(String table) {
+        return tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    private static Set<String> toTables(Set<String> tables) {
+        return tables.isEmpty() ? Set.of(UNKNOWN_TABLE) : tables;
+    }
+
+    private static boolean reads(Set<String> readTables, Set<String> writtenTables) {
+        if (readTables.contains(UNKNOWN_TABLE)) {
+            return true;
+        }
+        for (String table : writtenTables) {
+            if (readTables.contains(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDefault(RowBounds rowBounds) {
+        return rowBounds.getOffset() == NO_ROW_OFFSET && rowBounds.getLimit() == NO_ROW_LIMIT;
+    }
+
+    /**
+     * Get the value of the last parameter, which is the one of the condition <code>WHERE id = ?</code>
+     */
+    @Nullable
+    private static Object getParameterValue(MappedStatement ms, BoundSql boundSql, Object parameter) {
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        String property = parameterMappings.get(parameterMappings.size() - 1).getProperty();
+        if (boundSql.hasAdditionalParameter(property)) {
+            return boundSql.getAdditionalParameter(property);
+        }
+        if (parameter == null) {
+            return null;
+        }
+        Configuration configuration = ms.getConfiguration();
+        if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+            return parameter;
+        }
+        return configuration.newMetaObject(parameter).getValue(property);
+    }
+
+    record EntityKey(Class<?> type, Set<String> tables, Object id) {
+    }
+
+    record Entity(String resultMapId, Object value) {
+    }
+
+    static class EntityType {
+
+        private final Class<?> type;
+
+        private final String idProperty;
+
+        private final Pattern idLookupPattern;
+
+        // the read tables of the statements feeding this type
+        private final Set<Set<String>> readTables;
+
+        EntityType(Class<?> type, String idProperty, String idColumn, Set<Set<String>> readTables) {
+            this.type = type;
+            this.idProperty = idProperty;
+            this.idLookupPattern = idColumn == null ? null :
+                    compile("\\bWHERE\\s+(?:[\\w\"`]+\\.)?[\"`]?" + quote(idColumn) + "[\"`]?\\s*=\\s*\\?\\s*;?\\s*$",
+                            CASE_INSENSITIVE | DOTALL);
+            this.readTables = readTables;
+        }
+
+        boolean isIdLookup(BoundSql boundSql) {
+            return boundSql.getParameterMappings().size() == 1 && isIdPredicate(boundSql);
+        }
+
+        boolean isIdPredicate(BoundSql boundSql) {
+            return !boundSql.getParameterMappings().isEmpty() && idLookupPattern.matcher(boundSql.getSql()).find();
+        }
+    }
+
+    static class StatementMetadata {
+
+        private final Set<String> tables;
+
+        private final EntityType entityType;
+
+        private final String resultMapId;
+
+        StatementMetadata(Set<String> tables, EntityType entityType, String resultMapId) {
+            this.tables = tables;
+            this.entityType = entityType;
+            this.resultMapId = resultMapId;
+        }
+    }
+
+    static class PendingWrites {
+
+        private final Set<String> tables = ConcurrentHashMap.newKeySet();
+
+        private final Set<EntityKey> keys = ConcurrentHashMap.newKeySet();
+
+        private final Set<Class<?>> types = ConcurrentHashMap.newKeySet();
+    }
+
+    private class Entities extends LinkedHashMap<EntityKey, Entity> {
+
+        Entities() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        public synchronized Entity get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized Entity put(EntityKey key, Entity value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized Entity remove(Object key) {
+            return super.remove(key);
+        }
+
+        synchronized int removeAll(Set<Class<?>> types) {
+            int size = super.size();
+            keySet().removeIf(key -> types.contains(key.type));
+            return size - super.size();
+        }
+
+        @Override
+        public synchronized int size() {
+            return super.size();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<EntityKey, Entity> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
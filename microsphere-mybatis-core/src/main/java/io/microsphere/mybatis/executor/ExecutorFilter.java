@@ -208,4 +208,15 @@ public interface ExecutorFilter extends Prioritized {
     default void close(boolean forceRollback, ExecutorFilterChain chain) {
         chain.close(forceRollback);
     }
+
+    /**
+     * Get the {@link ExecutorFilterPlacement placement} of this filter relative to the
+     * {@link org.apache.ibatis.executor.CachingExecutor}, the filter needs to observe or short-circuit the
+     * second-level cache hits should be placed {@link ExecutorFilterPlacement#OUTSIDE outside}.
+     *
+     * @return {@link ExecutorFilterPlacement#INSIDE} as default
+     */
+    default ExecutorFilterPlacement getPlacement() {
+        return ExecutorFilterPlacement.INSIDE;
+    }
 }
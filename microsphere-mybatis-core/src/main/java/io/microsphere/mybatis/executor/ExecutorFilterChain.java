@@ -70,6 +70,8 @@ public class ExecutorFilterChain {
 
     private final ExecutorFilter[] filters;
 
+    private final ExecutorFilterPlacement placement;
+
     private final int size;
 
     private int position;
@@ -82,11 +84,26 @@ public class ExecutorFilterChain {
      * @param executorFilters one or more {@link ExecutorFilter} instances; must not be empty
      */
     public ExecutorFilterChain(Executor executor, @Nullable Properties properties, ExecutorFilter... executorFilters) {
+        this(executor, properties, ExecutorFilterPlacement.INSIDE, executorFilters);
+    }
+
+    /**
+     * Construct a new {@link ExecutorFilterChain}.
+     *
+     * @param executor        the target {@link Executor} invoked after all filters; must not be {@code null}
+     * @param properties      optional {@link Properties}; may be {@code null}
+     * @param placement       the {@link ExecutorFilterPlacement placement} of this chain; must not be {@code null}
+     * @param executorFilters one or more {@link ExecutorFilter} instances; must not be empty
+     */
+    public ExecutorFilterChain(Executor executor, @Nullable Properties properties, ExecutorFilterPlacement placement,
+                               ExecutorFilter... executorFilters) {
         assertNotNull(executor, () -> "The 'executor' must not be null!");
+        assertNotNull(placement, () -> "The 'placement' must not be null!");
         assertNotEmpty(executorFilters, () -> "The 'executorFilters' must not be empty!");
         this.executor = executor;
         this.properties = properties;
         this.filters = executorFilters;
+        this.placement = placement;
         this.size = length(executorFilters);
         this.position = 0;
     }
@@ -350,6 +367,17 @@ public class ExecutorFilterChain {
         return this.filters.clone();
     }
 
+    /**
+     * Get the {@link ExecutorFilterPlacement placement} of this chain relative to the
+     * {@link org.apache.ibatis.executor.CachingExecutor}
+     *
+     * @return non-null
+     */
+    @Nonnull
+    public ExecutorFilterPlacement getPlacement() {
+        return this.placement;
+    }
+
     /**
      * Get the size of {@link ExecutorFilter filters}
      *
@@ -374,6 +402,7 @@ public class ExecutorFilterChain {
                 "executor=" + this.executor +
                 ", properties=" + this.properties +
                 ", filters=" + Arrays.toString(this.filters) +
+                ", placement=" + this.placement +
                 ", size=" + this.size +
                 ", position=" + this.position +
                 '}';
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import org.apache.ibatis.executor.CachingExecutor;
+import org.apache.ibatis.executor.Executor;
+
+/**
+ * The placement of {@link ExecutorFilter} relative to the {@link CachingExecutor} of the second-level cache:
+ * <ul>
+ *     <li>{@link #INSIDE} : the filter is installed between the {@link CachingExecutor} and the underlying
+ *     {@link Executor}, it observes the second-level cache misses only, which are executed by the database</li>
+ *     <li>{@link #OUTSIDE} : the filter is installed in front of the {@link CachingExecutor}, it observes all
+ *     invocations including the second-level cache hits, and is able to short-circuit before the cache lookup</li>
+ *     <li>{@link #BOTH} : the filter is installed on both sides, {@link ExecutorFilterChain#getPlacement()} tells
+ *     which side the current invocation passes through</li>
+ * </ul>
+ * If the second-level cache is disabled, all filters are installed into a single chain whose placement is
+ * {@link #BOTH}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   public class CacheHitCountingExecutorFilter implements ExecutorFilter {
+ *
+ *       @Override
+ *       public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds,
+ *                                ResultHandler resultHandler, CacheKey cacheKey, BoundSql boundSql,
+ *                                ExecutorFilterChain chain) throws SQLException {
+ *           if (chain.getPlacement().isOutside()) {
+ *               requests.increment();
+ *           }
+ *           if (chain.getPlacement().isInside()) {
+ *               executions.increment();
+ *           }
+ *           return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+ *       }
+ *
+ *       @Override
+ *       public ExecutorFilterPlacement getPlacement() {
+ *           return ExecutorFilterPlacement.BOTH;
+ *       }
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ExecutorFilter#getPlacement()
+ * @see ExecutorFilterChain#getPlacement()
+ * @see CachingExecutor
+ * @since 1.0.0
+ */
+public enum ExecutorFilterPlacement {
+
+    /**
+     * Inside the {@link CachingExecutor}
+     */
+    INSIDE(true, false),
+
+    /**
+     * Outside the {@link CachingExecutor}
+     */
+    OUTSIDE(false, true),
+
+    /**
+     * Both inside and outside the {@link CachingExecutor}
+     */
+    BOTH(true, true);
+
+    private final boolean inside;
+
+    private final boolean outside;
+
+    ExecutorFilterPlacement(boolean inside, boolean outside) {
+        this.inside = inside;
+        this.outside = outside;
+    }
+
+    /**
+     * Is inside the {@link CachingExecutor} or not, the invocations passing through have missed the second-level
+     * cache
+     *
+     * @return <code>true</code> if {@link #INSIDE} or {@link #BOTH}
+     */
+    public boolean isInside() {
+        return inside;
+    }
+
+    /**
+     * Is outside the {@link CachingExecutor} or not, the invocations passing through have not looked up the
+     * second-level cache yet
+     *
+     * @return <code>true</code> if {@link #OUTSIDE} or {@link #BOTH}
+     */
+    public boolean isOutside() {
+        return outside;
+    }
+}
@@ -17,12 +17,34 @@
 
 package io.microsphere.mybatis.executor;
 
+import io.microsphere.annotation.Nullable;
 import io.microsphere.logging.Logger;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.executor.BaseExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
 
 import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.plugin.Plugins.getPlugin;
 import static io.microsphere.reflect.FieldUtils.getFieldValue;
+import static io.microsphere.util.ExceptionUtils.wrap;
+import static org.apache.ibatis.mapping.SqlCommandType.SELECT;
 
 /**
  * The utilities class for {@link Executor}
@@ -46,6 +68,10 @@ public abstract class Executors {
 
     private static final Logger logger = getLogger(Executors.class);
 
+    private static final Field LOCAL_CACHE_FIELD = findField(BaseExecutor.class, "localCache");
+
+    private static final Field CLEAR_ON_COMMIT_FIELD = findField(TransactionalCache.class, "clearOnCommit");
+
     /**
      * Get the delegate {@link Executor} from the specified {@link CachingExecutor}.
      *
@@ -66,6 +92,231 @@ public abstract class Executors {
         return delegate;
     }
 
+    /**
+     * Unwrap the specified {@link Executor} to be the underlying {@link BaseExecutor}, the {@link InterceptingExecutor},
+     * {@link CachingExecutor} and the {@link Plugin plugin proxy} will be unwrapped.
+     *
+     * @param executor {@link Executor}
+     * @return <code>null</code> if the {@link BaseExecutor} can't be resolved
+     */
+    @Nullable
+    public static BaseExecutor unwrap(Executor executor) {
+        Executor target = executor;
+        while (target != null) {
+            if (target instanceof BaseExecutor baseExecutor) {
+                return baseExecutor;
+            } else if (target instanceof InterceptingExecutor interceptingExecutor) {
+                target = interceptingExecutor.getDelegate();
+            } else if (target instanceof CachingExecutor cachingExecutor) {
+                target = getDelegate(cachingExecutor);
+            } else {
+                Plugin plugin = getPlugin(target);
+                target = plugin == null ? null : getFieldValue(plugin, "target");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the local cache of the specified {@link Executor}
+     *
+     * @param executor {@link Executor}
+     * @return <code>null</code> if the {@link BaseExecutor} can't be resolved
+     * @see #unwrap(Executor)
+     */
+    @Nullable
+    public static PerpetualCache getLocalCache(Executor executor) {
+        BaseExecutor baseExecutor = unwrap(executor);
+        if (baseExecutor == null) {
+            return null;
+        }
+        try {
+            return (PerpetualCache) LOCAL_CACHE_FIELD.get(baseExecutor);
+        } catch (IllegalAccessException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
+    /**
+     * Replace the local cache of the specified {@link Executor}
+     *
+     * @param executor   {@link Executor}
+     * @param localCache the new local cache
+     * @return <code>true</code> if replaced, <code>false</code> if the {@link BaseExecutor} can't be resolved
+     * @see #unwrap(Executor)
+     */
+    public static boolean setLocalCache(Executor executor, PerpetualCache localCache) {
+        BaseExecutor baseExecutor = unwrap(executor);
+        if (baseExecutor == null) {
+            return false;
+        }
+        try {
+            LOCAL_CACHE_FIELD.set(baseExecutor, localCache);
+        } catch (IllegalAccessException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+        logger.trace("The local cache of {} was replaced by {}", baseExecutor, localCache);
+        return true;
+    }
+
+    /**
+     * Create the {@link CacheKey} in the middle of the {@link ExecutorFilterChain} without moving its position, the
+     * {@link FingerprintCacheKeyExecutorFilter} of the chain will be used if present.
+     *
+     * @param chain     {@link ExecutorFilterChain}
+     * @param ms        {@link MappedStatement}
+     * @param parameter the parameter of {@link MappedStatement}
+     * @param rowBounds {@link RowBounds}
+     * @param boundSql  {@link BoundSql}
+     * @return non-null
+     */
+    public static CacheKey createCacheKey(ExecutorFilterChain chain, MappedStatement ms, Object parameter,
+                                          RowBounds rowBounds, BoundSql boundSql) {
+        for (ExecutorFilter filter : chain.getFilters()) {
+            if (filter instanceof FingerprintCacheKeyExecutorFilter fingerprintFilter) {
+                return fingerprintFilter.createCacheKey(ms, parameter, rowBounds, boundSql);
+            }
+        }
+        return chain.getExecutor().createCacheKey(ms, parameter, rowBounds, boundSql);
+    }
+
+    /**
+     * Is the query of the specified {@link MappedStatement} served by the second-level cache or not
+     *
+     * @param ms            {@link MappedStatement}
+     * @param resultHandler {@link ResultHandler}
+     * @return <code>true</code> if the second-level cache is used
+     */
+    public static boolean isCacheable(MappedStatement ms, @Nullable ResultHandler resultHandler) {
+        return resultHandler == null && ms.getCache() != null && ms.isUseCache()
+                && ms.getSqlCommandType() == SELECT && ms.getConfiguration().isCacheEnabled();
+    }
+
+    /**
+     * Is the SQL of the specified {@link MappedStatement} static or not, the dynamic SQL, e.g. the
+     * {@link org.apache.ibatis.scripting.xmltags.DynamicSqlSource} or the SQL provider, may be rendered differently per
+     * parameter.
+     *
+     * @param ms {@link MappedStatement}
+     * @return <code>true</code> if all parameters render the same SQL
+     */
+    public static boolean isStaticSql(MappedStatement ms) {
+        SqlSource sqlSource = ms.getSqlSource();
+        return sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource;
+    }
+
+    /**
+     * Get the {@link TransactionalCacheManager} of the {@link CachingExecutor} wrapped by the specified
+     * {@link Executor}
+     *
+     * @param executor {@link Executor}
+     * @return <code>null</code> if the second-level cache is disabled
+     */
+    @Nullable
+    public static TransactionalCacheManager getTransactionalCacheManager(Executor executor) {
+        Executor target = executor;
+        while (target != null) {
+            if (target instanceof CachingExecutor cachingExecutor) {
+                return getFieldValue(cachingExecutor, "tcm");
+            } else if (target instanceof InterceptingExecutor interceptingExecutor) {
+                target = interceptingExecutor.getDelegate();
+            } else {
+                Plugin plugin = getPlugin(target);
+                target = plugin == null ? null : getFieldValue(plugin, "target");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discard the entries of the specified keys that are pending to be put into the specified {@link Cache} when the
+     * transaction of the specified {@link Executor} commits.
+     *
+     * @param executor {@link Executor}
+     * @param cache    the second-level {@link Cache}
+     * @param keys     the keys of entries
+     * @return the count of the discarded entries
+     */
+    public static int discardPendingEntries(Executor executor, Cache cache, Collection<?> keys) {
+        TransactionalCacheManager transactionalCacheManager = getTransactionalCacheManager(executor);
+        if (transactionalCacheManager == null) {
+            return 0;
+        }
+        TransactionalCache transactionalCache = getTransactionalCaches(transactionalCacheManager).get(cache);
+        if (transactionalCache == null) {
+            return 0;
+        }
+        Map<Object, Object> entriesToAddOnCommit = getFieldValue(transactionalCache, "entriesToAddOnCommit");
+        int count = 0;
+        for (Object key : keys) {
+            if (entriesToAddOnCommit.remove(key) != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Is the entry of the specified key pending to be put into the specified {@link Cache} when the transaction of the
+     * specified {@link Executor} commits, namely it was loaded from the database by the transaction.
+     *
+     * @param executor {@link Executor}
+     * @param cache    the second-level {@link Cache}
+     * @param key      the key of entry
+     * @return <code>true</code> if pending
+     */
+    public static boolean isPendingEntry(Executor executor, Cache cache, Object key) {
+        TransactionalCacheManager transactionalCacheManager = getTransactionalCacheManager(executor);
+        if (transactionalCacheManager == null) {
+            return false;
+        }
+        TransactionalCache transactionalCache = getTransactionalCaches(transactionalCacheManager).get(cache);
+        if (transactionalCache == null) {
+            return false;
+        }
+        Map<Object, Object> entriesToAddOnCommit = getFieldValue(transactionalCache, "entriesToAddOnCommit");
+        return entriesToAddOnCommit.containsKey(key);
+    }
+
+    /**
+     * Make the current transaction of the specified {@link Executor} bypass the specified second-level {@link Cache}
+     * or not, the bypassed {@link Cache} is missed on reading, but still shared by the other transactions.
+     *
+     * @param executor {@link Executor}
+     * @param cache    the second-level {@link Cache}
+     * @param bypass   bypass or not
+     * @return the previous state, or <code>false</code> if the second-level cache is disabled
+     */
+    public static boolean bypassCache(Executor executor, Cache cache, boolean bypass) {
+        TransactionalCacheManager transactionalCacheManager = getTransactionalCacheManager(executor);
+        if (transactionalCacheManager == null) {
+            return false;
+        }
+        TransactionalCache transactionalCache = getTransactionalCaches(transactionalCacheManager)
+                .computeIfAbsent(cache, TransactionalCache::new);
+        try {
+            boolean previous = CLEAR_ON_COMMIT_FIELD.getBoolean(transactionalCache);
+            CLEAR_ON_COMMIT_FIELD.setBoolean(transactionalCache, bypass);
+            return previous;
+        } catch (IllegalAccessException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
+    private static Map<Cache, TransactionalCache> getTransactionalCaches(TransactionalCacheManager transactionalCacheManager) {
+        return getFieldValue(transactionalCacheManager, "transactionalCaches");
+    }
+
+    private static Field findField(Class<?> declaringClass, String name) {
+        try {
+            Field field = declaringClass.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
     private Executors() {
     }
 }
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.cache.FingerprintCacheKey;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.BaseExecutor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.microsphere.mybatis.cache.FingerprintCacheKey.fingerprint;
+import static org.apache.ibatis.mapping.ParameterMode.OUT;
+
+/**
+ * The {@link ExecutorFilter} creates the {@link FingerprintCacheKey} instead of the {@link CacheKey} for both local and
+ * second-level caches:
+ * <ul>
+ *     <li>the fingerprints of the {@link MappedStatement#getId() statement id}, the environment id and the SQL texts
+ *     are precomputed per {@link MappedStatement}</li>
+ *     <li>the parameter values are mixed into a 128-bit fingerprint</li>
+ *     <li>the parameter values are optionally discarded after mixing, see {@link #isRetainParameters()}</li>
+ * </ul>
+ * <p>
+ * As the {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler)} of
+ * {@link org.apache.ibatis.executor.CachingExecutor} creates the {@link CacheKey} internally, this filter turns it
+ * into {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler, CacheKey, BoundSql)} with the
+ * {@link FingerprintCacheKey}, thus it has the lowest priority to be the last {@link ExecutorFilter}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   ExecutorFilter filter = new FingerprintCacheKeyExecutorFilter(false);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see FingerprintCacheKey
+ * @see BaseExecutor#createCacheKey(MappedStatement, Object, RowBounds, BoundSql)
+ * @see ExecutorFilter
+ * @since 1.0.0
+ */
+public class FingerprintCacheKeyExecutorFilter implements ExecutorFilter {
+
+    /**
+     * The max count of the SQL fingerprints cached per {@link MappedStatement}
+     */
+    public static final int MAX_SQL_FINGERPRINTS = 64;
+
+    private final boolean retainParameters;
+
+    private final ConcurrentMap<MappedStatement, StatementFingerprint> statementFingerprints = new ConcurrentHashMap<>();
+
+    /**
+     * Create a {@link FingerprintCacheKeyExecutorFilter} that retains all parameter values in the keys
+     */
+    public FingerprintCacheKeyExecutorFilter() {
+        this(true);
+    }
+
+    /**
+     * Create a {@link FingerprintCacheKeyExecutorFilter}
+     *
+     * @param retainParameters whether all parameter values are retained in the keys, or only the fingerprint plus
+     *                         the values that can't be fingerprinted by content
+     */
+    public FingerprintCacheKeyExecutorFilter(boolean retainParameters) {
+        this.retainParameters = retainParameters;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey cacheKey = createCacheKey(ms, parameter, rowBounds, boundSql);
+        return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public CacheKey createCacheKey(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql,
+                                   ExecutorFilterChain chain) {
+        return createCacheKey(ms, parameter, rowBounds, boundSql);
+    }
+
+    /**
+     * Create the {@link FingerprintCacheKey} from the same components as
+     * {@link BaseExecutor#createCacheKey(MappedStatement, Object, RowBounds, BoundSql)} does.
+     *
+     * @param ms        {@link MappedStatement}
+     * @param parameter the parameter of {@link MappedStatement}
+     * @param rowBounds {@link RowBounds}
+     * @param boundSql  {@link BoundSql}
+     * @return non-null
+     */
+    public FingerprintCacheKey createCacheKey(MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) {
+        StatementFingerprint statementFingerprint = statementFingerprints.computeIfAbsent(ms, StatementFingerprint::new);
+        List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+        FingerprintCacheKey cacheKey = new FingerprintCacheKey(retainParameters, retainParameters ? parameterMappings.size() : 0);
+        cacheKey.updateFingerprint(statementFingerprint.id);
+        cacheKey.updateLong(((long) rowBounds.getOffset() << 32) | (rowBounds.getLimit() & 0xffffffffL));
+        cacheKey.updateFingerprint(statementFingerprint.getSqlFingerprint(boundSql.getSql()));
+
+        TypeHandlerRegistry typeHandlerRegistry = statementFingerprint.typeHandlerRegistry;
+        MetaObject metaObject = null;
+        for (int i = 0, size = parameterMappings.size(); i < size; i++) {
+            ParameterMapping parameterMapping = parameterMappings.get(i);
+            if (parameterMapping.getMode() == OUT) {
+                continue;
+            }
+            Object value;
+            String propertyName = parameterMapping.getProperty();
+            if (boundSql.hasAdditionalParameter(propertyName)) {
+                value = boundSql.getAdditionalParameter(propertyName);
+            } else if (parameter == null) {
+                value = null;
+            } else if (typeHandlerRegistry.hasTypeHandler(parameter.getClass())) {
+                value = parameter;
+            } else {
+                if (metaObject == null) {
+                    metaObject = ms.getConfiguration().newMetaObject(parameter);
+                }
+                value = metaObject.getValue(propertyName);
+            }
+            cacheKey.update(value);
+        }
+
+        if (statementFingerprint.environment != null) {
+            cacheKey.updateFingerprint(statementFingerprint.environment);
+        }
+        return cacheKey;
+    }
+
+    /**
+     * Are all parameter values retained in the keys or not
+     *
+     * @return <code>true</code> if retained
+     */
+    public boolean isRetainParameters() {
+        return retainParameters;
+    }
+
+    /**
+     * The lowest priority to be the last {@link ExecutorFilter}
+     *
+     * @return {@link #MIN_PRIORITY}
+     */
+    @Override
+    public int getPriority() {
+        return MIN_PRIORITY;
+    }
+
+    /**
+     * The precomputed fingerprints of {@link MappedStatement}
+     */
+    private static class StatementFingerprint {
+
+        private final long[] id;
+
+        private final long[] environment;
+
+        private final TypeHandlerRegistry typeHandlerRegistry;
+
+        private final ConcurrentMap<String, long[]> sqlFingerprints = new ConcurrentHashMap<>();
+
+        StatementFingerprint(MappedStatement ms) {
+            Configuration configuration = ms.getConfiguration();
+            Environment environment = configuration.getEnvironment();
+            this.id = fingerprint(ms.getId());
+            this.environment = environment == null ? null : fingerprint(environment.getId());
+            this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
+        }
+
+        long[] getSqlFingerprint(String sql) {
+            long[] sqlFingerprint = sqlFingerprints.get(sql);
+            if (sqlFingerprint == null) {
+                sqlFingerprint = fingerprint(sql);
+                // the dynamic SQL may render unbounded SQL texts
+                if (sqlFingerprints.size() < MAX_SQL_FINGERPRINTS) {
+                    sqlFingerprints.putIfAbsent(sql, sqlFingerprint);
+                }
+            }
+            return sqlFingerprint;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static io.microsphere.mybatis.executor.Executors.createCacheKey;
+import static io.microsphere.mybatis.executor.Executors.getLocalCache;
+
+/**
+ * The {@link ExecutorFilter} emits the JDK Flight Recorder events around the operations of {@link Executor} :
+ * <ul>
+ *     <li>{@link StatementEvent} for {@link Executor#update(MappedStatement, Object) update},
+ *     {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler) query} and
+ *     {@link Executor#queryCursor(MappedStatement, Object, RowBounds) queryCursor} with the statement id, the command
+ *     type, the rows and whether the query was served by the local or second-level cache</li>
+ *     <li>{@link TransactionEvent} for {@link Executor#commit(boolean) commit},
+ *     {@link Executor#rollback(boolean) rollback} and {@link Executor#getTransaction() getTransaction}</li>
+ *     <li>{@link DeferLoadEvent} for
+ *     {@link Executor#deferLoad(MappedStatement, MetaObject, String, CacheKey, Class) deferLoad}</li>
+ * </ul>
+ * The events are committed only if their durations exceed the thresholds (10 ms by default), which could be
+ * configured by the JFR settings, e.g. <code>io.microsphere.mybatis.Statement#threshold=0 ms</code>. When the events
+ * are disabled, the operations are delegated directly.
+ * <p>
+ * This filter is placed on {@link ExecutorFilterPlacement#BOTH both} sides of the
+ * {@link org.apache.ibatis.executor.CachingExecutor}, the outside one emits the events, and the inside one counts
+ * the database queries per thread, so the query without any database query is flagged as a cache hit.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   ExecutorFilter filter = new FlightRecorderExecutorFilter();
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ *   // java -XX:StartFlightRecording:settings=profile,filename=mybatis.jfr ...
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Event
+ * @see ExecutorFilter
+ * @since 1.0.0
+ */
+public class FlightRecorderExecutorFilter implements ExecutorFilter {
+
+    /**
+     * The category of the events
+     */
+    public static final String CATEGORY = "MyBatis";
+
+    /**
+     * The default threshold of the events
+     */
+    public static final String DEFAULT_THRESHOLD = "10 ms";
+
+    // the count of database queries per thread, the session is confined to a thread
+    private static final ThreadLocal<long[]> DATABASE_QUERIES = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        StatementEvent event = new StatementEvent();
+        if (!event.isEnabled() || !chain.getPlacement().isOutside()) {
+            return chain.update(ms, parameter);
+        }
+        event.begin();
+        int rows = 0;
+        Throwable failure = null;
+        try {
+            rows = chain.update(ms, parameter);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            commit(event, "update", ms, rows, false, failure);
+        }
+        return rows;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        StatementEvent event = new StatementEvent();
+        if (!event.isEnabled()) {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        ExecutorFilterPlacement placement = chain.getPlacement();
+        long[] databaseQueries = DATABASE_QUERIES.get();
+        long queries = databaseQueries[0];
+        if (placement.isInside() && !isLocalCacheHit(chain.getExecutor(), resultHandler, cacheKey)) {
+            databaseQueries[0]++;
+        }
+        if (!placement.isOutside()) {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        event.begin();
+        List<E> result = null;
+        Throwable failure = null;
+        try {
+            result = chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            commit(event, "query", ms, result == null ? 0 : result.size(), failure == null && databaseQueries[0] == queries,
+                    failure);
+        }
+        return result;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        StatementEvent event = new StatementEvent();
+        if (!event.isEnabled()) {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        }
+        if (chain.getPlacement().isInside()) {
+            // the CacheKey is required to detect the hit of local cache
+            BoundSql boundSql = ms.getBoundSql(parameter);
+            CacheKey cacheKey = createCacheKey(chain, ms, parameter, rowBounds, boundSql);
+            return query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql, chain);
+        }
+        long[] databaseQueries = DATABASE_QUERIES.get();
+        long queries = databaseQueries[0];
+        event.begin();
+        List<E> result = null;
+        Throwable failure = null;
+        try {
+            result = chain.query(ms, parameter, rowBounds, resultHandler);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            commit(event, "query", ms, result == null ? 0 : result.size(), failure == null && databaseQueries[0] == queries,
+                    failure);
+        }
+        return result;
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                     ExecutorFilterChain chain) throws SQLException {
+        StatementEvent event = new StatementEvent();
+        if (!event.isEnabled() || !chain.getPlacement().isOutside()) {
+            return chain.queryCursor(ms, parameter, rowBounds);
+        }
+        event.begin();
+        Throwable failure = null;
+        try {
+            return chain.queryCursor(ms, parameter, rowBounds);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            // the rows of Cursor are unknown until it's consumed
+            commit(event, "queryCursor", ms, 0, false, failure);
+        }
+    }
+
+    @Override
+    public void commit(boolean required, ExecutorFilterChain chain) throws SQLException {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled() || !chain.getPlacement().isOutside()) {
+            chain.commit(required);
+            return;
+        }
+        event.begin();
+        Throwable failure = null;
+        try {
+            chain.commit(required);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            commit(event, "commit", required, failure);
+        }
+    }
+
+    @Override
+    public void rollback(boolean required, ExecutorFilterChain chain) throws SQLException {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled() || !chain.getPlacement().isOutside()) {
+            chain.rollback(required);
+            return;
+        }
+        event.begin();
+        Throwable failure = null;
+        try {
+            chain.rollback(required);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            commit(event, "rollback", required, failure);
+        }
+    }
+
+    @Override
+    public Transaction getTransaction(ExecutorFilterChain chain) {
+        TransactionEvent event = new TransactionEvent();
+        if (!event.isEnabled() || !chain.getPlacement().isOutside()) {
+            return chain.getTransaction();
+        }
+        event.begin();
+        Throwable failure = null;
+        try {
+            return chain.getTransaction();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            commit(event, "getTransaction", false, failure);
+        }
+    }
+
+    @Override
+    public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key,
+                          Class<?> targetType, ExecutorFilterChain chain) {
+        DeferLoadEvent event = new DeferLoadEvent();
+        if (!event.isEnabled() || !chain.getPlacement().isOutside()) {
+            chain.deferLoad(ms, resultObject, property, key, targetType);
+            return;
+        }
+        event.begin();
+        Throwable failure = null;
+        try {
+            chain.deferLoad(ms, resultObject, property, key, targetType);
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.statementId = ms.getId();
+                event.property = property;
+                event.targetType = targetType;
+                event.failure = getFailure(failure);
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * The events are emitted outside the {@link org.apache.ibatis.executor.CachingExecutor}, and the database queries
+     * are counted inside it.
+     *
+     * @return {@link ExecutorFilterPlacement#BOTH}
+     */
+    @Override
+    public ExecutorFilterPlacement getPlacement() {
+        return ExecutorFilterPlacement.BOTH;
+    }
+
+    private static boolean isLocalCacheHit(Executor executor, ResultHandler resultHandler, CacheKey cacheKey) {
+        if (resultHandler != null || cacheKey == null) {
+            return false;
+        }
+        PerpetualCache localCache = getLocalCache(executor);
+        return localCache != null && localCache.getObject(cacheKey) != null;
+    }
+
+    private static void commit(StatementEvent event, String operation, MappedStatement ms, long rows, boolean cacheHit,
+                               @Nullable Throwable failure) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.statementId = ms.getId();
+            event.commandType = ms.getSqlCommandType().name();
+            event.rows = rows;
+            event.cacheHit = cacheHit;
+            event.failure = getFailure(failure);
+            event.commit();
+        }
+    }
+
+    private static void commit(TransactionEvent event, String operation, boolean required, @Nullable Throwable failure) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.required = required;
+            event.failure = getFailure(failure);
+            event.commit();
+        }
+    }
+
+    @Nullable
+    private static String getFailure(@Nullable Throwable failure) {
+        return failure == null ? null : failure.getClass().getName() + ": " + failure.getMessage();
+    }
+
+    /**
+     * The JFR event of the statement execution
+     */
+    @Name(StatementEvent.NAME)
+    @Label("MyBatis Statement")
+    @Category(CATEGORY)
+    @Description("The execution of MyBatis MappedStatement")
+    @Threshold(DEFAULT_THRESHOLD)
+    public static class StatementEvent extends Event {
+
+        /**
+         * The name of event
+         */
+        public static final String NAME = "io.microsphere.mybatis.Statement";
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Statement Id")
+        String statementId;
+
+        @Label("Command Type")
+        String commandType;
+
+        @Label("Rows")
+        long rows;
+
+        @Label("Cache Hit")
+        @Description("Whether the query was served by the local or second-level cache")
+        boolean cacheHit;
+
+        @Label("Failure")
+        String failure;
+    }
+
+    /**
+     * The JFR event of the transaction operation
+     */
+    @Name(TransactionEvent.NAME)
+    @Label("MyBatis Transaction")
+    @Category(CATEGORY)
+    @Description("The transaction operation of MyBatis Executor")
+    @Threshold(DEFAULT_THRESHOLD)
+    public static class TransactionEvent extends Event {
+
+        /**
+         * The name of event
+         */
+        public static final String NAME = "io.microsphere.mybatis.Transaction";
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Required")
+        boolean required;
+
+        @Label("Failure")
+        String failure;
+    }
+
+    /**
+     * The JFR event of the deferred loading
+     */
+    @Name(DeferLoadEvent.NAME)
+    @Label("MyBatis Deferred Load")
+    @Category(CATEGORY)
+    @Description("The deferred loading of the nested query")
+    @Threshold(DEFAULT_THRESHOLD)
+    public static class DeferLoadEvent extends Event {
+
+        /**
+         * The name of event
+         */
+        public static final String NAME = "io.microsphere.mybatis.DeferLoad";
+
+        @Label("Statement Id")
+        String statementId;
+
+        @Label("Property")
+        String property;
+
+        @Label("Target Type")
+        Class<?> targetType;
+
+        @Label("Failure")
+        String failure;
+    }
+}
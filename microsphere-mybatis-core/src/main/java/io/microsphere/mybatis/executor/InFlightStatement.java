@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.SqlFingerprintExecutorInterceptor.normalize;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The statement executing by a thread, which is registered in the {@link InFlightStatementRegistry}, the
+ * {@link Connection} and the JDBC {@link Statement} are attached once they are prepared and executed.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   for (InFlightStatement statement : registry.getSnapshot()) {
+ *       System.out.printf("%s : %s [%s] %d ms%n", statement.getThread().getName(), statement.getStatementId(),
+ *           statement.getSql(), statement.getElapsedMillis());
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InFlightStatementRegistry
+ * @since 1.0.0
+ */
+public class InFlightStatement {
+
+    private static final Logger logger = getLogger(InFlightStatement.class);
+
+    private final long id;
+
+    private final Thread thread;
+
+    private final String statementId;
+
+    private final long startTime;
+
+    private final long startNanoTime;
+
+    // the outer statement executing by the same thread, e.g. the nested query
+    @Nullable
+    final InFlightStatement previous;
+
+    @Nullable
+    private volatile String rawSql;
+
+    @Nullable
+    private volatile String sql;
+
+    @Nullable
+    private volatile Connection connection;
+
+    @Nullable
+    private volatile Statement statement;
+
+    // reported by the watchdog or not
+    volatile boolean reported;
+
+    InFlightStatement(long id, Thread thread, String statementId, long startTime, @Nullable InFlightStatement previous) {
+        this.id = id;
+        this.thread = thread;
+        this.statementId = statementId;
+        this.startTime = startTime;
+        this.startNanoTime = nanoTime();
+        this.previous = previous;
+    }
+
+    /**
+     * Cancel the executing JDBC {@link Statement} by {@link Statement#cancel()}
+     *
+     * @return <code>true</code> if cancelled, <code>false</code> if no {@link Statement} is executing or it failed
+     */
+    public boolean cancel() {
+        Statement statement = this.statement;
+        if (statement == null) {
+            return false;
+        }
+        try {
+            statement.cancel();
+            return true;
+        } catch (SQLException e) {
+            logger.warn("The statement['{}'] executing by the thread['{}'] can't be cancelled", statementId,
+                    thread.getName(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Get the id of registration
+     *
+     * @return the id of registration
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * Get the thread executing the statement
+     *
+     * @return non-null
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * Get the id of {@link org.apache.ibatis.mapping.MappedStatement}
+     *
+     * @return non-null
+     */
+    public String getStatementId() {
+        return statementId;
+    }
+
+    /**
+     * Get the normalized SQL as the fingerprint, whose literals were stripped
+     *
+     * @return <code>null</code> if the SQL has not been prepared, e.g. the query was served by the local cache
+     * @see SqlFingerprintExecutorInterceptor#normalize(String)
+     */
+    @Nullable
+    public String getSql() {
+        String sql = this.sql;
+        if (sql == null) {
+            String rawSql = this.rawSql;
+            if (rawSql != null) {
+                sql = normalize(rawSql);
+                this.sql = sql;
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Get the start time in milliseconds
+     *
+     * @return the start time in milliseconds
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Get the elapsed time in milliseconds
+     *
+     * @return the elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        return NANOSECONDS.toMillis(nanoTime() - startNanoTime);
+    }
+
+    /**
+     * Get the {@link Connection} used by the statement
+     *
+     * @return <code>null</code> if the statement has not been prepared
+     */
+    @Nullable
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Get the executing JDBC {@link Statement}
+     *
+     * @return <code>null</code> if the JDBC {@link Statement} is not executing
+     */
+    @Nullable
+    public Statement getStatement() {
+        return statement;
+    }
+
+    void prepare(Connection connection, String rawSql) {
+        this.connection = connection;
+        this.rawSql = rawSql;
+        this.sql = null;
+    }
+
+    void setStatement(@Nullable Statement statement) {
+        this.statement = statement;
+    }
+
+    @Override
+    public String toString() {
+        return "InFlightStatement{" +
+                "id=" + id +
+                ", thread='" + thread.getName() + '\'' +
+                ", statementId='" + statementId + '\'' +
+                ", sql='" + getSql() + '\'' +
+                ", startTime=" + startTime +
+                ", elapsedMillis=" + getElapsedMillis() +
+                ", connection=" + connection +
+                '}';
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static io.microsphere.util.Assert.assertNotNull;
+
+/**
+ * The {@link ExecutorFilter} registers the executing statements into the {@link InFlightStatementRegistry}, and
+ * deregisters them after the executions.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   InFlightStatementRegistry registry = new InFlightStatementRegistry();
+ *   ExecutorFilter filter = new InFlightStatementExecutorFilter(registry);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InFlightStatementRegistry
+ * @see io.microsphere.mybatis.executor.statement.InFlightStatementHandlerFilter
+ * @since 1.0.0
+ */
+public class InFlightStatementExecutorFilter implements ExecutorFilter {
+
+    private final InFlightStatementRegistry registry;
+
+    /**
+     * @param registry {@link InFlightStatementRegistry}
+     */
+    public InFlightStatementExecutorFilter(InFlightStatementRegistry registry) {
+        assertNotNull(registry, () -> "The 'registry' argument must not be null");
+        this.registry = registry;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        InFlightStatement statement = registry.register(ms);
+        try {
+            return chain.update(ms, parameter);
+        } finally {
+            registry.deregister(statement);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        InFlightStatement statement = registry.register(ms);
+        try {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        } finally {
+            registry.deregister(statement);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        InFlightStatement statement = registry.register(ms);
+        try {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        } finally {
+            registry.deregister(statement);
+        }
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                     ExecutorFilterChain chain) throws SQLException {
+        InFlightStatement statement = registry.register(ms);
+        try {
+            return chain.queryCursor(ms, parameter, rowBounds);
+        } finally {
+            registry.deregister(statement);
+        }
+    }
+
+    /**
+     * Get the {@link InFlightStatementRegistry}
+     *
+     * @return non-null
+     */
+    public InFlightStatementRegistry getRegistry() {
+        return registry;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The registry of the {@link InFlightStatement statements} executing currently, which are registered and deregistered
+ * by {@link InFlightStatementExecutorFilter}, and whose {@link Connection connections} and JDBC
+ * {@link Statement statements} are attached by
+ * {@link io.microsphere.mybatis.executor.statement.InFlightStatementHandlerFilter}. The registry is backed by a
+ * {@link ConcurrentHashMap} without any lock on the execution path.
+ * <p>
+ * The optional watchdog inspects the registry periodically, the statements running longer than the threshold are
+ * logged once with the stack traces of their threads, and optionally cancelled by
+ * {@link Statement#cancel()}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   InFlightStatementRegistry registry = new InFlightStatementRegistry();
+ *   configuration.addInterceptor(new InterceptingExecutorInterceptor(
+ *       new ExecutorFilter[]{new InFlightStatementExecutorFilter(registry)}));
+ *   configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(new InFlightStatementHandlerFilter(registry)));
+ *
+ *   // log the statements running over 5 seconds every second, and cancel them
+ *   registry.startWatchdog(5000, 1000, true);
+ *   // the live diagnostic dump
+ *   List<InFlightStatement> statements = registry.getSnapshot();
+ *   // on shutdown
+ *   registry.close();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InFlightStatement
+ * @see InFlightStatementExecutorFilter
+ * @since 1.0.0
+ */
+public class InFlightStatementRegistry implements AutoCloseable {
+
+    private static final Logger logger = getLogger(InFlightStatementRegistry.class);
+
+    private final ConcurrentMap<Long, InFlightStatement> statements = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<InFlightStatement> currentStatement = new ThreadLocal<>();
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    @Nullable
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * Register the statement executing by the current thread
+     *
+     * @param ms {@link MappedStatement}
+     * @return non-null
+     */
+    public InFlightStatement register(MappedStatement ms) {
+        InFlightStatement statement = new InFlightStatement(idGenerator.incrementAndGet(), Thread.currentThread(),
+                ms.getId(), currentTime(), currentStatement.get());
+        statements.put(statement.getId(), statement);
+        currentStatement.set(statement);
+        return statement;
+    }
+
+    /**
+     * Deregister the statement executing by the current thread
+     *
+     * @param statement {@link InFlightStatement}
+     */
+    public void deregister(InFlightStatement statement) {
+        statements.remove(statement.getId());
+        InFlightStatement previous = statement.previous;
+        if (previous == null) {
+            currentStatement.remove();
+        } else {
+            currentStatement.set(previous);
+        }
+    }
+
+    /**
+     * Attach the {@link Connection} and the SQL to the specified statement once it's prepared
+     *
+     * @param statement  {@link InFlightStatement}
+     * @param connection {@link Connection}
+     * @param sql        the SQL to be executed
+     */
+    public void prepare(InFlightStatement statement, Connection connection, String sql) {
+        statement.prepare(connection, sql);
+    }
+
+    /**
+     * Attach the executing JDBC {@link Statement} to the specified statement
+     *
+     * @param statement     {@link InFlightStatement}
+     * @param jdbcStatement the executing JDBC {@link Statement}, or <code>null</code> to detach it
+     */
+    public void attach(InFlightStatement statement, @Nullable Statement jdbcStatement) {
+        statement.setStatement(jdbcStatement);
+    }
+
+    /**
+     * Get the innermost statement executing by the current thread
+     *
+     * @return <code>null</code> if absent
+     */
+    @Nullable
+    public InFlightStatement getCurrentStatement() {
+        return currentStatement.get();
+    }
+
+    /**
+     * Get the snapshot of the statements executing currently in the order of registration
+     *
+     * @return non-null
+     */
+    public List<InFlightStatement> getSnapshot() {
+        List<InFlightStatement> snapshot = new ArrayList<>(statements.values());
+        snapshot.sort(comparingLong(InFlightStatement::getId));
+        return snapshot;
+    }
+
+    /**
+     * Get the count of the statements executing currently
+     *
+     * @return the count of the statements executing currently
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Inspect the statements running longer than the specified threshold, each statement is reported once.
+     *
+     * @param thresholdMillis the threshold in milliseconds
+     * @param cancel          whether to cancel the JDBC {@link Statement statements} or not
+     * @return the count of the reported statements
+     */
+    public int inspect(long thresholdMillis, boolean cancel) {
+        int count = 0;
+        for (InFlightStatement statement : statements.values()) {
+            if (!statement.reported && statement.getElapsedMillis() >= thresholdMillis) {
+                statement.reported = true;
+                boolean cancelled = cancel && statement.cancel();
+                report(statement, cancelled);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Report the statement running longer than the threshold, the subclass could override this method to expose it.
+     *
+     * @param statement {@link InFlightStatement}
+     * @param cancelled whether the statement was cancelled or not
+     */
+    protected void report(InFlightStatement statement, boolean cancelled) {
+        Throwable stackTrace = new Throwable("The stack trace of the thread['" + statement.getThread().getName() + "']");
+        stackTrace.setStackTrace(statement.getThread().getStackTrace());
+        logger.warn("The statement['{}'] has been running for {} ms{} : {}", statement.getStatementId(),
+                statement.getElapsedMillis(), cancelled ? " and was cancelled" : "", statement, stackTrace);
+    }
+
+    /**
+     * Start the watchdog thread that {@link #inspect(long, boolean) inspects} the statements periodically
+     *
+     * @param thresholdMillis the threshold in milliseconds
+     * @param intervalMillis  the interval of inspection in milliseconds
+     * @param cancel          whether to cancel the JDBC {@link Statement statements} or not
+     * @throws IllegalStateException if the watchdog was started
+     */
+    public synchronized void startWatchdog(long thresholdMillis, long intervalMillis, boolean cancel) {
+        assertTrue(thresholdMillis > 0, () -> "The 'thresholdMillis' argument must be positive");
+        assertTrue(intervalMillis > 0, () -> "The 'intervalMillis' argument must be positive");
+        if (watchdog != null) {
+            throw new IllegalStateException("The watchdog was started");
+        }
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-statement-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(() -> {
+            try {
+                inspect(thresholdMillis, cancel);
+            } catch (Throwable e) {
+                logger.warn("The watchdog failed to inspect the statements", e);
+            }
+        }, intervalMillis, intervalMillis, MILLISECONDS);
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Is the watchdog running or not
+     *
+     * @return <code>true</code> if running
+     */
+    public synchronized boolean isWatchdogRunning() {
+        return watchdog != null;
+    }
+
+    /**
+     * Stop the watchdog thread if started
+     */
+    @Override
+    public synchronized void close() {
+        ScheduledExecutorService watchdog = this.watchdog;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            this.watchdog = null;
+        }
+    }
+
+    /**
+     * Get the current time in milliseconds
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+}
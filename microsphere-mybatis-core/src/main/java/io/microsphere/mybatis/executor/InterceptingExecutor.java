@@ -20,6 +20,7 @@ import io.microsphere.logging.Logger;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
@@ -33,6 +34,7 @@ import java.util.List;
 import java.util.Properties;
 
 import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.Executors.getDelegate;
 import static io.microsphere.util.ArrayUtils.arrayToString;
 import static io.microsphere.util.Assert.assertNotNull;
 
@@ -67,6 +69,8 @@ public class InterceptingExecutor implements Executor {
 
     private final ExecutorFilter[] executorFilters;
 
+    private final ExecutorFilterPlacement placement;
+
     /**
      * Construct an {@link InterceptingExecutor} that wraps the given delegate with the supplied filters.
      *
@@ -76,11 +80,28 @@ public class InterceptingExecutor implements Executor {
      *                        {@link Executor} operation; must not be {@code null}
      */
     public InterceptingExecutor(Executor delegate, Properties properties, ExecutorFilter... executorFilters) {
+        this(delegate, properties, ExecutorFilterPlacement.INSIDE, executorFilters);
+    }
+
+    /**
+     * Construct an {@link InterceptingExecutor} that wraps the given delegate with the supplied filters.
+     *
+     * @param delegate        the real {@link Executor} to delegate to; must not be {@code null}
+     * @param properties      optional {@link Properties} from the MyBatis configuration; may be {@code null}
+     * @param placement       the {@link ExecutorFilterPlacement placement} of this executor relative to the
+     *                        {@link CachingExecutor}; must not be {@code null}
+     * @param executorFilters one or more {@link ExecutorFilter} instances applied around every
+     *                        {@link Executor} operation; must not be {@code null}
+     */
+    public InterceptingExecutor(Executor delegate, Properties properties, ExecutorFilterPlacement placement,
+                                ExecutorFilter... executorFilters) {
         assertNotNull(delegate, () -> "The 'delegate' argument must not be null");
+        assertNotNull(placement, () -> "The 'placement' argument must not be null");
         assertNotNull(executorFilters, () -> "The 'executorFilters' argument must not be null");
         this.delegate = delegate;
         this.properties = properties;
         this.executorFilters = executorFilters;
+        this.placement = placement;
         logger.trace(this.toString());
     }
 
@@ -167,11 +188,9 @@ public class InterceptingExecutor implements Executor {
 
     @Override
     public void setExecutorWrapper(Executor executor) {
-        if (executor instanceof InterceptingExecutor) {
-            return;
-        }
-        InterceptingExecutor interceptingExecutor = new InterceptingExecutor(executor, this.properties, this.executorFilters);
-        delegate.setExecutorWrapper(interceptingExecutor);
+        // the nested queries start from the outermost wrapper, which passes through the filters once
+        Executor target = delegate instanceof CachingExecutor cachingExecutor ? getDelegate(cachingExecutor) : delegate;
+        target.setExecutorWrapper(executor);
     }
 
     /**
@@ -180,7 +199,7 @@ public class InterceptingExecutor implements Executor {
      * @return a fresh {@link ExecutorFilterChain} wrapping the delegate and filters
      */
     ExecutorFilterChain buildChain() {
-        return new ExecutorFilterChain(this.delegate, this.properties, this.executorFilters);
+        return new ExecutorFilterChain(this.delegate, this.properties, this.placement, this.executorFilters);
     }
 
     /**
@@ -210,12 +229,22 @@ public class InterceptingExecutor implements Executor {
         return executorFilters;
     }
 
+    /**
+     * Get the {@link ExecutorFilterPlacement placement} of this executor relative to the {@link CachingExecutor}
+     *
+     * @return the {@link ExecutorFilterPlacement}; never {@code null}
+     */
+    public ExecutorFilterPlacement getPlacement() {
+        return placement;
+    }
+
     @Override
     public String toString() {
         return "InterceptingExecutor{" +
                 "delegate=" + delegate +
                 ", properties=" + properties +
                 ", executorFilters=" + arrayToString(executorFilters) +
+                ", placement=" + placement +
                 '}';
     }
 }
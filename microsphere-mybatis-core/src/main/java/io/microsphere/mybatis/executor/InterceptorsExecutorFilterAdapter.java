@@ -38,6 +38,7 @@ import static io.microsphere.logging.LoggerFactory.getLogger;
 import static io.microsphere.util.ArrayUtils.length;
 import static io.microsphere.util.Assert.assertNoNullElements;
 import static io.microsphere.util.Assert.assertNotEmpty;
+import static io.microsphere.util.Assert.assertNotNull;
 import static io.microsphere.util.ClassUtils.getTypeName;
 import static java.util.Arrays.sort;
 
@@ -70,8 +71,11 @@ public class InterceptorsExecutorFilterAdapter implements ExecutorFilter {
 
     private final int executorInterceptorsCount;
 
+    private final ExecutorFilterPlacement placement;
+
     /**
-     * Construct an adapter that delegates to the given {@link ExecutorInterceptor} instances.
+     * Construct an adapter that delegates to the given {@link ExecutorInterceptor} instances, which is placed
+     * {@link ExecutorFilterPlacement#INSIDE inside}.
      * The interceptors are sorted by {@link io.microsphere.lang.Prioritized priority} after construction.
      *
      * @param executorInterceptors one or more {@link ExecutorInterceptor} instances; must not be empty
@@ -79,10 +83,28 @@ public class InterceptorsExecutorFilterAdapter implements ExecutorFilter {
      * @throws IllegalArgumentException if the array is empty or contains a {@code null} element
      */
     public InterceptorsExecutorFilterAdapter(ExecutorInterceptor[] executorInterceptors) {
+        this(executorInterceptors, ExecutorFilterPlacement.INSIDE);
+    }
+
+    /**
+     * Construct an adapter that delegates to the given {@link ExecutorInterceptor} instances.
+     * The interceptors are sorted by {@link io.microsphere.lang.Prioritized priority} after construction.
+     *
+     * @param executorInterceptors one or more {@link ExecutorInterceptor} instances; must not be empty
+     *                             and must not contain {@code null} elements
+     * @param placement            the {@link ExecutorFilterPlacement placement} of the adapter, e.g.
+     *                             {@link ExecutorFilterPlacement#OUTSIDE} to intercept the hits of the second-level
+     *                             cache
+     * @throws IllegalArgumentException if the array is empty, contains a {@code null} element, or the placement is
+     *                                  {@code null}
+     */
+    public InterceptorsExecutorFilterAdapter(ExecutorInterceptor[] executorInterceptors, ExecutorFilterPlacement placement) {
         assertNotEmpty(executorInterceptors, () -> "The ExecutorInterceptor array must not be empty");
         assertNoNullElements(executorInterceptors, () -> "Any element of interceptors must not be null!");
+        assertNotNull(placement, () -> "The 'placement' argument must not be null");
         this.executorInterceptors = executorInterceptors;
         this.executorInterceptorsCount = length(executorInterceptors);
+        this.placement = placement;
 
         // sort by its priority
         sort(this.executorInterceptors, PriorityComparator.INSTANCE);
@@ -246,6 +268,16 @@ public class InterceptorsExecutorFilterAdapter implements ExecutorFilter {
         }
     }
 
+    /**
+     * The placement of the adapter specified by the constructor
+     *
+     * @return {@link ExecutorFilterPlacement#INSIDE} as default
+     */
+    @Override
+    public ExecutorFilterPlacement getPlacement() {
+        return placement;
+    }
+
     void beforeUpdate(InterceptorContext<Executor> context, MappedStatement ms, Object parameter) {
         iterate(executorInterceptor -> executorInterceptor.beforeUpdate(context, ms, parameter));
     }
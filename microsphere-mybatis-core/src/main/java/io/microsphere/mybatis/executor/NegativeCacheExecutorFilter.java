@@ -0,0 +1,411 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.cache.SqlTables;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.Executors.createCacheKey;
+import static io.microsphere.mybatis.executor.Executors.isStaticSql;
+import static io.microsphere.mybatis.executor.TableInvalidationExecutorFilter.UNKNOWN_TABLE;
+import static io.microsphere.util.Assert.assertNoNullElements;
+import static io.microsphere.util.Assert.assertTrue;
+import static org.apache.ibatis.mapping.SqlCommandType.DELETE;
+import static org.apache.ibatis.mapping.SqlCommandType.SELECT;
+
+/**
+ * The {@link ExecutorFilter} caches the keys of the recent lookups that found nothing, so that the repeated lookups of
+ * the missing keys, e.g. by the bots or the retries, don't hit the database, regardless of the second-level cache.
+ * <p>
+ * The negative entries are kept in a bounded LRU with a TTL, and invalidated by the versions of the tables they read:
+ * <ul>
+ *     <li>the version of the table is bumped by the inserts and the updates that write it, both on the execution and
+ *     on the commit, the deletes are ignored since they can't make a missing row present</li>
+ *     <li>the versions are captured before the query, so the entry that raced with a write is stale at once</li>
+ *     <li>the transaction with the pending writes bypasses the negative entries of the tables it wrote</li>
+ *     <li>the statement whose tables are unknown, including the dynamic SQL whose tables vary with the renderings, is
+ *     invalidated by any write, and the write whose tables are unknown invalidates all entries</li>
+ * </ul>
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   NegativeCacheExecutorFilter filter = new NegativeCacheExecutorFilter(10000, 60000,
+ *           "com.acme.mapper.UserMapper.getUserById", "com.acme.mapper.UserMapper.getUserByName");
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlTables
+ * @see TableInvalidationExecutorFilter
+ * @since 1.0.0
+ */
+public class NegativeCacheExecutorFilter implements ExecutorFilter {
+
+    private static final Logger logger = getLogger(NegativeCacheExecutorFilter.class);
+
+    /**
+     * The default max count of the negative entries
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /**
+     * The default TTL of the negative entries in milliseconds : 1 minute
+     */
+    public static final long DEFAULT_TTL = 60 * 1000;
+
+    private final int maxEntries;
+
+    private final long ttl;
+
+    private final Set<String> statementIds;
+
+    private final NegativeEntries negativeEntries = new NegativeEntries();
+
+    private final ConcurrentMap<MappedStatement, Set<String>> statementTablesMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, AtomicLong> tableVersions = new ConcurrentHashMap<>();
+
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    private final WeakExecutorMap<Set<String>> pendingTables = new WeakExecutorMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder staleCount = new LongAdder();
+
+    /**
+     * Create a {@link NegativeCacheExecutorFilter} with {@link #DEFAULT_MAX_ENTRIES} and {@link #DEFAULT_TTL}
+     *
+     * @param statementIds the ids of the lookup {@link MappedStatement statements}, all select statements if empty
+     */
+    public NegativeCacheExecutorFilter(String... statementIds) {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL, statementIds);
+    }
+
+    /**
+     * Create a {@link NegativeCacheExecutorFilter}
+     *
+     * @param maxEntries   the max count of the negative entries
+     * @param ttl          the TTL of the negative entries in milliseconds
+     * @param statementIds the ids of the lookup {@link MappedStatement statements}, all select statements if empty
+     */
+    public NegativeCacheExecutorFilter(int maxEntries, long ttl, String... statementIds) {
+        assertTrue(maxEntries > 0, () -> "The 'maxEntries' must be positive");
+        assertTrue(ttl > 0, () -> "The 'ttl' must be positive");
+        assertNoNullElements(statementIds, () -> "Any element of statementIds must not be null!");
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.statementIds = Set.of(statementIds);
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        int rows = chain.update(ms, parameter);
+        SqlCommandType sqlCommandType = ms.getSqlCommandType();
+        if (sqlCommandType != DELETE) {
+            Set<String> tables = getTables(ms, () -> ms.getBoundSql(parameter));
+            pendingTables.computeIfAbsent(executor, e -> ConcurrentHashMap.newKeySet()).addAll(tables);
+            // the committed writes of the auto-commit transaction
+            bumpVersions(tables);
+        }
+        return rows;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        if (!isLookup(ms, resultHandler)) {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, chain);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        if (!isLookup(ms, resultHandler)) {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        }
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey cacheKey = createCacheKey(chain, ms, parameter, rowBounds, boundSql);
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, chain);
+    }
+
+    @Override
+    public void commit(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        chain.commit(required);
+        applyPendingTables(executor);
+    }
+
+    @Override
+    public void rollback(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.rollback(required);
+        } finally {
+            pendingTables.remove(executor);
+        }
+    }
+
+    @Override
+    public void close(boolean forceRollback, ExecutorFilterChain chain) {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.close(forceRollback);
+        } finally {
+            if (forceRollback) {
+                pendingTables.remove(executor);
+            } else {
+                applyPendingTables(executor);
+            }
+        }
+    }
+
+    <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey, BoundSql boundSql,
+                        ExecutorFilterChain chain) throws SQLException {
+        Set<String> tables = getTables(ms, () -> boundSql);
+        if (isPending(chain.getExecutor(), tables)) {
+            // sees its own uncommitted writes
+            return chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        }
+        long now = currentTime();
+        long[] versions = getVersions(tables);
+        NegativeEntry entry = negativeEntries.get(cacheKey);
+        if (entry != null) {
+            if (now - entry.createdTime < ttl && Arrays.equals(entry.versions, versions)) {
+                hitCount.increment();
+                return new ArrayList<>();
+            }
+            negativeEntries.remove(cacheKey, entry);
+            staleCount.increment();
+        }
+        List<E> result = chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        if (result.isEmpty()) {
+            // the versions before the query, the entry raced with a write will be stale
+            negativeEntries.put(cacheKey, new NegativeEntry(now, versions));
+        }
+        return result;
+    }
+
+    /**
+     * Bump the versions of the specified tables, which invalidates the negative entries reading them
+     *
+     * @param tables the written tables, the {@link TableInvalidationExecutorFilter#UNKNOWN_TABLE unknown table}
+     *               invalidates all entries
+     */
+    public void bumpVersions(Set<String> tables) {
+        if (tables.contains(UNKNOWN_TABLE)) {
+            globalVersion.incrementAndGet();
+        } else {
+            for (String table : tables) {
+                getVersion(table).incrementAndGet();
+            }
+        }
+        // the statements whose tables are unknown
+        getVersion(UNKNOWN_TABLE).incrementAndGet();
+        if (logger.isTraceEnabled()) {
+            logger.trace("The versions of the tables{} were bumped", tables);
+        }
+    }
+
+    /**
+     * Get the current time in milliseconds
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Get the max count of the negative entries
+     *
+     * @return the max count of the negative entries
+     */
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get the TTL of the negative entries in milliseconds
+     *
+     * @return the TTL of the negative entries in milliseconds
+     */
+    public long getTtl() {
+        return ttl;
+    }
+
+    /**
+     * Get the ids of the lookup {@link MappedStatement statements}
+     *
+     * @return all select statements if empty
+     */
+    public Set<String> getStatementIds() {
+        return statementIds;
+    }
+
+    /**
+     * Get the count of the negative entries
+     *
+     * @return the count of the negative entries
+     */
+    public int getSize() {
+        return negativeEntries.size();
+    }
+
+    /**
+     * Get the count of the lookups answered by the negative entries
+     *
+     * @return the count of the hits
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get the count of the negative entries that were expired or invalidated on the lookup
+     *
+     * @return the count of the stale entries
+     */
+    public long getStaleCount() {
+        return staleCount.sum();
+    }
+
+    private boolean isLookup(MappedStatement ms, ResultHandler resultHandler) {
+        return resultHandler == null && ms.getSqlCommandType() == SELECT
+                && (statementIds.isEmpty() || statementIds.contains(ms.getId()));
+    }
+
+    private boolean isPending(Executor executor, Set<String> tables) {
+        Set<String> writtenTables = pendingTables.get(executor);
+        if (writtenTables == null) {
+            return false;
+        }
+        if (writtenTables.contains(UNKNOWN_TABLE) || tables.contains(UNKNOWN_TABLE)) {
+            return true;
+        }
+        for (String table : tables) {
+            if (writtenTables.contains(table)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void applyPendingTables(Executor executor) {
+        Set<String> tables = pendingTables.remove(executor);
+        if (tables != null) {
+            bumpVersions(tables);
+        }
+    }
+
+    private Set<String> getTables(MappedStatement ms, Supplier<BoundSql> boundSqlSupplier) {
+        Set<String> tables = statementTablesMap.get(ms);
+        if (tables == null) {
+            tables = statementTablesMap.computeIfAbsent(ms, m -> {
+                // the first rendering of the dynamic SQL doesn't represent the others
+                SqlTables sqlTables = isStaticSql(m) ? SqlTables.parse(boundSqlSupplier.get().getSql()) : SqlTables.UNKNOWN;
+                Set<String> names = m.getSqlCommandType() == SELECT ? sqlTables.getReadTables() : sqlTables.getWriteTables();
+                return names.isEmpty() ? Set.of(UNKNOWN_TABLE) : names;
+            });
+        }
+        return tables;
+    }
+
+    private long[] getVersions(Set<String> tables) {
+        long[] versions = new long[tables.size() + 1];
+        versions[0] = globalVersion.get();
+        int i = 1;
+        for (String table : tables) {
+            versions[i++] = getVersion(table).get();
+        }
+        return versions;
+    }
+
+    private AtomicLong getVersion(String table) {
+        return tableVersions.computeIfAbsent(table, t -> new AtomicLong());
+    }
+
+    private static class NegativeEntry {
+
+        private final long createdTime;
+
+        private final long[] versions;
+
+        NegativeEntry(long createdTime, long[] versions) {
+            this.createdTime = createdTime;
+            this.versions = versions;
+        }
+    }
+
+    private class NegativeEntries extends LinkedHashMap<Object, NegativeEntry> {
+
+        NegativeEntries() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        public synchronized NegativeEntry get(Object key) {
+            return super.get(key);
+        }
+
+        @Override
+        public synchronized NegativeEntry put(Object key, NegativeEntry value) {
+            return super.put(key, value);
+        }
+
+        @Override
+        public synchronized boolean remove(Object key, Object value) {
+            return super.remove(key, value);
+        }
+
+        @Override
+        public synchronized int size() {
+            return super.size();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, NegativeEntry> eldest) {
+            return size() > maxEntries;
+        }
+    }
+}
@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.Cleaner.Cleanable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The {@link ExecutorFilter} detects the sessions that were never closed, which leak their
+ * {@link java.sql.Connection connections} and exhaust the pool slowly :
+ * <ul>
+ *     <li>the session is tracked on its first statement or {@link Executor#getTransaction()}, as the connection is
+ *     acquired lazily, the session never used holds no connection</li>
+ *     <li>the tracked {@link Executor} is referenced weakly, once it's garbage-collected without
+ *     {@link Executor#close(boolean)}, it's reported by the {@link Cleaner}</li>
+ *     <li>the session still open after the max age is reported once by {@link #inspect()}, which could be scheduled
+ *     by {@link #startWatchdog(long)}</li>
+ *     <li>the stack trace of the tracking site is sampled every N sessions to keep the overhead low</li>
+ * </ul>
+ * For instance, <code>MyBatisUtils.getConnection(Configuration)</code> opens a session by
+ * {@link org.apache.ibatis.session.SqlSession#getConnection()} and never closes it.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // report the sessions open over 60 seconds, and capture the stack traces of 1 in 10 sessions
+ *   SessionLeakDetector detector = new SessionLeakDetector(60000, 10);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{detector});
+ *   configuration.addInterceptor(interceptor);
+ *   detector.startWatchdog(10000);
+ *   // on shutdown
+ *   detector.close();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Cleaner
+ * @see ExecutorFilter
+ * @since 1.0.0
+ */
+public class SessionLeakDetector implements ExecutorFilter, AutoCloseable {
+
+    private static final Logger logger = getLogger(SessionLeakDetector.class);
+
+    /**
+     * The default max age of the open session in milliseconds
+     */
+    public static final long DEFAULT_MAX_AGE = 60000;
+
+    /**
+     * The default interval of the sessions whose stack traces are captured
+     */
+    public static final int DEFAULT_STACK_TRACE_SAMPLING_INTERVAL = 10;
+
+    private static final Cleaner cleaner = Cleaner.create();
+
+    private final long maxAge;
+
+    private final int stackTraceSamplingInterval;
+
+    private final WeakExecutorMap<TrackedSession> sessions = new WeakExecutorMap<>();
+
+    private final AtomicLong idGenerator = new AtomicLong();
+
+    private final LongAdder leakCount = new LongAdder();
+
+    @Nullable
+    private ScheduledExecutorService watchdog;
+
+    /**
+     * Create a {@link SessionLeakDetector} with {@link #DEFAULT_MAX_AGE} and
+     * {@link #DEFAULT_STACK_TRACE_SAMPLING_INTERVAL}
+     */
+    public SessionLeakDetector() {
+        this(DEFAULT_MAX_AGE, DEFAULT_STACK_TRACE_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * Create a {@link SessionLeakDetector}
+     *
+     * @param maxAge                     the max age of the open session in milliseconds
+     * @param stackTraceSamplingInterval the stack trace is captured every this number of sessions
+     */
+    public SessionLeakDetector(long maxAge, int stackTraceSamplingInterval) {
+        assertTrue(maxAge > 0, () -> "The 'maxAge' argument must be positive");
+        assertTrue(stackTraceSamplingInterval > 0, () -> "The 'stackTraceSamplingInterval' argument must be positive");
+        this.maxAge = maxAge;
+        this.stackTraceSamplingInterval = stackTraceSamplingInterval;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        track(chain.getExecutor());
+        return chain.update(ms, parameter);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        track(chain.getExecutor());
+        return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        track(chain.getExecutor());
+        return chain.query(ms, parameter, rowBounds, resultHandler);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                     ExecutorFilterChain chain) throws SQLException {
+        track(chain.getExecutor());
+        return chain.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public Transaction getTransaction(ExecutorFilterChain chain) {
+        track(chain.getExecutor());
+        return chain.getTransaction();
+    }
+
+    @Override
+    public void close(boolean forceRollback, ExecutorFilterChain chain) {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.close(forceRollback);
+        } finally {
+            TrackedSession session = sessions.remove(executor);
+            if (session != null) {
+                session.closed = true;
+                // deregister from the Cleaner
+                session.cleanable.clean();
+            }
+        }
+    }
+
+    /**
+     * Inspect the sessions open longer than the max age, each session is reported once.
+     *
+     * @return the reported sessions
+     */
+    public List<TrackedSession> inspect() {
+        List<TrackedSession> agedSessions = new ArrayList<>();
+        long now = currentTime();
+        for (TrackedSession session : sessions.values()) {
+            if (!session.closed && !session.reported && now - session.openTime > maxAge) {
+                session.reported = true;
+                agedSessions.add(session);
+                report(session, false);
+            }
+        }
+        return agedSessions;
+    }
+
+    /**
+     * Get the snapshot of the open sessions
+     *
+     * @return non-null
+     */
+    public List<TrackedSession> getSessions() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    /**
+     * Get the count of the sessions that were garbage-collected without close
+     *
+     * @return the count of the leaked sessions
+     */
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    /**
+     * Get the max age of the open session in milliseconds
+     *
+     * @return the max age of the open session in milliseconds
+     */
+    public long getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Get the interval of the sessions whose stack traces are captured
+     *
+     * @return the interval of the sessions whose stack traces are captured
+     */
+    public int getStackTraceSamplingInterval() {
+        return stackTraceSamplingInterval;
+    }
+
+    /**
+     * Start the watchdog thread that {@link #inspect() inspects} the sessions periodically
+     *
+     * @param intervalMillis the interval of inspection in milliseconds
+     * @throws IllegalStateException if the watchdog was started
+     */
+    public synchronized void startWatchdog(long intervalMillis) {
+        assertTrue(intervalMillis > 0, () -> "The 'intervalMillis' argument must be positive");
+        if (watchdog != null) {
+            throw new IllegalStateException("The watchdog was started");
+        }
+        ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-session-leak-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        watchdog.scheduleWithFixedDelay(() -> {
+            try {
+                inspect();
+            } catch (Throwable e) {
+                logger.warn("The watchdog failed to inspect the sessions", e);
+            }
+        }, intervalMillis, intervalMillis, MILLISECONDS);
+        this.watchdog = watchdog;
+    }
+
+    /**
+     * Is the watchdog running or not
+     *
+     * @return <code>true</code> if running
+     */
+    public synchronized boolean isWatchdogRunning() {
+        return watchdog != null;
+    }
+
+    /**
+     * Stop the watchdog thread if started
+     */
+    @Override
+    public synchronized void close() {
+        ScheduledExecutorService watchdog = this.watchdog;
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            this.watchdog = null;
+        }
+    }
+
+    /**
+     * Report the leaked session, the subclass could override this method to expose it.
+     *
+     * @param session   {@link TrackedSession}
+     * @param collected <code>true</code> if it was garbage-collected without close, <code>false</code> if it's still
+     *                  open after the max age
+     */
+    protected void report(TrackedSession session, boolean collected) {
+        long age = currentTime() - session.getOpenTime();
+        if (collected) {
+            logger.error("The session[id : {}] was garbage-collected without close() after {} ms", session.getId(), age,
+                    session.getStackTrace());
+        } else {
+            logger.warn("The session[id : {}] is still open after {} ms, exceeding the max age {} ms", session.getId(),
+                    age, maxAge, session.getStackTrace());
+        }
+    }
+
+    /**
+     * Get the current time in milliseconds
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    private void track(Executor executor) {
+        sessions.computeIfAbsent(executor, this::newSession);
+    }
+
+    private TrackedSession newSession(Executor executor) {
+        long id = idGenerator.incrementAndGet();
+        Throwable stackTrace = id % stackTraceSamplingInterval == 0 ?
+                new Throwable("The session[id : " + id + "] was opened") : null;
+        TrackedSession session = new TrackedSession(id, currentTime(), stackTrace);
+        // the cleaning action must not reference the executor
+        session.cleanable = cleaner.register(executor, () -> onCleaned(session));
+        return session;
+    }
+
+    private void onCleaned(TrackedSession session) {
+        if (!session.closed) {
+            // the key of the garbage-collected executor may not be expunged yet
+            sessions.values().remove(session);
+            leakCount.increment();
+            try {
+                report(session, true);
+            } catch (Throwable e) {
+                logger.warn("Failed to report the leaked session[id : {}]", session.getId(), e);
+            }
+        }
+    }
+
+    /**
+     * The session tracked by {@link SessionLeakDetector}
+     */
+    public static class TrackedSession {
+
+        private final long id;
+
+        private final long openTime;
+
+        @Nullable
+        private final Throwable stackTrace;
+
+        private Cleanable cleanable;
+
+        private volatile boolean closed;
+
+        private volatile boolean reported;
+
+        TrackedSession(long id, long openTime, @Nullable Throwable stackTrace) {
+            this.id = id;
+            this.openTime = openTime;
+            this.stackTrace = stackTrace;
+        }
+
+        /**
+         * Get the id of tracking
+         *
+         * @return the id of tracking
+         */
+        public long getId() {
+            return id;
+        }
+
+        /**
+         * Get the time when the session was tracked in milliseconds
+         *
+         * @return the time when the session was tracked in milliseconds
+         */
+        public long getOpenTime() {
+            return openTime;
+        }
+
+        /**
+         * Get the stack trace of the tracking site
+         *
+         * @return <code>null</code> if not sampled
+         */
+        @Nullable
+        public Throwable getStackTrace() {
+            return stackTrace;
+        }
+
+        /**
+         * Is the session closed or not
+         *
+         * @return <code>true</code> if closed
+         */
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public String toString() {
+            return "TrackedSession{" +
+                    "id=" + id +
+                    ", openTime=" + openTime +
+                    ", closed=" + closed +
+                    ", sampled=" + (stackTrace != null) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.mybatis.executor.statement.StatementHandlerFilter;
+import io.microsphere.mybatis.executor.statement.StatementHandlerFilterChain;
+import io.microsphere.mybatis.plugin.InterceptorContext;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import static io.microsphere.mybatis.executor.Executors.isStaticSql;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.lang.Character.isDigit;
+import static java.lang.Character.isLetterOrDigit;
+import static java.lang.Character.isWhitespace;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.unmodifiableCollection;
+import static java.util.Comparator.comparingLong;
+import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static java.util.regex.Pattern.compile;
+
+/**
+ * {@link ExecutorInterceptor} class aggregates the {@link SqlFingerprintStatistics statistics} of the executions per
+ * the normalized SQL of {@link BoundSql}, like <code>pg_stat_statements</code> does :
+ * <ul>
+ *     <li>the string and numeric literals are replaced by <code>?</code>, the comments are dropped and the
+ *     whitespaces are collapsed</li>
+ *     <li>the <code>IN</code> lists and the rows of <code>VALUES</code> are collapsed, so the different sizes of
+ *     <code>&lt;foreach&gt;</code> share the same fingerprint</li>
+ *     <li>the normalized SQL of the {@link MappedStatement} without the dynamic SQL is computed once</li>
+ *     <li>as a {@link StatementHandlerFilter}, the executed SQL is captured once it's parameterized, so that the
+ *     dynamic SQL isn't rendered again for the updates and the queries without {@link BoundSql}, which are rendered
+ *     again only if the SQL isn't captured, e.g. the hits of the local cache</li>
+ * </ul>
+ * Thus the concrete shapes of a {@link MappedStatement} with the dynamic SQL are aggregated separately. The table is
+ * bounded by the max count of the fingerprints, the executions of the new fingerprints beyond it are aggregated
+ * into the {@link #getOverflowStatistics() overflow statistics}.
+ * <p>
+ * As an {@link ExecutorFilterPlacement#INSIDE inside} placement by default, the hits of the second-level cache are not
+ * counted, while the hits of the local cache are counted with their own elapsed time. As an
+ * {@link ExecutorFilterPlacement#OUTSIDE outside} placement, the hits of the second-level cache are counted with their
+ * own elapsed time too, e.g. to tell the hits from the database executions by the total time.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   SqlFingerprintExecutorInterceptor interceptor = new SqlFingerprintExecutorInterceptor(1000);
+ *   configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[0], interceptor));
+ *   // captures the executed SQL
+ *   configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(interceptor));
+ *   // the top 10 statements by the total time
+ *   List<SqlFingerprintStatistics> topStatistics = interceptor.getTopStatistics(10);
+ *
+ *   // or wraps the CachingExecutor to count the hits of the second-level cache
+ *   configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[0],
+ *       ExecutorFilterPlacement.OUTSIDE, interceptor));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlFingerprintStatistics
+ * @see ExecutorInterceptor
+ * @see StatementHandlerFilter
+ * @since 1.0.0
+ */
+public class SqlFingerprintExecutorInterceptor implements ExecutorInterceptor, StatementHandlerFilter {
+
+    /**
+     * The default max count of the fingerprints
+     */
+    public static final int DEFAULT_MAX_FINGERPRINTS = 1000;
+
+    /**
+     * The SQL of the {@link #getOverflowStatistics() overflow statistics}
+     */
+    public static final String OVERFLOW_SQL = "<overflow>";
+
+    private static final String EXECUTION_ATTRIBUTE_NAME = SqlFingerprintExecutorInterceptor.class.getName() + ".execution";
+
+    private static final String VALUES_ROW = "\\( ?\\?(?: ?, ?\\?)* ?\\)";
+
+    private static final Pattern IN_LIST_PATTERN = compile("\\b(IN) ?" + VALUES_ROW, CASE_INSENSITIVE);
+
+    private static final Pattern VALUES_ROWS_PATTERN = compile("(" + VALUES_ROW + ")(?: ?, ?" + VALUES_ROW + ")+");
+
+    private final int maxFingerprints;
+
+    private final ConcurrentMap<String, SqlFingerprintStatistics> statisticsMap = new ConcurrentHashMap<>();
+
+    // the statistics of the MappedStatement without the dynamic SQL
+    private final ConcurrentMap<MappedStatement, SqlFingerprintStatistics> staticStatisticsMap = new ConcurrentHashMap<>();
+
+    private final SqlFingerprintStatistics overflowStatistics = new SqlFingerprintStatistics(OVERFLOW_SQL, OVERFLOW_SQL);
+
+    private final ThreadLocal<Execution> currentExecution = new ThreadLocal<>();
+
+    /**
+     * Create a {@link SqlFingerprintExecutorInterceptor} with {@link #DEFAULT_MAX_FINGERPRINTS}
+     */
+    public SqlFingerprintExecutorInterceptor() {
+        this(DEFAULT_MAX_FINGERPRINTS);
+    }
+
+    /**
+     * Create a {@link SqlFingerprintExecutorInterceptor}
+     *
+     * @param maxFingerprints the max count of the fingerprints
+     */
+    public SqlFingerprintExecutorInterceptor(int maxFingerprints) {
+        assertTrue(maxFingerprints > 0, () -> "The 'maxFingerprints' argument must be positive");
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    @Override
+    public void beforeUpdate(InterceptorContext<Executor> context, MappedStatement ms, Object parameter) {
+        start(context, ms);
+    }
+
+    @Override
+    public void afterUpdate(InterceptorContext<Executor> context, MappedStatement ms, Object parameter,
+                            @Nullable Integer result, @Nullable SQLException failure) {
+        record(context, ms, parameter, null, result == null ? 0 : result, failure);
+    }
+
+    @Override
+    public void beforeQuery(InterceptorContext<Executor> context, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                            ResultHandler resultHandler, @Nullable CacheKey cacheKey, @Nullable BoundSql boundSql) {
+        start(context, ms);
+    }
+
+    @Override
+    public <E> void afterQuery(InterceptorContext<Executor> context, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                               ResultHandler resultHandler, @Nullable CacheKey cacheKey, @Nullable BoundSql boundSql,
+                               @Nullable List<E> result, @Nullable SQLException failure) {
+        record(context, ms, parameter, boundSql, result == null ? 0 : result.size(), failure);
+    }
+
+    @Override
+    public void beforeQueryCursor(InterceptorContext<Executor> context, MappedStatement ms, Object parameter, RowBounds rowBounds) {
+        start(context, ms);
+    }
+
+    @Override
+    public <E> void afterQueryCursor(InterceptorContext<Executor> context, MappedStatement ms, Object parameter,
+                                     RowBounds rowBounds, @Nullable Cursor<E> result, @Nullable SQLException failure) {
+        // the rows of Cursor are unknown until it's consumed
+        record(context, ms, parameter, null, 0, failure);
+    }
+
+    /**
+     * Capture the executed {@link BoundSql} of the current execution, the statements are parameterized on every
+     * execution, while they may be prepared once by the {@link org.apache.ibatis.executor.ReuseExecutor}.
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link StatementHandlerFilterChain}
+     * @throws SQLException if failed
+     */
+    @Override
+    public void parameterize(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        Execution execution = currentExecution.get();
+        // the nested statements, e.g. the selectKey, may be executed without the interceptor
+        if (execution != null && execution.boundSql == null && execution.ms == chain.getMappedStatement()) {
+            execution.boundSql = chain.getStatementHandler().getBoundSql();
+        }
+        chain.parameterize(statement);
+    }
+
+    /**
+     * Get the statistics of the specified normalized SQL
+     *
+     * @param sql the normalized SQL
+     * @return <code>null</code> if not found
+     * @see #normalize(String)
+     */
+    @Nullable
+    public SqlFingerprintStatistics getStatistics(String sql) {
+        return statisticsMap.get(sql);
+    }
+
+    /**
+     * Get all statistics except the {@link #getOverflowStatistics() overflow statistics}
+     *
+     * @return non-null read-only {@link Collection}
+     */
+    public Collection<SqlFingerprintStatistics> getStatistics() {
+        return unmodifiableCollection(statisticsMap.values());
+    }
+
+    /**
+     * Get the top N statistics by the total time in descending order
+     *
+     * @param n the max count of the statistics
+     * @return non-null
+     */
+    public List<SqlFingerprintStatistics> getTopStatistics(int n) {
+        assertTrue(n > 0, () -> "The 'n' argument must be positive");
+        List<SqlFingerprintStatistics> statistics = new ArrayList<>(statisticsMap.values());
+        statistics.sort(comparingLong(SqlFingerprintStatistics::getTotalTime).reversed());
+        return statistics.size() > n ? new ArrayList<>(statistics.subList(0, n)) : statistics;
+    }
+
+    /**
+     * Get the statistics of the executions whose fingerprints are beyond the max count
+     *
+     * @return non-null
+     */
+    public SqlFingerprintStatistics getOverflowStatistics() {
+        return overflowStatistics;
+    }
+
+    /**
+     * Get the max count of the fingerprints
+     *
+     * @return the max count of the fingerprints
+     */
+    public int getMaxFingerprints() {
+        return maxFingerprints;
+    }
+
+    /**
+     * Clear all statistics
+     */
+    public void reset() {
+        staticStatisticsMap.clear();
+        statisticsMap.clear();
+        overflowStatistics.reset();
+    }
+
+    /**
+     * Normalize the specified SQL, the literals are replaced by <code>?</code>, the comments are dropped, the
+     * whitespaces are collapsed, the <code>IN</code> lists and the rows of <code>VALUES</code> are collapsed.
+     *
+     * @param sql the SQL
+     * @return non-null
+     */
+    public static String normalize(String sql) {
+        int length = sql.length();
+        StringBuilder builder = new StringBuilder(length);
+        boolean whitespace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+            if (isWhitespace(c)) {
+                whitespace = true;
+                i++;
+                continue;
+            }
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? length : end + 1;
+                whitespace = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                whitespace = true;
+                continue;
+            }
+            if (whitespace && builder.length() > 0) {
+                builder.append(' ');
+            }
+            whitespace = false;
+            if (c == '\'') {
+                // the escaped quote : 'it''s'
+                do {
+                    i = skipQuoted(sql, i, '\'');
+                } while (i < length && sql.charAt(i) == '\'');
+                builder.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                int end = skipQuoted(sql, i, c == '[' ? ']' : c);
+                builder.append(sql, i, end);
+                i = end;
+            } else if (isIdentifierPart(c) && !isDigit(c)) {
+                int start = i;
+                while (i < length && (isIdentifierPart(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                builder.append(sql, start, i);
+            } else if (isDigit(c) || (c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1)))) {
+                // the numeric literal : 1, 1.5, .5, 1e10, 0x1F
+                while (i < length && (isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                builder.append('?');
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+        String normalized = IN_LIST_PATTERN.matcher(builder).replaceAll("$1 (...)");
+        return VALUES_ROWS_PATTERN.matcher(normalized).replaceAll("$1, ...");
+    }
+
+    private void start(InterceptorContext<Executor> context, MappedStatement ms) {
+        Execution execution = new Execution(ms, nanoTime(), currentExecution.get());
+        currentExecution.set(execution);
+        context.setAttribute(EXECUTION_ATTRIBUTE_NAME, execution);
+    }
+
+    private void record(InterceptorContext<Executor> context, MappedStatement ms, Object parameter,
+                        @Nullable BoundSql boundSql, long rows, @Nullable SQLException failure) {
+        Execution execution = context.removeAttribute(EXECUTION_ATTRIBUTE_NAME);
+        if (execution == null) {
+            return;
+        }
+        long elapsed = nanoTime() - execution.startTime;
+        if (execution.previous == null) {
+            currentExecution.remove();
+        } else {
+            currentExecution.set(execution.previous);
+        }
+        getStatistics(ms, parameter, boundSql == null ? execution.boundSql : boundSql).record(rows, elapsed, failure != null);
+    }
+
+    private SqlFingerprintStatistics getStatistics(MappedStatement ms, Object parameter, @Nullable BoundSql boundSql) {
+        SqlFingerprintStatistics statistics = staticStatisticsMap.get(ms);
+        if (statistics != null) {
+            return statistics;
+        }
+        String sql = (boundSql == null ? ms.getBoundSql(parameter) : boundSql).getSql();
+        statistics = getStatistics(normalize(sql), ms);
+        if (isStaticSql(ms) && statistics != overflowStatistics) {
+            staticStatisticsMap.putIfAbsent(ms, statistics);
+        }
+        return statistics;
+    }
+
+    private SqlFingerprintStatistics getStatistics(String sql, MappedStatement ms) {
+        SqlFingerprintStatistics statistics = statisticsMap.get(sql);
+        if (statistics == null) {
+            if (statisticsMap.size() >= maxFingerprints) {
+                return overflowStatistics;
+            }
+            statistics = statisticsMap.computeIfAbsent(sql, s -> new SqlFingerprintStatistics(s, ms.getId()));
+        }
+        return statistics;
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isLetterOrDigit(c) || c == '_' || c == '$';
+    }
+
+    private static int skipQuoted(String sql, int start, char quote) {
+        int end = sql.indexOf(quote, start + 1);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    static class Execution {
+
+        private final MappedStatement ms;
+
+        private final long startTime;
+
+        @Nullable
+        private final Execution previous;
+
+        // the executed BoundSql captured by the StatementHandlerFilter
+        @Nullable
+        private BoundSql boundSql;
+
+        Execution(MappedStatement ms, long startTime, @Nullable Execution previous) {
+            this.ms = ms;
+            this.startTime = startTime;
+            this.previous = previous;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SqlFingerprintExecutorInterceptor{" +
+                "maxFingerprints=" + maxFingerprints +
+                ", fingerprints=" + statisticsMap.size() +
+                '}';
+    }
+}
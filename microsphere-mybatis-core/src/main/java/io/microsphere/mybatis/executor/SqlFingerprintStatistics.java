@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.mybatis.cache.FingerprintCacheKey.fingerprint;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The aggregated statistics of the executions sharing the same normalized SQL, whose literals were stripped and
+ * whose <code>IN</code> lists were collapsed, all counters are updated without any lock.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   for (SqlFingerprintStatistics statistics : interceptor.getTopStatistics(10)) {
+ *       System.out.printf("%s : calls=%d, total=%d ms, mean=%d ms%n", statistics.getSql(),
+ *           statistics.getCalls(), statistics.getTotalTimeMillis(), statistics.getMeanTimeMillis());
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlFingerprintExecutorInterceptor
+ * @since 1.0.0
+ */
+public class SqlFingerprintStatistics {
+
+    private final String sql;
+
+    private final long fingerprint;
+
+    private final String statementId;
+
+    private final LongAdder calls = new LongAdder();
+
+    private final LongAdder errors = new LongAdder();
+
+    private final LongAdder rows = new LongAdder();
+
+    private final LongAdder totalTime = new LongAdder();
+
+    private final LongAccumulator minTime = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    private final LongAccumulator maxTime = new LongAccumulator(Math::max, 0L);
+
+    /**
+     * @param sql         the normalized SQL
+     * @param statementId the id of the first {@link org.apache.ibatis.mapping.MappedStatement} executed the SQL
+     */
+    public SqlFingerprintStatistics(String sql, String statementId) {
+        this.sql = sql;
+        this.fingerprint = fingerprint(sql)[0];
+        this.statementId = statementId;
+    }
+
+    /**
+     * Record an execution
+     *
+     * @param rows    the rows read or affected
+     * @param elapsed the elapsed time in nanoseconds
+     * @param failed  whether the execution failed or not
+     */
+    public void record(long rows, long elapsed, boolean failed) {
+        this.calls.increment();
+        if (failed) {
+            this.errors.increment();
+        }
+        this.rows.add(rows);
+        this.totalTime.add(elapsed);
+        this.minTime.accumulate(elapsed);
+        this.maxTime.accumulate(elapsed);
+    }
+
+    /**
+     * Get the normalized SQL
+     *
+     * @return non-null
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Get the 64-bit fingerprint of the normalized SQL
+     *
+     * @return the fingerprint
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Get the id of the first {@link org.apache.ibatis.mapping.MappedStatement} executed the SQL
+     *
+     * @return non-null
+     */
+    public String getStatementId() {
+        return statementId;
+    }
+
+    /**
+     * Get the count of the executions
+     *
+     * @return the count of the executions
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    /**
+     * Get the count of the failed executions
+     *
+     * @return the count of the failed executions
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Get the rows read or affected
+     *
+     * @return the rows read or affected
+     */
+    public long getRows() {
+        return rows.sum();
+    }
+
+    /**
+     * Get the total time in nanoseconds
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalTime() {
+        return totalTime.sum();
+    }
+
+    /**
+     * Get the min time in nanoseconds
+     *
+     * @return <code>0</code> if no execution
+     */
+    public long getMinTime() {
+        long minTime = this.minTime.get();
+        return minTime == Long.MAX_VALUE ? 0 : minTime;
+    }
+
+    /**
+     * Get the max time in nanoseconds
+     *
+     * @return the max time in nanoseconds
+     */
+    public long getMaxTime() {
+        return maxTime.get();
+    }
+
+    /**
+     * Get the mean time in nanoseconds
+     *
+     * @return <code>0</code> if no execution
+     */
+    public long getMeanTime() {
+        long calls = getCalls();
+        return calls == 0 ? 0 : getTotalTime() / calls;
+    }
+
+    /**
+     * Get the total time in milliseconds
+     *
+     * @return the total time in milliseconds
+     */
+    public long getTotalTimeMillis() {
+        return NANOSECONDS.toMillis(getTotalTime());
+    }
+
+    /**
+     * Get the mean time in milliseconds
+     *
+     * @return the mean time in milliseconds
+     */
+    public long getMeanTimeMillis() {
+        return NANOSECONDS.toMillis(getMeanTime());
+    }
+
+    /**
+     * Reset all counters
+     */
+    public void reset() {
+        calls.reset();
+        errors.reset();
+        rows.reset();
+        totalTime.reset();
+        minTime.reset();
+        maxTime.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "SqlFingerprintStatistics{" +
+                "sql='" + sql + '\'' +
+                ", fingerprint=" + Long.toHexString(fingerprint) +
+                ", statementId='" + statementId + '\'' +
+                ", calls=" + getCalls() +
+                ", errors=" + getErrors() +
+                ", rows=" + getRows() +
+                ", totalTime=" + getTotalTime() +
+                ", minTime=" + getMinTime() +
+                ", maxTime=" + getMaxTime() +
+                ", meanTime=" + getMeanTime() +
+                '}';
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.Executors.createCacheKey;
+import static io.microsphere.mybatis.executor.Executors.isCacheable;
+import static io.microsphere.mybatis.executor.Executors.isPendingEntry;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * The {@link ExecutorFilter} serves the second-level cache entries in the stale-while-revalidate manner:
+ * <ul>
+ *     <li>the entry younger than the soft TTL is fresh</li>
+ *     <li>the entry older than the soft TTL is still served, while a single background refresh re-runs the query and
+ *     replaces it</li>
+ *     <li>the popular entry, hit {@link #getRefreshAheadHits()} times since it was loaded, is refreshed ahead once its
+ *     age passes {@link #getRefreshAheadRatio()} of the soft TTL</li>
+ *     <li>the entry older than the hard TTL is removed, the caller waits for the query as a miss</li>
+ * </ul>
+ * The load time of the entries is tracked by this filter, the oldest entries beyond
+ * {@link #getMaxTrackedEntries()} are removed from their caches, so no entry outlives the hard TTL unnoticed. The entry
+ * reloaded from the database after it was flushed, invalidated or removed is tracked as a new one.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // soft TTL : 30 seconds, hard TTL : 5 minutes
+ *   StaleWhileRevalidateExecutorFilter filter = new StaleWhileRevalidateExecutorFilter(30_000, 300_000);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ *   // on shutdown
+ *   filter.shutdown();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ExecutorFilter
+ * @see Cache
+ * @since 1.0.0
+ */
+public class StaleWhileRevalidateExecutorFilter implements ExecutorFilter {
+
+    private static final Logger logger = getLogger(StaleWhileRevalidateExecutorFilter.class);
+
+    /**
+     * The default ratio of the soft TTL since which the popular entries are refreshed ahead
+     */
+    public static final double DEFAULT_REFRESH_AHEAD_RATIO = 0.8;
+
+    /**
+     * The default hits since the load that makes an entry popular
+     */
+    public static final int DEFAULT_REFRESH_AHEAD_HITS = 16;
+
+    /**
+     * The default max count of the tracked entries
+     */
+    public static final int DEFAULT_MAX_TRACKED_ENTRIES = 65536;
+
+    /**
+     * The default max count of the pending refreshes
+     */
+    public static final int DEFAULT_MAX_PENDING_REFRESHES = 1024;
+
+    private final long softTtl;
+
+    private final long hardTtl;
+
+    private final double refreshAheadRatio;
+
+    private final long refreshAheadAge;
+
+    private final int refreshAheadHits;
+
+    private final int maxTrackedEntries;
+
+    private final java.util.concurrent.Executor refreshExecutor;
+
+    private final boolean ownedRefreshExecutor;
+
+    private final ConcurrentMap<Cache, TrackedEntries> trackedEntriesMap = new ConcurrentHashMap<>();
+
+    private final LongAdder staleHitCount = new LongAdder();
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    private final LongAdder refreshAheadCount = new LongAdder();
+
+    private final LongAdder failedRefreshCount = new LongAdder();
+
+    private final LongAdder expiredCount = new LongAdder();
+
+    /**
+     * Create a {@link StaleWhileRevalidateExecutorFilter} refreshing by a single daemon thread
+     *
+     * @param softTtl the soft TTL in milliseconds
+     * @param hardTtl the hard TTL in milliseconds
+     */
+    public StaleWhileRevalidateExecutorFilter(long softTtl, long hardTtl) {
+        this(softTtl, hardTtl, DEFAULT_REFRESH_AHEAD_RATIO, DEFAULT_REFRESH_AHEAD_HITS, DEFAULT_MAX_TRACKED_ENTRIES,
+                newRefreshExecutor(), true);
+    }
+
+    /**
+     * Create a {@link StaleWhileRevalidateExecutorFilter}
+     *
+     * @param softTtl           the soft TTL in milliseconds
+     * @param hardTtl           the hard TTL in milliseconds, must not be less than the soft TTL
+     * @param refreshAheadRatio the ratio of the soft TTL since which the popular entries are refreshed ahead, in
+     *                          <code>(0, 1]</code>
+     * @param refreshAheadHits  the hits since the load that makes an entry popular
+     * @param maxTrackedEntries the max count of the tracked entries
+     * @param refreshExecutor   the {@link java.util.concurrent.Executor} runs the refreshes, which is not shut down by
+     *                          this filter
+     */
+    public StaleWhileRevalidateExecutorFilter(long softTtl, long hardTtl, double refreshAheadRatio, int refreshAheadHits,
+                                              int maxTrackedEntries, java.util.concurrent.Executor refreshExecutor) {
+        this(softTtl, hardTtl, refreshAheadRatio, refreshAheadHits, maxTrackedEntries, refreshExecutor, false);
+    }
+
+    private StaleWhileRevalidateExecutorFilter(long softTtl, long hardTtl, double refreshAheadRatio, int refreshAheadHits,
+                                               int maxTrackedEntries, java.util.concurrent.Executor refreshExecutor,
+                                               boolean ownedRefreshExecutor) {
+        assertTrue(softTtl > 0, () -> "The 'softTtl' must be positive");
+        assertTrue(hardTtl >= softTtl, () -> "The 'hardTtl' must not be less than 'softTtl'");
+        assertTrue(refreshAheadRatio > 0 && refreshAheadRatio <= 1, () -> "The 'refreshAheadRatio' must be in (0, 1]");
+        assertTrue(refreshAheadHits > 0, () -> "The 'refreshAheadHits' must be positive");
+        assertTrue(maxTrackedEntries > 0, () -> "The 'maxTrackedEntries' must be positive");
+        assertNotNull(refreshExecutor, () -> "The 'refreshExecutor' must not be null");
+        this.softTtl = softTtl;
+        this.hardTtl = hardTtl;
+        this.refreshAheadRatio = refreshAheadRatio;
+        this.refreshAheadAge = (long) (softTtl * refreshAheadRatio);
+        this.refreshAheadHits = refreshAheadHits;
+        this.maxTrackedEntries = maxTrackedEntries;
+        this.refreshExecutor = refreshExecutor;
+        this.ownedRefreshExecutor = ownedRefreshExecutor;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        if (!isCacheable(ms, resultHandler)) {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, chain);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        if (!isCacheable(ms, resultHandler)) {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        }
+        // the CacheKey is required to track the entry
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey cacheKey = createCacheKey(chain, ms, parameter, rowBounds, boundSql);
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, chain);
+    }
+
+    <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey, BoundSql boundSql,
+                        ExecutorFilterChain chain) throws SQLException {
+        Cache cache = ms.getCache();
+        TrackedEntries trackedEntries = trackedEntriesMap.computeIfAbsent(cache, TrackedEntries::new);
+        long now = currentTime();
+        TrackedEntry entry = trackedEntries.hit(cacheKey);
+        boolean refresh = false;
+        if (entry != null) {
+            long age = now - entry.loadedTime;
+            if (age >= hardTtl) {
+                // the caller waits for the query as a miss
+                trackedEntries.untrack(cacheKey);
+                cache.removeObject(cacheKey);
+                expiredCount.increment();
+                entry = null;
+            } else if (age >= softTtl) {
+                staleHitCount.increment();
+                refresh = true;
+            } else if (age >= refreshAheadAge && entry.hits >= refreshAheadHits) {
+                refresh = true;
+            }
+        }
+        List<E> result = chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        if (entry == null) {
+            trackedEntries.track(cacheKey, now);
+        } else if (isPendingEntry(chain.getExecutor(), cache, cacheKey)) {
+            // the tracked entry was gone from the cache and reloaded from the database
+            trackedEntries.reload(cacheKey, now);
+        } else if (refresh && entry.refreshing.compareAndSet(false, true)) {
+            if (now - entry.loadedTime < softTtl) {
+                refreshAheadCount.increment();
+            }
+            scheduleRefresh(ms, parameter, rowBounds, cacheKey, boundSql, entry);
+        }
+        return result;
+    }
+
+    private void scheduleRefresh(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey,
+                                 BoundSql boundSql, TrackedEntry entry) {
+        try {
+            refreshExecutor.execute(() -> refresh(ms, parameter, rowBounds, cacheKey, boundSql, entry));
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+            logger.trace("The refresh of the entry[key : {}] was rejected", cacheKey);
+        }
+    }
+
+    void refresh(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey, BoundSql boundSql,
+                 TrackedEntry entry) {
+        try {
+            List<Object> result = load(ms, parameter, rowBounds, cacheKey, boundSql);
+            TrackedEntries trackedEntries = trackedEntriesMap.get(ms.getCache());
+            if (trackedEntries != null && trackedEntries.refresh(cacheKey, entry, result, currentTime())) {
+                refreshCount.increment();
+            }
+        } catch (Throwable e) {
+            failedRefreshCount.increment();
+            logger.warn("The refresh of the entry[key : {}] of the statement['{}'] failed", cacheKey, ms.getId(), e);
+        } finally {
+            entry.refreshing.set(false);
+        }
+    }
+
+    /**
+     * Load the result of query from the database in a new transaction, bypassing the caches and the plugins of
+     * {@link Executor}
+     *
+     * @param ms        {@link MappedStatement}
+     * @param parameter the parameter of {@link MappedStatement}
+     * @param rowBounds {@link RowBounds}
+     * @param cacheKey  {@link CacheKey}
+     * @param boundSql  {@link BoundSql}
+     * @return the result of query
+     * @throws SQLException if the query fails
+     */
+    protected List<Object> load(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey,
+                                BoundSql boundSql) throws SQLException {
+        Configuration configuration = ms.getConfiguration();
+        Environment environment = configuration.getEnvironment();
+        Transaction transaction = environment.getTransactionFactory().newTransaction(environment.getDataSource(),
+                null, false);
+        Executor executor = new SimpleExecutor(configuration, transaction);
+        try {
+            return executor.query(ms, parameter, rowBounds, Executor.NO_RESULT_HANDLER, cacheKey, boundSql);
+        } finally {
+            executor.close(true);
+        }
+    }
+
+    /**
+     * The stale entries are served by the second-level cache, so this filter is placed outside the
+     * {@link org.apache.ibatis.executor.CachingExecutor} to observe their hits.
+     *
+     * @return {@link ExecutorFilterPlacement#OUTSIDE}
+     */
+    @Override
+    public ExecutorFilterPlacement getPlacement() {
+        return ExecutorFilterPlacement.OUTSIDE;
+    }
+
+    /**
+     * Get the current time in milliseconds
+     *
+     * @return the current time in milliseconds
+     */
+    protected long currentTime() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Shut down the refresh thread created by this filter
+     */
+    public void shutdown() {
+        if (ownedRefreshExecutor) {
+            ((ExecutorService) refreshExecutor).shutdown();
+        }
+    }
+
+    /**
+     * Get the soft TTL in milliseconds
+     *
+     * @return the soft TTL
+     */
+    public long getSoftTtl() {
+        return softTtl;
+    }
+
+    /**
+     * Get the hard TTL in milliseconds
+     *
+     * @return the hard TTL
+     */
+    public long getHardTtl() {
+        return hardTtl;
+    }
+
+    /**
+     * Get the ratio of the soft TTL since which the popular entries are refreshed ahead
+     *
+     * @return the ratio in <code>(0, 1]</code>
+     */
+    public double getRefreshAheadRatio() {
+        return refreshAheadRatio;
+    }
+
+    /**
+     * Get the hits since the load that makes an entry popular
+     *
+     * @return the hits
+     */
+    public int getRefreshAheadHits() {
+        return refreshAheadHits;
+    }
+
+    /**
+     * Get the max count of the tracked entries
+     *
+     * @return the max count
+     */
+    public int getMaxTrackedEntries() {
+        return maxTrackedEntries;
+    }
+
+    /**
+     * Get the count of the hits served past the soft TTL
+     *
+     * @return the count of the stale hits
+     */
+    public long getStaleHitCount() {
+        return staleHitCount.sum();
+    }
+
+    /**
+     * Get the count of the completed refreshes
+     *
+     * @return the count of the completed refreshes
+     */
+    public long getRefreshCount() {
+        return refreshCount.sum();
+    }
+
+    /**
+     * Get the count of the refreshes triggered ahead of the soft TTL
+     *
+     * @return the count of the refreshes ahead
+     */
+    public long getRefreshAheadCount() {
+        return refreshAheadCount.sum();
+    }
+
+    /**
+     * Get the count of the failed refreshes
+     *
+     * @return the count of the failed refreshes
+     */
+    public long getFailedRefreshCount() {
+        return failedRefreshCount.sum();
+    }
+
+    /**
+     * Get the count of the entries removed past the hard TTL
+     *
+     * @return the count of the expired entries
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    private static ExecutorService newRefreshExecutor() {
+        return new ThreadPoolExecutor(1, 1, 0, MILLISECONDS, new LinkedBlockingQueue<>(DEFAULT_MAX_PENDING_REFRESHES),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mybatis-cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * The load time and the hits of a cache entry
+     */
+    static class TrackedEntry {
+
+        volatile long loadedTime;
+
+        volatile int hits;
+
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        TrackedEntry(long loadedTime) {
+            this.loadedTime = loadedTime;
+        }
+    }
+
+    /**
+     * The tracked entries of a {@link Cache} in the insertion order, the eldest entry beyond the max count is removed
+     * from the {@link Cache} too
+     */
+    class TrackedEntries extends LinkedHashMap<Object, TrackedEntry> {
+
+        private final Cache cache;
+
+        TrackedEntries(Cache cache) {
+            this.cache = cache;
+        }
+
+        synchronized TrackedEntry hit(Object key) {
+            TrackedEntry entry = get(key);
+            if (entry != null) {
+                entry.hits++;
+            }
+            return entry;
+        }
+
+        synchronized void track(Object key, long loadedTime) {
+            putIfAbsent(key, new TrackedEntry(loadedTime));
+        }
+
+        synchronized void reload(Object key, long loadedTime) {
+            // the reloaded entry is the youngest
+            remove(key);
+            put(key, new TrackedEntry(loadedTime));
+        }
+
+        synchronized void untrack(Object key) {
+            remove(key);
+        }
+
+        /**
+         * Put the refreshed result if the key is still tracked by the refreshed entry, the entry reloaded during the
+         * refresh is newer, and the entry invalidated during the refresh must not be resurrected
+         */
+        synchronized boolean refresh(Object key, TrackedEntry entry, Object result, long loadedTime) {
+            if (get(key) != entry || cache.getObject(key) == null) {
+                return false;
+            }
+            cache.putObject(key, result);
+            entry.loadedTime = loadedTime;
+            entry.hits = 0;
+            return true;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, TrackedEntry> eldest) {
+            if (size() > maxTrackedEntries) {
+                cache.removeObject(eldest.getKey());
+                return true;
+            }
+            return false;
+        }
+    }
+}
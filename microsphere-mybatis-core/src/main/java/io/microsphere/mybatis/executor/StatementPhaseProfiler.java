@@ -0,0 +1,358 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase;
+import io.microsphere.mybatis.executor.resultset.ResultSetHandlerFilter;
+import io.microsphere.mybatis.executor.resultset.ResultSetHandlerFilterChain;
+import io.microsphere.mybatis.executor.statement.StatementHandlerFilter;
+import io.microsphere.mybatis.executor.statement.StatementHandlerFilterChain;
+import io.microsphere.mybatis.plugin.InterceptingResultSetHandlerInterceptor;
+import io.microsphere.mybatis.plugin.InterceptingStatementHandlerInterceptor;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.BIND;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.CONNECT;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.EXECUTE;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.FETCH;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.MAP;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.PREPARE;
+import static java.lang.System.nanoTime;
+import static java.lang.ThreadLocal.withInitial;
+import static java.lang.reflect.Proxy.newProxyInstance;
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * The profiler splits the wall time of the statements into {@link Phase phases} and aggregates the breakdown per
+ * {@link MappedStatement#getId() the id of MappedStatement}:
+ * <ul>
+ *     <li>{@link Phase#CONNECT} : from the creation of {@link org.apache.ibatis.executor.statement.StatementHandler}
+ *     to its preparation, the {@link org.apache.ibatis.executor.Executor} acquires the {@link Connection} in between</li>
+ *     <li>{@link Phase#PREPARE} : {@link org.apache.ibatis.executor.statement.StatementHandler#prepare(Connection, Integer)}</li>
+ *     <li>{@link Phase#BIND} : {@link org.apache.ibatis.executor.statement.StatementHandler#parameterize(Statement)}</li>
+ *     <li>{@link Phase#EXECUTE} : the query or update excluding the handling of {@link ResultSet result sets}, the
+ *     batch phase only covers adding the batch, because the batch is executed by the
+ *     {@link org.apache.ibatis.executor.Executor} on flush</li>
+ *     <li>{@link Phase#FETCH} : {@link ResultSet#next()}</li>
+ *     <li>{@link Phase#MAP} : the handling of {@link ResultSet result sets} excluding {@link Phase#FETCH}, it's not
+ *     recorded for {@link Cursor cursors} whose rows are mapped lazily</li>
+ * </ul>
+ * The profiler must be registered as both {@link StatementHandlerFilter} and {@link ResultSetHandlerFilter}, or the
+ * phases of the absent one will not be recorded.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   StatementPhaseProfiler profiler = new StatementPhaseProfiler();
+ *   configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(profiler));
+ *   configuration.addInterceptor(new InterceptingResultSetHandlerInterceptor(profiler));
+ *
+ *   // after some executions
+ *   StatementPhaseStatistics statistics = profiler.getStatistics("com.acme.UserMapper.selectById");
+ *   long connectNanos = statistics.getTimeNanos(StatementPhaseStatistics.Phase.CONNECT);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementPhaseStatistics
+ * @see InterceptingStatementHandlerInterceptor
+ * @see InterceptingResultSetHandlerInterceptor
+ * @since 1.0.0
+ */
+public class StatementPhaseProfiler implements StatementHandlerFilter, ResultSetHandlerFilter {
+
+    private final ConcurrentMap<String, StatementPhaseStatistics> statisticsMap = new ConcurrentHashMap<>();
+
+    /**
+     * The elapsed time of handling the result sets in the current thread, which will be excluded from
+     * {@link Phase#EXECUTE}
+     */
+    private final ThreadLocal<long[]> resultSetsTimeNanos = withInitial(() -> new long[1]);
+
+    @Override
+    public Statement prepare(Connection connection, Integer transactionTimeout, StatementHandlerFilterChain chain) throws SQLException {
+        long startTime = nanoTime();
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            return chain.prepare(connection, transactionTimeout);
+        }
+        statistics.record(CONNECT, startTime - chain.getCreationNanoTime());
+        try {
+            return chain.prepare(connection, transactionTimeout);
+        } finally {
+            statistics.record(PREPARE, nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void parameterize(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            chain.parameterize(statement);
+            return;
+        }
+        long startTime = nanoTime();
+        try {
+            chain.parameterize(statement);
+        } finally {
+            statistics.record(BIND, nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public void batch(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            chain.batch(statement);
+            return;
+        }
+        long startTime = nanoTime();
+        try {
+            chain.batch(statement);
+        } finally {
+            recordExecution(statistics, startTime, 0L);
+        }
+    }
+
+    @Override
+    public int update(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            return chain.update(statement);
+        }
+        long startTime = nanoTime();
+        try {
+            return chain.update(statement);
+        } finally {
+            recordExecution(statistics, startTime, 0L);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(Statement statement, ResultHandler resultHandler, StatementHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            return chain.query(statement, resultHandler);
+        }
+        long[] resultSetsTimeNanos = this.resultSetsTimeNanos.get();
+        resultSetsTimeNanos[0] = 0L;
+        long startTime = nanoTime();
+        try {
+            return chain.query(statement, resultHandler);
+        } finally {
+            // the nested queries have completed before the result sets of current query are handled
+            recordExecution(statistics, startTime, resultSetsTimeNanos[0]);
+            resultSetsTimeNanos[0] = 0L;
+        }
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            return chain.queryCursor(statement);
+        }
+        long startTime = nanoTime();
+        try {
+            return chain.queryCursor(statement);
+        } finally {
+            recordExecution(statistics, startTime, 0L);
+        }
+    }
+
+    @Override
+    public <E> List<E> handleResultSets(Statement statement, ResultSetHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            return chain.handleResultSets(statement);
+        }
+        FetchTimer fetchTimer = new FetchTimer(null);
+        long startTime = nanoTime();
+        try {
+            return chain.handleResultSets(newFetchTimingStatement(statement, fetchTimer));
+        } finally {
+            long elapsedTime = nanoTime() - startTime;
+            long fetchTime = fetchTimer.timeNanos;
+            statistics.record(FETCH, fetchTime);
+            statistics.record(MAP, elapsedTime - fetchTime);
+            this.resultSetsTimeNanos.get()[0] = elapsedTime;
+        }
+    }
+
+    @Override
+    public <E> Cursor<E> handleCursorResultSets(Statement statement, ResultSetHandlerFilterChain chain) throws SQLException {
+        StatementPhaseStatistics statistics = getStatistics(chain.getMappedStatement());
+        if (statistics == null) {
+            return chain.handleCursorResultSets(statement);
+        }
+        // the rows are fetched lazily, the elapsed time will be recorded on every fetch
+        return chain.handleCursorResultSets(newFetchTimingStatement(statement, new FetchTimer(statistics)));
+    }
+
+    /**
+     * Get the {@link StatementPhaseStatistics} of the specified {@link MappedStatement#getId() statement id}
+     *
+     * @param statementId the id of {@link MappedStatement}
+     * @return <code>null</code> if the statement was not executed
+     */
+    @Nullable
+    public StatementPhaseStatistics getStatistics(String statementId) {
+        return statisticsMap.get(statementId);
+    }
+
+    /**
+     * Get all {@link StatementPhaseStatistics} keyed by {@link MappedStatement#getId() statement id}
+     *
+     * @return non-null read-only {@link Map}
+     */
+    public Map<String, StatementPhaseStatistics> getStatisticsMap() {
+        return unmodifiableMap(statisticsMap);
+    }
+
+    /**
+     * Reset all statistics
+     */
+    public void reset() {
+        statisticsMap.clear();
+    }
+
+    @Nullable
+    private StatementPhaseStatistics getStatistics(@Nullable MappedStatement mappedStatement) {
+        if (mappedStatement == null) {
+            return null;
+        }
+        return statisticsMap.computeIfAbsent(mappedStatement.getId(), StatementPhaseStatistics::new);
+    }
+
+    private void recordExecution(StatementPhaseStatistics statistics, long startTime, long resultSetsTime) {
+        statistics.recordExecution();
+        statistics.record(EXECUTE, nanoTime() - startTime - resultSetsTime);
+    }
+
+    static Statement newFetchTimingStatement(Statement statement, FetchTimer fetchTimer) {
+        final Class<?> statementInterface;
+        if (statement instanceof CallableStatement) {
+            statementInterface = CallableStatement.class;
+        } else if (statement instanceof PreparedStatement) {
+            statementInterface = PreparedStatement.class;
+        } else {
+            statementInterface = Statement.class;
+        }
+        return (Statement) newProxy(statementInterface, new FetchTimingStatement(statement, fetchTimer));
+    }
+
+    private static Object newProxy(Class<?> interfaceClass, InvocationHandler invocationHandler) {
+        return newProxyInstance(StatementPhaseProfiler.class.getClassLoader(), new Class[]{interfaceClass}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * The accumulator of the elapsed time of {@link ResultSet#next()}
+     */
+    static class FetchTimer {
+
+        @Nullable
+        private final StatementPhaseStatistics statistics;
+
+        private long timeNanos;
+
+        FetchTimer(@Nullable StatementPhaseStatistics statistics) {
+            this.statistics = statistics;
+        }
+
+        void record(long timeNanos) {
+            this.timeNanos += timeNanos;
+            if (statistics != null) {
+                statistics.record(FETCH, timeNanos);
+            }
+        }
+    }
+
+    /**
+     * The {@link InvocationHandler} of {@link Statement} returns the fetch-timing {@link ResultSet}
+     */
+    private static class FetchTimingStatement implements InvocationHandler {
+
+        private final Statement statement;
+
+        private final FetchTimer fetchTimer;
+
+        private FetchTimingStatement(Statement statement, FetchTimer fetchTimer) {
+            this.statement = statement;
+            this.fetchTimer = fetchTimer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementPhaseProfiler.invoke(statement, method, args);
+            if (result instanceof ResultSet resultSet && "getResultSet".equals(method.getName())) {
+                return newProxy(ResultSet.class, new FetchTimingResultSet(resultSet, fetchTimer));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * The {@link InvocationHandler} of {@link ResultSet} times {@link ResultSet#next()}
+     */
+    private static class FetchTimingResultSet implements InvocationHandler {
+
+        private final ResultSet resultSet;
+
+        private final FetchTimer fetchTimer;
+
+        private FetchTimingResultSet(ResultSet resultSet, FetchTimer fetchTimer) {
+            this.resultSet = resultSet;
+            this.fetchTimer = fetchTimer;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("next".equals(method.getName())) {
+                long startTime = nanoTime();
+                try {
+                    return StatementPhaseProfiler.invoke(resultSet, method, args);
+                } finally {
+                    fetchTimer.record(nanoTime() - startTime);
+                }
+            }
+            return StatementPhaseProfiler.invoke(resultSet, method, args);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The aggregated latency breakdown of a {@link MappedStatement} by {@link Phase phases}, the instance is thread-safe.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   StatementPhaseStatistics statistics = profiler.getStatistics("com.acme.UserMapper.selectById");
+ *   long executions = statistics.getExecutions();
+ *   long connectMillis = statistics.getTimeMillis(StatementPhaseStatistics.Phase.CONNECT);
+ *   statistics.getBreakdown().forEach((phase, nanos) -> System.out.println(phase + " : " + nanos + " ns"));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementPhaseProfiler
+ * @since 1.0.0
+ */
+public class StatementPhaseStatistics {
+
+    /**
+     * The phase of the statement execution
+     */
+    public enum Phase {
+
+        /**
+         * The connection acquisition by the {@link org.apache.ibatis.executor.Executor}
+         */
+        CONNECT,
+
+        /**
+         * The JDBC statement preparation
+         */
+        PREPARE,
+
+        /**
+         * The parameter binding
+         */
+        BIND,
+
+        /**
+         * The JDBC execution
+         */
+        EXECUTE,
+
+        /**
+         * The {@link java.sql.ResultSet} fetching
+         */
+        FETCH,
+
+        /**
+         * The object mapping from the {@link java.sql.ResultSet}
+         */
+        MAP
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final String statementId;
+
+    private final LongAdder executions;
+
+    private final LongAdder[] timeNanos;
+
+    /**
+     * @param statementId the id of {@link MappedStatement}
+     */
+    public StatementPhaseStatistics(String statementId) {
+        this.statementId = statementId;
+        this.executions = new LongAdder();
+        LongAdder[] timeNanos = new LongAdder[PHASES.length];
+        for (int i = 0; i < timeNanos.length; i++) {
+            timeNanos[i] = new LongAdder();
+        }
+        this.timeNanos = timeNanos;
+    }
+
+    /**
+     * Record an execution of the statement
+     */
+    public void recordExecution() {
+        this.executions.increment();
+    }
+
+    /**
+     * Record the elapsed time of the specified {@link Phase}
+     *
+     * @param phase     {@link Phase}
+     * @param timeNanos the elapsed time in nanoseconds
+     */
+    public void record(Phase phase, long timeNanos) {
+        this.timeNanos[phase.ordinal()].add(timeNanos);
+    }
+
+    /**
+     * Reset the statistics
+     */
+    public void reset() {
+        this.executions.reset();
+        for (LongAdder timeNanos : this.timeNanos) {
+            timeNanos.reset();
+        }
+    }
+
+    /**
+     * Get the id of {@link MappedStatement}
+     *
+     * @return non-null
+     */
+    public String getStatementId() {
+        return statementId;
+    }
+
+    /**
+     * Get the count of executions
+     *
+     * @return non-negative
+     */
+    public long getExecutions() {
+        return executions.sum();
+    }
+
+    /**
+     * Get the total elapsed time of the specified {@link Phase} in nanoseconds
+     *
+     * @param phase {@link Phase}
+     * @return non-negative
+     */
+    public long getTimeNanos(Phase phase) {
+        return timeNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Get the total elapsed time of the specified {@link Phase} in milliseconds
+     *
+     * @param phase {@link Phase}
+     * @return non-negative
+     */
+    public long getTimeMillis(Phase phase) {
+        return NANOSECONDS.toMillis(getTimeNanos(phase));
+    }
+
+    /**
+     * Get the total elapsed time of all {@link Phase phases} in nanoseconds
+     *
+     * @return non-negative
+     */
+    public long getTotalTimeNanos() {
+        long total = 0L;
+        for (LongAdder timeNanos : this.timeNanos) {
+            total += timeNanos.sum();
+        }
+        return total;
+    }
+
+    /**
+     * Get the breakdown of the elapsed time in nanoseconds by {@link Phase phases}
+     *
+     * @return non-null read-only {@link Map} in the order of {@link Phase phases}
+     */
+    public Map<Phase, Long> getBreakdown() {
+        Map<Phase, Long> breakdown = new EnumMap<>(Phase.class);
+        for (Phase phase : PHASES) {
+            breakdown.put(phase, getTimeNanos(phase));
+        }
+        return unmodifiableMap(breakdown);
+    }
+
+    @Override
+    public String toString() {
+        return "StatementPhaseStatistics{" +
+                "statementId='" + statementId + '\'' +
+                ", executions=" + getExecutions() +
+                ", breakdown=" + getBreakdown() +
+                '}';
+    }
+}
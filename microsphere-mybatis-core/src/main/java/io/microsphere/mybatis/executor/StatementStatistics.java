@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The statistics of the statements executed by an {@link Executor} within a scope, which is either a transaction or
+ * the whole session.
+ * <p>
+ * The instance is not thread-safe, it's expected to be accessed by the thread owning the session.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   StatementStatistics statistics = interceptor.getStatistics(executor);
+ *   System.out.println(statistics.getStatements() + " statements, " + statistics.getRows() + " rows");
+ *   statistics.getEntries().forEach((id, entry) -> System.out.println(id + " : " + entry.getExecutions()));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementStatisticsExecutorInterceptor
+ * @since 1.0.0
+ */
+public class StatementStatistics {
+
+    /**
+     * The scope of {@link StatementStatistics}
+     */
+    public enum Scope {
+
+        /**
+         * The statistics of a transaction, ended by commit or rollback
+         */
+        TRANSACTION,
+
+        /**
+         * The statistics of a session, ended by close
+         */
+        SESSION
+    }
+
+    private final Scope scope;
+
+    private final int parametersTrackingLimit;
+
+    private final Map<String, Entry> entries;
+
+    private int statements;
+
+    private long rows;
+
+    private long timeNanos;
+
+    /**
+     * @param scope                   {@link Scope}
+     * @param parametersTrackingLimit the max number of the distinct parameters to be tracked for each statement
+     */
+    public StatementStatistics(Scope scope, int parametersTrackingLimit) {
+        this.scope = scope;
+        this.parametersTrackingLimit = parametersTrackingLimit;
+        this.entries = new LinkedHashMap<>();
+    }
+
+    /**
+     * Record an execution of statement
+     *
+     * @param ms            {@link MappedStatement}
+     * @param parameterHash the hash of the parameter
+     * @param rows          the number of rows read or affected
+     * @param timeNanos     the elapsed time in nanoseconds
+     */
+    public void record(MappedStatement ms, int parameterHash, long rows, long timeNanos) {
+        this.statements++;
+        this.rows += rows;
+        this.timeNanos += timeNanos;
+        Entry entry = this.entries.computeIfAbsent(ms.getId(), id -> new Entry(id, this.parametersTrackingLimit));
+        entry.record(parameterHash, rows, timeNanos);
+    }
+
+    /**
+     * Reset all statistics
+     */
+    public void reset() {
+        this.statements = 0;
+        this.rows = 0;
+        this.timeNanos = 0;
+        this.entries.clear();
+    }
+
+    /**
+     * @return {@link Scope}
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the number of statements executed
+     */
+    public int getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return the number of distinct statement ids
+     */
+    public int getDistinctStatements() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total number of rows read or affected
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the total time in nanoseconds
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * @return the total time in milliseconds
+     */
+    public long getTimeMillis() {
+        return NANOSECONDS.toMillis(timeNanos);
+    }
+
+    /**
+     * @return the read-only {@link Entry entries} keyed by statement id in the order of the first execution
+     */
+    public Map<String, Entry> getEntries() {
+        return unmodifiableMap(entries);
+    }
+
+    /**
+     * Get the entries of the statements that were executed repeatedly with at least the given number of the distinct
+     * parameters, which is the typical N+1 pattern.
+     *
+     * @param threshold the threshold of the distinct parameters
+     * @return non-null
+     */
+    public List<Entry> getRepeatedEntries(int threshold) {
+        List<Entry> repeatedEntries = new ArrayList<>(2);
+        for (Entry entry : entries.values()) {
+            if (entry.getDistinctParameters() >= threshold) {
+                repeatedEntries.add(entry);
+            }
+        }
+        return repeatedEntries;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStatistics{" +
+                "scope=" + scope +
+                ", statements=" + statements +
+                ", distinctStatements=" + entries.size() +
+                ", rows=" + rows +
+                ", timeMillis=" + getTimeMillis() +
+                ", entries=" + entries.values() +
+                '}';
+    }
+
+    /**
+     * The statistics of a statement
+     */
+    public static class Entry {
+
+        private final String statementId;
+
+        private final int parametersTrackingLimit;
+
+        private Set<Integer> parameterHashes;
+
+        private int executions;
+
+        private long rows;
+
+        private long timeNanos;
+
+        Entry(String statementId, int parametersTrackingLimit) {
+            this.statementId = statementId;
+            this.parametersTrackingLimit = parametersTrackingLimit;
+        }
+
+        void record(int parameterHash, long rows, long timeNanos) {
+            this.executions++;
+            this.rows += rows;
+            this.timeNanos += timeNanos;
+            Set<Integer> parameterHashes = this.parameterHashes;
+            if (parameterHashes == null) {
+                parameterHashes = new HashSet<>(4);
+                this.parameterHashes = parameterHashes;
+            }
+            if (parameterHashes.size() < parametersTrackingLimit) {
+                parameterHashes.add(parameterHash);
+            }
+        }
+
+        /**
+         * @return the id of statement
+         */
+        public String getStatementId() {
+            return statementId;
+        }
+
+        /**
+         * @return the number of executions
+         */
+        public int getExecutions() {
+            return executions;
+        }
+
+        /**
+         * @return the number of the distinct parameters, at most the tracking limit
+         */
+        public int getDistinctParameters() {
+            return parameterHashes == null ? 0 : parameterHashes.size();
+        }
+
+        /**
+         * @return the number of rows read or affected
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the time in nanoseconds
+         */
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "statementId='" + statementId + '\'' +
+                    ", executions=" + executions +
+                    ", distinctParameters=" + getDistinctParameters() +
+                    ", rows=" + rows +
+                    ", timeMillis=" + NANOSECONDS.toMillis(timeNanos) +
+                    '}';
+        }
+    }
+}
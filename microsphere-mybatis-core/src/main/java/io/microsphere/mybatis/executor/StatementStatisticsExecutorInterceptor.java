@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.executor.StatementStatistics.Entry;
+import io.microsphere.mybatis.plugin.InterceptorContext;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.StatementStatistics.Scope.SESSION;
+import static io.microsphere.mybatis.executor.StatementStatistics.Scope.TRANSACTION;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.lang.System.arraycopy;
+import static java.lang.System.nanoTime;
+import static java.util.Collections.emptyList;
+
+/**
+ * {@link ExecutorInterceptor} class collects the {@link StatementStatistics statistics} of the statements per session
+ * and per transaction, and detects the N+1 pattern (the same statement is executed repeatedly with the different
+ * parameters) and the sessions or transactions exceeding the configured budgets :
+ * <ul>
+ *     <li>the max number of statements</li>
+ *     <li>the max number of rows read or affected</li>
+ *     <li>the max time in milliseconds</li>
+ * </ul>
+ * The transaction statistics are reported after {@link Executor#commit(boolean)} or {@link Executor#rollback(boolean)},
+ * and the session statistics are reported after {@link Executor#close(boolean)}.
+ * <p>
+ * The bookkeeping is done by the thread owning the session without any lock, so it's cheap enough to be enabled in
+ * production.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // flag the statement executed with 10 distinct parameters, the session executing over 100 statements,
+ *   // reading over 10000 rows or taking over 1000 ms
+ *   ExecutorInterceptor interceptor = new StatementStatisticsExecutorInterceptor(10, 100, 10000, 1000);
+ *   configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[0], interceptor));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementStatistics
+ * @see ExecutorInterceptor
+ * @since 1.0.0
+ */
+public class StatementStatisticsExecutorInterceptor implements ExecutorInterceptor {
+
+    private static final Logger logger = getLogger(StatementStatisticsExecutorInterceptor.class);
+
+    /**
+     * The default threshold of the distinct parameters for the N+1 pattern
+     */
+    public static final int DEFAULT_REPEATED_THRESHOLD = 10;
+
+    /**
+     * The default max number of statements
+     */
+    public static final int DEFAULT_MAX_STATEMENTS = 100;
+
+    /**
+     * The default max number of rows
+     */
+    public static final long DEFAULT_MAX_ROWS = 10000;
+
+    /**
+     * The default max time in milliseconds
+     */
+    public static final long DEFAULT_MAX_TIME_MILLIS = 1000;
+
+    private final int repeatedThreshold;
+
+    private final int maxStatements;
+
+    private final long maxRows;
+
+    private final long maxTimeMillis;
+
+    // the executors are referenced weakly, the session never closed won't leak its statistics
+    private final WeakExecutorMap<SessionStatistics> sessionStatisticsMap = new WeakExecutorMap<>();
+
+    public StatementStatisticsExecutorInterceptor() {
+        this(DEFAULT_REPEATED_THRESHOLD, DEFAULT_MAX_STATEMENTS, DEFAULT_MAX_ROWS, DEFAULT_MAX_TIME_MILLIS);
+    }
+
+    /**
+     * @param repeatedThreshold the threshold of the distinct parameters for the N+1 pattern
+     * @param maxStatements     the max number of statements
+     * @param maxRows           the max number of rows read or affected
+     * @param maxTimeMillis     the max time in milliseconds
+     */
+    public StatementStatisticsExecutorInterceptor(int repeatedThreshold, int maxStatements, long maxRows, long maxTimeMillis) {
+        assertTrue(repeatedThreshold > 1, () -> "The 'repeatedThreshold' argument must be greater than 1");
+        assertTrue(maxStatements > 0, () -> "The 'maxStatements' argument must be positive");
+        assertTrue(maxRows > 0, () -> "The 'maxRows' argument must be positive");
+        assertTrue(maxTimeMillis > 0, () -> "The 'maxTimeMillis' argument must be positive");
+        this.repeatedThreshold = repeatedThreshold;
+        this.maxStatements = maxStatements;
+        this.maxRows = maxRows;
+        this.maxTimeMillis = maxTimeMillis;
+    }
+
+    @Override
+    public void beforeUpdate(InterceptorContext<Executor> context, MappedStatement ms, Object parameter) {
+        getSessionStatistics(context).enter(ms, parameter);
+    }
+
+    @Override
+    public void afterUpdate(InterceptorContext<Executor> context, MappedStatement ms, Object parameter,
+                            @Nullable Integer result, @Nullable SQLException failure) {
+        int rows = result == null ? 0 : result;
+        getSessionStatistics(context).exit(ms, parameterHash(null, parameter), rows);
+    }
+
+    @Override
+    public void beforeQuery(InterceptorContext<Executor> context, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                            ResultHandler resultHandler, @Nullable CacheKey cacheKey, @Nullable BoundSql boundSql) {
+        getSessionStatistics(context).enter(ms, parameter);
+    }
+
+    @Override
+    public <E> void afterQuery(InterceptorContext<Executor> context, MappedStatement ms, Object parameter, RowBounds rowBounds,
+                               ResultHandler resultHandler, @Nullable CacheKey cacheKey, @Nullable BoundSql boundSql,
+                               @Nullable List<E> result, @Nullable SQLException failure) {
+        int rows = result == null ? 0 : result.size();
+        getSessionStatistics(context).exit(ms, parameterHash(cacheKey, parameter), rows);
+    }
+
+    @Override
+    public void beforeQueryCursor(InterceptorContext<Executor> context, MappedStatement ms, Object parameter, RowBounds rowBounds) {
+        getSessionStatistics(context).enter(ms, parameter);
+    }
+
+    @Override
+    public <E> void afterQueryCursor(InterceptorContext<Executor> context, MappedStatement ms, Object parameter,
+                                     RowBounds rowBounds, @Nullable Cursor<E> result, @Nullable SQLException failure) {
+        // the rows of Cursor are unknown until it's consumed
+        getSessionStatistics(context).exit(ms, parameterHash(null, parameter), 0);
+    }
+
+    @Override
+    public void afterCommit(InterceptorContext<Executor> context, boolean required, @Nullable SQLException failure) {
+        completeTransaction(context);
+    }
+
+    @Override
+    public void afterRollback(InterceptorContext<Executor> context, boolean required, @Nullable SQLException failure) {
+        completeTransaction(context);
+    }
+
+    @Override
+    public void afterClose(InterceptorContext<Executor> context, boolean forceRollback) {
+        SessionStatistics sessionStatistics = sessionStatisticsMap.remove(context.getTarget());
+        if (sessionStatistics != null) {
+            complete(context.getTarget(), sessionStatistics.transaction);
+            complete(context.getTarget(), sessionStatistics.session);
+        }
+    }
+
+    /**
+     * Get the statistics of the current session
+     *
+     * @param executor the target {@link Executor}
+     * @return <code>null</code> if the session was not found or closed
+     */
+    @Nullable
+    public StatementStatistics getStatistics(Executor executor) {
+        SessionStatistics sessionStatistics = sessionStatisticsMap.get(executor);
+        return sessionStatistics == null ? null : sessionStatistics.session;
+    }
+
+    /**
+     * Get the statistics of the current transaction
+     *
+     * @param executor the target {@link Executor}
+     * @return <code>null</code> if the session was not found or closed
+     */
+    @Nullable
+    public StatementStatistics getTransactionStatistics(Executor executor) {
+        SessionStatistics sessionStatistics = sessionStatisticsMap.get(executor);
+        return sessionStatistics == null ? null : sessionStatistics.transaction;
+    }
+
+    /**
+     * Get the violations of the specified statistics
+     *
+     * @param statistics {@link StatementStatistics}
+     * @return non-null
+     */
+    public List<String> getViolations(StatementStatistics statistics) {
+        List<Entry> repeatedEntries = statistics.getRepeatedEntries(repeatedThreshold);
+        boolean exceedStatements = statistics.getStatements() > maxStatements;
+        boolean exceedRows = statistics.getRows() > maxRows;
+        boolean exceedTime = statistics.getTimeMillis() > maxTimeMillis;
+        if (repeatedEntries.isEmpty() && !exceedStatements && !exceedRows && !exceedTime) {
+            return emptyList();
+        }
+        List<String> violations = new ArrayList<>(repeatedEntries.size() + 3);
+        for (Entry entry : repeatedEntries) {
+            violations.add("N+1 : the statement['" + entry.getStatementId() + "'] was executed " + entry.getExecutions()
+                    + " times with at least " + entry.getDistinctParameters() + " distinct parameters");
+        }
+        if (exceedStatements) {
+            violations.add("statements : " + statistics.getStatements() + " > " + maxStatements);
+        }
+        if (exceedRows) {
+            violations.add("rows : " + statistics.getRows() + " > " + maxRows);
+        }
+        if (exceedTime) {
+            violations.add("time : " + statistics.getTimeMillis() + " ms > " + maxTimeMillis + " ms");
+        }
+        return violations;
+    }
+
+    /**
+     * Report the statistics when the transaction or session was completed, the subclass could override this method
+     * to expose the statistics.
+     *
+     * @param executor   the target {@link Executor}
+     * @param statistics {@link StatementStatistics}
+     * @param violations the violations of the budgets, empty if none
+     */
+    protected void report(Executor executor, StatementStatistics statistics, List<String> violations) {
+        if (violations.isEmpty()) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("The {} statistics of Executor[{}] : {}", statistics.getScope(), executor, statistics);
+            }
+        } else {
+            logger.warn("The {} of Executor[{}] exceeded the budgets : {} , statistics : {}", statistics.getScope(),
+                    executor, violations, statistics);
+        }
+    }
+
+    public int getRepeatedThreshold() {
+        return repeatedThreshold;
+    }
+
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    public long getMaxRows() {
+        return maxRows;
+    }
+
+    public long getMaxTimeMillis() {
+        return maxTimeMillis;
+    }
+
+    private void completeTransaction(InterceptorContext<Executor> context) {
+        SessionStatistics sessionStatistics = sessionStatisticsMap.get(context.getTarget());
+        if (sessionStatistics != null) {
+            complete(context.getTarget(), sessionStatistics.transaction);
+        }
+    }
+
+    private void complete(Executor executor, StatementStatistics statistics) {
+        if (statistics.getStatements() > 0) {
+            try {
+                report(executor, statistics, getViolations(statistics));
+            } finally {
+                statistics.reset();
+            }
+        }
+    }
+
+    private SessionStatistics getSessionStatistics(InterceptorContext<Executor> context) {
+        return sessionStatisticsMap.computeIfAbsent(context.getTarget(), e -> new SessionStatistics(repeatedThreshold));
+    }
+
+    static int parameterHash(@Nullable CacheKey cacheKey, Object parameter) {
+        // CacheKey caches the hash of the parameter values
+        return cacheKey == null ? Objects.hashCode(parameter) : cacheKey.hashCode();
+    }
+
+    /**
+     * The statistics of a session with the stack of the executing statements, the nested statement invoked by the
+     * another {@link InterceptingExecutor} (e.g. wrapped by {@link org.apache.ibatis.executor.CachingExecutor}) with
+     * the same {@link MappedStatement} and parameter will be recorded once.
+     */
+    private static class SessionStatistics {
+
+        private final StatementStatistics session;
+
+        private final StatementStatistics transaction;
+
+        private MappedStatement[] statements = new MappedStatement[4];
+
+        private Object[] parameters = new Object[4];
+
+        private long[] startTimes = new long[4];
+
+        private boolean[] duplicates = new boolean[4];
+
+        private int depth;
+
+        SessionStatistics(int parametersTrackingLimit) {
+            this.session = new StatementStatistics(SESSION, parametersTrackingLimit);
+            this.transaction = new StatementStatistics(TRANSACTION, parametersTrackingLimit);
+        }
+
+        void enter(MappedStatement ms, Object parameter) {
+            int depth = this.depth;
+            if (depth == statements.length) {
+                grow();
+            }
+            boolean duplicate = depth > 0 && statements[depth - 1] == ms && parameters[depth - 1] == parameter;
+            statements[depth] = ms;
+            parameters[depth] = parameter;
+            duplicates[depth] = duplicate;
+            startTimes[depth] = nanoTime();
+            this.depth = depth + 1;
+        }
+
+        void exit(MappedStatement ms, int parameterHash, long rows) {
+            int depth = this.depth - 1;
+            if (depth < 0) {
+                return;
+            }
+            long elapsed = nanoTime() - startTimes[depth];
+            boolean duplicate = duplicates[depth];
+            statements[depth] = null;
+            parameters[depth] = null;
+            this.depth = depth;
+            if (!duplicate) {
+                session.record(ms, parameterHash, rows, elapsed);
+                transaction.record(ms, parameterHash, rows, elapsed);
+            }
+        }
+
+        private void grow() {
+            int length = statements.length << 1;
+            statements = copy(statements, new MappedStatement[length]);
+            parameters = copy(parameters, new Object[length]);
+            long[] newStartTimes = new long[length];
+            arraycopy(startTimes, 0, newStartTimes, 0, startTimes.length);
+            startTimes = newStartTimes;
+            boolean[] newDuplicates = new boolean[length];
+            arraycopy(duplicates, 0, newDuplicates, 0, duplicates.length);
+            duplicates = newDuplicates;
+        }
+
+        private static <T> T[] copy(T[] source, T[] target) {
+            arraycopy(source, 0, target, 0, source.length);
+            return target;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "StatementStatisticsExecutorInterceptor{" +
+                "repeatedThreshold=" + repeatedThreshold +
+                ", maxStatements=" + maxStatements +
+                ", maxRows=" + maxRows +
+                ", maxTimeMillis=" + maxTimeMillis +
+                '}';
+    }
+}
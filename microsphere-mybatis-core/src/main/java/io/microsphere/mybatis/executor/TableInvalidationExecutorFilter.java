@@ -0,0 +1,528 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.cache.SqlTables;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.Executors.bypassCache;
+import static io.microsphere.mybatis.executor.Executors.createCacheKey;
+import static io.microsphere.mybatis.executor.Executors.discardPendingEntries;
+import static io.microsphere.mybatis.executor.Executors.isCacheable;
+import static io.microsphere.mybatis.executor.Executors.isStaticSql;
+import static io.microsphere.util.Assert.assertTrue;
+import static io.microsphere.util.ExceptionUtils.wrap;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.newSetFromMap;
+import static java.util.Collections.unmodifiableSet;
+import static org.apache.ibatis.mapping.SqlCommandType.SELECT;
+
+/**
+ * The {@link ExecutorFilter} invalidates the second-level cache entries by the tables rather than the namespaces:
+ * <ul>
+ *     <li>the static SQL of each {@link MappedStatement} is parsed once into the {@link SqlTables tables} it reads
+ *     and writes, while the tables of the dynamic SQL are {@link SqlTables#UNKNOWN unknown} as they vary with the
+ *     renderings, all statements of the {@link Configuration} are analyzed on the first use</li>
+ *     <li>the keys of the cached queries are tracked per {@link MappedStatement}, and indexed by the tables they
+ *     read</li>
+ *     <li>the update takes over the namespace-wide flush of MyBatis if its written tables are known, and only removes
+ *     the entries of the queries that read any of the written tables, in any namespace, once all queries sharing
+ *     its cache were analyzed</li>
+ *     <li>the invalidation is buffered per transaction, applied after the commit and discarded by the rollback, in the
+ *     meantime, the writing transaction bypasses the cache of the affected queries to see its own uncommitted writes,
+ *     while the other transactions keep reading the cache</li>
+ * </ul>
+ * The queries whose tables are unknown are still invalidated by the updates of the same namespace, the updates whose
+ * tables are unknown are left to the namespace-wide flush of MyBatis, and the statement whose tracked keys overflow
+ * {@link #getMaxTrackedKeys()} clears its whole cache.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   TableInvalidationExecutorFilter filter = new TableInvalidationExecutorFilter();
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlTables
+ * @see ExecutorFilter
+ * @since 1.0.0
+ */
+public class TableInvalidationExecutorFilter implements ExecutorFilter {
+
+    private static final Logger logger = getLogger(TableInvalidationExecutorFilter.class);
+
+    /**
+     * The default max count of the tracked keys per {@link MappedStatement}
+     */
+    public static final int DEFAULT_MAX_TRACKED_KEYS = 4096;
+
+    /**
+     * The pseudo table of the queries whose tables are unknown
+     */
+    static final String UNKNOWN_TABLE = "*";
+
+    private static final Field FLUSH_CACHE_REQUIRED_FIELD = findFlushCacheRequiredField();
+
+    private final int maxTrackedKeys;
+
+    private final ConcurrentMap<MappedStatement, StatementTables> statementTablesMap = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Set<MappedStatement>> readers = new ConcurrentHashMap<>();
+
+    private final WeakExecutorMap<PendingInvalidation> pendingInvalidations = new WeakExecutorMap<>();
+
+    private final Set<Configuration> analyzedConfigurations = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder invalidatedCount = new LongAdder();
+
+    private final LongAdder clearedCount = new LongAdder();
+
+    /**
+     * Create a {@link TableInvalidationExecutorFilter} with {@link #DEFAULT_MAX_TRACKED_KEYS}
+     */
+    public TableInvalidationExecutorFilter() {
+        this(DEFAULT_MAX_TRACKED_KEYS);
+    }
+
+    /**
+     * Create a {@link TableInvalidationExecutorFilter}
+     *
+     * @param maxTrackedKeys the max count of the tracked keys per {@link MappedStatement}
+     */
+    public TableInvalidationExecutorFilter(int maxTrackedKeys) {
+        assertTrue(maxTrackedKeys > 0, () -> "The 'maxTrackedKeys' must be positive");
+        this.maxTrackedKeys = maxTrackedKeys;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        StatementTables statementTables = getStatementTables(ms, () -> ms.getBoundSql(parameter));
+        int rows = chain.update(ms, parameter);
+        if (statementTables.managed) {
+            pendingInvalidations.computeIfAbsent(chain.getExecutor(), e -> new PendingInvalidation())
+                    .add(statementTables.tables.getWriteTables(), ms.getCache());
+        }
+        return rows;
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        if (!isCacheable(ms, resultHandler)) {
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, chain);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        if (!isCacheable(ms, resultHandler)) {
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        }
+        // the CacheKey is required to be tracked
+        BoundSql boundSql = ms.getBoundSql(parameter);
+        CacheKey cacheKey = createCacheKey(chain, ms, parameter, rowBounds, boundSql);
+        return doQuery(ms, parameter, rowBounds, cacheKey, boundSql, chain);
+    }
+
+    @Override
+    public void commit(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        chain.commit(required);
+        // the pending invalidation is kept if the commit fails, which will be discarded by the rollback
+        applyPendingInvalidation(executor);
+    }
+
+    @Override
+    public void rollback(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.rollback(required);
+        } finally {
+            pendingInvalidations.remove(executor);
+        }
+    }
+
+    @Override
+    public void close(boolean forceRollback, ExecutorFilterChain chain) {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.close(forceRollback);
+        } finally {
+            // CachingExecutor commits the pending entries on closing unless the rollback is forced
+            if (forceRollback) {
+                pendingInvalidations.remove(executor);
+            } else {
+                applyPendingInvalidation(executor);
+            }
+        }
+    }
+
+    /**
+     * The writing transaction bypasses the second-level cache before its lookup, so this filter is placed outside the
+     * {@link org.apache.ibatis.executor.CachingExecutor}.
+     *
+     * @return {@link ExecutorFilterPlacement#OUTSIDE}
+     */
+    @Override
+    public ExecutorFilterPlacement getPlacement() {
+        return ExecutorFilterPlacement.OUTSIDE;
+    }
+
+    /**
+     * Invalidate the cached entries of the queries that read any of the specified tables, and the queries whose tables
+     * are unknown in the specified caches
+     *
+     * @param tables   the written tables
+     * @param cacheIds the {@link Cache#getId() ids} of the caches of writers
+     * @return the count of the invalidated {@link MappedStatement statements}
+     */
+    public int invalidate(Collection<String> tables, Collection<String> cacheIds) {
+        Set<MappedStatement> affected = new LinkedHashSet<>();
+        for (String table : tables) {
+            affected.addAll(readers.getOrDefault(table, emptySet()));
+        }
+        for (MappedStatement reader : readers.getOrDefault(UNKNOWN_TABLE, emptySet())) {
+            if (cacheIds.contains(reader.getCache().getId())) {
+                affected.add(reader);
+            }
+        }
+        for (MappedStatement reader : affected) {
+            StatementTables statementTables = statementTablesMap.get(reader);
+            statementTables.invalidate(reader.getCache());
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("The tables{} written in the caches{} invalidated the statements : {}", tables, cacheIds, affected);
+        }
+        return affected.size();
+    }
+
+    /**
+     * Get the {@link SqlTables} of the specified {@link MappedStatement}
+     *
+     * @param ms {@link MappedStatement}
+     * @return <code>null</code> if the {@link MappedStatement} was not analyzed, {@link SqlTables#UNKNOWN} if its SQL
+     * is dynamic
+     */
+    @Nullable
+    public SqlTables getSqlTables(MappedStatement ms) {
+        StatementTables statementTables = statementTablesMap.get(ms);
+        return statementTables == null ? null : statementTables.tables;
+    }
+
+    /**
+     * Is the namespace-wide flush of the specified {@link MappedStatement} taken over by this filter or not
+     *
+     * @param ms {@link MappedStatement}
+     * @return <code>true</code> if the analyzed writer invalidates by its tables
+     */
+    public boolean isManaged(MappedStatement ms) {
+        StatementTables statementTables = statementTablesMap.get(ms);
+        return statementTables != null && statementTables.managed;
+    }
+
+    /**
+     * Get the cached queries that read the specified table
+     *
+     * @param table the name of table
+     * @return non-null
+     */
+    public Set<MappedStatement> getReaders(String table) {
+        return unmodifiableSet(readers.getOrDefault(table, emptySet()));
+    }
+
+    /**
+     * Get the count of the tracked keys of the specified {@link MappedStatement}
+     *
+     * @param ms {@link MappedStatement}
+     * @return the count of the tracked keys
+     */
+    public int getTrackedKeyCount(MappedStatement ms) {
+        StatementTables statementTables = statementTablesMap.get(ms);
+        return statementTables == null ? 0 : statementTables.getTrackedKeyCount();
+    }
+
+    /**
+     * Get the max count of the tracked keys per {@link MappedStatement}
+     *
+     * @return the max count of the tracked keys
+     */
+    public int getMaxTrackedKeys() {
+        return maxTrackedKeys;
+    }
+
+    /**
+     * Get the count of the invalidated entries
+     *
+     * @return the count of the invalidated entries
+     */
+    public long getInvalidatedCount() {
+        return invalidatedCount.sum();
+    }
+
+    /**
+     * Get the count of the caches cleared because of the overflow of the tracked keys
+     *
+     * @return the count of the cleared caches
+     */
+    public long getClearedCount() {
+        return clearedCount.sum();
+    }
+
+    <E> List<E> doQuery(MappedStatement ms, Object parameter, RowBounds rowBounds, CacheKey cacheKey, BoundSql boundSql,
+                        ExecutorFilterChain chain) throws SQLException {
+        StatementTables statementTables = getStatementTables(ms, () -> boundSql);
+        Executor executor = chain.getExecutor();
+        PendingInvalidation pendingInvalidation = pendingInvalidations.get(executor);
+        if (pendingInvalidation == null || !pendingInvalidation.affects(statementTables.tables, ms.getCache())) {
+            statementTables.track(cacheKey);
+            return chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        }
+        // the uncommitted writes are visible to the current transaction only
+        Cache cache = ms.getCache();
+        boolean bypassed = bypassCache(executor, cache, true);
+        try {
+            return chain.query(ms, parameter, rowBounds, null, cacheKey, boundSql);
+        } finally {
+            bypassCache(executor, cache, bypassed);
+            discardPendingEntries(executor, cache, List.of(cacheKey));
+        }
+    }
+
+    void applyPendingInvalidation(Executor executor) {
+        PendingInvalidation pendingInvalidation = pendingInvalidations.remove(executor);
+        if (pendingInvalidation != null) {
+            invalidate(pendingInvalidation.tables, pendingInvalidation.cacheIds);
+        }
+    }
+
+    StatementTables getStatementTables(MappedStatement ms, Supplier<BoundSql> boundSqlSupplier) {
+        StatementTables statementTables = statementTablesMap.get(ms);
+        if (statementTables == null) {
+            analyzeAll(ms.getConfiguration());
+            // the statement added after the analysis of its Configuration
+            statementTables = statementTablesMap.computeIfAbsent(ms, m -> analyze(m, boundSqlSupplier));
+        }
+        return statementTables;
+    }
+
+    /**
+     * Analyze all statements of the specified {@link Configuration} once, the queries are analyzed before the updates,
+     * so that the cached entries of the queries not yet executed are invalidated by the updates executed first.
+     *
+     * @param configuration {@link Configuration}
+     */
+    void analyzeAll(Configuration configuration) {
+        if (analyzedConfigurations.contains(configuration)) {
+            return;
+        }
+        synchronized (analyzedConfigurations) {
+            if (analyzedConfigurations.contains(configuration)) {
+                return;
+            }
+            List<MappedStatement> writers = new ArrayList<>();
+            for (MappedStatement ms : getMappedStatements(configuration)) {
+                if (ms.getSqlCommandType() == SELECT) {
+                    // the static SQL doesn't vary with the parameter
+                    statementTablesMap.computeIfAbsent(ms, m -> analyze(m, () -> m.getBoundSql(null)));
+                } else {
+                    writers.add(ms);
+                }
+            }
+            for (MappedStatement ms : writers) {
+                statementTablesMap.computeIfAbsent(ms, m -> analyze(m, () -> m.getBoundSql(null)));
+            }
+            analyzedConfigurations.add(configuration);
+        }
+    }
+
+    private StatementTables analyze(MappedStatement ms, Supplier<BoundSql> boundSqlSupplier) {
+        // the first rendering of the dynamic SQL doesn't represent the others
+        SqlTables tables = isStaticSql(ms) ? SqlTables.parse(boundSqlSupplier.get().getSql()) : SqlTables.UNKNOWN;
+        boolean managed = false;
+        if (ms.getSqlCommandType() == SELECT) {
+            if (ms.getCache() != null) {
+                Collection<String> readTables = tables.getReadTables().isEmpty() ? List.of(UNKNOWN_TABLE) : tables.getReadTables();
+                for (String table : readTables) {
+                    readers.computeIfAbsent(table, t -> ConcurrentHashMap.newKeySet()).add(ms);
+                }
+            }
+        } else if (!tables.getWriteTables().isEmpty() && ms.isFlushCacheRequired() && isReadersAnalyzed(ms)) {
+            // take over the namespace-wide flush
+            setFlushCacheRequired(ms, false);
+            managed = true;
+        }
+        logger.trace("The statement['{}'] was analyzed : {} , managed : {}", ms.getId(), tables, managed);
+        return new StatementTables(tables, managed, maxTrackedKeys, this);
+    }
+
+    /**
+     * Are all queries sharing the cache of the specified writer analyzed or not, otherwise the flush is left to MyBatis,
+     * because the entries of the queries not analyzed can't be invalidated by the tables
+     *
+     * @param writer the writing {@link MappedStatement}
+     * @return <code>true</code> if all queries sharing the cache were analyzed
+     */
+    private boolean isReadersAnalyzed(MappedStatement writer) {
+        Cache cache = writer.getCache();
+        if (cache == null) {
+            return true;
+        }
+        for (MappedStatement ms : getMappedStatements(writer.getConfiguration())) {
+            if (ms.getSqlCommandType() == SELECT && ms.getCache() == cache && !statementTablesMap.containsKey(ms)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Collection<MappedStatement> getMappedStatements(Configuration configuration) {
+        // the short names map to the same statements, or the ambiguities
+        Set<MappedStatement> mappedStatements = newSetFromMap(new IdentityHashMap<>());
+        for (Object value : new ArrayList<>(configuration.getMappedStatements())) {
+            if (value instanceof MappedStatement ms) {
+                mappedStatements.add(ms);
+            }
+        }
+        return mappedStatements;
+    }
+
+    static void setFlushCacheRequired(MappedStatement ms, boolean flushCacheRequired) {
+        try {
+            FLUSH_CACHE_REQUIRED_FIELD.setBoolean(ms, flushCacheRequired);
+        } catch (IllegalAccessException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
+    private static Field findFlushCacheRequiredField() {
+        try {
+            Field field = MappedStatement.class.getDeclaredField("flushCacheRequired");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
+    /**
+     * The tables and the tracked keys of a {@link MappedStatement}
+     */
+    static class StatementTables {
+
+        private final SqlTables tables;
+
+        private final boolean managed;
+
+        private final int maxTrackedKeys;
+
+        private final TableInvalidationExecutorFilter filter;
+
+        private final Set<CacheKey> keys = new LinkedHashSet<>();
+
+        private boolean overflow;
+
+        StatementTables(SqlTables tables, boolean managed, int maxTrackedKeys, TableInvalidationExecutorFilter filter) {
+            this.tables = tables;
+            this.managed = managed;
+            this.maxTrackedKeys = maxTrackedKeys;
+            this.filter = filter;
+        }
+
+        synchronized void track(CacheKey cacheKey) {
+            if (overflow) {
+                return;
+            }
+            if (keys.size() < maxTrackedKeys) {
+                keys.add(cacheKey);
+            } else if (!keys.contains(cacheKey)) {
+                overflow = true;
+                keys.clear();
+            }
+        }
+
+        synchronized void invalidate(Cache cache) {
+            if (overflow) {
+                cache.clear();
+                filter.clearedCount.increment();
+                overflow = false;
+                return;
+            }
+            if (keys.isEmpty()) {
+                return;
+            }
+            List<CacheKey> invalidatedKeys = new ArrayList<>(keys);
+            keys.clear();
+            for (CacheKey key : invalidatedKeys) {
+                cache.removeObject(key);
+            }
+            filter.invalidatedCount.add(invalidatedKeys.size());
+        }
+
+        synchronized int getTrackedKeyCount() {
+            return keys.size();
+        }
+    }
+
+    /**
+     * The invalidation buffered by a transaction until its commit, which is confined to the thread of transaction
+     */
+    static class PendingInvalidation {
+
+        private final Set<String> tables = new LinkedHashSet<>();
+
+        private final Set<String> cacheIds = new LinkedHashSet<>();
+
+        void add(Collection<String> writeTables, @Nullable Cache cache) {
+            tables.addAll(writeTables);
+            if (cache != null) {
+                cacheIds.add(cache.getId());
+            }
+        }
+
+        boolean affects(SqlTables readerTables, Cache readerCache) {
+            Set<String> readTables = readerTables.getReadTables();
+            return readTables.isEmpty() ? cacheIds.contains(readerCache.getId()) : readerTables.isReadingAny(tables);
+        }
+    }
+}
@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Comparator.comparingLong;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * The {@link ExecutorFilter} measures how long each session holds the transaction and the {@link java.sql.Connection}
+ * and records them into the {@link DurationHistogram histograms} per entry point :
+ * <ul>
+ *     <li>the transaction starts on the first statement or {@link Executor#getTransaction()} of the session, or the
+ *     first one after the last {@link Executor#commit(boolean) commit} or {@link Executor#rollback(boolean) rollback},
+ *     and ends on the next commit, rollback or {@link Executor#close(boolean) close}</li>
+ *     <li>the connection is held from the start of the first transaction until the session is closed</li>
+ *     <li>the entry point is the first stack frame outside MyBatis and the common frameworks when the first
+ *     transaction of the session starts, e.g. <code>com.acme.UserService#saveUser</code></li>
+ * </ul>
+ * The transaction exceeding the threshold is {@link #report(String, long, Throwable) reported} with the stack trace
+ * captured on its start, which is sampled every N transactions to keep the overhead low, or captured on its end if
+ * it was not sampled. The transaction that never ends, e.g. stuck in a remote call, is found by polling
+ * {@link #getLongTransactions()}. The states of the sessions are expunged once their {@link Executor executors} are
+ * garbage-collected, even if they were never closed.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // flag the transactions over 1000 ms, and capture the stack traces of 1 in 100 transactions
+ *   TransactionMetricsExecutorFilter filter = new TransactionMetricsExecutorFilter(1000, 100);
+ *   InterceptingExecutorInterceptor interceptor =
+ *       new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter});
+ *   configuration.addInterceptor(interceptor);
+ *
+ *   filter.getConnectionHoldHistograms().forEach((entryPoint, histogram) ->
+ *       System.out.println(entryPoint + " : " + histogram));
+ *
+ *   // the watchdog of the stuck transactions
+ *   scheduler.scheduleAtFixedRate(() -> filter.getLongTransactions().forEach(transaction ->
+ *       System.out.println(transaction)), 1, 1, TimeUnit.SECONDS);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see DurationHistogram
+ * @see ExecutorFilter
+ * @since 1.0.0
+ */
+public class TransactionMetricsExecutorFilter implements ExecutorFilter {
+
+    private static final Logger logger = getLogger(TransactionMetricsExecutorFilter.class);
+
+    /**
+     * The default threshold of the long transaction in milliseconds
+     */
+    public static final long DEFAULT_LONG_TRANSACTION_THRESHOLD = 1000;
+
+    /**
+     * The default interval of the transactions whose stack traces are captured on start
+     */
+    public static final int DEFAULT_STACK_TRACE_SAMPLING_INTERVAL = 100;
+
+    /**
+     * The entry point if it can't be resolved
+     */
+    public static final String UNKNOWN_ENTRY_POINT = "<unknown>";
+
+    private static final String[] FRAMEWORK_PACKAGES = {"io.microsphere.", "org.apache.ibatis.", "org.mybatis.",
+            "org.springframework.", "java.", "javax.", "jakarta.", "jdk.", "sun.", "com.sun.", "com.zaxxer.hikari.",
+            "com.alibaba.druid."};
+
+    private static final StackWalker stackWalker = StackWalker.getInstance();
+
+    private final long longTransactionThreshold;
+
+    private final int stackTraceSamplingInterval;
+
+    private final WeakExecutorMap<SessionState> sessionStates = new WeakExecutorMap<>();
+
+    private final ConcurrentMap<String, DurationHistogram> transactionHistograms = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, DurationHistogram> connectionHoldHistograms = new ConcurrentHashMap<>();
+
+    private final AtomicLong transactions = new AtomicLong();
+
+    private final LongAdder longTransactionCount = new LongAdder();
+
+    /**
+     * Create a {@link TransactionMetricsExecutorFilter} with {@link #DEFAULT_LONG_TRANSACTION_THRESHOLD} and
+     * {@link #DEFAULT_STACK_TRACE_SAMPLING_INTERVAL}
+     */
+    public TransactionMetricsExecutorFilter() {
+        this(DEFAULT_LONG_TRANSACTION_THRESHOLD, DEFAULT_STACK_TRACE_SAMPLING_INTERVAL);
+    }
+
+    /**
+     * Create a {@link TransactionMetricsExecutorFilter}
+     *
+     * @param longTransactionThreshold   the threshold of the long transaction in milliseconds
+     * @param stackTraceSamplingInterval the stack trace is captured on start every this number of transactions
+     */
+    public TransactionMetricsExecutorFilter(long longTransactionThreshold, int stackTraceSamplingInterval) {
+        assertTrue(longTransactionThreshold > 0, () -> "The 'longTransactionThreshold' argument must be positive");
+        assertTrue(stackTraceSamplingInterval > 0, () -> "The 'stackTraceSamplingInterval' argument must be positive");
+        this.longTransactionThreshold = longTransactionThreshold;
+        this.stackTraceSamplingInterval = stackTraceSamplingInterval;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        begin(chain.getExecutor());
+        return chain.update(ms, parameter);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+        begin(chain.getExecutor());
+        return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+    }
+
+    @Override
+    public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                             ExecutorFilterChain chain) throws SQLException {
+        begin(chain.getExecutor());
+        return chain.query(ms, parameter, rowBounds, resultHandler);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds,
+                                     ExecutorFilterChain chain) throws SQLException {
+        begin(chain.getExecutor());
+        return chain.queryCursor(ms, parameter, rowBounds);
+    }
+
+    @Override
+    public Transaction getTransaction(ExecutorFilterChain chain) {
+        begin(chain.getExecutor());
+        return chain.getTransaction();
+    }
+
+    @Override
+    public void commit(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.commit(required);
+        } finally {
+            end(executor);
+        }
+    }
+
+    @Override
+    public void rollback(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.rollback(required);
+        } finally {
+            end(executor);
+        }
+    }
+
+    @Override
+    public void close(boolean forceRollback, ExecutorFilterChain chain) {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.close(forceRollback);
+        } finally {
+            SessionState sessionState = sessionStates.remove(executor);
+            if (sessionState != null) {
+                long now = currentTime();
+                endTransaction(sessionState, now);
+                getHistogram(connectionHoldHistograms, sessionState.entryPoint)
+                        .record(now - sessionState.connectionStartTime);
+            }
+        }
+    }
+
+    /**
+     * Report the transaction exceeding the threshold, the subclass could override this method to expose it.
+     *
+     * @param entryPoint the entry point
+     * @param duration   the duration of transaction in milliseconds
+     * @param stackTrace the stack trace captured on the start of transaction if sampled, or on its end
+     */
+    protected void report(String entryPoint, long duration, Throwable stackTrace) {
+        logger.warn("The transaction of the entry point['{}'] took {} ms, exceeding the threshold {} ms", entryPoint,
+                duration, longTransactionThreshold, stackTrace);
+    }
+
+    /**
+     * Resolve the entry point from the stack of the current thread
+     *
+     * @return the first stack frame outside MyBatis and the common frameworks, or {@link #UNKNOWN_ENTRY_POINT}
+     */
+    protected String resolveEntryPoint() {
+        return stackWalker.walk(frames -> frames
+                .filter(frame -> !isFrameworkClass(frame.getClassName()))
+                .findFirst()
+                .map(frame -> frame.getClassName() + "#" + frame.getMethodName())
+                .orElse(UNKNOWN_ENTRY_POINT));
+    }
+
+    /**
+     * Is the specified class a part of MyBatis or the common frameworks
+     *
+     * @param className the name of class
+     * @return <code>true</code> if the frame of this class is not an entry point
+     */
+    protected boolean isFrameworkClass(String className) {
+        if (className.contains("$Proxy")) {
+            return true;
+        }
+        for (String frameworkPackage : FRAMEWORK_PACKAGES) {
+            if (className.startsWith(frameworkPackage)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the current monotonic time in milliseconds
+     *
+     * @return the current monotonic time in milliseconds
+     */
+    protected long currentTime() {
+        return NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * Get the histogram of the transaction durations of the specified entry point
+     *
+     * @param entryPoint the entry point
+     * @return <code>null</code> if not found
+     */
+    @Nullable
+    public DurationHistogram getTransactionHistogram(String entryPoint) {
+        return transactionHistograms.get(entryPoint);
+    }
+
+    /**
+     * Get the histogram of the connection hold time of the specified entry point
+     *
+     * @param entryPoint the entry point
+     * @return <code>null</code> if not found
+     */
+    @Nullable
+    public DurationHistogram getConnectionHoldHistogram(String entryPoint) {
+        return connectionHoldHistograms.get(entryPoint);
+    }
+
+    /**
+     * Get the histograms of the transaction durations per entry point
+     *
+     * @return non-null read-only {@link Map}
+     */
+    public Map<String, DurationHistogram> getTransactionHistograms() {
+        return unmodifiableMap(transactionHistograms);
+    }
+
+    /**
+     * Get the histograms of the connection hold time per entry point
+     *
+     * @return non-null read-only {@link Map}
+     */
+    public Map<String, DurationHistogram> getConnectionHoldHistograms() {
+        return unmodifiableMap(connectionHoldHistograms);
+    }
+
+    /**
+     * Get the count of the transactions exceeding the threshold
+     *
+     * @return the count of the long transactions
+     */
+    public long getLongTransactionCount() {
+        return longTransactionCount.sum();
+    }
+
+    /**
+     * Get the active transactions exceeding the threshold, which are not reported until they end, so the caller could
+     * poll it periodically as a watchdog of the stuck transactions.
+     *
+     * @return non-null, sorted by the duration in descending order
+     */
+    public List<LongTransaction> getLongTransactions() {
+        long now = currentTime();
+        List<LongTransaction> longTransactions = new ArrayList<>();
+        for (SessionState sessionState : sessionStates.values()) {
+            if (sessionState.transactionActive) {
+                long duration = now - sessionState.transactionStartTime;
+                if (duration > longTransactionThreshold) {
+                    longTransactions.add(new LongTransaction(sessionState.entryPoint, sessionState.thread, duration,
+                            sessionState.stackTrace));
+                }
+            }
+        }
+        longTransactions.sort(comparingLong(LongTransaction::getDuration).reversed());
+        return longTransactions;
+    }
+
+    /**
+     * Get the threshold of the long transaction in milliseconds
+     *
+     * @return the threshold of the long transaction in milliseconds
+     */
+    public long getLongTransactionThreshold() {
+        return longTransactionThreshold;
+    }
+
+    /**
+     * Get the interval of the transactions whose stack traces are captured on start
+     *
+     * @return the interval of the transactions whose stack traces are captured on start
+     */
+    public int getStackTraceSamplingInterval() {
+        return stackTraceSamplingInterval;
+    }
+
+    private void begin(Executor executor) {
+        SessionState sessionState = sessionStates.get(executor);
+        if (sessionState == null) {
+            long now = currentTime();
+            sessionState = sessionStates.computeIfAbsent(executor, e -> new SessionState(resolveEntryPoint(), now));
+            startTransaction(sessionState, now);
+        } else if (!sessionState.transactionActive) {
+            startTransaction(sessionState, currentTime());
+        }
+    }
+
+    private void startTransaction(SessionState sessionState, long now) {
+        sessionState.transactionStartTime = now;
+        if (transactions.incrementAndGet() % stackTraceSamplingInterval == 0) {
+            sessionState.stackTrace = new Throwable("The transaction of the entry point['" + sessionState.entryPoint
+                    + "'] started");
+        }
+        sessionState.transactionActive = true;
+    }
+
+    private void end(Executor executor) {
+        SessionState sessionState = sessionStates.get(executor);
+        if (sessionState != null) {
+            endTransaction(sessionState, currentTime());
+        }
+    }
+
+    private void endTransaction(SessionState sessionState, long now) {
+        if (!sessionState.transactionActive) {
+            return;
+        }
+        Throwable stackTrace = sessionState.stackTrace;
+        sessionState.transactionActive = false;
+        sessionState.stackTrace = null;
+        long duration = now - sessionState.transactionStartTime;
+        String entryPoint = sessionState.entryPoint;
+        getHistogram(transactionHistograms, entryPoint).record(duration);
+        if (duration > longTransactionThreshold) {
+            longTransactionCount.increment();
+            report(entryPoint, duration, stackTrace == null ?
+                    new Throwable("The transaction of the entry point['" + entryPoint + "'] ended") : stackTrace);
+        }
+    }
+
+    private static DurationHistogram getHistogram(ConcurrentMap<String, DurationHistogram> histograms, String entryPoint) {
+        DurationHistogram histogram = histograms.get(entryPoint);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(entryPoint, e -> new DurationHistogram());
+        }
+        return histogram;
+    }
+
+    /**
+     * The active transaction exceeding the threshold
+     *
+     * @see #getLongTransactions()
+     */
+    public static class LongTransaction {
+
+        private final String entryPoint;
+
+        private final Thread thread;
+
+        private final long duration;
+
+        @Nullable
+        private final Throwable stackTrace;
+
+        LongTransaction(String entryPoint, Thread thread, long duration, @Nullable Throwable stackTrace) {
+            this.entryPoint = entryPoint;
+            this.thread = thread;
+            this.duration = duration;
+            this.stackTrace = stackTrace;
+        }
+
+        /**
+         * Get the entry point
+         *
+         * @return non-null
+         */
+        public String getEntryPoint() {
+            return entryPoint;
+        }
+
+        /**
+         * Get the thread owning the session
+         *
+         * @return non-null
+         */
+        public Thread getThread() {
+            return thread;
+        }
+
+        /**
+         * Get the duration of the transaction until now in milliseconds
+         *
+         * @return the duration of the transaction in milliseconds
+         */
+        public long getDuration() {
+            return duration;
+        }
+
+        /**
+         * Get the stack trace captured on the start of the transaction
+         *
+         * @return <code>null</code> if not sampled
+         */
+        @Nullable
+        public Throwable getStackTrace() {
+            return stackTrace;
+        }
+
+        @Override
+        public String toString() {
+            return "LongTransaction{" +
+                    "entryPoint='" + entryPoint + '\'' +
+                    ", thread=" + thread.getName() +
+                    ", duration=" + duration +
+                    '}';
+        }
+    }
+
+    /**
+     * The state of a session, which is written by the thread owning the session only, and read by the others through
+     * {@link #getLongTransactions()}
+     */
+    private static class SessionState {
+
+        private final String entryPoint;
+
+        private final Thread thread = Thread.currentThread();
+
+        private final long connectionStartTime;
+
+        private volatile boolean transactionActive;
+
+        private volatile long transactionStartTime;
+
+        @Nullable
+        private volatile Throwable stackTrace;
+
+        SessionState(String entryPoint, long connectionStartTime) {
+            this.entryPoint = entryPoint;
+            this.connectionStartTime = connectionStartTime;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionMetricsExecutorFilter{" +
+                "longTransactionThreshold=" + longTransactionThreshold +
+                ", stackTraceSamplingInterval=" + stackTraceSamplingInterval +
+                '}';
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.annotation.Nullable;
+import org.apache.ibatis.executor.Executor;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static java.lang.System.identityHashCode;
+
+/**
+ * The concurrent map holds the states per {@link Executor}, whose keys are referenced weakly and compared by the
+ * identity, so the state of the {@link Executor} that was never closed is expunged once it's garbage-collected.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   WeakExecutorMap<List<String>> pendingWrites = new WeakExecutorMap<>();
+ *
+ *   // in ExecutorFilter#update
+ *   pendingWrites.computeIfAbsent(chain.getExecutor(), executor -> new ArrayList<>()).add(ms.getId());
+ *
+ *   // in ExecutorFilter#commit
+ *   List<String> writes = pendingWrites.remove(chain.getExecutor());
+ * }</pre>
+ *
+ * @param <V> the type of state
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Executor
+ * @since 1.0.0
+ */
+public class WeakExecutorMap<V> {
+
+    private final ConcurrentMap<Key, V> states = new ConcurrentHashMap<>();
+
+    private final ReferenceQueue<Executor> queue = new ReferenceQueue<>();
+
+    /**
+     * Get the state of the specified {@link Executor}
+     *
+     * @param executor {@link Executor}
+     * @return <code>null</code> if absent
+     */
+    @Nullable
+    public V get(Executor executor) {
+        return states.get(new Key(executor, null));
+    }
+
+    /**
+     * Get the state of the specified {@link Executor}, or create it if absent
+     *
+     * @param executor {@link Executor}
+     * @param factory  the factory of the state
+     * @return non-null
+     */
+    public V computeIfAbsent(Executor executor, Function<Executor, V> factory) {
+        V state = get(executor);
+        if (state == null) {
+            expunge();
+            state = states.computeIfAbsent(new Key(executor, queue), key -> factory.apply(executor));
+        }
+        return state;
+    }
+
+    /**
+     * Remove the state of the specified {@link Executor}
+     *
+     * @param executor {@link Executor}
+     * @return the removed state, or <code>null</code> if absent
+     */
+    @Nullable
+    public V remove(Executor executor) {
+        return states.remove(new Key(executor, null));
+    }
+
+    /**
+     * Get the states of the live {@link Executor executors}
+     *
+     * @return the view of states
+     */
+    public Collection<V> values() {
+        expunge();
+        return states.values();
+    }
+
+    /**
+     * Get the count of the states
+     *
+     * @return the count of the states
+     */
+    public int size() {
+        expunge();
+        return states.size();
+    }
+
+    private void expunge() {
+        Reference<? extends Executor> reference;
+        while ((reference = queue.poll()) != null) {
+            states.remove(reference);
+        }
+    }
+
+    /**
+     * The weak key of {@link Executor} by identity
+     */
+    private static class Key extends WeakReference<Executor> {
+
+        private final int hash;
+
+        Key(Executor executor, @Nullable ReferenceQueue<Executor> queue) {
+            super(executor, queue);
+            this.hash = identityHashCode(executor);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof Key key) {
+                Executor executor = get();
+                return executor != null && executor == key.get();
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.resultset;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.NoSuchElementException;
+
+/**
+ * The {@link Cursor} passes the fetched rows through the row-level filtering of {@link ResultSetHandlerFilterChain}
+ * lazily.
+ *
+ * @param <T> the type of row
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Cursor
+ * @see ResultSetHandlerFilterChain#handleResult(org.apache.ibatis.session.ResultContext)
+ * @since 1.0.0
+ */
+class FilteringCursor<T> implements Cursor<T> {
+
+    private final Cursor<T> delegate;
+
+    private final ResultSetHandlerFilterChain chain;
+
+    FilteringCursor(Cursor<T> delegate, ResultSetHandlerFilterChain chain) {
+        this.delegate = delegate;
+        this.chain = chain;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return delegate.isOpen();
+    }
+
+    @Override
+    public boolean isConsumed() {
+        return delegate.isConsumed();
+    }
+
+    @Override
+    public int getCurrentIndex() {
+        return delegate.getCurrentIndex();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new FilteringIterator();
+    }
+
+    private class FilteringIterator implements Iterator<T> {
+
+        private final Iterator<T> source = delegate.iterator();
+
+        private final DefaultResultContext<T> resultContext = new DefaultResultContext<>();
+
+        // the rows passed through all filters, the filter may emit none or more rows for each fetched row
+        private final LinkedList<T> rows = new LinkedList<>();
+
+        FilteringIterator() {
+            chain.setResultHandler(context -> rows.add((T) context.getResultObject()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (rows.isEmpty() && !resultContext.isStopped() && source.hasNext()) {
+                resultContext.nextResultObject(source.next());
+                chain.handleResult(resultContext);
+            }
+            return !rows.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.removeFirst();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.resultset;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.isRowFilter;
+import static io.microsphere.util.ArrayUtils.arrayToString;
+import static io.microsphere.util.ArrayUtils.length;
+import static io.microsphere.util.Assert.assertNotNull;
+
+/**
+ * Delegating {@link ResultSetHandler}
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Wrap a real ResultSetHandler with filters
+ *   ResultSetHandler delegate = configuration.newResultSetHandler(executor, ms, rowBounds, parameterHandler, null, boundSql);
+ *   InterceptingResultSetHandler interceptingResultSetHandler = new InterceptingResultSetHandler(delegate, null, filter);
+ *
+ *   // All ResultSetHandler calls are now routed through the filter chain
+ *   List<User> users = interceptingResultSetHandler.handleResultSets(statement);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ResultSetHandler
+ * @see ResultSetHandlerFilter
+ * @since 1.0.0
+ */
+public class InterceptingResultSetHandler implements ResultSetHandler {
+
+    private static final Logger logger = getLogger(InterceptingResultSetHandler.class);
+
+    private final ResultSetHandler delegate;
+
+    private final Properties properties;
+
+    private final ResultSetHandlerFilter[] filters;
+
+    private final boolean rowFiltering;
+
+    /**
+     * Construct an {@link InterceptingResultSetHandler} that wraps the given delegate with the supplied filters.
+     *
+     * @param delegate   the real {@link ResultSetHandler} to delegate to; must not be {@code null}
+     * @param properties optional {@link Properties} from the MyBatis configuration; may be {@code null}
+     * @param filters    one or more {@link ResultSetHandlerFilter} instances applied around every
+     *                   {@link ResultSetHandler} operation; must not be {@code null}
+     */
+    public InterceptingResultSetHandler(ResultSetHandler delegate, Properties properties, ResultSetHandlerFilter... filters) {
+        this(delegate, properties, hasRowFilter(filters), filters);
+    }
+
+    /**
+     * Construct an {@link InterceptingResultSetHandler} that wraps the given delegate with the supplied filters.
+     *
+     * @param delegate     the real {@link ResultSetHandler} to delegate to; must not be {@code null}
+     * @param properties   optional {@link Properties} from the MyBatis configuration; may be {@code null}
+     * @param rowFiltering whether the row-level filtering is enabled
+     * @param filters      one or more {@link ResultSetHandlerFilter} instances applied around every
+     *                     {@link ResultSetHandler} operation; must not be {@code null}
+     * @see #hasRowFilter(ResultSetHandlerFilter[])
+     */
+    public InterceptingResultSetHandler(ResultSetHandler delegate, Properties properties, boolean rowFiltering,
+                                        ResultSetHandlerFilter... filters) {
+        assertNotNull(delegate, () -> "The 'delegate' argument must not be null");
+        assertNotNull(filters, () -> "The 'filters' argument must not be null");
+        this.delegate = delegate;
+        this.properties = properties;
+        this.filters = filters;
+        this.rowFiltering = rowFiltering;
+        if (logger.isTraceEnabled()) {
+            logger.trace(this.toString());
+        }
+    }
+
+    @Override
+    public <E> List<E> handleResultSets(Statement statement) throws SQLException {
+        ResultSetHandlerFilterChain chain = buildChain();
+        return chain.handleResultSets(statement);
+    }
+
+    @Override
+    public <E> Cursor<E> handleCursorResultSets(Statement statement) throws SQLException {
+        ResultSetHandlerFilterChain chain = buildChain();
+        return chain.handleCursorResultSets(statement);
+    }
+
+    @Override
+    public void handleOutputParameters(CallableStatement callableStatement) throws SQLException {
+        ResultSetHandlerFilterChain chain = buildChain();
+        chain.handleOutputParameters(callableStatement);
+    }
+
+    /**
+     * Build a new {@link ResultSetHandlerFilterChain} for a single invocation.
+     *
+     * @return a fresh {@link ResultSetHandlerFilterChain} wrapping the delegate and filters
+     */
+    ResultSetHandlerFilterChain buildChain() {
+        return new ResultSetHandlerFilterChain(this.delegate, this.properties, this.rowFiltering, this.filters);
+    }
+
+    /**
+     * Get the underlying delegate {@link ResultSetHandler}.
+     *
+     * @return the delegate {@link ResultSetHandler}; never {@code null}
+     */
+    public ResultSetHandler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the {@link Properties} associated with this handler.
+     *
+     * @return the {@link Properties}; may be {@code null} if none were set
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Get the array of {@link ResultSetHandlerFilter} instances applied by this handler.
+     *
+     * @return the {@link ResultSetHandlerFilter} array; never {@code null}
+     */
+    public ResultSetHandlerFilter[] getFilters() {
+        return filters;
+    }
+
+    /**
+     * Is the row-level filtering enabled or not
+     *
+     * @return <code>true</code> if any filter is a row-level filter
+     */
+    public boolean isRowFiltering() {
+        return rowFiltering;
+    }
+
+    /**
+     * Is there any row-level filter in the specified filters or not
+     *
+     * @param filters {@link ResultSetHandlerFilter filters}
+     * @return <code>true</code> if any filter is a row-level filter
+     * @see ResultSetHandlers#isRowFilter(ResultSetHandlerFilter)
+     */
+    public static boolean hasRowFilter(ResultSetHandlerFilter[] filters) {
+        for (int i = 0; i < length(filters); i++) {
+            if (isRowFilter(filters[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "InterceptingResultSetHandler{" +
+                "delegate=" + delegate +
+                ", properties=" + properties +
+                ", filters=" + arrayToString(filters) +
+                ", rowFiltering=" + rowFiltering +
+                '}';
+    }
+}
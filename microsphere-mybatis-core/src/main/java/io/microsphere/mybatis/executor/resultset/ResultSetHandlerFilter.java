@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.resultset;
+
+import io.microsphere.lang.Prioritized;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.session.ResultContext;
+
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The invocation handler of {@link ResultSetHandler}, these methods will be filtered:
+ * <ul>
+ *     <li>{@link ResultSetHandler#handleResultSets(Statement)}</li>
+ *     <li>{@link ResultSetHandler#handleCursorResultSets(Statement)}</li>
+ *     <li>{@link ResultSetHandler#handleOutputParameters(CallableStatement)}</li>
+ * </ul>
+ * Besides, {@link #handleResult(ResultContext, ResultSetHandlerFilterChain)} sees every row as soon as it's mapped,
+ * the filter could count, cap({@link ResultContext#stop()}), transform
+ * ({@link ResultSetHandlerFilterChain#handleResult(ResultContext, Object)}) or consume the row without passing it to
+ * the next one, which avoids to materialize the result {@link List}.
+ * <p>
+ * The row-level filtering applies to the statements that map a single result set by a single result map without the
+ * nested result maps, other statements are handled as usual.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   public class RowsLimitResultSetHandlerFilter implements ResultSetHandlerFilter {
+ *
+ *       @Override
+ *       public void handleResult(ResultContext<?> resultContext, ResultSetHandlerFilterChain chain) {
+ *           chain.handleResult(resultContext);
+ *           if (resultContext.getResultCount() >= 1000) {
+ *               resultContext.stop();
+ *           }
+ *       }
+ *   }
+ *
+ *   // Register via InterceptingResultSetHandlerInterceptor
+ *   configuration.addInterceptor(new InterceptingResultSetHandlerInterceptor(new RowsLimitResultSetHandlerFilter()));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ResultSetHandler
+ * @see ResultSetHandlerFilterChain
+ * @since 1.0.0
+ */
+public interface ResultSetHandlerFilter extends Prioritized {
+
+    /**
+     * Filter {@link ResultSetHandler#handleResultSets(Statement)}
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link ResultSetHandlerFilterChain}
+     * @param <E>       the type of multiple elements
+     * @return
+     * @throws SQLException
+     */
+    default <E> List<E> handleResultSets(Statement statement, ResultSetHandlerFilterChain chain) throws SQLException {
+        return chain.handleResultSets(statement);
+    }
+
+    /**
+     * Filter {@link ResultSetHandler#handleCursorResultSets(Statement)}
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link ResultSetHandlerFilterChain}
+     * @param <E>       the type of multiple elements
+     * @return
+     * @throws SQLException
+     */
+    default <E> Cursor<E> handleCursorResultSets(Statement statement, ResultSetHandlerFilterChain chain) throws SQLException {
+        return chain.handleCursorResultSets(statement);
+    }
+
+    /**
+     * Filter {@link ResultSetHandler#handleOutputParameters(CallableStatement)}
+     *
+     * @param callableStatement {@link CallableStatement}
+     * @param chain             {@link ResultSetHandlerFilterChain}
+     * @throws SQLException
+     */
+    default void handleOutputParameters(CallableStatement callableStatement, ResultSetHandlerFilterChain chain) throws SQLException {
+        chain.handleOutputParameters(callableStatement);
+    }
+
+    /**
+     * Filter the row that was mapped
+     *
+     * @param resultContext {@link ResultContext} holds the mapped row
+     * @param chain         {@link ResultSetHandlerFilterChain}
+     */
+    default void handleResult(ResultContext<?> resultContext, ResultSetHandlerFilterChain chain) {
+        chain.handleResult(resultContext);
+    }
+}
@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.resultset;
+
+import io.microsphere.annotation.Nonnull;
+import io.microsphere.annotation.Nullable;
+import io.microsphere.lang.function.ThrowableFunction;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.result.DefaultResultHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.CallableStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.getResultHandler;
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.isRowFilteringSupported;
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.newResultSetHandler;
+import static io.microsphere.util.ArrayUtils.length;
+import static io.microsphere.util.Assert.assertNotEmpty;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.ExceptionUtils.wrap;
+
+/**
+ * The chain of {@link ResultSetHandlerFilter}
+ * <p>
+ * If the row-level filtering is enabled, the mapped rows will be passed through
+ * {@link ResultSetHandlerFilter#handleResult(ResultContext, ResultSetHandlerFilterChain)} of all filters in order,
+ * and then be passed to the original {@link ResultHandler} or be collected into the result {@link List}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Build a chain manually (normally done by InterceptingResultSetHandler)
+ *   ResultSetHandler delegate = configuration.newResultSetHandler(executor, ms, rowBounds, parameterHandler, null, boundSql);
+ *   ResultSetHandlerFilterChain chain = new ResultSetHandlerFilterChain(delegate, null, true, filter);
+ *
+ *   // Handle the ResultSets through the filter chain
+ *   List<User> users = chain.handleResultSets(statement);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ResultSetHandler
+ * @see ResultSetHandlerFilter
+ * @since 1.0.0
+ */
+public class ResultSetHandlerFilterChain {
+
+    private static final Logger logger = getLogger(ResultSetHandlerFilterChain.class);
+
+    private final ResultSetHandler resultSetHandler;
+
+    @Nullable
+    private final Properties properties;
+
+    private final boolean rowFiltering;
+
+    private final ResultSetHandlerFilter[] filters;
+
+    private final int size;
+
+    private int position;
+
+    private int rowPosition;
+
+    private ResultHandler<?> resultHandler;
+
+    private MappedStatement mappedStatement;
+
+    /**
+     * Construct a new {@link ResultSetHandlerFilterChain}.
+     *
+     * @param resultSetHandler the target {@link ResultSetHandler} invoked after all filters; must not be {@code null}
+     * @param properties       optional {@link Properties}; may be {@code null}
+     * @param rowFiltering     whether the row-level filtering is enabled
+     * @param filters          one or more {@link ResultSetHandlerFilter} instances; must not be empty
+     */
+    public ResultSetHandlerFilterChain(ResultSetHandler resultSetHandler, @Nullable Properties properties,
+                                       boolean rowFiltering, ResultSetHandlerFilter... filters) {
+        assertNotNull(resultSetHandler, () -> "The 'resultSetHandler' must not be null!");
+        assertNotEmpty(filters, () -> "The 'filters' must not be empty!");
+        this.resultSetHandler = resultSetHandler;
+        this.properties = properties;
+        this.rowFiltering = rowFiltering;
+        this.filters = filters;
+        this.size = length(filters);
+        this.position = 0;
+        this.rowPosition = 0;
+    }
+
+    /**
+     * Execute {@link ResultSetHandler#handleResultSets(Statement)} through the filter chain.
+     *
+     * @param statement {@link Statement}
+     * @param <E>       the element type of the result list
+     * @return the result list
+     * @throws SQLException if the handling fails
+     */
+    public <E> List<E> handleResultSets(Statement statement) throws SQLException {
+        return apply(f -> f.handleResultSets(statement, this), h -> doHandleResultSets(h, statement));
+    }
+
+    /**
+     * Execute {@link ResultSetHandler#handleCursorResultSets(Statement)} through the filter chain.
+     *
+     * @param statement {@link Statement}
+     * @param <E>       the element type of the cursor
+     * @return the {@link Cursor}
+     * @throws SQLException if the handling fails
+     */
+    public <E> Cursor<E> handleCursorResultSets(Statement statement) throws SQLException {
+        return apply(f -> f.handleCursorResultSets(statement, this), h -> doHandleCursorResultSets(h, statement));
+    }
+
+    /**
+     * Execute {@link ResultSetHandler#handleOutputParameters(CallableStatement)} through the filter chain.
+     *
+     * @param callableStatement {@link CallableStatement}
+     * @throws SQLException if the handling fails
+     */
+    public void handleOutputParameters(CallableStatement callableStatement) throws SQLException {
+        apply(f -> {
+            f.handleOutputParameters(callableStatement, this);
+            return null;
+        }, h -> {
+            h.handleOutputParameters(callableStatement);
+            return null;
+        });
+    }
+
+    /**
+     * Pass the mapped row to the next {@link ResultSetHandlerFilter}, or the original {@link ResultHandler} at the
+     * end of the chain.
+     *
+     * @param resultContext {@link ResultContext} holds the mapped row
+     */
+    public void handleResult(ResultContext<?> resultContext) {
+        int rowPosition = this.rowPosition;
+        if (rowPosition < size) {
+            this.rowPosition = rowPosition + 1;
+            try {
+                filters[rowPosition].handleResult(resultContext, this);
+            } finally {
+                // restore the position for the next row or the other results emitted by the same filter
+                this.rowPosition = rowPosition;
+            }
+        } else {
+            ResultHandler resultHandler = this.resultHandler;
+            resultHandler.handleResult(resultContext);
+        }
+    }
+
+    /**
+     * Pass the transformed row to the next {@link ResultSetHandlerFilter}, the stop signal will be propagated to the
+     * specified {@link ResultContext}.
+     *
+     * @param resultContext {@link ResultContext} holds the mapped row
+     * @param resultObject  the transformed row
+     */
+    public void handleResult(ResultContext<?> resultContext, Object resultObject) {
+        handleResult(new TransformedResultContext<>(resultContext, resultObject));
+    }
+
+    private <E> List<E> doHandleResultSets(ResultSetHandler resultSetHandler, Statement statement) throws SQLException {
+        if (rowFiltering && resultSetHandler instanceof DefaultResultSetHandler defaultResultSetHandler
+                && isRowFilteringSupported(getMappedStatement())) {
+            ResultHandler<?> originalResultHandler = getResultHandler(defaultResultSetHandler);
+            DefaultResultHandler defaultResultHandler = null;
+            if (originalResultHandler == null) {
+                defaultResultHandler = new DefaultResultHandler(getMappedStatement().getConfiguration().getObjectFactory());
+                this.resultHandler = defaultResultHandler;
+            } else {
+                this.resultHandler = originalResultHandler;
+            }
+            DefaultResultSetHandler filteringResultSetHandler = newResultSetHandler(defaultResultSetHandler, this::handleResult);
+            List<E> result = filteringResultSetHandler.handleResultSets(statement);
+            return defaultResultHandler == null ? result : (List) defaultResultHandler.getResultList();
+        }
+        if (rowFiltering && logger.isTraceEnabled()) {
+            logger.trace("The row-level filtering is not supported by the ResultSetHandler : {}", resultSetHandler);
+        }
+        return resultSetHandler.handleResultSets(statement);
+    }
+
+    private <E> Cursor<E> doHandleCursorResultSets(ResultSetHandler resultSetHandler, Statement statement) throws SQLException {
+        Cursor<E> cursor = resultSetHandler.handleCursorResultSets(statement);
+        if (rowFiltering && cursor != null) {
+            return new FilteringCursor<>(cursor, this);
+        }
+        return cursor;
+    }
+
+    /**
+     * Set the {@link ResultHandler} at the end of the row-level filtering
+     *
+     * @param resultHandler {@link ResultHandler}
+     */
+    void setResultHandler(ResultHandler<?> resultHandler) {
+        this.resultHandler = resultHandler;
+    }
+
+    /**
+     * Core routing method: if there is a next filter it is invoked, otherwise the delegate
+     * {@link ResultSetHandler} is called.  Any non-{@link SQLException} is wrapped into a {@link SQLException}.
+     *
+     * @param filterFunction  function applied to the next {@link ResultSetHandlerFilter}
+     * @param handlerFunction function applied to the delegate {@link ResultSetHandler} at the end of the chain
+     * @param <R>             the return type
+     * @return the result
+     * @throws SQLException if either function throws
+     */
+    protected <R> R apply(ThrowableFunction<ResultSetHandlerFilter, R> filterFunction,
+                          ThrowableFunction<ResultSetHandler, R> handlerFunction) throws SQLException {
+        final R result;
+        try {
+            if (position < size) {
+                result = filterFunction.apply(filters[position++]);
+            } else {
+                result = handlerFunction.apply(this.resultSetHandler);
+            }
+        } catch (Throwable failure) {
+            throw wrap(failure, SQLException.class);
+        }
+        return result;
+    }
+
+    /**
+     * Get the {@link ResultSetHandler}
+     *
+     * @return non-null
+     */
+    @Nonnull
+    public ResultSetHandler getResultSetHandler() {
+        return this.resultSetHandler;
+    }
+
+    /**
+     * Get the {@link MappedStatement} of the {@link ResultSetHandler}
+     *
+     * @return <code>null</code> if it can't be resolved
+     * @see ResultSetHandlers#getMappedStatement(ResultSetHandler)
+     */
+    @Nullable
+    public MappedStatement getMappedStatement() {
+        MappedStatement mappedStatement = this.mappedStatement;
+        if (mappedStatement == null) {
+            mappedStatement = ResultSetHandlers.getMappedStatement(this.resultSetHandler);
+            this.mappedStatement = mappedStatement;
+        }
+        return mappedStatement;
+    }
+
+    /**
+     * Get the reference of {@link Interceptor#setProperties(Properties)}
+     *
+     * @return <code>null</code> if {@link Interceptor#setProperties(Properties)} was not set
+     */
+    @Nullable
+    public Properties getProperties() {
+        return this.properties;
+    }
+
+    /**
+     * Is the row-level filtering enabled or not
+     *
+     * @return <code>true</code> if any filter is a row-level filter
+     * @see ResultSetHandlers#isRowFilter(ResultSetHandlerFilter)
+     */
+    public boolean isRowFiltering() {
+        return this.rowFiltering;
+    }
+
+    /**
+     * Get the copy of {@link ResultSetHandlerFilter filters}
+     *
+     * @return non-null
+     */
+    @Nonnull
+    public ResultSetHandlerFilter[] getFilters() {
+        return this.filters.clone();
+    }
+
+    /**
+     * Get the size of {@link ResultSetHandlerFilter filters}
+     *
+     * @return positive integer(exclude 0)
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Get the current position of {@link ResultSetHandlerFilter filters}
+     *
+     * @return positive integer(include 0)
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultSetHandlerFilterChain{" +
+                "resultSetHandler=" + this.resultSetHandler +
+                ", properties=" + this.properties +
+                ", rowFiltering=" + this.rowFiltering +
+                ", filters=" + Arrays.toString(this.filters) +
+                ", size=" + this.size +
+                ", position=" + this.position +
+                '}';
+    }
+
+    /**
+     * The {@link ResultContext} holds the transformed row
+     *
+     * @param <T> the type of row
+     */
+    static class TransformedResultContext<T> implements ResultContext<T> {
+
+        private final ResultContext<?> delegate;
+
+        private final T resultObject;
+
+        TransformedResultContext(ResultContext<?> delegate, T resultObject) {
+            this.delegate = delegate;
+            this.resultObject = resultObject;
+        }
+
+        @Override
+        public T getResultObject() {
+            return resultObject;
+        }
+
+        @Override
+        public int getResultCount() {
+            return delegate.getResultCount();
+        }
+
+        @Override
+        public boolean isStopped() {
+            return delegate.isStopped();
+        }
+
+        @Override
+        public void stop() {
+            delegate.stop();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.resultset;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.plugin.Plugins.getPlugin;
+import static io.microsphere.reflect.FieldUtils.getFieldValue;
+import static io.microsphere.util.ExceptionUtils.wrap;
+
+/**
+ * The utilities class for {@link ResultSetHandler}
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   ResultSetHandler handler = configuration.newResultSetHandler(executor, ms, rowBounds, parameterHandler, null, boundSql);
+ *   MappedStatement mappedStatement = ResultSetHandlers.getMappedStatement(handler);
+ *   // mappedStatement == ms
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ResultSetHandler
+ * @see DefaultResultSetHandler
+ * @since 1.0.0
+ */
+public abstract class ResultSetHandlers {
+
+    private static final Logger logger = getLogger(ResultSetHandlers.class);
+
+    private static final Field EXECUTOR_FIELD = findField("executor");
+
+    private static final Field MAPPED_STATEMENT_FIELD = findField("mappedStatement");
+
+    private static final Field PARAMETER_HANDLER_FIELD = findField("parameterHandler");
+
+    private static final Field RESULT_HANDLER_FIELD = findField("resultHandler");
+
+    private static final Field BOUND_SQL_FIELD = findField("boundSql");
+
+    private static final Field ROW_BOUNDS_FIELD = findField("rowBounds");
+
+    /**
+     * Get the {@link MappedStatement} from the specified {@link ResultSetHandler}, the
+     * {@link InterceptingResultSetHandler} and the {@link Plugin plugin proxy} will be unwrapped.
+     *
+     * @param resultSetHandler {@link ResultSetHandler}
+     * @return <code>null</code> if the {@link MappedStatement} can't be resolved
+     */
+    @Nullable
+    public static MappedStatement getMappedStatement(ResultSetHandler resultSetHandler) {
+        ResultSetHandler target = unwrap(resultSetHandler);
+        if (target instanceof DefaultResultSetHandler) {
+            return getValue(target, MAPPED_STATEMENT_FIELD);
+        }
+        return null;
+    }
+
+    /**
+     * Get the {@link ResultHandler} from the specified {@link DefaultResultSetHandler}
+     *
+     * @param resultSetHandler {@link DefaultResultSetHandler}
+     * @return <code>null</code> if the {@link ResultHandler} is absent
+     */
+    @Nullable
+    public static ResultHandler<?> getResultHandler(DefaultResultSetHandler resultSetHandler) {
+        return getValue(resultSetHandler, RESULT_HANDLER_FIELD);
+    }
+
+    /**
+     * Create a new {@link DefaultResultSetHandler} that copies the specified one, but uses the specified
+     * {@link ResultHandler}
+     *
+     * @param resultSetHandler {@link DefaultResultSetHandler}
+     * @param resultHandler    {@link ResultHandler}
+     * @return non-null
+     */
+    public static DefaultResultSetHandler newResultSetHandler(DefaultResultSetHandler resultSetHandler,
+                                                              ResultHandler<?> resultHandler) {
+        Executor executor = getValue(resultSetHandler, EXECUTOR_FIELD);
+        MappedStatement mappedStatement = getValue(resultSetHandler, MAPPED_STATEMENT_FIELD);
+        ParameterHandler parameterHandler = getValue(resultSetHandler, PARAMETER_HANDLER_FIELD);
+        BoundSql boundSql = getValue(resultSetHandler, BOUND_SQL_FIELD);
+        RowBounds rowBounds = getValue(resultSetHandler, ROW_BOUNDS_FIELD);
+        return new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
+    }
+
+    /**
+     * Is the row-level filtering supported by the specified {@link MappedStatement} or not. It requires a single
+     * result set mapped by a single {@link ResultMap} without nested result maps.
+     *
+     * @param mappedStatement {@link MappedStatement}
+     * @return <code>true</code> if supported
+     */
+    public static boolean isRowFilteringSupported(@Nullable MappedStatement mappedStatement) {
+        if (mappedStatement == null || mappedStatement.getResultSets() != null) {
+            return false;
+        }
+        List<ResultMap> resultMaps = mappedStatement.getResultMaps();
+        return resultMaps.size() == 1 && !resultMaps.get(0).hasNestedResultMaps();
+    }
+
+    /**
+     * Is the specified {@link ResultSetHandlerFilter} a row-level filter or not, which overrides
+     * {@link ResultSetHandlerFilter#handleResult(ResultContext, ResultSetHandlerFilterChain)}.
+     *
+     * @param filter {@link ResultSetHandlerFilter}
+     * @return <code>true</code> if it's a row-level filter
+     */
+    public static boolean isRowFilter(ResultSetHandlerFilter filter) {
+        try {
+            return filter.getClass().getMethod("handleResult", ResultContext.class, ResultSetHandlerFilterChain.class)
+                    .getDeclaringClass() != ResultSetHandlerFilter.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Unwrap the specified {@link ResultSetHandler} to be the underlying one
+     *
+     * @param resultSetHandler {@link ResultSetHandler}
+     * @return the underlying {@link ResultSetHandler} if found, or the specified one
+     */
+    public static ResultSetHandler unwrap(ResultSetHandler resultSetHandler) {
+        ResultSetHandler target = resultSetHandler;
+        while (true) {
+            if (target instanceof InterceptingResultSetHandler interceptingResultSetHandler) {
+                target = interceptingResultSetHandler.getDelegate();
+            } else {
+                Plugin plugin = getPlugin(target);
+                if (plugin == null) {
+                    break;
+                }
+                target = getFieldValue(plugin, "target");
+            }
+        }
+        return target;
+    }
+
+    private static <T> T getValue(Object target, Field field) {
+        try {
+            return (T) field.get(target);
+        } catch (IllegalAccessException e) {
+            throw wrap(e, IllegalStateException.class);
+        }
+    }
+
+    private static Field findField(String name) {
+        try {
+            Field field = DefaultResultSetHandler.class.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException e) {
+            logger.warn("The field[name : '{}'] can't be found in the class : {}", name, DefaultResultSetHandler.class.getName());
+            return null;
+        }
+    }
+
+    private ResultSetHandlers() {
+    }
+}
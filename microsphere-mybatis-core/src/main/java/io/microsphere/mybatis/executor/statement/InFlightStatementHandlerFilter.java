@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.mybatis.executor.InFlightStatement;
+import io.microsphere.mybatis.executor.InFlightStatementRegistry;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static io.microsphere.util.Assert.assertNotNull;
+
+/**
+ * {@link StatementHandlerFilter} attaches the {@link Connection}, the SQL and the executing JDBC {@link Statement} to
+ * the current {@link InFlightStatement} of the {@link InFlightStatementRegistry}, the {@link Statement} is detached
+ * after the execution, so that only the executing one could be {@link InFlightStatement#cancel() cancelled}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   InFlightStatementRegistry registry = new InFlightStatementRegistry();
+ *   StatementHandlerFilter filter = new InFlightStatementHandlerFilter(registry);
+ *   configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(filter));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InFlightStatementRegistry
+ * @see io.microsphere.mybatis.executor.InFlightStatementExecutorFilter
+ * @since 1.0.0
+ */
+public class InFlightStatementHandlerFilter implements StatementHandlerFilter {
+
+    private final InFlightStatementRegistry registry;
+
+    /**
+     * @param registry {@link InFlightStatementRegistry}
+     */
+    public InFlightStatementHandlerFilter(InFlightStatementRegistry registry) {
+        assertNotNull(registry, () -> "The 'registry' argument must not be null");
+        this.registry = registry;
+    }
+
+    @Override
+    public Statement prepare(Connection connection, Integer transactionTimeout, StatementHandlerFilterChain chain)
+            throws SQLException {
+        InFlightStatement inFlightStatement = registry.getCurrentStatement();
+        if (inFlightStatement != null) {
+            registry.prepare(inFlightStatement, connection, chain.getStatementHandler().getBoundSql().getSql());
+        }
+        return chain.prepare(connection, transactionTimeout);
+    }
+
+    @Override
+    public int update(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        InFlightStatement inFlightStatement = attach(statement);
+        try {
+            return chain.update(statement);
+        } finally {
+            detach(inFlightStatement);
+        }
+    }
+
+    @Override
+    public <E> List<E> query(Statement statement, ResultHandler resultHandler, StatementHandlerFilterChain chain)
+            throws SQLException {
+        InFlightStatement inFlightStatement = attach(statement);
+        try {
+            return chain.query(statement, resultHandler);
+        } finally {
+            detach(inFlightStatement);
+        }
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        InFlightStatement inFlightStatement = attach(statement);
+        try {
+            return chain.queryCursor(statement);
+        } finally {
+            detach(inFlightStatement);
+        }
+    }
+
+    /**
+     * Get the {@link InFlightStatementRegistry}
+     *
+     * @return non-null
+     */
+    public InFlightStatementRegistry getRegistry() {
+        return registry;
+    }
+
+    private InFlightStatement attach(Statement statement) {
+        InFlightStatement inFlightStatement = registry.getCurrentStatement();
+        if (inFlightStatement != null) {
+            registry.attach(inFlightStatement, statement);
+        }
+        return inFlightStatement;
+    }
+
+    private void detach(InFlightStatement inFlightStatement) {
+        if (inFlightStatement != null) {
+            registry.attach(inFlightStatement, null);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Properties;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.ArrayUtils.arrayToString;
+import static io.microsphere.util.Assert.assertNotNull;
+import static java.lang.System.nanoTime;
+
+/**
+ * Delegating {@link StatementHandler}
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Wrap a real StatementHandler with filters
+ *   StatementHandler delegate = configuration.newStatementHandler(executor, ms, parameter, rowBounds, null, boundSql);
+ *   InterceptingStatementHandler interceptingStatementHandler =
+ *       new InterceptingStatementHandler(delegate, null, filter);
+ *
+ *   // All StatementHandler calls are now routed through the filter chain
+ *   Statement statement = interceptingStatementHandler.prepare(connection, null);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementHandler
+ * @see StatementHandlerFilter
+ * @since 1.0.0
+ */
+public class InterceptingStatementHandler implements StatementHandler {
+
+    private static final Logger logger = getLogger(InterceptingStatementHandler.class);
+
+    private final StatementHandler delegate;
+
+    private final Properties properties;
+
+    private final StatementHandlerFilter[] filters;
+
+    private final long creationNanoTime;
+
+    /**
+     * Construct an {@link InterceptingStatementHandler} that wraps the given delegate with the supplied filters.
+     *
+     * @param delegate   the real {@link StatementHandler} to delegate to; must not be {@code null}
+     * @param properties optional {@link Properties} from the MyBatis configuration; may be {@code null}
+     * @param filters    one or more {@link StatementHandlerFilter} instances applied around every
+     *                   {@link StatementHandler} operation; must not be {@code null}
+     */
+    public InterceptingStatementHandler(StatementHandler delegate, Properties properties, StatementHandlerFilter... filters) {
+        assertNotNull(delegate, () -> "The 'delegate' argument must not be null");
+        assertNotNull(filters, () -> "The 'filters' argument must not be null");
+        this.delegate = delegate;
+        this.properties = properties;
+        this.filters = filters;
+        this.creationNanoTime = nanoTime();
+        if (logger.isTraceEnabled()) {
+            logger.trace(this.toString());
+        }
+    }
+
+    @Override
+    public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
+        StatementHandlerFilterChain chain = buildChain();
+        return chain.prepare(connection, transactionTimeout);
+    }
+
+    @Override
+    public void parameterize(Statement statement) throws SQLException {
+        StatementHandlerFilterChain chain = buildChain();
+        chain.parameterize(statement);
+    }
+
+    @Override
+    public void batch(Statement statement) throws SQLException {
+        StatementHandlerFilterChain chain = buildChain();
+        chain.batch(statement);
+    }
+
+    @Override
+    public int update(Statement statement) throws SQLException {
+        StatementHandlerFilterChain chain = buildChain();
+        return chain.update(statement);
+    }
+
+    @Override
+    public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+        StatementHandlerFilterChain chain = buildChain();
+        return chain.query(statement, resultHandler);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+        StatementHandlerFilterChain chain = buildChain();
+        return chain.queryCursor(statement);
+    }
+
+    @Override
+    public BoundSql getBoundSql() {
+        return delegate.getBoundSql();
+    }
+
+    @Override
+    public ParameterHandler getParameterHandler() {
+        return delegate.getParameterHandler();
+    }
+
+    /**
+     * Build a new {@link StatementHandlerFilterChain} for a single invocation.
+     *
+     * @return a fresh {@link StatementHandlerFilterChain} wrapping the delegate and filters
+     */
+    StatementHandlerFilterChain buildChain() {
+        return new StatementHandlerFilterChain(this.delegate, this.properties, this.creationNanoTime, this.filters);
+    }
+
+    /**
+     * Get the underlying delegate {@link StatementHandler}.
+     *
+     * @return the delegate {@link StatementHandler}; never {@code null}
+     */
+    public StatementHandler getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * Get the {@link Properties} associated with this handler.
+     *
+     * @return the {@link Properties}; may be {@code null} if none were set
+     */
+    public Properties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Get the array of {@link StatementHandlerFilter} instances applied by this handler.
+     *
+     * @return the {@link StatementHandlerFilter} array; never {@code null}
+     */
+    public StatementHandlerFilter[] getFilters() {
+        return filters;
+    }
+
+    @Override
+    public String toString() {
+        return "InterceptingStatementHandler{" +
+                "delegate=" + delegate +
+                ", properties=" + properties +
+                ", filters=" + arrayToString(filters) +
+                '}';
+    }
+}
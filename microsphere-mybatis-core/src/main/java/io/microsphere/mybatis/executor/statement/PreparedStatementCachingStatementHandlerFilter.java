@@ -0,0 +1,465 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.jdbc.PreparedStatementLogger;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.lang.System.identityHashCode;
+import static java.lang.reflect.Proxy.newProxyInstance;
+
+/**
+ * {@link StatementHandlerFilter} caches the {@link PreparedStatement PreparedStatements} per physical
+ * {@link Connection} in a bounded LRU cache keyed by the SQL text and the options of
+ * {@link Connection#prepareStatement(String) preparation}(e.g. the result set type), thus the cached
+ * {@link PreparedStatement} survives across the {@link org.apache.ibatis.session.SqlSession SqlSessions} that borrow
+ * the same pooled {@link Connection}.
+ * <p>
+ * The {@link PreparedStatement} is prepared on the physical {@link Connection} resolved by
+ * {@link Connection#unwrap(Class)}, and it will be returned to the cache rather than being closed on
+ * {@link Statement#close()}. The caches of the closed {@link Connection connections} are evicted when the cache of a
+ * new {@link Connection} is created or {@link #evict(Connection)} is invoked.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   PreparedStatementCachingStatementHandlerFilter filter = new PreparedStatementCachingStatementHandlerFilter(128);
+ *   configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(filter));
+ *
+ *   // after some executions
+ *   long hits = filter.getHits();
+ *   long misses = filter.getMisses();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementHandlerFilter
+ * @see PreparedStatement
+ * @since 1.0.0
+ */
+public class PreparedStatementCachingStatementHandlerFilter implements StatementHandlerFilter {
+
+    private static final Logger logger = getLogger(PreparedStatementCachingStatementHandlerFilter.class);
+
+    /**
+     * The default max count of the cached {@link PreparedStatement PreparedStatements} per {@link Connection}
+     */
+    public static final int DEFAULT_MAX_STATEMENTS = 64;
+
+    private static final String PREPARE_STATEMENT_METHOD_NAME = "prepareStatement";
+
+    private final int maxStatements;
+
+    /**
+     * The {@link StatementCache caches} keyed by the physical {@link Connection}, guarded by itself
+     */
+    private final Map<Connection, StatementCache> caches = new IdentityHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    public PreparedStatementCachingStatementHandlerFilter() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * @param maxStatements the max count of the cached {@link PreparedStatement PreparedStatements} per
+     *                      {@link Connection}
+     * @throws IllegalArgumentException if <code>maxStatements</code> is not positive
+     */
+    public PreparedStatementCachingStatementHandlerFilter(int maxStatements) {
+        assertTrue(maxStatements > 0, () -> "The 'maxStatements' must be positive : " + maxStatements);
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public Statement prepare(Connection connection, Integer transactionTimeout, StatementHandlerFilterChain chain) throws SQLException {
+        Connection physicalConnection = getPhysicalConnection(connection);
+        StatementCache cache = getCache(physicalConnection);
+        Connection cachingConnection = (Connection) newProxy(Connection.class,
+                new CachingConnection(connection, physicalConnection, cache, chain.getMappedStatement()));
+        return chain.prepare(cachingConnection, transactionTimeout);
+    }
+
+    /**
+     * Evict the cached {@link PreparedStatement PreparedStatements} of the specified {@link Connection}, they will be
+     * closed.
+     *
+     * @param connection the logical or physical {@link Connection}
+     */
+    public void evict(Connection connection) {
+        Connection physicalConnection = getPhysicalConnection(connection);
+        StatementCache cache;
+        synchronized (caches) {
+            cache = caches.remove(physicalConnection);
+        }
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    /**
+     * Evict all cached {@link PreparedStatement PreparedStatements}, they will be closed.
+     */
+    public void evictAll() {
+        StatementCache[] evictedCaches;
+        synchronized (caches) {
+            evictedCaches = caches.values().toArray(new StatementCache[0]);
+            caches.clear();
+        }
+        for (StatementCache cache : evictedCaches) {
+            cache.close();
+        }
+    }
+
+    /**
+     * Get the count of the idle {@link PreparedStatement PreparedStatements} in the caches of all
+     * {@link Connection connections}
+     *
+     * @return non-negative
+     */
+    public int getCachedStatementCount() {
+        int count = 0;
+        synchronized (caches) {
+            for (StatementCache cache : caches.values()) {
+                count += cache.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Get the count of {@link PreparedStatement PreparedStatements} reused from the cache
+     *
+     * @return non-negative
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the count of {@link PreparedStatement PreparedStatements} prepared by the physical {@link Connection}
+     *
+     * @return non-negative
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the max count of the cached {@link PreparedStatement PreparedStatements} per {@link Connection}
+     *
+     * @return positive
+     */
+    public int getMaxStatements() {
+        return maxStatements;
+    }
+
+    private StatementCache getCache(Connection physicalConnection) {
+        synchronized (caches) {
+            StatementCache cache = caches.get(physicalConnection);
+            if (cache == null) {
+                evictClosedCaches();
+                cache = new StatementCache(maxStatements);
+                caches.put(physicalConnection, cache);
+            }
+            return cache;
+        }
+    }
+
+    private void evictClosedCaches() {
+        Iterator<Map.Entry<Connection, StatementCache>> iterator = caches.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Connection, StatementCache> entry = iterator.next();
+            if (isClosed(entry.getKey())) {
+                iterator.remove();
+                entry.getValue().close();
+            }
+        }
+    }
+
+    private PreparedStatement prepareStatement(Connection physicalConnection, StatementCache cache, StatementKey key,
+                                               Method method, Object[] args) throws Throwable {
+        PreparedStatement statement = cache.take(key);
+        if (statement == null || statement.isClosed()) {
+            statement = (PreparedStatement) invoke(physicalConnection, method, args);
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return (PreparedStatement) newProxy(PreparedStatement.class, new CachedStatement(statement, key, cache));
+    }
+
+    static Connection getPhysicalConnection(Connection connection) {
+        try {
+            if (connection.isWrapperFor(Connection.class)) {
+                Connection physicalConnection = connection.unwrap(Connection.class);
+                if (physicalConnection != null) {
+                    return physicalConnection;
+                }
+            }
+        } catch (SQLException e) {
+            logger.trace("The physical Connection can't be unwrapped from {}", connection, e);
+        }
+        return connection;
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            logger.trace("The Statement can't be closed : {}", statement, e);
+        }
+    }
+
+    private static Object newProxy(Class<?> interfaceClass, InvocationHandler invocationHandler) {
+        return newProxyInstance(PreparedStatementCachingStatementHandlerFilter.class.getClassLoader(),
+                new Class[]{interfaceClass}, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * The key of {@link PreparedStatement} is composed by the arguments of
+     * {@link Connection#prepareStatement(String) the preparation methods}
+     */
+    private static class StatementKey {
+
+        private final Object[] arguments;
+
+        private final int hashCode;
+
+        private StatementKey(Object[] arguments) {
+            this.arguments = arguments;
+            this.hashCode = Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StatementKey that)) {
+                return false;
+            }
+            return hashCode == that.hashCode && Arrays.deepEquals(arguments, that.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * The LRU cache of the idle {@link PreparedStatement PreparedStatements} of a physical {@link Connection}
+     */
+    private static class StatementCache {
+
+        private final LinkedHashMap<StatementKey, PreparedStatement> statements;
+
+        private boolean closed;
+
+        private StatementCache(int maxStatements) {
+            this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+                    if (size() > maxStatements) {
+                        closeQuietly(eldest.getValue());
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized PreparedStatement take(StatementKey key) {
+            return statements.remove(key);
+        }
+
+        synchronized boolean offer(StatementKey key, PreparedStatement statement) {
+            if (closed || statements.containsKey(key)) {
+                return false;
+            }
+            statements.put(key, statement);
+            return true;
+        }
+
+        synchronized int size() {
+            return statements.size();
+        }
+
+        synchronized void close() {
+            closed = true;
+            for (PreparedStatement statement : statements.values()) {
+                closeQuietly(statement);
+            }
+            statements.clear();
+        }
+    }
+
+    /**
+     * The {@link InvocationHandler} of {@link Connection} prepares the {@link PreparedStatement} from the
+     * {@link StatementCache}
+     */
+    private class CachingConnection implements InvocationHandler {
+
+        private final Connection connection;
+
+        private final Connection physicalConnection;
+
+        private final StatementCache cache;
+
+        private final MappedStatement mappedStatement;
+
+        private CachingConnection(Connection connection, Connection physicalConnection, StatementCache cache,
+                                  MappedStatement mappedStatement) {
+            this.connection = connection;
+            this.physicalConnection = physicalConnection;
+            this.cache = cache;
+            this.mappedStatement = mappedStatement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!PREPARE_STATEMENT_METHOD_NAME.equals(method.getName())) {
+                return PreparedStatementCachingStatementHandlerFilter.invoke(connection, method, args);
+            }
+            PreparedStatement statement = prepareStatement(physicalConnection, cache, new StatementKey(args), method, args);
+            Log statementLog = mappedStatement == null ? null : mappedStatement.getStatementLog();
+            if (statementLog != null && statementLog.isDebugEnabled()) {
+                // keep the same logs as ConnectionLogger, because the statement is not prepared by it
+                statementLog.debug("==>  Preparing: " + SqlSourceBuilder.removeExtraWhitespaces((String) args[0]));
+                return PreparedStatementLogger.newInstance(statement, statementLog, 1);
+            }
+            return statement;
+        }
+    }
+
+    /**
+     * The {@link InvocationHandler} of the cached {@link PreparedStatement} returns it to the {@link StatementCache} on
+     * {@link Statement#close()}
+     */
+    private static class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement statement;
+
+        private final StatementKey key;
+
+        private final StatementCache cache;
+
+        private final int queryTimeout;
+
+        private final int fetchSize;
+
+        private final int maxRows;
+
+        private boolean batched;
+
+        private boolean closed;
+
+        private CachedStatement(PreparedStatement statement, StatementKey key, StatementCache cache) throws SQLException {
+            this.statement = statement;
+            this.key = key;
+            this.cache = cache;
+            this.queryTimeout = statement.getQueryTimeout();
+            this.fetchSize = statement.getFetchSize();
+            this.maxRows = statement.getMaxRows();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            switch (methodName) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement{" + statement + '}';
+                case "addBatch":
+                    batched = true;
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("The Statement has been closed");
+            }
+            return PreparedStatementCachingStatementHandlerFilter.invoke(statement, method, args);
+        }
+
+        private void release() {
+            try {
+                if (!statement.isClosed()) {
+                    statement.clearParameters();
+                    statement.clearWarnings();
+                    if (batched) {
+                        statement.clearBatch();
+                    }
+                    statement.setQueryTimeout(queryTimeout);
+                    statement.setFetchSize(fetchSize);
+                    statement.setMaxRows(maxRows);
+                    if (cache.offer(key, statement)) {
+                        return;
+                    }
+                }
+            } catch (SQLException e) {
+                logger.trace("The Statement can't be reset : {}", statement, e);
+            }
+            closeQuietly(statement);
+        }
+    }
+}
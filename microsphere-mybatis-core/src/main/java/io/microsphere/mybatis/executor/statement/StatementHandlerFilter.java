@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.lang.Prioritized;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * The invocation handler of {@link StatementHandler}, these methods will be filtered:
+ * <ul>
+ *     <li>{@link StatementHandler#prepare(Connection, Integer)}</li>
+ *     <li>{@link StatementHandler#parameterize(Statement)}</li>
+ *     <li>{@link StatementHandler#batch(Statement)}</li>
+ *     <li>{@link StatementHandler#update(Statement)}</li>
+ *     <li>{@link StatementHandler#query(Statement, ResultHandler)}</li>
+ *     <li>{@link StatementHandler#queryCursor(Statement)}</li>
+ * </ul>
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   public class SlowStatementHandlerFilter implements StatementHandlerFilter {
+ *
+ *       @Override
+ *       public <E> List<E> query(Statement statement, ResultHandler resultHandler,
+ *               StatementHandlerFilterChain chain) throws SQLException {
+ *           long start = System.nanoTime();
+ *           List<E> result = chain.query(statement, resultHandler);
+ *           System.out.println(chain.getMappedStatement().getId() + " took " + (System.nanoTime() - start) + " ns");
+ *           return result;
+ *       }
+ *   }
+ *
+ *   // Register via InterceptingStatementHandlerInterceptor
+ *   StatementHandlerFilter filter = new SlowStatementHandlerFilter();
+ *   configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(filter));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementHandler
+ * @see StatementHandlerFilterChain
+ * @since 1.0.0
+ */
+public interface StatementHandlerFilter extends Prioritized {
+
+    /**
+     * Filter {@link StatementHandler#prepare(Connection, Integer)}
+     *
+     * @param connection         {@link Connection}
+     * @param transactionTimeout the timeout of transaction
+     * @param chain              {@link StatementHandlerFilterChain}
+     * @return the prepared {@link Statement}
+     * @throws SQLException
+     */
+    default Statement prepare(Connection connection, Integer transactionTimeout, StatementHandlerFilterChain chain)
+            throws SQLException {
+        return chain.prepare(connection, transactionTimeout);
+    }
+
+    /**
+     * Filter {@link StatementHandler#parameterize(Statement)}
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link StatementHandlerFilterChain}
+     * @throws SQLException
+     */
+    default void parameterize(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        chain.parameterize(statement);
+    }
+
+    /**
+     * Filter {@link StatementHandler#batch(Statement)}
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link StatementHandlerFilterChain}
+     * @throws SQLException
+     */
+    default void batch(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        chain.batch(statement);
+    }
+
+    /**
+     * Filter {@link StatementHandler#update(Statement)}
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link StatementHandlerFilterChain}
+     * @return the number of rows affected
+     * @throws SQLException
+     */
+    default int update(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        return chain.update(statement);
+    }
+
+    /**
+     * Filter {@link StatementHandler#query(Statement, ResultHandler)}
+     *
+     * @param statement     {@link Statement}
+     * @param resultHandler {@link ResultHandler}
+     * @param chain         {@link StatementHandlerFilterChain}
+     * @param <E>           the type of multiple elements
+     * @return
+     * @throws SQLException
+     */
+    default <E> List<E> query(Statement statement, ResultHandler resultHandler, StatementHandlerFilterChain chain)
+            throws SQLException {
+        return chain.query(statement, resultHandler);
+    }
+
+    /**
+     * Filter {@link StatementHandler#queryCursor(Statement)}
+     *
+     * @param statement {@link Statement}
+     * @param chain     {@link StatementHandlerFilterChain}
+     * @param <E>       the type of multiple elements
+     * @return
+     * @throws SQLException
+     */
+    default <E> Cursor<E> queryCursor(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        return chain.queryCursor(statement);
+    }
+}
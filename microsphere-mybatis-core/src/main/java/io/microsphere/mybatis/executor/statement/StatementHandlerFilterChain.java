@@ -0,0 +1,307 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.annotation.Nonnull;
+import io.microsphere.annotation.Nullable;
+import io.microsphere.lang.function.ThrowableConsumer;
+import io.microsphere.lang.function.ThrowableFunction;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import static io.microsphere.util.ArrayUtils.length;
+import static io.microsphere.util.Assert.assertNotEmpty;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.ExceptionUtils.wrap;
+import static java.lang.System.nanoTime;
+
+/**
+ * The chain of {@link StatementHandlerFilter}
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Build a chain manually (normally done by InterceptingStatementHandler)
+ *   StatementHandler delegate = configuration.newStatementHandler(executor, ms, parameter, rowBounds, null, boundSql);
+ *   StatementHandlerFilterChain chain = new StatementHandlerFilterChain(delegate, null, filter);
+ *
+ *   // Prepare the Statement through the filter chain
+ *   Statement statement = chain.prepare(connection, null);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementHandler
+ * @see StatementHandlerFilter
+ * @since 1.0.0
+ */
+public class StatementHandlerFilterChain {
+
+    private final StatementHandler statementHandler;
+
+    @Nullable
+    private final Properties properties;
+
+    private final StatementHandlerFilter[] filters;
+
+    private final int size;
+
+    private final long creationNanoTime;
+
+    private int position;
+
+    private MappedStatement mappedStatement;
+
+    /**
+     * Construct a new {@link StatementHandlerFilterChain}.
+     *
+     * @param statementHandler the target {@link StatementHandler} invoked after all filters; must not be {@code null}
+     * @param properties       optional {@link Properties}; may be {@code null}
+     * @param filters          one or more {@link StatementHandlerFilter} instances; must not be empty
+     */
+    public StatementHandlerFilterChain(StatementHandler statementHandler, @Nullable Properties properties,
+                                       StatementHandlerFilter... filters) {
+        this(statementHandler, properties, nanoTime(), filters);
+    }
+
+    /**
+     * Construct a new {@link StatementHandlerFilterChain}.
+     *
+     * @param statementHandler the target {@link StatementHandler} invoked after all filters; must not be {@code null}
+     * @param properties       optional {@link Properties}; may be {@code null}
+     * @param creationNanoTime the {@link System#nanoTime() nano time} when the {@link StatementHandler} was created
+     * @param filters          one or more {@link StatementHandlerFilter} instances; must not be empty
+     */
+    public StatementHandlerFilterChain(StatementHandler statementHandler, @Nullable Properties properties,
+                                       long creationNanoTime, StatementHandlerFilter... filters) {
+        assertNotNull(statementHandler, () -> "The 'statementHandler' must not be null!");
+        assertNotEmpty(filters, () -> "The 'filters' must not be empty!");
+        this.statementHandler = statementHandler;
+        this.properties = properties;
+        this.filters = filters;
+        this.size = length(filters);
+        this.creationNanoTime = creationNanoTime;
+        this.position = 0;
+    }
+
+    /**
+     * Execute {@link StatementHandler#prepare(Connection, Integer)} through the filter chain.
+     *
+     * @param connection         {@link Connection}
+     * @param transactionTimeout the timeout of transaction
+     * @return the prepared {@link Statement}
+     * @throws SQLException if the preparation fails
+     */
+    public Statement prepare(Connection connection, Integer transactionTimeout) throws SQLException {
+        return apply(f -> f.prepare(connection, transactionTimeout, this),
+                h -> h.prepare(connection, transactionTimeout));
+    }
+
+    /**
+     * Execute {@link StatementHandler#parameterize(Statement)} through the filter chain.
+     *
+     * @param statement {@link Statement}
+     * @throws SQLException if the parameterization fails
+     */
+    public void parameterize(Statement statement) throws SQLException {
+        consume(f -> f.parameterize(statement, this), h -> h.parameterize(statement));
+    }
+
+    /**
+     * Execute {@link StatementHandler#batch(Statement)} through the filter chain.
+     *
+     * @param statement {@link Statement}
+     * @throws SQLException if the batch fails
+     */
+    public void batch(Statement statement) throws SQLException {
+        consume(f -> f.batch(statement, this), h -> h.batch(statement));
+    }
+
+    /**
+     * Execute {@link StatementHandler#update(Statement)} through the filter chain.
+     *
+     * @param statement {@link Statement}
+     * @return the number of rows affected
+     * @throws SQLException if the update fails
+     */
+    public int update(Statement statement) throws SQLException {
+        return apply(f -> f.update(statement, this), h -> h.update(statement));
+    }
+
+    /**
+     * Execute {@link StatementHandler#query(Statement, ResultHandler)} through the filter chain.
+     *
+     * @param statement     {@link Statement}
+     * @param resultHandler {@link ResultHandler}
+     * @param <E>           the element type of the result list
+     * @return the result list
+     * @throws SQLException if the query fails
+     */
+    public <E> List<E> query(Statement statement, ResultHandler resultHandler) throws SQLException {
+        return apply(f -> f.query(statement, resultHandler, this), h -> h.query(statement, resultHandler));
+    }
+
+    /**
+     * Execute {@link StatementHandler#queryCursor(Statement)} through the filter chain.
+     *
+     * @param statement {@link Statement}
+     * @param <E>       the element type of the cursor
+     * @return the {@link Cursor}
+     * @throws SQLException if the query fails
+     */
+    public <E> Cursor<E> queryCursor(Statement statement) throws SQLException {
+        return apply(f -> f.queryCursor(statement, this), h -> h.queryCursor(statement));
+    }
+
+    /**
+     * Consume (void) a {@link StatementHandlerFilter} operation, falling back to the {@link StatementHandler} when
+     * no more filters remain.
+     *
+     * @param filterConsumer  consumer applied to the next {@link StatementHandlerFilter}
+     * @param handlerConsumer consumer applied to the delegate {@link StatementHandler} at the end of the chain
+     * @throws SQLException if either consumer throws a {@link SQLException}
+     */
+    protected void consume(ThrowableConsumer<StatementHandlerFilter> filterConsumer,
+                           ThrowableConsumer<StatementHandler> handlerConsumer) throws SQLException {
+        apply(f -> {
+            filterConsumer.accept(f);
+            return null;
+        }, h -> {
+            handlerConsumer.accept(h);
+            return null;
+        });
+    }
+
+    /**
+     * Core routing method: if there is a next filter it is invoked, otherwise the delegate
+     * {@link StatementHandler} is called.  Any non-{@link SQLException} is wrapped into a {@link SQLException}.
+     *
+     * @param filterFunction  function applied to the next {@link StatementHandlerFilter}
+     * @param handlerFunction function applied to the delegate {@link StatementHandler} at the end of the chain
+     * @param <R>             the return type
+     * @return the result
+     * @throws SQLException if either function throws
+     */
+    protected <R> R apply(ThrowableFunction<StatementHandlerFilter, R> filterFunction,
+                          ThrowableFunction<StatementHandler, R> handlerFunction) throws SQLException {
+        final R result;
+        try {
+            if (position < size) {
+                result = filterFunction.apply(filters[position++]);
+            } else {
+                result = handlerFunction.apply(this.statementHandler);
+            }
+        } catch (Throwable failure) {
+            throw wrap(failure, SQLException.class);
+        }
+        return result;
+    }
+
+    /**
+     * Get the {@link StatementHandler}
+     *
+     * @return non-null
+     */
+    @Nonnull
+    public StatementHandler getStatementHandler() {
+        return this.statementHandler;
+    }
+
+    /**
+     * Get the {@link MappedStatement} of the {@link StatementHandler}
+     *
+     * @return <code>null</code> if it can't be resolved
+     * @see StatementHandlers#getMappedStatement(StatementHandler)
+     */
+    @Nullable
+    public MappedStatement getMappedStatement() {
+        MappedStatement mappedStatement = this.mappedStatement;
+        if (mappedStatement == null) {
+            mappedStatement = StatementHandlers.getMappedStatement(this.statementHandler);
+            this.mappedStatement = mappedStatement;
+        }
+        return mappedStatement;
+    }
+
+    /**
+     * Get the reference of {@link Interceptor#setProperties(Properties)}
+     *
+     * @return <code>null</code> if {@link Interceptor#setProperties(Properties)} was not set
+     */
+    @Nullable
+    public Properties getProperties() {
+        return this.properties;
+    }
+
+    /**
+     * Get the copy of {@link StatementHandlerFilter filters}
+     *
+     * @return non-null
+     */
+    @Nonnull
+    public StatementHandlerFilter[] getFilters() {
+        return this.filters.clone();
+    }
+
+    /**
+     * Get the size of {@link StatementHandlerFilter filters}
+     *
+     * @return positive integer(exclude 0)
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Get the {@link System#nanoTime() nano time} when the {@link StatementHandler} was created, the {@link Executor}
+     * acquires the {@link Connection} between the creation and {@link #prepare(Connection, Integer) the preparation}.
+     *
+     * @return the {@link System#nanoTime() nano time}
+     */
+    public long getCreationNanoTime() {
+        return this.creationNanoTime;
+    }
+
+    /**
+     * Get the current position of {@link StatementHandlerFilter filters}
+     *
+     * @return positive integer(include 0)
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementHandlerFilterChain{" +
+                "statementHandler=" + this.statementHandler +
+                ", properties=" + this.properties +
+                ", filters=" + Arrays.toString(this.filters) +
+                ", size=" + this.size +
+                ", position=" + this.position +
+                '}';
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.executor.statement.BaseStatementHandler;
+import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Plugin;
+
+import java.lang.reflect.Field;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.plugin.Plugins.getPlugin;
+import static io.microsphere.reflect.FieldUtils.getFieldValue;
+
+/**
+ * The utilities class for {@link StatementHandler}
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   StatementHandler handler = configuration.newStatementHandler(executor, ms, parameter, rowBounds, null, boundSql);
+ *   MappedStatement mappedStatement = StatementHandlers.getMappedStatement(handler);
+ *   // mappedStatement == ms
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementHandler
+ * @see RoutingStatementHandler
+ * @see BaseStatementHandler
+ * @since 1.0.0
+ */
+public abstract class StatementHandlers {
+
+    private static final Logger logger = getLogger(StatementHandlers.class);
+
+    /**
+     * The {@link Field} of {@link BaseStatementHandler#mappedStatement}
+     */
+    private static final Field MAPPED_STATEMENT_FIELD = findField(BaseStatementHandler.class, "mappedStatement");
+
+    /**
+     * Get the {@link MappedStatement} from the specified {@link StatementHandler}, the {@link InterceptingStatementHandler},
+     * the {@link Plugin plugin proxy} and {@link RoutingStatementHandler} will be unwrapped.
+     *
+     * @param statementHandler {@link StatementHandler}
+     * @return <code>null</code> if the {@link MappedStatement} can't be resolved
+     */
+    @Nullable
+    public static MappedStatement getMappedStatement(StatementHandler statementHandler) {
+        StatementHandler target = unwrap(statementHandler);
+        if (target instanceof BaseStatementHandler && MAPPED_STATEMENT_FIELD != null) {
+            try {
+                return (MappedStatement) MAPPED_STATEMENT_FIELD.get(target);
+            } catch (IllegalAccessException e) {
+                logger.warn("The MappedStatement can't be resolved from the StatementHandler : {}", target, e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Unwrap the specified {@link StatementHandler} to be the underlying one
+     *
+     * @param statementHandler {@link StatementHandler}
+     * @return the underlying {@link StatementHandler} if found, or the specified one
+     */
+    public static StatementHandler unwrap(StatementHandler statementHandler) {
+        StatementHandler target = statementHandler;
+        while (true) {
+            if (target instanceof InterceptingStatementHandler interceptingStatementHandler) {
+                target = interceptingStatementHandler.getDelegate();
+            } else if (target instanceof RoutingStatementHandler) {
+                target = getFieldValue(target, "delegate");
+            } else {
+                Plugin plugin = getPlugin(target);
+                if (plugin == null) {
+                    break;
+                }
+                target = getFieldValue(plugin, "target");
+            }
+        }
+        return target;
+    }
+
+    private static Field findField(Class<?> declaringClass, String name) {
+        try {
+            Field field = declaringClass.getDeclaredField(name);
+            field.setAccessible(true);
+            return field;
+        } catch (Throwable e) {
+            logger.warn("The field[name : '{}'] can't be found in the class : {}", name, declaringClass.getName(), e);
+            return null;
+        }
+    }
+
+    private StatementHandlers() {
+    }
+}
@@ -16,11 +16,14 @@
  */
 package io.microsphere.mybatis.plugin;
 
+import io.microsphere.annotation.Nullable;
 import io.microsphere.logging.Logger;
 import io.microsphere.mybatis.executor.ExecutorFilter;
+import io.microsphere.mybatis.executor.ExecutorFilterPlacement;
 import io.microsphere.mybatis.executor.ExecutorInterceptor;
 import io.microsphere.mybatis.executor.InterceptingExecutor;
 import io.microsphere.mybatis.executor.InterceptorsExecutorFilterAdapter;
+import org.apache.ibatis.executor.BaseExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.plugin.Interceptor;
@@ -29,12 +32,17 @@ import org.apache.ibatis.plugin.Invocation;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.function.Predicate;
 
 import static io.microsphere.collection.MapUtils.isNotEmpty;
 import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.BOTH;
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.INSIDE;
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.OUTSIDE;
 import static io.microsphere.mybatis.executor.Executors.getDelegate;
 import static io.microsphere.util.ArrayUtils.length;
 import static io.microsphere.util.Assert.assertNoNullElements;
+import static io.microsphere.util.Assert.assertNotNull;
 import static io.microsphere.util.Assert.assertTrue;
 import static io.microsphere.util.PriorityComparator.INSTANCE;
 import static java.lang.System.arraycopy;
@@ -66,6 +74,10 @@ public class InterceptingExecutorInterceptor implements Interceptor {
 
     private final ExecutorFilter[] executorFilters;
 
+    private final ExecutorFilter[] insideExecutorFilters;
+
+    private final ExecutorFilter[] outsideExecutorFilters;
+
     private Properties properties;
 
     /**
@@ -78,11 +90,38 @@ public class InterceptingExecutorInterceptor implements Interceptor {
      * @throws IllegalArgumentException if both arrays are empty or any element is {@code null}
      */
     public InterceptingExecutorInterceptor(ExecutorFilter[] executorFilters, ExecutorInterceptor... executorInterceptors) {
+        this(executorFilters, INSIDE, executorInterceptors);
+    }
+
+    /**
+     * Constructor with {@link ExecutorFilter} array, the placement of {@link ExecutorInterceptor} instances and
+     * optional {@link ExecutorInterceptor} instances.
+     *
+     * <h3>Example Usage</h3>
+     * <pre>{@code
+     *   // the interceptors wrap the CachingExecutor to observe the hits of the second-level cache
+     *   InterceptingExecutorInterceptor interceptor = new InterceptingExecutorInterceptor(new ExecutorFilter[0],
+     *       ExecutorFilterPlacement.OUTSIDE, new SqlFingerprintExecutorInterceptor());
+     * }</pre>
+     *
+     * @param executorFilters               the array of {@link ExecutorFilter} instances; must not be empty when no
+     *                                      {@code executorInterceptors} are provided
+     * @param executorInterceptorsPlacement the {@link ExecutorFilterPlacement placement} of the
+     *                                      {@link ExecutorInterceptor} instances
+     * @param executorInterceptors          optional {@link ExecutorInterceptor} instances; at least one filter or
+     *                                      interceptor must be supplied
+     * @throws IllegalArgumentException if both arrays are empty, any element is {@code null}, or the placement is
+     *                                  {@code null}
+     */
+    public InterceptingExecutorInterceptor(ExecutorFilter[] executorFilters,
+                                           ExecutorFilterPlacement executorInterceptorsPlacement,
+                                           ExecutorInterceptor... executorInterceptors) {
         int executorFiltersCount = length(executorFilters);
         int executorInterceptorsCount = length(executorInterceptors);
         boolean hasExecutorInterceptors = executorInterceptorsCount > 0;
         assertTrue(executorFiltersCount > 0 || hasExecutorInterceptors, () -> "No filter or interceptor for Executor");
         assertNoNullElements(executorFilters, () -> "Any element of filters must not be null!");
+        assertNotNull(executorInterceptorsPlacement, () -> "The 'executorInterceptorsPlacement' must not be null");
 
         int size = hasExecutorInterceptors ? executorFiltersCount + 1 : executorFiltersCount;
         ExecutorFilter[] allExecutorFilters = new ExecutorFilter[size];
@@ -90,12 +129,15 @@ public class InterceptingExecutorInterceptor implements Interceptor {
         arraycopy(executorFilters, 0, allExecutorFilters, 0, executorFiltersCount);
 
         if (hasExecutorInterceptors) {
-            allExecutorFilters[executorFiltersCount] = new InterceptorsExecutorFilterAdapter(executorInterceptors);
+            allExecutorFilters[executorFiltersCount] = new InterceptorsExecutorFilterAdapter(executorInterceptors,
+                    executorInterceptorsPlacement);
         }
         // sort by its priority
         sort(allExecutorFilters, INSTANCE);
 
         this.executorFilters = allExecutorFilters;
+        this.insideExecutorFilters = filter(allExecutorFilters, ExecutorFilterPlacement::isInside);
+        this.outsideExecutorFilters = filter(allExecutorFilters, ExecutorFilterPlacement::isOutside);
     }
 
     /**
@@ -117,6 +159,13 @@ public class InterceptingExecutorInterceptor implements Interceptor {
      * Wraps the target {@link Executor} in an {@link InterceptingExecutor} so that all registered
      * {@link ExecutorFilter} and {@link ExecutorInterceptor} instances are applied.  Non-{@link Executor}
      * targets are returned unchanged.
+     * <p>
+     * If the target is a {@link CachingExecutor}, the filters are installed by their
+     * {@link ExecutorFilter#getPlacement() placements}: the {@link ExecutorFilterPlacement#INSIDE inside} ones are
+     * wrapped by the {@link CachingExecutor}, and the {@link ExecutorFilterPlacement#OUTSIDE outside} ones wrap the
+     * {@link CachingExecutor}, the filters of the previous {@link InterceptingExecutor} on the same side will be merged.
+     * Otherwise, all filters are installed into a single {@link InterceptingExecutor} whose placement is
+     * {@link ExecutorFilterPlacement#BOTH}.
      *
      * <h3>Example Usage</h3>
      * <pre>{@code
@@ -133,42 +182,74 @@ public class InterceptingExecutorInterceptor implements Interceptor {
     @Override
     public Object plugin(Object target) {
         if (target instanceof Executor executor) {
-
-            boolean isCachingExecutor = executor instanceof CachingExecutor;
-            Executor delegate = executor;
-            if (isCachingExecutor) {
-                CachingExecutor cachingExecutor = (CachingExecutor) executor;
-                delegate = getDelegate(cachingExecutor);
+            InterceptingExecutor previousOutsideExecutor = null;
+            if (executor instanceof InterceptingExecutor previous && previous.getPlacement() == OUTSIDE
+                    && previous.getDelegate() instanceof CachingExecutor) {
+                previousOutsideExecutor = previous;
+                executor = previous.getDelegate();
             }
+            if (executor instanceof CachingExecutor cachingExecutor) {
+                return plugin(cachingExecutor, previousOutsideExecutor);
+            }
+            InterceptingExecutor previousExecutor = executor instanceof InterceptingExecutor previous ? previous : null;
+            Executor delegate = previousExecutor == null ? executor : previousExecutor.getDelegate();
+            return intercept(delegate, previousExecutor, BOTH, this.executorFilters);
+        }
+        logger.trace("The non-executor [{}] instance simply returns without any dynamic proxy interception", target);
+        return target;
+    }
 
-            Properties newProperties = new Properties();
-            ExecutorFilter[] executorFilters = this.executorFilters;
-
-            if (delegate instanceof InterceptingExecutor previousInterceptingExecutor) {
-                List<ExecutorFilter> newExecutorFiltersList = new LinkedList<>();
-                delegate = previousInterceptingExecutor.getDelegate();
-                // merge Properties
-                Properties previousProperties = previousInterceptingExecutor.getProperties();
-                if (isNotEmpty(previousProperties)) {
-                    newProperties.putAll(previousProperties);
-                }
-
-                // merge ExecutorFilters
-                addAll(newExecutorFiltersList, previousInterceptingExecutor.getExecutorFilters());
-                addAll(newExecutorFiltersList, executorFilters);
-                executorFilters = newExecutorFiltersList.toArray(new ExecutorFilter[0]);
+    private Executor plugin(CachingExecutor cachingExecutor, @Nullable InterceptingExecutor previousOutsideExecutor) {
+        CachingExecutor newCachingExecutor = cachingExecutor;
+        if (insideExecutorFilters.length > 0) {
+            Executor delegate = getDelegate(cachingExecutor);
+            InterceptingExecutor previousInsideExecutor = delegate instanceof InterceptingExecutor previous ? previous : null;
+            if (previousInsideExecutor != null) {
+                delegate = previousInsideExecutor.getDelegate();
             }
+            // CachingExecutor sets itself as the wrapper of the delegate
+            newCachingExecutor = new CachingExecutor(intercept(delegate, previousInsideExecutor, INSIDE,
+                    insideExecutorFilters));
+        }
+        if (outsideExecutorFilters.length == 0 && previousOutsideExecutor == null) {
+            return newCachingExecutor;
+        }
+        InterceptingExecutor outsideExecutor = intercept(newCachingExecutor, previousOutsideExecutor, OUTSIDE,
+                outsideExecutorFilters);
+        // the nested queries start from the outermost executor
+        getDelegate(newCachingExecutor).setExecutorWrapper(outsideExecutor);
+        return outsideExecutor;
+    }
 
-            if (isNotEmpty(this.properties)) {
-                newProperties.putAll(this.properties);
+    private InterceptingExecutor intercept(Executor delegate, @Nullable InterceptingExecutor previousExecutor,
+                                           ExecutorFilterPlacement placement, ExecutorFilter[] executorFilters) {
+        Properties newProperties = new Properties();
+        if (previousExecutor != null) {
+            // merge Properties
+            Properties previousProperties = previousExecutor.getProperties();
+            if (isNotEmpty(previousProperties)) {
+                newProperties.putAll(previousProperties);
             }
-            newProperties = newProperties.isEmpty() ? null : newProperties;
 
-            InterceptingExecutor interceptingExecutor = new InterceptingExecutor(delegate, newProperties, executorFilters);
-            return isCachingExecutor ? new CachingExecutor(interceptingExecutor) : interceptingExecutor;
+            // merge ExecutorFilters
+            List<ExecutorFilter> newExecutorFiltersList = new LinkedList<>();
+            addAll(newExecutorFiltersList, previousExecutor.getExecutorFilters());
+            addAll(newExecutorFiltersList, executorFilters);
+            executorFilters = newExecutorFiltersList.toArray(new ExecutorFilter[0]);
         }
-        logger.trace("The non-executor [{}] instance simply returns without any dynamic proxy interception", target);
-        return target;
+
+        if (isNotEmpty(this.properties)) {
+            newProperties.putAll(this.properties);
+        }
+        newProperties = newProperties.isEmpty() ? null : newProperties;
+
+        InterceptingExecutor interceptingExecutor = new InterceptingExecutor(delegate, newProperties, placement,
+                executorFilters);
+        if (placement == BOTH && delegate instanceof BaseExecutor) {
+            // the nested queries pass through the filters
+            delegate.setExecutorWrapper(interceptingExecutor);
+        }
+        return interceptingExecutor;
     }
 
     /**
@@ -182,4 +263,24 @@ public class InterceptingExecutorInterceptor implements Interceptor {
         this.properties = properties;
         logger.trace("setProperties : {}", properties);
     }
+
+    /**
+     * Get the sorted {@link ExecutorFilter filters}, including the adapter of {@link ExecutorInterceptor interceptors}
+     *
+     * @return non-null
+     */
+    public ExecutorFilter[] getExecutorFilters() {
+        return executorFilters.clone();
+    }
+
+    private static ExecutorFilter[] filter(ExecutorFilter[] executorFilters, Predicate<ExecutorFilterPlacement> predicate) {
+        List<ExecutorFilter> filteredExecutorFilters = new LinkedList<>();
+        for (ExecutorFilter executorFilter : executorFilters) {
+            ExecutorFilterPlacement placement = executorFilter.getPlacement();
+            if (predicate.test(placement == null ? INSIDE : placement)) {
+                filteredExecutorFilters.add(executorFilter);
+            }
+        }
+        return filteredExecutorFilters.toArray(new ExecutorFilter[0]);
+    }
 }
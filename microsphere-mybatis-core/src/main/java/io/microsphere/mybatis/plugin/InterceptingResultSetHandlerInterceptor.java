@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.plugin;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.executor.resultset.InterceptingResultSetHandler;
+import io.microsphere.mybatis.executor.resultset.ResultSetHandlerFilter;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+
+import java.util.Properties;
+
+import static io.microsphere.collection.MapUtils.isNotEmpty;
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.mybatis.executor.resultset.InterceptingResultSetHandler.hasRowFilter;
+import static io.microsphere.util.Assert.assertNoNullElements;
+import static io.microsphere.util.Assert.assertNotEmpty;
+import static io.microsphere.util.PriorityComparator.INSTANCE;
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.sort;
+
+/**
+ * {@link Interceptor} class for {@link ResultSetHandler} delegates to {@link ResultSetHandlerFilter} instances
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Create an interceptor with filters
+ *   ResultSetHandlerFilter filter = new RowsLimitResultSetHandlerFilter();
+ *   InterceptingResultSetHandlerInterceptor interceptor = new InterceptingResultSetHandlerInterceptor(filter);
+ *
+ *   // Register the interceptor as a MyBatis plugin
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Interceptor
+ * @see InterceptingResultSetHandler
+ * @see ResultSetHandlerFilter
+ * @since 1.0.0
+ */
+public class InterceptingResultSetHandlerInterceptor implements Interceptor {
+
+    private static final Logger logger = getLogger(InterceptingResultSetHandlerInterceptor.class);
+
+    private final ResultSetHandlerFilter[] filters;
+
+    private final boolean rowFiltering;
+
+    private Properties properties;
+
+    /**
+     * Constructor with {@link ResultSetHandlerFilter} instances.
+     *
+     * @param filters the {@link ResultSetHandlerFilter} instances; must not be empty
+     * @throws IllegalArgumentException if the array is empty or any element is {@code null}
+     */
+    public InterceptingResultSetHandlerInterceptor(ResultSetHandlerFilter... filters) {
+        assertNotEmpty(filters, () -> "No filter for ResultSetHandler");
+        assertNoNullElements(filters, () -> "Any element of filters must not be null!");
+        ResultSetHandlerFilter[] sortedFilters = filters.clone();
+        // sort by its priority
+        sort(sortedFilters, INSTANCE);
+        this.filters = sortedFilters;
+        this.rowFiltering = hasRowFilter(sortedFilters);
+    }
+
+    /**
+     * This method should not be called directly; it logs a warning and delegates to
+     * {@link Invocation#proceed()}.  The actual interception is performed by
+     * {@link #plugin(Object)} which wraps the {@link ResultSetHandler} in an {@link InterceptingResultSetHandler}.
+     *
+     * @param invocation the {@link Invocation}
+     * @return the result of {@link Invocation#proceed()}
+     * @throws Throwable any exception thrown by the downstream invocation
+     */
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        logger.warn("The intercept method should not be invoked : {}", invocation);
+        return invocation.proceed();
+    }
+
+    /**
+     * Wraps the target {@link ResultSetHandler} in an {@link InterceptingResultSetHandler} so that all registered
+     * {@link ResultSetHandlerFilter} instances are applied, the filters of the previous
+     * {@link InterceptingResultSetHandler} will be merged. Non-{@link ResultSetHandler} targets are returned unchanged.
+     *
+     * @param target the MyBatis component (e.g. {@link ResultSetHandler}) to potentially wrap
+     * @return the wrapped {@link InterceptingResultSetHandler}, or {@code target} unchanged when it is not a
+     * {@link ResultSetHandler}
+     */
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof ResultSetHandler resultSetHandler) {
+            ResultSetHandler delegate = resultSetHandler;
+            ResultSetHandlerFilter[] filters = this.filters;
+            boolean rowFiltering = this.rowFiltering;
+            Properties newProperties = null;
+
+            if (delegate instanceof InterceptingResultSetHandler previousInterceptingResultSetHandler) {
+                delegate = previousInterceptingResultSetHandler.getDelegate();
+                // merge Properties
+                Properties previousProperties = previousInterceptingResultSetHandler.getProperties();
+                if (isNotEmpty(previousProperties)) {
+                    newProperties = new Properties();
+                    newProperties.putAll(previousProperties);
+                }
+                // merge ResultSetHandlerFilters
+                ResultSetHandlerFilter[] previousFilters = previousInterceptingResultSetHandler.getFilters();
+                ResultSetHandlerFilter[] newFilters = new ResultSetHandlerFilter[previousFilters.length + filters.length];
+                arraycopy(previousFilters, 0, newFilters, 0, previousFilters.length);
+                arraycopy(filters, 0, newFilters, previousFilters.length, filters.length);
+                filters = newFilters;
+                rowFiltering |= previousInterceptingResultSetHandler.isRowFiltering();
+            }
+
+            if (isNotEmpty(this.properties)) {
+                if (newProperties == null) {
+                    newProperties = new Properties();
+                }
+                newProperties.putAll(this.properties);
+            }
+            return new InterceptingResultSetHandler(delegate, newProperties, rowFiltering, filters);
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("The non-ResultSetHandler [{}] instance simply returns without any interception", target);
+        }
+        return target;
+    }
+
+    /**
+     * Stores the given {@link Properties} so they can later be made available to filters via
+     * {@link io.microsphere.mybatis.executor.resultset.ResultSetHandlerFilterChain#getProperties()}.
+     *
+     * @param properties the {@link Properties} set by the MyBatis configuration; may be {@code null}
+     */
+    @Override
+    public void setProperties(Properties properties) {
+        this.properties = properties;
+        logger.trace("setProperties : {}", properties);
+    }
+
+    /**
+     * Get the sorted {@link ResultSetHandlerFilter filters}
+     *
+     * @return non-null
+     */
+    public ResultSetHandlerFilter[] getFilters() {
+        return filters.clone();
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.plugin;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.executor.statement.InterceptingStatementHandler;
+import io.microsphere.mybatis.executor.statement.StatementHandlerFilter;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
+
+import java.util.Properties;
+
+import static io.microsphere.collection.MapUtils.isNotEmpty;
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertNoNullElements;
+import static io.microsphere.util.Assert.assertNotEmpty;
+import static io.microsphere.util.PriorityComparator.INSTANCE;
+import static java.lang.System.arraycopy;
+import static java.util.Arrays.sort;
+
+/**
+ * {@link Interceptor} class for {@link StatementHandler} delegates to {@link StatementHandlerFilter} instances
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Create an interceptor with filters
+ *   StatementHandlerFilter filter = new MyStatementHandlerFilter();
+ *   InterceptingStatementHandlerInterceptor interceptor = new InterceptingStatementHandlerInterceptor(filter);
+ *
+ *   // Register the interceptor as a MyBatis plugin
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see Interceptor
+ * @see InterceptingStatementHandler
+ * @see StatementHandlerFilter
+ * @since 1.0.0
+ */
+public class InterceptingStatementHandlerInterceptor implements Interceptor {
+
+    private static final Logger logger = getLogger(InterceptingStatementHandlerInterceptor.class);
+
+    private final StatementHandlerFilter[] filters;
+
+    private Properties properties;
+
+    /**
+     * Constructor with {@link StatementHandlerFilter} instances.
+     *
+     * @param filters the {@link StatementHandlerFilter} instances; must not be empty
+     * @throws IllegalArgumentException if the array is empty or any element is {@code null}
+     */
+    public InterceptingStatementHandlerInterceptor(StatementHandlerFilter... filters) {
+        assertNotEmpty(filters, () -> "No filter for StatementHandler");
+        assertNoNullElements(filters, () -> "Any element of filters must not be null!");
+        StatementHandlerFilter[] sortedFilters = filters.clone();
+        // sort by its priority
+        sort(sortedFilters, INSTANCE);
+        this.filters = sortedFilters;
+    }
+
+    /**
+     * This method should not be called directly; it logs a warning and delegates to
+     * {@link Invocation#proceed()}.  The actual interception is performed by
+     * {@link #plugin(Object)} which wraps the {@link StatementHandler} in an {@link InterceptingStatementHandler}.
+     *
+     * @param invocation the {@link Invocation}
+     * @return the result of {@link Invocation#proceed()}
+     * @throws Throwable any exception thrown by the downstream invocation
+     */
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        logger.warn("The intercept method should not be invoked : {}", invocation);
+        return invocation.proceed();
+    }
+
+    /**
+     * Wraps the target {@link StatementHandler} in an {@link InterceptingStatementHandler} so that all registered
+     * {@link StatementHandlerFilter} instances are applied, the filters of the previous
+     * {@link InterceptingStatementHandler} will be merged. Non-{@link StatementHandler} targets are returned unchanged.
+     *
+     * @param target the MyBatis component (e.g. {@link StatementHandler}) to potentially wrap
+     * @return the wrapped {@link InterceptingStatementHandler}, or {@code target} unchanged when it is not a
+     * {@link StatementHandler}
+     */
+    @Override
+    public Object plugin(Object target) {
+        if (target instanceof StatementHandler statementHandler) {
+            StatementHandler delegate = statementHandler;
+            StatementHandlerFilter[] filters = this.filters;
+            Properties newProperties = null;
+
+            if (delegate instanceof InterceptingStatementHandler previousInterceptingStatementHandler) {
+                delegate = previousInterceptingStatementHandler.getDelegate();
+                // merge Properties
+                Properties previousProperties = previousInterceptingStatementHandler.getProperties();
+                if (isNotEmpty(previousProperties)) {
+                    newProperties = new Properties();
+                    newProperties.putAll(previousProperties);
+                }
+                // merge StatementHandlerFilters
+                StatementHandlerFilter[] previousFilters = previousInterceptingStatementHandler.getFilters();
+                StatementHandlerFilter[] newFilters = new StatementHandlerFilter[previousFilters.length + filters.length];
+                arraycopy(previousFilters, 0, newFilters, 0, previousFilters.length);
+                arraycopy(filters, 0, newFilters, previousFilters.length, filters.length);
+                filters = newFilters;
+            }
+
+            if (isNotEmpty(this.properties)) {
+                if (newProperties == null) {
+                    newProperties = new Properties();
+                }
+                newProperties.putAll(this.properties);
+            }
+            return new InterceptingStatementHandler(delegate, newProperties, filters);
+        }
+        if (logger.isTraceEnabled()) {
+            logger.trace("The non-StatementHandler [{}] instance simply returns without any interception", target);
+        }
+        return target;
+    }
+
+    /**
+     * Stores the given {@link Properties} so they can later be made available to filters via
+     * {@link io.microsphere.mybatis.executor.statement.StatementHandlerFilterChain#getProperties()}.
+     *
+     * @param properties the {@link Properties} set by the MyBatis configuration; may be {@code null}
+     */
+    @Override
+    public void setProperties(Properties properties) {
+        this.properties = properties;
+        logger.trace("setProperties : {}", properties);
+    }
+
+    /**
+     * Get the sorted {@link StatementHandlerFilter filters}
+     *
+     * @return non-null
+     */
+    public StatementHandlerFilter[] getFilters() {
+        return filters.clone();
+    }
+}
@@ -0,0 +1,653 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.scripting;
+
+import io.microsphere.annotation.Nullable;
+import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.OgnlCache;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.Character.isDigit;
+import static java.lang.Character.isJavaIdentifierPart;
+import static java.lang.Character.isJavaIdentifierStart;
+import static java.lang.Character.isWhitespace;
+import static java.lang.Character.toUpperCase;
+import static java.lang.invoke.MethodHandles.publicLookup;
+import static java.lang.invoke.MethodType.methodType;
+import static java.lang.reflect.Modifier.isPublic;
+import static java.lang.reflect.Modifier.isStatic;
+import static java.util.Arrays.copyOf;
+
+/**
+ * The OGNL expression compiled into the tree of evaluators, which accesses the properties by the {@link MethodHandle
+ * MethodHandles} of the public getters instead of the OGNL interpretation. The subset of OGNL is supported:
+ * <ul>
+ *     <li>the property paths, e.g. <code>user.name</code>, and the zero-argument methods, e.g. <code>list.size()</code></li>
+ *     <li>the literals : <code>null</code>, <code>true</code>, <code>false</code>, the integers, the decimals and
+ *     the strings (except the single-quoted single character which is a char in OGNL)</li>
+ *     <li>the comparisons : <code>==</code>, <code>!=</code>, <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code>,
+ *     <code>&gt;=</code> and their aliases <code>eq</code>, <code>neq</code>, <code>lt</code>, <code>lte</code>,
+ *     <code>gt</code>, <code>gte</code></li>
+ *     <li>the logical operators : <code>and</code>, <code>or</code>, <code>not</code>, <code>&amp;&amp;</code>,
+ *     <code>||</code>, <code>!</code> and the parentheses</li>
+ * </ul>
+ * The unsupported expressions are evaluated by OGNL, so are the evaluations that can't be resolved at runtime, e.g.
+ * the non-public getters or the comparisons between the values of the different types.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CompiledExpression expression = CompiledExpression.compile("user != null and user.name != ''");
+ *   boolean matched = expression.evaluateBoolean(bindings);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ExpressionEvaluator
+ * @see OgnlCache
+ * @since 1.0.0
+ */
+public class CompiledExpression {
+
+    private static final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    /**
+     * The signal to fall back to OGNL, it's shared without the stack trace, the other {@link RuntimeException
+     * RuntimeExceptions} fall back to OGNL too, which reports the errors in the same way as before
+     */
+    private static final RuntimeException FALLBACK = new RuntimeException("fallback", null, false, false) {
+    };
+
+    private static final ClassValue<ConcurrentMap<String, Optional<MethodHandle>>> methodHandles = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<String, Optional<MethodHandle>> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final String expression;
+
+    @Nullable
+    private final Node node;
+
+    private CompiledExpression(String expression, @Nullable Node node) {
+        this.expression = expression;
+        this.node = node;
+    }
+
+    /**
+     * Compile the specified expression
+     *
+     * @param expression the OGNL expression
+     * @return non-null, {@link #isCompiled()} returns <code>false</code> if the expression is not supported
+     */
+    public static CompiledExpression compile(String expression) {
+        return new CompiledExpression(expression, new Parser(expression).parse());
+    }
+
+    /**
+     * Evaluate the value
+     *
+     * @param root the root object, e.g. the bindings of {@link org.apache.ibatis.scripting.xmltags.DynamicContext}
+     * @return the value
+     */
+    public Object evaluate(Object root) {
+        Node node = this.node;
+        if (node != null) {
+            try {
+                return node.evaluate(root);
+            } catch (RuntimeException e) {
+                // fall back to OGNL
+            }
+        }
+        return OgnlCache.getValue(expression, root);
+    }
+
+    /**
+     * Evaluate the value as boolean in the same way as {@link ExpressionEvaluator#evaluateBoolean(String, Object)}
+     *
+     * @param root the root object, e.g. the bindings of {@link org.apache.ibatis.scripting.xmltags.DynamicContext}
+     * @return the boolean value
+     */
+    public boolean evaluateBoolean(Object root) {
+        Node node = this.node;
+        if (node != null) {
+            try {
+                Object value = node.evaluate(root);
+                if (value instanceof Boolean) {
+                    return (Boolean) value;
+                }
+                if (value instanceof Number) {
+                    return new BigDecimal(String.valueOf(value)).compareTo(BigDecimal.ZERO) != 0;
+                }
+                return value != null;
+            } catch (RuntimeException e) {
+                // fall back to OGNL
+            }
+        }
+        return evaluator.evaluateBoolean(expression, root);
+    }
+
+    /**
+     * Evaluate the value as {@link Iterable} in the same way as
+     * {@link ExpressionEvaluator#evaluateIterable(String, Object, boolean)}
+     *
+     * @param root     the root object, e.g. the bindings of {@link org.apache.ibatis.scripting.xmltags.DynamicContext}
+     * @param nullable whether the <code>null</code> is allowed
+     * @return <code>null</code> if the value is <code>null</code> and <code>nullable</code> is <code>true</code>
+     */
+    @Nullable
+    public Iterable<?> evaluateIterable(Object root, boolean nullable) {
+        Node node = this.node;
+        if (node != null) {
+            try {
+                if (node.evaluate(root) instanceof Iterable<?> iterable) {
+                    return iterable;
+                }
+            } catch (RuntimeException e) {
+                // fall back to OGNL
+            }
+        }
+        // the arrays, maps and nulls
+        return evaluator.evaluateIterable(expression, root, nullable);
+    }
+
+    /**
+     * Is the expression compiled or not
+     *
+     * @return <code>false</code> if the expression is evaluated by OGNL
+     */
+    public boolean isCompiled() {
+        return node != null;
+    }
+
+    /**
+     * Get the expression
+     *
+     * @return non-null
+     */
+    public String getExpression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledExpression{" +
+                "expression='" + expression + '\'' +
+                ", compiled=" + isCompiled() +
+                '}';
+    }
+
+    private static boolean booleanValue(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+        if (value instanceof Character character) {
+            return character != 0;
+        }
+        return true;
+    }
+
+    private static Object invoke(Object target, String name, boolean getter) {
+        if (target == null) {
+            throw FALLBACK;
+        }
+        String key = getter ? "." + name : name;
+        Optional<MethodHandle> methodHandle = methodHandles.get(target.getClass())
+                .computeIfAbsent(key, k -> findMethodHandle(target.getClass(), name, getter));
+        if (methodHandle.isEmpty()) {
+            throw FALLBACK;
+        }
+        try {
+            return (Object) methodHandle.get().invokeExact(target);
+        } catch (Throwable e) {
+            // OGNL will report the error
+            throw FALLBACK;
+        }
+    }
+
+    private static Optional<MethodHandle> findMethodHandle(Class<?> type, String name, boolean getter) {
+        Method method;
+        if (getter) {
+            String suffix = toUpperCase(name.charAt(0)) + name.substring(1);
+            method = findPublicMethod(type, "get" + suffix);
+            if (method == null) {
+                method = findPublicMethod(type, "is" + suffix);
+                if (method != null && method.getReturnType() != boolean.class) {
+                    method = null;
+                }
+            }
+        } else {
+            method = findPublicMethod(type, name);
+        }
+        if (method == null || isStatic(method.getModifiers()) || method.getReturnType() == void.class) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(publicLookup().unreflect(method).asType(methodType(Object.class, Object.class)));
+        } catch (IllegalAccessException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Find the public method without parameters declared by the public type, the non-public implementation (e.g.
+     * {@link java.util.Arrays#asList(Object[])}) is resolved by its public super types
+     */
+    @Nullable
+    private static Method findPublicMethod(Class<?> type, String name) {
+        if (isPublic(type.getModifiers())) {
+            try {
+                Method method = type.getMethod(name);
+                if (isPublic(method.getDeclaringClass().getModifiers())) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+        }
+        Class<?> superclass = type.getSuperclass();
+        Method method = superclass == null ? null : findPublicMethod(superclass, name);
+        if (method == null) {
+            for (Class<?> interfaceClass : type.getInterfaces()) {
+                if ((method = findPublicMethod(interfaceClass, name)) != null) {
+                    break;
+                }
+            }
+        }
+        return method;
+    }
+
+    private static int compare(Object left, Object right) {
+        if (left instanceof Number l && right instanceof Number r) {
+            if (isIntegral(l) && isIntegral(r)) {
+                return Long.compare(l.longValue(), r.longValue());
+            }
+            if (isBig(l) || isBig(r)) {
+                return toBigDecimal(l).compareTo(toBigDecimal(r));
+            }
+            if (isFloating(l) || isFloating(r)) {
+                double ld = l.doubleValue(), rd = r.doubleValue();
+                return ld < rd ? -1 : (ld > rd ? 1 : 0);
+            }
+        } else if (left instanceof String l && right instanceof String r) {
+            return l.compareTo(r);
+        }
+        throw FALLBACK;
+    }
+
+    private static boolean equal(Object left, Object right) {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null) {
+            return false;
+        }
+        if (left instanceof Number && right instanceof Number) {
+            return compare(left, right) == 0;
+        }
+        if (left.getClass() == right.getClass() && !left.getClass().isArray()) {
+            return left.equals(right);
+        }
+        throw FALLBACK;
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
+    private static boolean isFloating(Number number) {
+        return number instanceof Double || number instanceof Float;
+    }
+
+    private static boolean isBig(Number number) {
+        return number instanceof BigDecimal || number instanceof BigInteger;
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal bigDecimal) {
+            return bigDecimal;
+        }
+        if (isIntegral(number) || isFloating(number) || number instanceof BigInteger) {
+            return new BigDecimal(number.toString());
+        }
+        throw FALLBACK;
+    }
+
+    /**
+     * The compiled node of expression
+     */
+    private interface Node {
+
+        Object evaluate(Object root);
+    }
+
+    private record Literal(Object value) implements Node {
+
+        @Override
+        public Object evaluate(Object root) {
+            return value;
+        }
+    }
+
+    private record Path(String[] names, boolean[] methods) implements Node {
+
+        @Override
+        public Object evaluate(Object root) {
+            Object value;
+            // the first property is resolved by the root, e.g. ContextMap
+            if (root instanceof Map<?, ?> map) {
+                value = map.get(names[0]);
+            } else {
+                value = invoke(root, names[0], true);
+            }
+            for (int i = 1; i < names.length; i++) {
+                if (!methods[i] && value instanceof Map<?, ?> map) {
+                    value = map.get(names[i]);
+                } else {
+                    value = invoke(value, names[i], !methods[i]);
+                }
+            }
+            return value;
+        }
+    }
+
+    private record Not(Node operand) implements Node {
+
+        @Override
+        public Object evaluate(Object root) {
+            return !booleanValue(operand.evaluate(root));
+        }
+    }
+
+    private record And(Node left, Node right) implements Node {
+
+        @Override
+        public Object evaluate(Object root) {
+            return booleanValue(left.evaluate(root)) && booleanValue(right.evaluate(root));
+        }
+    }
+
+    private record Or(Node left, Node right) implements Node {
+
+        @Override
+        public Object evaluate(Object root) {
+            return booleanValue(left.evaluate(root)) || booleanValue(right.evaluate(root));
+        }
+    }
+
+    private record Comparison(String operator, Node left, Node right) implements Node {
+
+        @Override
+        public Object evaluate(Object root) {
+            Object l = left.evaluate(root);
+            Object r = right.evaluate(root);
+            switch (operator) {
+                case "==":
+                    return equal(l, r);
+                case "!=":
+                    return !equal(l, r);
+                default:
+                    if (l == null || r == null) {
+                        throw FALLBACK;
+                    }
+                    int result = compare(l, r);
+                    switch (operator) {
+                        case "<":
+                            return result < 0;
+                        case "<=":
+                            return result <= 0;
+                        case ">":
+                            return result > 0;
+                        default:
+                            return result >= 0;
+                    }
+            }
+        }
+    }
+
+    /**
+     * The recursive descent parser of the supported subset of OGNL
+     */
+    private static class Parser {
+
+        private final String expression;
+
+        private int position;
+
+        private Parser(String expression) {
+            this.expression = expression;
+        }
+
+        @Nullable
+        Node parse() {
+            try {
+                Node node = parseOr();
+                skipWhitespaces();
+                return position == expression.length() ? node : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (accept("||") || acceptKeyword("or")) {
+                node = new Or(node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parseNot();
+            while (accept("&&") || acceptKeyword("and")) {
+                node = new And(node, parseNot());
+            }
+            return node;
+        }
+
+        private Node parseNot() {
+            if (acceptKeyword("not") || (!lookingAt("!=") && accept("!"))) {
+                return new Not(parseNot());
+            }
+            return parseComparison();
+        }
+
+        private Node parseComparison() {
+            Node left = parsePrimary();
+            String operator = parseOperator();
+            return operator == null ? left : new Comparison(operator, left, parsePrimary());
+        }
+
+        @Nullable
+        private String parseOperator() {
+            for (String operator : new String[]{"==", "!=", "<=", ">=", "<", ">"}) {
+                if (accept(operator)) {
+                    return operator;
+                }
+            }
+            String[][] aliases = {{"eq", "=="}, {"neq", "!="}, {"lte", "<="}, {"gte", ">="}, {"lt", "<"}, {"gt", ">"}};
+            for (String[] alias : aliases) {
+                if (acceptKeyword(alias[0])) {
+                    return alias[1];
+                }
+            }
+            return null;
+        }
+
+        private Node parsePrimary() {
+            skipWhitespaces();
+            if (accept("(")) {
+                Node node = parseOr();
+                expect(")");
+                return node;
+            }
+            char c = current();
+            if (c == '\'' || c == '"') {
+                return parseString(c);
+            }
+            if (isDigit(c)) {
+                return parseNumber();
+            }
+            if (acceptKeyword("null")) {
+                return new Literal(null);
+            }
+            if (acceptKeyword("true")) {
+                return new Literal(Boolean.TRUE);
+            }
+            if (acceptKeyword("false")) {
+                return new Literal(Boolean.FALSE);
+            }
+            return parsePath();
+        }
+
+        private Node parseString(char quote) {
+            int end = expression.indexOf(quote, ++position);
+            if (end < 0) {
+                throw new IllegalArgumentException();
+            }
+            String value = expression.substring(position, end);
+            if (value.indexOf('\\') >= 0 || (quote == '\'' && value.length() == 1)) {
+                // the escapes and the chars are not supported
+                throw new IllegalArgumentException();
+            }
+            position = end + 1;
+            return new Literal(value);
+        }
+
+        private Node parseNumber() {
+            int start = position;
+            while (position < expression.length() && (isDigit(current()) || current() == '.')) {
+                position++;
+            }
+            if (position < expression.length() && isJavaIdentifierPart(current())) {
+                // the suffixes, e.g. 1L, 1.0d, 1B
+                throw new IllegalArgumentException();
+            }
+            String value = expression.substring(start, position);
+            if (value.indexOf('.') >= 0) {
+                return new Literal(Double.valueOf(value));
+            }
+            return new Literal(Integer.valueOf(value));
+        }
+
+        private Node parsePath() {
+            String[] names = new String[4];
+            boolean[] methods = new boolean[4];
+            int size = 0;
+            do {
+                String name = parseIdentifier();
+                boolean method = accept("(");
+                if (method) {
+                    if (size == 0) {
+                        throw new IllegalArgumentException();
+                    }
+                    expect(")");
+                }
+                if (size == names.length) {
+                    names = copyOf(names, size * 2);
+                    methods = copyOf(methods, size * 2);
+                }
+                names[size] = name;
+                methods[size++] = method;
+            } while (accept("."));
+            return new Path(copyOf(names, size), copyOf(methods, size));
+        }
+
+        private String parseIdentifier() {
+            skipWhitespaces();
+            int start = position;
+            if (position >= expression.length() || !isJavaIdentifierStart(current())) {
+                throw new IllegalArgumentException();
+            }
+            while (position < expression.length() && isJavaIdentifierPart(current())) {
+                position++;
+            }
+            String identifier = expression.substring(start, position);
+            if (isKeyword(identifier)) {
+                throw new IllegalArgumentException();
+            }
+            return identifier;
+        }
+
+        private boolean isKeyword(String identifier) {
+            switch (identifier) {
+                case "and", "or", "not", "eq", "neq", "lt", "lte", "gt", "gte", "null", "true", "false", "in",
+                     "instanceof", "new", "bor", "xor", "band", "shl", "shr", "ushr":
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        private boolean accept(String token) {
+            skipWhitespaces();
+            if (expression.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private boolean lookingAt(String token) {
+            skipWhitespaces();
+            return expression.startsWith(token, position);
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipWhitespaces();
+            int end = position + keyword.length();
+            if (expression.startsWith(keyword, position)
+                    && (end == expression.length() || !isJavaIdentifierPart(expression.charAt(end)))) {
+                position = end;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException();
+            }
+        }
+
+        private char current() {
+            if (position >= expression.length()) {
+                throw new IllegalArgumentException();
+            }
+            return expression.charAt(position);
+        }
+
+        private void skipWhitespaces() {
+            while (position < expression.length() && isWhitespace(expression.charAt(position))) {
+                position++;
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.scripting;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.microsphere.util.Assert.assertTrue;
+
+/**
+ * The {@link LanguageDriver} extends {@link XMLLanguageDriver} decorates the {@link DynamicSqlSource dynamic SQL
+ * sources} by {@link ShapeCachingSqlSource}, which memoizes the rendered SQL text and the parameter mappings per
+ * parameter shape. The SQL texts are interned and shared by all {@link ShapeCachingSqlSource} instances of this driver.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   // Before the mappers are parsed
+ *   configuration.setDefaultScriptingLanguage(ShapeCachingLanguageDriver.class);
+ *
+ *   // or in mybatis-config.xml
+ *   <setting name="defaultScriptingLanguage" value="io.microsphere.mybatis.scripting.ShapeCachingLanguageDriver"/>
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see XMLLanguageDriver
+ * @see ShapeCachingSqlSource
+ * @since 1.0.0
+ */
+public class ShapeCachingLanguageDriver extends XMLLanguageDriver {
+
+    /**
+     * The default max count of the cached shapes per statement
+     */
+    public static final int DEFAULT_MAX_SHAPES = 256;
+
+    private final int maxShapes;
+
+    private final ConcurrentMap<String, String> sqlTexts = new ConcurrentHashMap<>();
+
+    public ShapeCachingLanguageDriver() {
+        this(DEFAULT_MAX_SHAPES);
+    }
+
+    /**
+     * @param maxShapes the max count of the cached shapes per statement
+     * @throws IllegalArgumentException if <code>maxShapes</code> is not positive
+     */
+    public ShapeCachingLanguageDriver(int maxShapes) {
+        assertTrue(maxShapes > 0, () -> "The 'maxShapes' must be positive : " + maxShapes);
+        this.maxShapes = maxShapes;
+    }
+
+    @Override
+    public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+        return decorate(configuration, super.createSqlSource(configuration, script, parameterType));
+    }
+
+    @Override
+    public SqlSource createSqlSource(Configuration configuration, String script, Class<?> parameterType) {
+        return decorate(configuration, super.createSqlSource(configuration, script, parameterType));
+    }
+
+    /**
+     * Decorate the {@link DynamicSqlSource} by {@link ShapeCachingSqlSource}, other {@link SqlSource SqlSources} are
+     * returned as they are.
+     *
+     * @param configuration {@link Configuration}
+     * @param sqlSource     {@link SqlSource}
+     * @return non-null
+     */
+    protected SqlSource decorate(Configuration configuration, SqlSource sqlSource) {
+        if (sqlSource instanceof DynamicSqlSource dynamicSqlSource) {
+            return new ShapeCachingSqlSource(configuration, dynamicSqlSource, maxShapes, sqlTexts);
+        }
+        return sqlSource;
+    }
+
+    /**
+     * Get the max count of the cached shapes per statement
+     *
+     * @return positive
+     */
+    public int getMaxShapes() {
+        return maxShapes;
+    }
+
+    /**
+     * Get the count of the interned SQL texts
+     *
+     * @return non-negative
+     */
+    public int getSqlTextCount() {
+        return sqlTexts.size();
+    }
+}
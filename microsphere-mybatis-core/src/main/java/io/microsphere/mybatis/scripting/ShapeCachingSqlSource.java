@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.scripting;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.logging.Logger;
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.reflect.FieldUtils.getFieldValue;
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.Assert.assertTrue;
+
+/**
+ * The {@link SqlSource} decorates {@link DynamicSqlSource} memoizes the rendered SQL text and the
+ * {@link ParameterMapping parameter mappings} per parameter shape, which consists of the results of the conditions,
+ * the sizes of the collections and the types of the bound values rather than the values. The cached shape skips the
+ * SQL text building and the parsing of the parameter placeholders, only the conditions are evaluated and the values
+ * are bound.
+ * <p>
+ * The statements that render the SQL text by the values (e.g. <code>${}</code>) or contain the customized
+ * {@link SqlNode} are delegated to {@link DynamicSqlSource} directly. At most <code>maxShapes</code> shapes are cached,
+ * the other shapes are rendered as usual.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   SqlSource sqlSource = new ShapeCachingSqlSource(configuration, dynamicSqlSource, 256, new ConcurrentHashMap<>());
+ *   BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see DynamicSqlSource
+ * @see ShapeCachingLanguageDriver
+ * @since 1.0.0
+ */
+public class ShapeCachingSqlSource implements SqlSource {
+
+    private static final Logger logger = getLogger(ShapeCachingSqlSource.class);
+
+    private final Configuration configuration;
+
+    private final DynamicSqlSource delegate;
+
+    private final SqlNode rootSqlNode;
+
+    @Nullable
+    private final ShapeNode rootShapeNode;
+
+    private final int maxShapes;
+
+    private final ConcurrentMap<String, String> sqlTexts;
+
+    private final ConcurrentMap<List<Object>, RenderedSql> renderedSqls = new ConcurrentHashMap<>();
+
+    private volatile boolean cacheable;
+
+    /**
+     * @param configuration {@link Configuration}
+     * @param delegate      {@link DynamicSqlSource}
+     * @param maxShapes     the max count of the cached shapes
+     * @param sqlTexts      the interned SQL texts
+     */
+    public ShapeCachingSqlSource(Configuration configuration, DynamicSqlSource delegate, int maxShapes,
+                                 ConcurrentMap<String, String> sqlTexts) {
+        assertNotNull(configuration, () -> "The 'configuration' must not be null!");
+        assertNotNull(delegate, () -> "The 'delegate' must not be null!");
+        assertTrue(maxShapes > 0, () -> "The 'maxShapes' must be positive : " + maxShapes);
+        assertNotNull(sqlTexts, () -> "The 'sqlTexts' must not be null!");
+        this.configuration = configuration;
+        this.delegate = delegate;
+        this.rootSqlNode = getFieldValue(delegate, "rootSqlNode");
+        this.rootShapeNode = ShapeNode.of(this.rootSqlNode, configuration);
+        this.maxShapes = maxShapes;
+        this.sqlTexts = sqlTexts;
+        this.cacheable = this.rootShapeNode != null;
+    }
+
+    @Override
+    public BoundSql getBoundSql(Object parameterObject) {
+        if (!cacheable) {
+            return delegate.getBoundSql(parameterObject);
+        }
+        DynamicContext context = new DynamicContext(configuration, parameterObject);
+        List<Object> shape = new ArrayList<>();
+        shape.add(ShapeNode.typeOf(parameterObject));
+        rootShapeNode.apply(context, shape);
+
+        RenderedSql renderedSql = renderedSqls.get(shape);
+        if (renderedSql == null) {
+            return render(parameterObject, shape, context.getBindings());
+        }
+        BoundSql boundSql = new BoundSql(configuration, renderedSql.sql, renderedSql.parameterMappings, parameterObject);
+        context.getBindings().forEach(boundSql::setAdditionalParameter);
+        return boundSql;
+    }
+
+    private BoundSql render(Object parameterObject, List<Object> shape, Map<String, Object> shapeBindings) {
+        // the same as DynamicSqlSource#getBoundSql(Object)
+        DynamicContext context = new DynamicContext(configuration, parameterObject);
+        rootSqlNode.apply(context);
+        SqlSourceBuilder sqlSourceBuilder = new SqlSourceBuilder(configuration);
+        Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+        SqlSource sqlSource = sqlSourceBuilder.parse(context.getSql(), parameterType, context.getBindings());
+        BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+        Map<String, Object> bindings = context.getBindings();
+        bindings.forEach(boundSql::setAdditionalParameter);
+
+        if (!bindings.keySet().equals(shapeBindings.keySet())) {
+            // The bindings of SqlNodes are changed, the cached shapes can't bind the values correctly
+            this.cacheable = false;
+            this.renderedSqls.clear();
+            logger.warn("The shape caching is disabled, because the bindings {} of the shape are different from {}",
+                    shapeBindings.keySet(), bindings.keySet());
+        } else if (renderedSqls.size() < maxShapes) {
+            String sql = boundSql.getSql();
+            String internedSql = sqlTexts.putIfAbsent(sql, sql);
+            renderedSqls.putIfAbsent(shape, new RenderedSql(internedSql == null ? sql : internedSql,
+                    boundSql.getParameterMappings()));
+        }
+        return boundSql;
+    }
+
+    /**
+     * Get the count of the cached shapes
+     *
+     * @return non-negative
+     */
+    public int getShapeCount() {
+        return renderedSqls.size();
+    }
+
+    /**
+     * Is the shape caching enabled or not
+     *
+     * @return <code>false</code> if the statement renders the SQL text by the values or contains the customized
+     * {@link SqlNode}
+     */
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    /**
+     * Get the decorated {@link DynamicSqlSource}
+     *
+     * @return non-null
+     */
+    public DynamicSqlSource getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * The rendered SQL text and the {@link ParameterMapping parameter mappings}, the mappings are shared by the
+     * {@link BoundSql BoundSqls} as {@link org.apache.ibatis.builder.StaticSqlSource} does.
+     */
+    private static class RenderedSql {
+
+        private final String sql;
+
+        private final List<ParameterMapping> parameterMappings;
+
+        private RenderedSql(String sql, List<ParameterMapping> parameterMappings) {
+            this.sql = sql;
+            this.parameterMappings = parameterMappings;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.scripting;
+
+import io.microsphere.annotation.Nullable;
+import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
+import org.apache.ibatis.scripting.xmltags.IfSqlNode;
+import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
+import org.apache.ibatis.scripting.xmltags.SqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.scripting.xmltags.TextSqlNode;
+import org.apache.ibatis.scripting.xmltags.TrimSqlNode;
+import org.apache.ibatis.scripting.xmltags.VarDeclSqlNode;
+import org.apache.ibatis.session.Configuration;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Map;
+
+import static io.microsphere.mybatis.scripting.CompiledExpression.compile;
+
+/**
+ * The node evaluates the shape of {@link SqlNode} without rendering the SQL text, the shape consists of the results
+ * of the conditions, the sizes of the collections and the types of the bound values, which determine the rendered SQL
+ * text and the parameter mappings. The variables are bound to the {@link DynamicContext} in the same way as
+ * {@link SqlNode#apply(DynamicContext)}, and the expressions are evaluated by {@link CompiledExpression} rather than
+ * OGNL.
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlNode
+ * @see ShapeCachingSqlSource
+ * @since 1.0.0
+ */
+abstract class ShapeNode {
+
+    /**
+     * The prefix of the item names bound by {@link ForEachSqlNode}
+     */
+    static final String ITEM_PREFIX = "__frch_";
+
+    private static final ShapeNode STATIC = new ShapeNode() {
+        @Override
+        boolean apply(DynamicContext context, List<Object> shape) {
+            return true;
+        }
+    };
+
+    /**
+     * Evaluate the shape
+     *
+     * @param context {@link DynamicContext}
+     * @param shape   the shape to append
+     * @return the same as {@link SqlNode#apply(DynamicContext)}
+     */
+    abstract boolean apply(DynamicContext context, List<Object> shape);
+
+    /**
+     * Create the {@link ShapeNode} from the specified {@link SqlNode}
+     *
+     * @param sqlNode       {@link SqlNode}
+     * @param configuration {@link Configuration}
+     * @return <code>null</code> if the {@link SqlNode} or any of its children is not supported, e.g. the
+     * {@link TextSqlNode} contains <code>${}</code> or the customized {@link SqlNode}
+     */
+    @Nullable
+    static ShapeNode of(SqlNode sqlNode, Configuration configuration) {
+        try {
+            return create(sqlNode, configuration);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static ShapeNode create(SqlNode sqlNode, Configuration configuration) throws ReflectiveOperationException {
+        if (sqlNode instanceof StaticTextSqlNode) {
+            return STATIC;
+        } else if (sqlNode instanceof TextSqlNode textSqlNode) {
+            // the SQL text depends on the values of ${}
+            return textSqlNode.isDynamic() ? null : STATIC;
+        } else if (sqlNode instanceof MixedSqlNode) {
+            List<SqlNode> contents = getFieldValue(sqlNode, MixedSqlNode.class, "contents");
+            ShapeNode[] nodes = new ShapeNode[contents.size()];
+            for (int i = 0; i < nodes.length; i++) {
+                if ((nodes[i] = create(contents.get(i), configuration)) == null) {
+                    return null;
+                }
+            }
+            return new Mixed(nodes);
+        } else if (sqlNode instanceof IfSqlNode) {
+            ShapeNode contents = create(getFieldValue(sqlNode, IfSqlNode.class, "contents"), configuration);
+            return contents == null ? null : new If(compile(getFieldValue(sqlNode, IfSqlNode.class, "test")), contents);
+        } else if (sqlNode instanceof ChooseSqlNode) {
+            List<SqlNode> ifSqlNodes = getFieldValue(sqlNode, ChooseSqlNode.class, "ifSqlNodes");
+            If[] whens = new If[ifSqlNodes.size()];
+            for (int i = 0; i < whens.length; i++) {
+                if (!(create(ifSqlNodes.get(i), configuration) instanceof If when)) {
+                    return null;
+                }
+                whens[i] = when;
+            }
+            SqlNode defaultSqlNode = getFieldValue(sqlNode, ChooseSqlNode.class, "defaultSqlNode");
+            ShapeNode otherwise = defaultSqlNode == null ? null : create(defaultSqlNode, configuration);
+            if (defaultSqlNode != null && otherwise == null) {
+                return null;
+            }
+            return new Choose(whens, otherwise);
+        } else if (sqlNode instanceof ForEachSqlNode) {
+            ShapeNode contents = create(getFieldValue(sqlNode, ForEachSqlNode.class, "contents"), configuration);
+            if (contents == null) {
+                return null;
+            }
+            Boolean nullable = getFieldValue(sqlNode, ForEachSqlNode.class, "nullable");
+            return new ForEach(compile(getFieldValue(sqlNode, ForEachSqlNode.class, "collectionExpression")),
+                    nullable == null ? configuration.isNullableOnForEach() : nullable,
+                    getFieldValue(sqlNode, ForEachSqlNode.class, "item"),
+                    getFieldValue(sqlNode, ForEachSqlNode.class, "index"), contents);
+        } else if (sqlNode instanceof TrimSqlNode) {
+            // includes WhereSqlNode and SetSqlNode
+            return create(getFieldValue(sqlNode, TrimSqlNode.class, "contents"), configuration);
+        } else if (sqlNode instanceof VarDeclSqlNode) {
+            return new Bind(getFieldValue(sqlNode, VarDeclSqlNode.class, "name"),
+                    compile(getFieldValue(sqlNode, VarDeclSqlNode.class, "expression")));
+        }
+        return null;
+    }
+
+    private static <T> T getFieldValue(Object target, Class<?> declaringClass, String name) throws ReflectiveOperationException {
+        Field field = declaringClass.getDeclaredField(name);
+        field.setAccessible(true);
+        return (T) field.get(target);
+    }
+
+    static Class<?> typeOf(@Nullable Object value) {
+        return value == null ? null : value.getClass();
+    }
+
+    static class Mixed extends ShapeNode {
+
+        private final ShapeNode[] contents;
+
+        Mixed(ShapeNode[] contents) {
+            this.contents = contents;
+        }
+
+        @Override
+        boolean apply(DynamicContext context, List<Object> shape) {
+            for (ShapeNode content : contents) {
+                content.apply(context, shape);
+            }
+            return true;
+        }
+    }
+
+    static class If extends ShapeNode {
+
+        private final CompiledExpression test;
+
+        private final ShapeNode contents;
+
+        If(CompiledExpression test, ShapeNode contents) {
+            this.test = test;
+            this.contents = contents;
+        }
+
+        @Override
+        boolean apply(DynamicContext context, List<Object> shape) {
+            boolean matched = test.evaluateBoolean(context.getBindings());
+            shape.add(matched);
+            if (matched) {
+                contents.apply(context, shape);
+            }
+            return matched;
+        }
+    }
+
+    static class Choose extends ShapeNode {
+
+        private final If[] whens;
+
+        @Nullable
+        private final ShapeNode otherwise;
+
+        Choose(If[] whens, @Nullable ShapeNode otherwise) {
+            this.whens = whens;
+            this.otherwise = otherwise;
+        }
+
+        @Override
+        boolean apply(DynamicContext context, List<Object> shape) {
+            for (If when : whens) {
+                if (when.apply(context, shape)) {
+                    return true;
+                }
+            }
+            if (otherwise != null) {
+                otherwise.apply(context, shape);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    static class ForEach extends ShapeNode {
+
+        private final CompiledExpression collectionExpression;
+
+        private final boolean nullable;
+
+        @Nullable
+        private final String item;
+
+        @Nullable
+        private final String index;
+
+        private final ShapeNode contents;
+
+        ForEach(CompiledExpression collectionExpression, boolean nullable, String item, String index, ShapeNode contents) {
+            this.collectionExpression = collectionExpression;
+            this.nullable = nullable;
+            this.item = item;
+            this.index = index;
+            this.contents = contents;
+        }
+
+        @Override
+        boolean apply(DynamicContext context, List<Object> shape) {
+            Map<String, Object> bindings = context.getBindings();
+            Iterable<?> iterable = collectionExpression.evaluateIterable(bindings, nullable);
+            if (iterable == null || !iterable.iterator().hasNext()) {
+                shape.add(0);
+                return true;
+            }
+            int i = 0;
+            for (Object o : iterable) {
+                int uniqueNumber = context.getUniqueNumber();
+                if (o instanceof Map.Entry<?, ?> entry) {
+                    bind(context, index, entry.getKey(), uniqueNumber, shape);
+                    bind(context, item, entry.getValue(), uniqueNumber, shape);
+                } else {
+                    bind(context, index, i, uniqueNumber, shape);
+                    bind(context, item, o, uniqueNumber, shape);
+                }
+                contents.apply(context, shape);
+                i++;
+            }
+            shape.add(i);
+            bindings.remove(item);
+            bindings.remove(index);
+            return true;
+        }
+
+        private void bind(DynamicContext context, @Nullable String name, Object value, int uniqueNumber, List<Object> shape) {
+            if (name != null) {
+                context.bind(name, value);
+                context.bind(ITEM_PREFIX + name + "_" + uniqueNumber, value);
+                shape.add(typeOf(value));
+            }
+        }
+    }
+
+    static class Bind extends ShapeNode {
+
+        private final String name;
+
+        private final CompiledExpression expression;
+
+        Bind(String name, CompiledExpression expression) {
+            this.name = name;
+            this.expression = expression;
+        }
+
+        @Override
+        boolean apply(DynamicContext context, List<Object> shape) {
+            Object value = expression.evaluate(context.getBindings());
+            context.bind(name, value);
+            shape.add(typeOf(value));
+            return true;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.microsphere.mybatis.cache.CacheSerializers.allowClasses;
+import static io.microsphere.mybatis.cache.CacheSerializers.allowResultTypes;
+import static io.microsphere.mybatis.cache.CacheSerializers.deserialize;
+import static io.microsphere.mybatis.cache.CacheSerializers.isAllowed;
+import static io.microsphere.mybatis.cache.CacheSerializers.serialize;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CacheSerializers} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheSerializers
+ * @since 1.0.0
+ */
+class CacheSerializersTest {
+
+    @Test
+    void testDefaultAllowedClasses() {
+        List<Object> values = new ArrayList<>(asList(1, 2L, "A", new BigDecimal("1.5"), LocalDate.of(2024, 1, 1),
+                new java.sql.Timestamp(0), new int[]{1}));
+        byte[] bytes = serialize(values);
+        List<?> copy = (List<?>) deserialize(bytes, 0, bytes.length);
+        assertEquals(values.subList(0, 6), copy.subList(0, 6));
+        assertTrue(isAllowed(String[].class));
+        assertTrue(isAllowed(FingerprintCacheKey.class));
+    }
+
+    @Test
+    void testRejectedClasses() throws IOException {
+        byte[] bytes = writeObject(new RejectedValue());
+        assertFalse(isAllowed(RejectedValue.class));
+        assertThrows(CacheException.class, () -> deserialize(bytes, 0, bytes.length));
+        // the disallowed class in the JDK collection
+        byte[] listBytes = writeObject(new ArrayList<>(asList(new RejectedValue())));
+        assertThrows(CacheException.class, () -> deserialize(listBytes, 0, listBytes.length));
+
+        allowClasses(RejectedValue.class);
+        assertInstanceOf(RejectedValue.class, deserialize(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void testSerializedClasses() {
+        // the classes serialized by the current process are allowed
+        byte[] bytes = serialize(new SerializedValue());
+        assertTrue(isAllowed(SerializedValue.class));
+        assertInstanceOf(SerializedValue.class, deserialize(bytes, 0, bytes.length));
+    }
+
+    @Test
+    void testAllowResultTypes() throws IOException {
+        Configuration configuration = new Configuration();
+        configuration.addResultMap(new ResultMap.Builder(configuration, "resultValue", ResultValue.class, emptyList()).build());
+        byte[] bytes = writeObject(new ResultValue());
+        assertFalse(isAllowed(ResultValue.class));
+        assertFalse(isAllowed(ResultField.class));
+
+        allowResultTypes(configuration);
+        assertTrue(isAllowed(ResultValue.class));
+        assertTrue(isAllowed(BaseResultValue.class));
+        assertTrue(isAllowed(ResultField.class));
+        assertFalse(isAllowed(TransientField.class));
+        assertInstanceOf(ResultValue.class, deserialize(bytes, 0, bytes.length));
+    }
+
+    private static byte[] writeObject(Object object) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(outputStream)) {
+            objectOutputStream.writeObject(object);
+        }
+        return outputStream.toByteArray();
+    }
+
+    static class RejectedValue implements Serializable {
+    }
+
+    static class SerializedValue implements Serializable {
+    }
+
+    static class BaseResultValue implements Serializable {
+    }
+
+    static class ResultValue extends BaseResultValue {
+
+        private ResultField field = new ResultField();
+
+        private transient TransientField transientField;
+    }
+
+    static class ResultField implements Serializable {
+    }
+
+    static class TransientField implements Serializable {
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.mybatis.executor.CachingExecutorFilter;
+import io.microsphere.mybatis.executor.ExecutorFilter;
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.List;
+
+import static io.microsphere.mybatis.cache.CacheSnapshot.checksum;
+import static io.microsphere.mybatis.cache.CacheSnapshot.getKeys;
+import static io.microsphere.mybatis.test.MyBatisTestUtils.buildDefaultSqlSessionFactory;
+import static io.microsphere.util.ArrayUtils.of;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CacheSnapshot} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheSnapshot
+ * @since 1.0.0
+ */
+class CacheSnapshotTest extends AbstractMapperTest {
+
+    @TempDir
+    Path directory;
+
+    private final CompressedCache filterCache = new CompressedCache("filterCache");
+
+    private final CachingExecutorFilter filter = new CachingExecutorFilter() {
+        @Override
+        public Collection<? extends Cache> getCaches() {
+            return List.of(filterCache);
+        }
+    };
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+    }
+
+    @Test
+    void testSaveAndLoad() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+            userMapper.getUserById(1);
+            sqlSession.commit();
+        });
+        FingerprintCacheKey fingerprintCacheKey = new FingerprintCacheKey(false, 0);
+        fingerprintCacheKey.update("users");
+        fingerprintCacheKey.update(1);
+        filterCache.putObject(fingerprintCacheKey, "value");
+        // the non-serializable value is skipped
+        filterCache.putObject("non-serializable", new Object());
+
+        Path file = directory.resolve("mybatis.snapshot");
+        CacheSnapshot cacheSnapshot = new CacheSnapshot(file, "1");
+        assertEquals(2, cacheSnapshot.save(getConfiguration()));
+        assertTrue(exists(file));
+
+        // the restarted application
+        filterCache.clear();
+        SqlSessionFactory sqlSessionFactory = buildDefaultSqlSessionFactory();
+        Configuration configuration = sqlSessionFactory.getConfiguration();
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+        Cache cache = configuration.getMappedStatement(MS_ID_USER_BY_ID).getCache();
+        assertEquals(0, cache.getSize());
+
+        assertEquals(2, cacheSnapshot.load(configuration));
+        assertEquals(1, cache.getSize());
+        assertEquals("value", filterCache.getObject(FingerprintCacheKey.restore(fingerprintCacheKey.getState())));
+        assertFalse(exists(file));
+
+        // served from the cache rather than the database
+        try (Connection connection = getDataSource().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM users");
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+        try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+            assertEquals(new User(1, "User-1"), sqlSession.getMapper(UserMapper.class).getUserById(1));
+        }
+
+        assertEquals(0, cacheSnapshot.load(configuration));
+    }
+
+    @Test
+    void testTableInvalidation() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).getUserById(1);
+            sqlSession.commit();
+        });
+        filterCache.putObject("key", "value");
+        Path file = directory.resolve("mybatis.snapshot");
+        CacheSnapshot cacheSnapshot = new CacheSnapshot(file, "1");
+        assertEquals(2, cacheSnapshot.save(getConfiguration()));
+
+        // the restored entries of the second-level caches would not be invalidated by the tables
+        filterCache.clear();
+        Configuration configuration = buildDefaultSqlSessionFactory().getConfiguration();
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[]{filter, new TableInvalidationExecutorFilter()}));
+        assertEquals(1, cacheSnapshot.load(configuration));
+        assertEquals(0, configuration.getMappedStatement(MS_ID_USER_BY_ID).getCache().getSize());
+        assertEquals("value", filterCache.getObject("key"));
+    }
+
+    @Test
+    void testSchemaVersionMismatch() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).getUserById(1);
+            sqlSession.commit();
+        });
+        Path file = directory.resolve("mybatis.snapshot");
+        assertEquals(1, new CacheSnapshot(file, "1").save(getConfiguration()));
+
+        Configuration configuration = buildDefaultSqlSessionFactory().getConfiguration();
+        assertEquals(0, new CacheSnapshot(file, "2").load(configuration));
+        assertEquals(0, configuration.getMappedStatement(MS_ID_USER_BY_ID).getCache().getSize());
+        assertFalse(exists(file));
+    }
+
+    @Test
+    void testCorruptedFile() throws Throwable {
+        Path file = directory.resolve("mybatis.snapshot");
+        write(file, new byte[]{1, 2, 3});
+        CacheSnapshot cacheSnapshot = new CacheSnapshot(file, null);
+        assertThrows(CacheException.class, () -> cacheSnapshot.load(getConfiguration()));
+        assertFalse(exists(file));
+    }
+
+    @Test
+    void testGetKeys() {
+        Cache cache = getMappedStatement(MS_ID_USER_BY_ID).getCache();
+        cache.putObject("key", "value");
+        assertEquals(List.of("key"), getKeys(cache));
+        assertEquals(List.of(), getKeys(new PerpetualCache("empty")));
+        assertNull(getKeys(new NonEnumerableCache()));
+    }
+
+    @Test
+    void testChecksum() throws Throwable {
+        Cache cache = getMappedStatement(MS_ID_USER_BY_ID).getCache();
+        Configuration configuration = buildDefaultSqlSessionFactory().getConfiguration();
+        Cache newCache = configuration.getMappedStatement(MS_ID_USER_BY_ID).getCache();
+        assertEquals(checksum(getConfiguration(), cache), checksum(configuration, newCache));
+        assertTrue(checksum(getConfiguration(), cache) != checksum(getConfiguration(), filterCache));
+    }
+
+    private static class NonEnumerableCache implements Cache {
+
+        private final Cache target = new PerpetualCache("nonEnumerable");
+
+        @Override
+        public String getId() {
+            return target.getId();
+        }
+
+        @Override
+        public void putObject(Object key, Object value) {
+            target.putObject(key, value);
+        }
+
+        @Override
+        public Object getObject(Object key) {
+            return target.getObject(key);
+        }
+
+        @Override
+        public Object removeObject(Object key) {
+            return target.removeObject(key);
+        }
+
+        @Override
+        public void clear() {
+            target.clear();
+        }
+
+        @Override
+        public int getSize() {
+            return target.getSize();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.mybatis.test.entity.User;
+import org.apache.ibatis.cache.CacheException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link OffHeapCache} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see OffHeapCache
+ * @since 1.0.0
+ */
+class OffHeapCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testDirectBuffers() {
+        OffHeapCache cache = new OffHeapCache("test");
+        cache.setCapacity(64 * 1024);
+        List<User> users = asList(new User(1, "User-1"), new User(2, "User-2"));
+
+        assertNull(cache.getObject("users"));
+        cache.putObject("users", users);
+        cache.putObject("none", null);
+        assertEquals(users, cache.getObject("users"));
+        assertNull(cache.getObject("none"));
+        assertEquals(2, cache.getSize());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertTrue(cache.getUsedBytes() > 0);
+
+        // replace
+        cache.putObject("users", asList(new User(3, "User-3")));
+        assertEquals(asList(new User(3, "User-3")), cache.getObject("users"));
+        assertEquals(2, cache.getSize());
+
+        assertNull(cache.removeObject("users"));
+        assertNull(cache.getObject("users"));
+        assertEquals(1, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getUsedBytes());
+        assertEquals("test", cache.getId());
+        assertFalse(cache.isRecovered());
+        assertThrows(CacheException.class, () -> cache.putObject("object", new Object()));
+    }
+
+    @Test
+    void testEviction() {
+        OffHeapCache cache = new OffHeapCache("test");
+        cache.setCapacity(8 * 1024);
+        cache.setSegmentSize(2 * 1024);
+        cache.initialize();
+        assertEquals(2 * 1024, cache.getSegmentSize());
+
+        int count = 200;
+        for (int i = 0; i < count; i++) {
+            cache.putObject(i, new User(i, "User-" + i));
+        }
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(count, cache.getSize() + cache.getEvictionCount());
+        assertTrue(cache.getUsedBytes() <= cache.getCapacity());
+        // the latest entries survive
+        assertEquals(new User(count - 1, "User-" + (count - 1)), cache.getObject(count - 1));
+        assertNull(cache.getObject(0));
+        for (int i = count - cache.getSize(); i < count; i++) {
+            assertEquals(new User(i, "User-" + i), cache.getObject(i));
+        }
+
+        // the record larger than the segment is not stored
+        cache.putObject("large", new byte[4 * 1024]);
+        assertNull(cache.getObject("large"));
+    }
+
+    @Test
+    void testRecovery() {
+        String file = tempDir.resolve("cache/test.cache").toString();
+        int count = 200;
+        OffHeapCache cache = new OffHeapCache("test", 8 * 1024, file, "1");
+        for (int i = 0; i < count; i++) {
+            cache.putObject(i, new User(i, "User-" + i));
+        }
+        cache.removeObject(count - 1);
+        int size = cache.getSize();
+        cache.close();
+
+        OffHeapCache recoveredCache = new OffHeapCache("test", 8 * 1024, file, "1");
+        assertTrue(recoveredCache.isRecovered());
+        assertEquals(size, recoveredCache.getSize());
+        assertNull(recoveredCache.getObject(count - 1));
+        assertEquals(new User(count - 2, "User-" + (count - 2)), recoveredCache.getObject(count - 2));
+
+        // continue to write after the recovery
+        for (int i = count; i < count * 2; i++) {
+            recoveredCache.putObject(i, new User(i, "User-" + i));
+        }
+        assertEquals(new User(count * 2 - 1, "User-" + (count * 2 - 1)), recoveredCache.getObject(count * 2 - 1));
+        size = recoveredCache.getSize();
+        recoveredCache.close();
+
+        recoveredCache = new OffHeapCache("test", 8 * 1024, file, "1");
+        assertEquals(size, recoveredCache.getSize());
+        recoveredCache.close();
+
+        // the schema version is changed
+        OffHeapCache newCache = new OffHeapCache("test", 8 * 1024, file, "2");
+        assertFalse(newCache.isRecovered());
+        assertEquals(0, newCache.getSize());
+        newCache.close();
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static java.util.Collections.emptySet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SqlTables} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlTables
+ * @since 1.0.0
+ */
+class SqlTablesTest {
+
+    @Test
+    void testSelect() {
+        assertTables("SELECT id,name FROM users WHERE id = ?", Set.of("users"), emptySet());
+        assertTables("select * from USERS u, \"Roles\" r where u.id = r.id", Set.of("users", "roles"), emptySet());
+        assertTables("SELECT * FROM app.users AS u LEFT JOIN `app`.`roles` r ON u.id = r.id " +
+                "INNER JOIN [dbo].[groups] ON 1 = 1", Set.of("users", "roles", "groups"), emptySet());
+        assertTables("SELECT * FROM (SELECT id FROM users) t JOIN roles USING (id)", Set.of("users", "roles"), emptySet());
+        assertTables("WITH recent AS (SELECT * FROM orders), top AS (SELECT * FROM recent) SELECT * FROM top",
+                Set.of("orders"), emptySet());
+        assertTables("SELECT * FROM users WHERE name = 'FROM fake' -- FROM comment\n /* JOIN other */",
+                Set.of("users"), emptySet());
+        assertTables("SELECT * FROM generate_series(1, 10)", emptySet(), emptySet());
+        assertTables("SELECT * FROM users FOR UPDATE", Set.of("users"), emptySet());
+    }
+
+    @Test
+    void testWrite() {
+        assertTables("INSERT INTO users (id,name) VALUES (?,?)", emptySet(), Set.of("users"));
+        assertTables("INSERT INTO users(id,name) VALUES (?,?) ON DUPLICATE KEY UPDATE name = ?", emptySet(), Set.of("users"));
+        assertTables("INSERT INTO audit SELECT * FROM users", Set.of("users"), Set.of("audit"));
+        assertTables("UPDATE users u JOIN roles r ON u.id = r.id SET u.name = ?", Set.of("roles"), Set.of("users"));
+        assertTables("DELETE FROM users WHERE id IN (SELECT id FROM banned)", Set.of("banned"), Set.of("users"));
+        assertTables("MERGE INTO users t USING staging s ON (t.id = s.id) WHEN MATCHED THEN UPDATE SET t.name = s.name",
+                Set.of("staging"), Set.of("users"));
+        assertTables("TRUNCATE TABLE users", emptySet(), Set.of("users"));
+    }
+
+    @Test
+    void testIsReadingAny() {
+        SqlTables tables = SqlTables.parse("SELECT * FROM users");
+        assertTrue(tables.isReadingAny(Set.of("roles", "users")));
+        assertFalse(tables.isReadingAny(Set.of("roles")));
+        assertTrue(tables.toString().contains("users"));
+    }
+
+    private void assertTables(String sql, Set<String> readTables, Set<String> writeTables) {
+        SqlTables tables = SqlTables.parse(sql);
+        assertEquals(readTables, tables.getReadTables(), sql);
+        assertEquals(writeTables, tables.getWriteTables(), sql);
+    }
+}
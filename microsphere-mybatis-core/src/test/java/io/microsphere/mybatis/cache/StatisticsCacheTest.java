@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link StatisticsCache} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatisticsCache
+ * @since 1.0.0
+ */
+class StatisticsCacheTest extends AbstractMapperTest {
+
+    private static final String USER_MAPPER_CACHE_ID = UserMapper.class.getName();
+
+    @Override
+    protected void customize(Configuration configuration) {
+        StatisticsCache.decorate(configuration);
+    }
+
+    @Test
+    void testDecorate() {
+        Configuration configuration = getConfiguration();
+        Map<String, StatisticsCache> caches = StatisticsCache.getStatisticsCaches(configuration);
+        StatisticsCache cache = caches.get(USER_MAPPER_CACHE_ID);
+        assertSame(cache, configuration.getCache(USER_MAPPER_CACHE_ID));
+        assertSame(cache, getMappedStatement(MS_ID_USER_BY_ID).getCache());
+        assertSame(cache, getMappedStatement(MS_ID_SAVE_USER).getCache());
+        // the decorated caches are kept
+        Map<String, StatisticsCache> decoratedCaches = StatisticsCache.decorate(configuration);
+        assertEquals(caches.keySet(), decoratedCaches.keySet());
+        assertSame(cache, decoratedCaches.get(USER_MAPPER_CACHE_ID));
+        assertSame(cache, getMappedStatement(MS_ID_USER_BY_ID).getCache());
+    }
+
+    @Test
+    void testStatistics() throws Throwable {
+        StatisticsCache cache = StatisticsCache.getStatisticsCaches(getConfiguration()).get(USER_MAPPER_CACHE_ID);
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+        });
+        assertEquals(1, cache.getClearCount());
+
+        doInSqlSession(sqlSession -> {
+            assertEquals(new User(1, "User-1"), sqlSession.getMapper(UserMapper.class).getUserById(1));
+            sqlSession.commit();
+        });
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getPutCount());
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getLoadCount());
+        assertTrue(cache.getTotalLoadTime() > 0);
+        assertTrue(cache.getAverageLoadTime() > 0);
+
+        doInSqlSession(sqlSession -> assertEquals(new User(1, "User-1"),
+                sqlSession.getMapper(UserMapper.class).getUserById(1)));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getLoadCount());
+        assertEquals(2, cache.getRequestCount());
+        assertEquals(0.5, cache.getHitRatio());
+        assertTrue(cache.getTotalLookupTime() > 0);
+        assertTrue(cache.getAverageLookupTime() > 0);
+        assertEquals(0, cache.getEvictionCount());
+
+        cache.reset();
+        assertEquals(0, cache.getRequestCount());
+        assertEquals(0, cache.getHitRatio());
+        assertEquals(0, cache.getAverageLookupTime());
+        assertEquals(0, cache.getLoadCount());
+        assertEquals(0, cache.getAverageLoadTime());
+    }
+
+    @Test
+    void testLruEviction() {
+        LruCache lruCache = new LruCache(new PerpetualCache("lru"));
+        lruCache.setSize(2);
+        StatisticsCache cache = new StatisticsCache(new SynchronizedCache(new LoggingCache(lruCache)));
+        cache.putObject("a", 1);
+        cache.putObject("b", 2);
+        assertEquals(1, cache.getObject("a"));
+        cache.putObject("c", 3);
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.getObject("b"));
+
+        // the cache without the eviction decorator
+        StatisticsCache perpetualCache = new StatisticsCache(new PerpetualCache("perpetual"));
+        perpetualCache.putObject("a", 1);
+        perpetualCache.removeObject("a");
+        assertEquals(0, perpetualCache.getEvictionCount());
+    }
+
+    @Test
+    void testEviction() {
+        FifoCache fifoCache = new FifoCache(new PerpetualCache("test"));
+        fifoCache.setSize(2);
+        StatisticsCache cache = new StatisticsCache(fifoCache);
+        cache.putObject("a", 1);
+        cache.putObject("b", 2);
+        cache.putObject("c", 3);
+        assertEquals(3, cache.getPutCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(2, cache.getSize());
+        assertNull(cache.getObject("a"));
+
+        // the replacement of an existing entry is not an eviction
+        cache.putObject("c", 4);
+        assertEquals(1, cache.getEvictionCount());
+
+        // the explicit removal is not an eviction
+        cache.removeObject("b");
+        assertEquals(1, cache.getRemovalCount());
+        assertEquals(1, cache.getEvictionCount());
+        cache.clear();
+        assertEquals(1, cache.getClearCount());
+        assertEquals(0, cache.getSize());
+
+        assertSame(fifoCache, cache.getDelegate());
+        assertEquals("test", cache.getId());
+        // the identity equality
+        assertEquals(cache, cache);
+        assertNotEquals(cache, fifoCache);
+        assertNotEquals(fifoCache, cache);
+        assertNotEquals(cache, new StatisticsCache(fifoCache));
+        assertThrows(IllegalArgumentException.class, () -> new StatisticsCache(null));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.cache;
+
+import io.microsphere.mybatis.test.entity.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TieredCache} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see TieredCache
+ * @see CompressedCache
+ * @since 1.0.0
+ */
+class TieredCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testPromotionAndDemotion() {
+        TieredCache cache = new TieredCache("test", 2, new CompressedCache("test.L2"));
+        User user1 = new User(1, "User-1");
+        User user2 = new User(2, "User-2");
+        User user3 = new User(3, "User-3");
+        cache.putObject(1, user1);
+        cache.putObject(2, user2);
+        cache.putObject(3, user3);
+        assertEquals(3, cache.getSize());
+        assertEquals(2, cache.getL1Size());
+        assertEquals(1, cache.getL2().getSize());
+        assertEquals(1, cache.getDemotionCount());
+
+        // L1 hit
+        assertSame(user3, cache.getObject(3));
+        assertEquals(1, cache.getL1Statistics().getHitCount());
+
+        // L2 hit, promoted as a copy and user2 was demoted
+        Object promoted = cache.getObject(1);
+        assertEquals(user1, promoted);
+        assertNotSame(user1, promoted);
+        assertEquals(1, cache.getL1Statistics().getMissCount());
+        assertEquals(1, cache.getL2Statistics().getHitCount());
+        assertEquals(1, cache.getPromotionCount());
+        assertEquals(2, cache.getDemotionCount());
+        assertSame(promoted, cache.getObject(1));
+
+        // miss in both tiers
+        assertNull(cache.getObject(4));
+        assertEquals(1, cache.getL2Statistics().getMissCount());
+        assertEquals(0.5, cache.getL2Statistics().getHitRatio());
+
+        // the null value is cached in L1
+        cache.putObject(5, null);
+        assertNull(cache.getObject(5));
+
+        // user3 was demoted by the entry 5
+        assertSame(promoted, cache.removeObject(1));
+        assertNull(cache.removeObject(3));
+        assertNull(cache.getObject(3));
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertTrue(cache.toString().contains("promotionCount=1"));
+    }
+
+    @Test
+    void testInitialize() {
+        TieredCache cache = new TieredCache("test");
+        cache.setL2Capacity(1024 * 1024);
+        cache.initialize();
+        assertInstanceOf(CompressedCache.class, cache.getL2());
+        assertEquals(TieredCache.DEFAULT_L1_MAX_ENTRIES, cache.getL1MaxEntries());
+        assertEquals("test.L2", cache.getL2().getId());
+
+        cache = new TieredCache("test");
+        cache.setL2OffHeap(true);
+        cache.setL2Capacity(1024 * 1024);
+        cache.setSchemaVersion("1");
+        assertInstanceOf(OffHeapCache.class, cache.getL2());
+
+        TieredCache invalidCache = new TieredCache("test");
+        invalidCache.setL1MaxEntries(0);
+        assertThrows(IllegalArgumentException.class, invalidCache::initialize);
+    }
+
+    @Test
+    void testClose() {
+        String file = tempDir.resolve("users.cache").toString();
+        TieredCache cache = new TieredCache("test");
+        cache.setL1MaxEntries(1);
+        cache.setL2File(file);
+        cache.setL2Capacity(1024 * 1024);
+        cache.setSchemaVersion("1");
+        cache.putObject(1, new User(1, "User-1"));
+        cache.putObject(2, new User(2, "User-2"));
+        assertEquals(1, cache.getL2().getSize());
+        // the owned L2 is closed
+        cache.close();
+
+        TieredCache reopenedCache = new TieredCache("test");
+        reopenedCache.setL2File(file);
+        reopenedCache.setL2Capacity(1024 * 1024);
+        reopenedCache.setSchemaVersion("1");
+        assertEquals(new User(1, "User-1"), reopenedCache.getObject(1));
+        assertNull(reopenedCache.getObject(2));
+        reopenedCache.close();
+
+        // the L2 passed by the constructor is not closed
+        CompressedCache l2 = new CompressedCache("test.L2");
+        TieredCache externalCache = new TieredCache("test", 1, l2);
+        externalCache.close();
+        assertSame(l2, externalCache.getL2());
+    }
+
+    @Test
+    void testConcurrentAccess() throws Exception {
+        TieredCache cache = new TieredCache("test", 4, new CompressedCache("test.L2"));
+        ExecutorService executorService = newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                futures.add(executorService.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < 1000; j++) {
+                        int id = random.nextInt(16);
+                        switch (random.nextInt(3)) {
+                            case 0 -> cache.putObject(id, new User(id, "User-" + id));
+                            case 1 -> {
+                                Object user = cache.getObject(id);
+                                // the value of key never mismatches in both tiers
+                                assertTrue(user == null || ((User) user).getId() == id);
+                            }
+                            default -> cache.removeObject(id);
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executorService.shutdown();
+        }
+        assertTrue(cache.getL1Size() <= 4);
+        assertTrue(cache.getSize() <= 16);
+        cache.clear();
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    void testCompressedCache() {
+        User user = new User(1, "User-1");
+        long bytes = CompressedCache.compress(CacheSerializers.serialize(user)).length;
+        CompressedCache cache = new CompressedCache("test", bytes * 2);
+        cache.putObject(1, user);
+        cache.putObject(2, new User(1, "User-1"));
+        assertEquals(bytes * 2, cache.getCompressedBytes());
+        assertEquals(user, cache.getObject(1));
+        // the entry 2 is the least recently used
+        cache.putObject(3, new User(1, "User-1"));
+        assertEquals(2, cache.getSize());
+        assertNull(cache.getObject(2));
+        assertEquals(1, cache.getEvictionCount());
+
+        assertNull(cache.removeObject(1));
+        assertEquals(bytes, cache.getCompressedBytes());
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getCompressedBytes());
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.cache.BoundedLocalCache;
+import io.microsphere.mybatis.cache.ObjectSizes;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import org.apache.ibatis.annotations.One;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.microsphere.collection.ListUtils.ofList;
+import static io.microsphere.mybatis.executor.BoundedLocalCacheExecutorFilter.getBoundedLocalCache;
+import static io.microsphere.mybatis.executor.Executors.getLocalCache;
+import static io.microsphere.util.ArrayUtils.of;
+import static org.apache.ibatis.executor.ExecutionPlaceholder.EXECUTION_PLACEHOLDER;
+import static org.apache.ibatis.executor.Executor.NO_RESULT_HANDLER;
+import static org.apache.ibatis.session.RowBounds.DEFAULT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link BoundedLocalCacheExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see BoundedLocalCacheExecutorFilter
+ * @see BoundedLocalCache
+ * @since 1.0.0
+ */
+class BoundedLocalCacheExecutorFilterTest extends AbstractMapperTest {
+
+    private final BoundedLocalCacheExecutorFilter filter = new BoundedLocalCacheExecutorFilter(2, 0);
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+        configuration.addMapper(NodeMapper.class);
+    }
+
+    @Test
+    void testInvalidConstructorArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedLocalCacheExecutorFilter(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BoundedLocalCache("test", -1, 0));
+    }
+
+    @Test
+    void testEviction() throws Throwable {
+        MappedStatement saveUser = getMappedStatement(MS_ID_SAVE_USER);
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        doInExecutor(executor -> {
+            assertNull(getBoundedLocalCache(executor));
+            for (int i = 1; i <= 3; i++) {
+                executor.update(saveUser, new User(i, "User-" + i));
+            }
+
+            List<Object> users = executor.query(userById, 1, DEFAULT, NO_RESULT_HANDLER);
+            BoundedLocalCache localCache = getBoundedLocalCache(executor);
+            assertNotNull(localCache);
+            assertSame(localCache, getLocalCache(executor));
+            assertEquals(1, localCache.getSize());
+
+            executor.query(userById, 2, DEFAULT, NO_RESULT_HANDLER);
+            executor.query(userById, 3, DEFAULT, NO_RESULT_HANDLER);
+            assertEquals(2, localCache.getSize());
+            assertEquals(1, localCache.getEvictionCount());
+            assertEquals(1, filter.getEvictionCount());
+
+            // the evicted entry is queried again
+            List<Object> queriedUsers = executor.query(userById, 1, DEFAULT, NO_RESULT_HANDLER);
+            assertEquals(users, queriedUsers);
+            assertFalse(users == queriedUsers);
+            assertSame(queriedUsers, executor.query(userById, 1, DEFAULT, NO_RESULT_HANDLER));
+            assertEquals(2, localCache.getEvictionCount());
+
+            executor.clearLocalCache();
+            assertEquals(0, localCache.getSize());
+            assertEquals(0, localCache.getEstimatedBytes());
+        });
+        assertEquals(2, filter.getEvictionCount());
+        assertEquals(2, filter.getMaxEntries());
+        assertEquals(0, filter.getMaxBytes());
+        assertEquals(0, filter.getEvictedBytes());
+    }
+
+    @Test
+    void testEvictionWithDeferredLoads() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            for (int i = 1; i <= 3; i++) {
+                sqlSession.insert(MS_ID_SAVE_USER, new User(i, "User-" + i));
+            }
+            // the peers are the circular references loaded by the deferred loads after the outermost query
+            List<Node> nodes = sqlSession.getMapper(NodeMapper.class).selectAll();
+            assertEquals(3, nodes.size());
+            for (Node node : nodes) {
+                assertNotNull(node.getPeer());
+                assertEquals(node.getId(), node.getPeer().getId());
+                assertEquals(node.getName(), node.getPeer().getName());
+            }
+        });
+        // the overflowing entries are evicted after the pinned entries are released
+        assertTrue(filter.getEvictionCount() > 0);
+    }
+
+    @Test
+    void testBoundedLocalCacheWithPinnedKeys() {
+        BoundedLocalCache localCache = new BoundedLocalCache("test", 1, 0);
+        assertFalse(localCache.pin("A"));
+        localCache.beginQuery();
+        localCache.putObject("A", "A");
+        assertTrue(localCache.pin("A"));
+        assertTrue(localCache.isPinned("A"));
+        localCache.putObject("B", "B");
+        localCache.putObject("C", "C");
+        assertEquals("A", localCache.getObject("A"));
+        assertNull(localCache.getObject("B"));
+        assertEquals(2, localCache.getSize());
+
+        localCache.endQuery();
+        assertFalse(localCache.isPinned("A"));
+        assertEquals(1, localCache.getSize());
+        assertEquals(2, localCache.getEvictionCount());
+        // unbalanced end is ignored
+        localCache.endQuery();
+    }
+
+    @Test
+    void testBoundedLocalCacheByBytes() {
+        List<User> users = ofList(new User(1, "User-1"), new User(2, "User-2"));
+        long bytes = ObjectSizes.estimate(users);
+        BoundedLocalCache localCache = new BoundedLocalCache("test", 0, bytes + bytes / 2);
+        localCache.putObject("A", users);
+        assertEquals(bytes, localCache.getEstimatedBytes());
+        localCache.putObject("B", new ArrayList<>(users));
+        assertEquals(1, localCache.getSize());
+        assertNull(localCache.getObject("A"));
+        assertEquals(users, localCache.getObject("B"));
+        assertEquals(1, localCache.getEvictionCount());
+        assertEquals(bytes, localCache.getEvictedBytes());
+
+        assertEquals(users, localCache.removeObject("B"));
+        assertNull(localCache.removeObject("B"));
+        assertEquals(0, localCache.getEstimatedBytes());
+        assertEquals(0, localCache.getMaxEntries());
+        assertEquals(bytes + bytes / 2, localCache.getMaxBytes());
+        assertTrue(localCache.toString().contains("evictionCount=1"));
+    }
+
+    @Test
+    void testBoundedLocalCacheWithPlaceholder() {
+        BoundedLocalCache localCache = new BoundedLocalCache("test", 1, 0);
+        localCache.putObject("A", EXECUTION_PLACEHOLDER);
+        localCache.putObject("B", "B");
+        // the placeholder of the query in progress is never evicted
+        assertEquals(2, localCache.getSize());
+        assertSame(EXECUTION_PLACEHOLDER, localCache.getObject("A"));
+        localCache.removeObject("A");
+        localCache.putObject("A", "A");
+        assertEquals(1, localCache.getSize());
+        assertNull(localCache.getObject("B"));
+        assertEquals("A", localCache.getObject("A"));
+        assertInstanceOf(PerpetualCache.class, localCache);
+    }
+
+    @Test
+    void testObjectSizes() {
+        assertEquals(0, ObjectSizes.estimate(null));
+        User user = new User(1, "User-1");
+        long userBytes = ObjectSizes.estimate(user);
+        assertTrue(userBytes > ObjectSizes.estimate("User-1"));
+        List<Object> values = new ArrayList<>();
+        values.add(user);
+        values.add(user);
+        values.add(values);
+        // the shared and cyclic references are counted once
+        assertTrue(ObjectSizes.estimate(values) < userBytes * 3);
+        assertEquals(24, ObjectSizes.estimate(new long[1]));
+        assertEquals(24, ObjectSizes.estimate(1L));
+    }
+
+    interface NodeMapper {
+
+        @Select("SELECT id,name FROM users ORDER BY id")
+        @Results(id = "nodeResultMap", value = {
+                @Result(property = "id", column = "id", id = true),
+                @Result(property = "name", column = "name"),
+                @Result(property = "peer", column = "id", one = @One(select = "selectNodeById"))
+        })
+        List<Node> selectAll();
+
+        @Select("SELECT id,name FROM users WHERE id = #{id}")
+        @ResultMap("nodeResultMap")
+        Node selectNodeById(int id);
+    }
+
+    public static class Node {
+
+        private int id;
+
+        private String name;
+
+        private Node peer;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Node getPeer() {
+            return peer;
+        }
+
+        public void setPeer(Node peer) {
+            this.peer = peer;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.ResultMap;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link EntityCacheExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see EntityCacheExecutorFilter
+ * @since 1.0.0
+ */
+class EntityCacheExecutorFilterTest extends AbstractMapperTest {
+
+    private final EntityCacheExecutorFilter filter = new EntityCacheExecutorFilter(2);
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addMapper(EntityUserMapper.class);
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+    }
+
+    @Test
+    void testLookupById() throws Throwable {
+        saveUsers(1);
+        User user = getUserById(1);
+        assertEquals(new User(1, "User-1"), user);
+        assertEquals(0, filter.getHitCount());
+        assertEquals(1, filter.getMissCount());
+
+        // served from the identity map
+        assertSame(user, getUserById(1));
+        assertEquals(1, filter.getHitCount());
+        assertSame(user, filter.getEntity(User.class, 1));
+
+        // the absent row
+        assertNull(getUserById(2));
+        assertEquals(2, filter.getMissCount());
+    }
+
+    @Test
+    void testSharedAcrossStatements() throws Throwable {
+        saveUsers(1, 2);
+        User[] user = new User[1];
+        List<User>[] users = new List[1];
+        doInMapper(EntityUserMapper.class, mapper -> {
+            user[0] = mapper.getUserByName("User-1");
+            users[0] = mapper.getUsers();
+        });
+        assertEquals(2, users[0].size());
+        assertEquals(2, filter.getSize());
+        assertSame(users[0].get(1), getUserById(2));
+        assertEquals(1, filter.getHitCount());
+        assertSame(filter.getEntity(User.class, 1), getUserById(1));
+        assertEquals(2, filter.getHitCount());
+    }
+
+    @Test
+    void testInvalidation() throws Throwable {
+        saveUsers(1, 2);
+        getUserById(1);
+        getUserById(2);
+        assertEquals(2, filter.getSize());
+
+        // invalidated by the entity
+        doInSqlSession(sqlSession -> {
+            EntityUserMapper mapper = sqlSession.getMapper(EntityUserMapper.class);
+            mapper.updateUser(new User(1, "User-X"));
+            // the transaction sees its own uncommitted update
+            assertEquals(new User(1, "User-X"), mapper.getUserById(1));
+            sqlSession.commit();
+        });
+        assertNull(filter.getEntity(User.class, 1));
+        assertEquals(new User(2, "User-2"), filter.getEntity(User.class, 2));
+        assertEquals(new User(1, "User-X"), getUserById(1));
+
+        // invalidated by the id
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(EntityUserMapper.class).deleteUserById(2);
+            sqlSession.commit();
+        });
+        assertNull(filter.getEntity(User.class, 2));
+        assertNull(getUserById(2));
+
+        // invalidated by the table
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(EntityUserMapper.class).renameUsers("User-Y");
+            sqlSession.commit();
+        });
+        assertEquals(0, filter.getSize());
+        assertEquals(new User(1, "User-Y"), getUserById(1));
+    }
+
+    @Test
+    void testInvalidationWithoutIdPredicate() throws Throwable {
+        saveUsers(1, 2);
+        getUserById(1);
+        getUserById(2);
+        assertEquals(2, filter.getSize());
+
+        // the id of the entity is not the condition of the update
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(EntityUserMapper.class).renameUsersByPrefix(new User(1, "User-Z"));
+            sqlSession.commit();
+        });
+        assertEquals(0, filter.getSize());
+        assertEquals(new User(2, "User-Z"), getUserById(2));
+    }
+
+    @Test
+    void testDifferentTables() throws Throwable {
+        saveUsers(1);
+        assertEquals(new User(1, "User-1"), getUserById(1));
+        // the same type and id read from the other table
+        User[] father = new User[1];
+        doInMapper(EntityUserMapper.class, mapper -> father[0] = mapper.getFatherById(1));
+        assertEquals(new User(1, "John Smith"), father[0]);
+        assertEquals(0, filter.getHitCount());
+        assertEquals(2, filter.getSize());
+        assertEquals(new User(1, "User-1"), getUserById(1));
+        assertEquals(1, filter.getHitCount());
+
+        // invalidated by the written table only
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(EntityUserMapper.class).updateUser(new User(1, "User-X"));
+            sqlSession.commit();
+        });
+        assertEquals(1, filter.getSize());
+        doInMapper(EntityUserMapper.class, mapper -> assertSame(father[0], mapper.getFatherById(1)));
+        assertEquals(2, filter.getHitCount());
+    }
+
+    @Test
+    void testDynamicSql() throws Throwable {
+        saveUsers(1);
+        doInMapper(EntityUserMapper.class, mapper -> {
+            assertEquals(new User(1, "User-1"), mapper.findUser("users", 1));
+            // the later rendering reads the other table than the first one
+            assertEquals(new User(1, "John Smith"), mapper.findUser("father", 1));
+        });
+        assertEquals(0, filter.getSize());
+        assertEquals(0, filter.getHitCount());
+    }
+
+    @Test
+    void testRollback() throws Throwable {
+        saveUsers(1);
+        User user = getUserById(1);
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(EntityUserMapper.class).updateUser(new User(1, "User-X"));
+            sqlSession.rollback();
+        });
+        // the invalidation of the update was applied on the execution
+        assertNull(filter.getEntity(User.class, 1));
+        assertEquals(user, getUserById(1));
+    }
+
+    @Test
+    void testMaxEntriesAndInvalidate() throws Throwable {
+        saveUsers(1, 2, 3);
+        getUserById(1);
+        getUserById(2);
+        getUserById(3);
+        assertEquals(2, filter.getSize());
+        assertNull(filter.getEntity(User.class, 1));
+
+        assertEquals(true, filter.invalidate(User.class, 2));
+        assertEquals(false, filter.invalidate(User.class, 2));
+        assertEquals(1, filter.invalidate(Set.of(User.class)));
+        assertEquals(0, filter.getSize());
+        assertEquals(2, filter.getInvalidatedCount());
+    }
+
+    @Test
+    void testConstructor() {
+        assertEquals(EntityCacheExecutorFilter.DEFAULT_MAX_ENTRIES, new EntityCacheExecutorFilter().getMaxEntries());
+        assertThrows(IllegalArgumentException.class, () -> new EntityCacheExecutorFilter(0));
+    }
+
+    private void saveUsers(int... ids) throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            for (int id : ids) {
+                userMapper.saveUser(new User(id, "User-" + id));
+            }
+            sqlSession.commit();
+        });
+    }
+
+    private User getUserById(int id) throws Throwable {
+        User[] user = new User[1];
+        doInMapper(EntityUserMapper.class, mapper -> user[0] = mapper.getUserById(id));
+        return user[0];
+    }
+
+    interface EntityUserMapper {
+
+        @Select("SELECT id,name FROM users WHERE id = #{id}")
+        @Results(id = "userResultMap", value = {
+                @Result(property = "id", column = "id", id = true),
+                @Result(property = "name", column = "name")
+        })
+        User getUserById(int id);
+
+        @Select("SELECT id,name FROM users WHERE name = #{name}")
+        @ResultMap("userResultMap")
+        User getUserByName(String name);
+
+        @Select("SELECT id,name FROM users ORDER BY id")
+        @ResultMap("userResultMap")
+        List<User> getUsers();
+
+        @Update("UPDATE users SET name = #{name} WHERE id = #{id}")
+        int updateUser(User user);
+
+        @Update("UPDATE users SET name = #{name}")
+        int renameUsers(String name);
+
+        @Update("UPDATE users SET name = #{name} WHERE name LIKE 'User-%'")
+        int renameUsersByPrefix(User user);
+
+        @Select("SELECT id,name FROM father WHERE id = #{id}")
+        @ResultMap("userResultMap")
+        User getFatherById(int id);
+
+        @Select("<script>SELECT id,name FROM ${table} WHERE id = #{id}</script>")
+        @ResultMap("userResultMap")
+        User findUser(@Param("table") String table, @Param("id") int id);
+
+        @Delete("DELETE FROM users WHERE id = #{id}")
+        int deleteUserById(int id);
+    }
+}
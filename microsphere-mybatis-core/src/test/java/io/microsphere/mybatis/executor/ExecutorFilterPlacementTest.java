@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.BOTH;
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.INSIDE;
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.OUTSIDE;
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ExecutorFilterPlacement} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ExecutorFilterPlacement
+ * @since 1.0.0
+ */
+class ExecutorFilterPlacementTest extends AbstractMapperTest {
+
+    private final CountingExecutorFilter insideFilter = new CountingExecutorFilter(INSIDE);
+
+    private final CountingExecutorFilter outsideFilter = new CountingExecutorFilter(OUTSIDE);
+
+    private final CountingExecutorFilter bothFilter = new CountingExecutorFilter(BOTH);
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(insideFilter, outsideFilter)));
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(bothFilter)));
+    }
+
+    @Test
+    void testPlacement() {
+        assertTrue(INSIDE.isInside());
+        assertFalse(INSIDE.isOutside());
+        assertFalse(OUTSIDE.isInside());
+        assertTrue(OUTSIDE.isOutside());
+        assertTrue(BOTH.isInside());
+        assertTrue(BOTH.isOutside());
+        assertSame(INSIDE, new ExecutorFilter() {
+        }.getPlacement());
+    }
+
+    @Test
+    void testObserveSecondLevelCacheHits() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+        });
+        doInSqlSession(sqlSession -> {
+            assertEquals(new User(1, "User-1"), sqlSession.getMapper(UserMapper.class).getUserById(1));
+            sqlSession.commit();
+        });
+        assertEquals(1, outsideFilter.getCount(OUTSIDE));
+        assertEquals(1, insideFilter.getCount(INSIDE));
+        assertEquals(1, bothFilter.getCount(OUTSIDE));
+        assertEquals(1, bothFilter.getCount(INSIDE));
+
+        // the second-level cache hit is observed outside only
+        doInSqlSession(sqlSession -> assertEquals(new User(1, "User-1"),
+                sqlSession.getMapper(UserMapper.class).getUserById(1)));
+        assertEquals(2, outsideFilter.getCount(OUTSIDE));
+        assertEquals(1, insideFilter.getCount(INSIDE));
+        assertEquals(2, bothFilter.getCount(OUTSIDE));
+        assertEquals(1, bothFilter.getCount(INSIDE));
+        assertEquals(0, outsideFilter.getCount(INSIDE));
+        assertEquals(0, insideFilter.getCount(OUTSIDE));
+    }
+
+    @Test
+    void testShortCircuitBeforeSecondLevelCache() throws Throwable {
+        outsideFilter.shortCircuit = true;
+        try {
+            doInSqlSession(sqlSession -> assertNull(sqlSession.getMapper(UserMapper.class).getUserById(1)));
+        } finally {
+            outsideFilter.shortCircuit = false;
+        }
+        assertEquals(1, outsideFilter.getCount(OUTSIDE));
+        assertEquals(0, insideFilter.getCount(INSIDE));
+        assertEquals(0, bothFilter.getCount(INSIDE));
+    }
+
+    static class CountingExecutorFilter implements ExecutorFilter {
+
+        private final ExecutorFilterPlacement placement;
+
+        private final Map<ExecutorFilterPlacement, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+        private volatile boolean shortCircuit;
+
+        CountingExecutorFilter(ExecutorFilterPlacement placement) {
+            this.placement = placement;
+        }
+
+        @Override
+        public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                 CacheKey cacheKey, BoundSql boundSql, ExecutorFilterChain chain) throws SQLException {
+            counts.computeIfAbsent(chain.getPlacement(), p -> new AtomicInteger()).incrementAndGet();
+            if (shortCircuit) {
+                return List.of();
+            }
+            return chain.query(ms, parameter, rowBounds, resultHandler, cacheKey, boundSql);
+        }
+
+        @Override
+        public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler,
+                                 ExecutorFilterChain chain) throws SQLException {
+            counts.computeIfAbsent(chain.getPlacement(), p -> new AtomicInteger()).incrementAndGet();
+            if (shortCircuit) {
+                return List.of();
+            }
+            return chain.query(ms, parameter, rowBounds, resultHandler);
+        }
+
+        @Override
+        public ExecutorFilterPlacement getPlacement() {
+            return placement;
+        }
+
+        int getCount(ExecutorFilterPlacement placement) {
+            AtomicInteger count = counts.get(placement);
+            return count == null ? 0 : count.get();
+        }
+    }
+}
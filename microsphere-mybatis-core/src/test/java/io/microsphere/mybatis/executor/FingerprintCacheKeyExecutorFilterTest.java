@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.cache.FingerprintCacheKey;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.UUID;
+
+import static io.microsphere.mybatis.cache.FingerprintCacheKey.fingerprint;
+import static io.microsphere.util.ArrayUtils.of;
+import static org.apache.ibatis.executor.Executor.NO_RESULT_HANDLER;
+import static org.apache.ibatis.session.RowBounds.DEFAULT;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link FingerprintCacheKeyExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see FingerprintCacheKeyExecutorFilter
+ * @see FingerprintCacheKey
+ * @since 1.0.0
+ */
+class FingerprintCacheKeyExecutorFilterTest extends AbstractMapperTest {
+
+    private final FingerprintCacheKeyExecutorFilter filter = new FingerprintCacheKeyExecutorFilter(false);
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+    }
+
+    @Test
+    void testLocalCache() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            User user = createUser();
+            userMapper.saveUser(user);
+            User foundUser = userMapper.getUserById(user.getId());
+            assertEquals(user, foundUser);
+            assertSame(foundUser, userMapper.getUserById(user.getId()));
+        });
+    }
+
+    @Test
+    void testCreateCacheKey() throws Throwable {
+        MappedStatement ms = getMappedStatement(MS_ID_USER_BY_ID);
+        doInExecutor(executor -> {
+            BoundSql boundSql = ms.getBoundSql(1);
+            CacheKey cacheKey = executor.createCacheKey(ms, 1, DEFAULT, boundSql);
+            assertInstanceOf(FingerprintCacheKey.class, cacheKey);
+            assertEquals(cacheKey, executor.createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1)));
+            assertEquals(cacheKey.hashCode(), executor.createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1)).hashCode());
+            assertNotEquals(cacheKey, executor.createCacheKey(ms, 2, DEFAULT, ms.getBoundSql(2)));
+            assertNotEquals(cacheKey, executor.createCacheKey(ms, 1, new RowBounds(1, 1), boundSql));
+            assertNotEquals(cacheKey, executor.createCacheKey(getMappedStatement(MS_ID_USER_BY_NAME), 1, DEFAULT, boundSql));
+
+            // the parameter was fingerprinted by its content
+            assertEquals(0, ((FingerprintCacheKey) cacheKey).getParameterCount());
+            FingerprintCacheKey restoredCacheKey = FingerprintCacheKey.restore(((FingerprintCacheKey) cacheKey).getState());
+            assertEquals(cacheKey, restoredCacheKey);
+            assertEquals(cacheKey.hashCode(), restoredCacheKey.hashCode());
+
+            executor.query(ms, 1, DEFAULT, NO_RESULT_HANDLER);
+            assertTrue(executor.isCached(ms, cacheKey));
+        });
+        assertFalse(filter.isRetainParameters());
+        assertTrue(new FingerprintCacheKeyExecutorFilter().isRetainParameters());
+        assertEquals(FingerprintCacheKeyExecutorFilter.MIN_PRIORITY, filter.getPriority());
+    }
+
+    @Test
+    void testRetainParameters() {
+        MappedStatement ms = getMappedStatement(MS_ID_USER_BY_ID);
+        FingerprintCacheKeyExecutorFilter filter = new FingerprintCacheKeyExecutorFilter();
+        FingerprintCacheKey cacheKey = filter.createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1));
+        assertEquals(1, cacheKey.getParameterCount());
+        assertTrue(cacheKey.isRetainParameters());
+        assertNotEquals(cacheKey, this.filter.createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1)));
+    }
+
+    @Test
+    void testFingerprintCacheKey() throws CloneNotSupportedException {
+        Object[] values = of(null, "a", "abcde", 1, 1L, (short) 1, (byte) 1, 1.0d, 1.0f, true, 'a',
+                new BigDecimal("1.0"), new BigDecimal("1.00"), new Date(1), new java.sql.Date(1), new Timestamp(1),
+                new UUID(1, 2), RowBounds.class, new byte[]{1, 2, 3}, new int[]{1, 2, 3});
+        for (int i = 0; i < values.length; i++) {
+            FingerprintCacheKey cacheKey = newCacheKey(values[i]);
+            assertEquals(cacheKey, newCacheKey(values[i]));
+            assertEquals(cacheKey.hashCode(), newCacheKey(values[i]).hashCode());
+            assertEquals(cacheKey.toString(), newCacheKey(values[i]).toString());
+            for (int j = 0; j < values.length; j++) {
+                if (i != j) {
+                    assertNotEquals(cacheKey, newCacheKey(values[j]), values[i] + " vs " + values[j]);
+                }
+            }
+        }
+
+        // the values of unknown types are retained
+        FingerprintCacheKey cacheKey = newCacheKey(new int[]{1, 2, 3});
+        assertEquals(1, cacheKey.getParameterCount());
+        assertEquals(2, cacheKey.getUpdateCount());
+        assertTrue(cacheKey.toString().endsWith(":[1, 2, 3]"));
+
+        FingerprintCacheKey clonedCacheKey = cacheKey.clone();
+        assertNotSame(cacheKey, clonedCacheKey);
+        assertEquals(cacheKey, clonedCacheKey);
+        assertArrayEquals(cacheKey.getFingerprint(), clonedCacheKey.getFingerprint());
+
+        assertArrayEquals(fingerprint("test"), fingerprint("test"));
+        assertFalse(Arrays.equals(fingerprint("test"), fingerprint("tesT")));
+    }
+
+    private FingerprintCacheKey newCacheKey(Object value) {
+        FingerprintCacheKey cacheKey = new FingerprintCacheKey(false, 0);
+        cacheKey.update(value);
+        return cacheKey;
+    }
+}
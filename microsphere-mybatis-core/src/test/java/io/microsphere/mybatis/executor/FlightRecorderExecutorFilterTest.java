@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.executor.FlightRecorderExecutorFilter.StatementEvent;
+import io.microsphere.mybatis.executor.FlightRecorderExecutorFilter.TransactionEvent;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.microsphere.util.ArrayUtils.of;
+import static java.util.Comparator.comparing;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link FlightRecorderExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see FlightRecorderExecutorFilter
+ * @since 1.0.0
+ */
+class FlightRecorderExecutorFilterTest extends AbstractMapperTest {
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(new FlightRecorderExecutorFilter())));
+    }
+
+    @Test
+    void testEvents() throws Throwable {
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable(StatementEvent.NAME).withThreshold(Duration.ZERO);
+            recording.enable(TransactionEvent.NAME).withThreshold(Duration.ZERO);
+            recording.start();
+
+            doInSqlSession(sqlSession -> {
+                sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+                sqlSession.commit();
+            });
+            // the miss and the hit of second-level cache
+            doInMapper(UserMapper.class, userMapper -> userMapper.getUserByName("User-1"));
+            doInMapper(UserMapper.class, userMapper -> userMapper.getUserByName("User-1"));
+            // the miss and the hit of local cache
+            doInMapper(UserMapper.class, userMapper -> {
+                userMapper.getUserById(1);
+                userMapper.getUserById(1);
+            });
+
+            recording.stop();
+            Path file = Files.createTempFile("mybatis", ".jfr");
+            try {
+                recording.dump(file);
+                events = new ArrayList<>(RecordingFile.readAllEvents(file));
+            } finally {
+                Files.delete(file);
+            }
+        }
+        events.sort(comparing(RecordedEvent::getStartTime));
+
+        List<RecordedEvent> saveUserEvents = getStatementEvents(events, MS_ID_SAVE_USER);
+        assertEquals(1, saveUserEvents.size());
+        RecordedEvent saveUserEvent = saveUserEvents.get(0);
+        assertEquals("update", saveUserEvent.getString("operation"));
+        assertEquals("INSERT", saveUserEvent.getString("commandType"));
+        assertEquals(1, saveUserEvent.getLong("rows"));
+        assertNull(saveUserEvent.getString("failure"));
+
+        assertCacheHits(getStatementEvents(events, MS_ID_USER_BY_NAME));
+        assertCacheHits(getStatementEvents(events, MS_ID_USER_BY_ID));
+
+        assertTrue(events.stream().anyMatch(event -> TransactionEvent.NAME.equals(event.getEventType().getName())
+                && "commit".equals(event.getString("operation")) && event.getBoolean("required")));
+    }
+
+    @Test
+    void testDisabled() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(2, "User-2"));
+            assertEquals(new User(2, "User-2"), userMapper.getUserById(2));
+            sqlSession.commit();
+        });
+    }
+
+    private void assertCacheHits(List<RecordedEvent> events) {
+        assertEquals(2, events.size());
+        assertEquals("query", events.get(0).getString("operation"));
+        assertEquals("SELECT", events.get(0).getString("commandType"));
+        assertEquals(1, events.get(0).getLong("rows"));
+        assertEquals(false, events.get(0).getBoolean("cacheHit"));
+        assertEquals(1, events.get(1).getLong("rows"));
+        assertEquals(true, events.get(1).getBoolean("cacheHit"));
+    }
+
+    private List<RecordedEvent> getStatementEvents(List<RecordedEvent> events, String statementId) {
+        return events.stream()
+                .filter(event -> StatementEvent.NAME.equals(event.getEventType().getName()))
+                .filter(event -> statementId.equals(event.getString("statementId")))
+                .toList();
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.executor.statement.InFlightStatementHandlerFilter;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.plugin.InterceptingStatementHandlerInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link InFlightStatementRegistry} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InFlightStatementRegistry
+ * @see InFlightStatementExecutorFilter
+ * @see InFlightStatementHandlerFilter
+ * @since 1.0.0
+ */
+class InFlightStatementRegistryTest extends AbstractMapperTest {
+
+    private final List<String> reports = new CopyOnWriteArrayList<>();
+
+    private final InFlightStatementRegistry registry = new InFlightStatementRegistry() {
+        @Override
+        protected void report(InFlightStatement statement, boolean cancelled) {
+            super.report(statement, cancelled);
+            reports.add(statement.getStatementId() + ":" + cancelled);
+        }
+    };
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.setCacheEnabled(false);
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(new InFlightStatementExecutorFilter(registry))));
+        configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(new InFlightStatementHandlerFilter(registry)));
+    }
+
+    @AfterEach
+    void closeRegistry() {
+        registry.close();
+    }
+
+    @Test
+    void testSnapshot() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+        });
+        assertEquals(0, registry.size());
+
+        List<InFlightStatement>[] snapshot = new List[1];
+        doInSqlSession(sqlSession -> sqlSession.select(MS_ID_USER_BY_ID, 1, context -> {
+            snapshot[0] = registry.getSnapshot();
+            InFlightStatement current = registry.getCurrentStatement();
+            assertNotNull(current);
+            // the executing JDBC statement
+            assertNotNull(current.getStatement());
+            assertEquals(1, registry.inspect(0, false));
+            // reported once
+            assertEquals(0, registry.inspect(0, false));
+        }));
+
+        assertEquals(1, snapshot[0].size());
+        InFlightStatement statement = snapshot[0].get(0);
+        assertEquals(MS_ID_USER_BY_ID, statement.getStatementId());
+        assertSame(Thread.currentThread(), statement.getThread());
+        assertEquals("SELECT id,name FROM users WHERE id = ?", statement.getSql());
+        assertNotNull(statement.getConnection());
+        assertTrue(statement.getStartTime() > 0);
+        assertTrue(statement.getElapsedMillis() >= 0);
+        // detached after the execution
+        assertNull(statement.getStatement());
+        assertFalse(statement.cancel());
+        assertEquals(List.of(MS_ID_USER_BY_ID + ":false"), reports);
+
+        assertEquals(0, registry.size());
+        assertNull(registry.getCurrentStatement());
+    }
+
+    @Test
+    void testWatchdog() {
+        assertFalse(registry.isWatchdogRunning());
+        registry.startWatchdog(1000, 100, true);
+        assertTrue(registry.isWatchdogRunning());
+        assertThrows(IllegalStateException.class, () -> registry.startWatchdog(1000, 100, true));
+        registry.close();
+        assertFalse(registry.isWatchdogRunning());
+
+        assertThrows(IllegalArgumentException.class, () -> registry.startWatchdog(0, 100, false));
+        assertThrows(IllegalArgumentException.class, () -> registry.startWatchdog(1000, 0, false));
+    }
+
+    @Test
+    void testConstructor() {
+        assertThrows(IllegalArgumentException.class, () -> new InFlightStatementExecutorFilter(null));
+        assertThrows(IllegalArgumentException.class, () -> new InFlightStatementHandlerFilter(null));
+        assertSame(registry, new InFlightStatementExecutorFilter(registry).getRegistry());
+        assertSame(registry, new InFlightStatementHandlerFilter(registry).getRegistry());
+    }
+}
@@ -19,9 +19,13 @@ package io.microsphere.mybatis.executor;
 
 import org.junit.jupiter.api.Test;
 
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.INSIDE;
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.OUTSIDE;
 import static io.microsphere.mybatis.executor.ExecutorsTest.mockExecutor;
 import static io.microsphere.util.ArrayUtils.ofArray;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * {@link InterceptorsExecutorFilterAdapter} Test
@@ -41,4 +45,12 @@ class InterceptorsExecutorFilterAdapterTest {
             interceptorsExecutorFilterAdapter.deferLoad(null, null, null, null, null, executorFilterChain);
         });
     }
+
+    @Test
+    void testPlacement() {
+        ExecutorInterceptor[] interceptors = ofArray(new ThrowingErrorExecutorInterceptor());
+        assertEquals(INSIDE, new InterceptorsExecutorFilterAdapter(interceptors).getPlacement());
+        assertEquals(OUTSIDE, new InterceptorsExecutorFilterAdapter(interceptors, OUTSIDE).getPlacement());
+        assertThrows(IllegalArgumentException.class, () -> new InterceptorsExecutorFilterAdapter(interceptors, null));
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link NegativeCacheExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see NegativeCacheExecutorFilter
+ * @since 1.0.0
+ */
+class NegativeCacheExecutorFilterTest extends AbstractMapperTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private final NegativeCacheExecutorFilter filter = new NegativeCacheExecutorFilter(2, 1000, MS_ID_USER_BY_ID) {
+        @Override
+        protected long currentTime() {
+            return time.get();
+        }
+    };
+
+    @Override
+    protected void customize(Configuration configuration) {
+        // the empty results would be cached by the second-level cache otherwise
+        configuration.setCacheEnabled(false);
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+        configuration.addMapper(DynamicInsertMapper.class);
+    }
+
+    @Test
+    void testNegativeLookup() throws Throwable {
+        assertNull(getUserById(1));
+        assertNull(getUserById(1));
+        assertEquals(1, filter.getHitCount());
+        assertEquals(1, filter.getSize());
+
+        // invalidated by the insert
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+        });
+        assertEquals(new User(1, "User-1"), getUserById(1));
+        assertEquals(1, filter.getHitCount());
+        assertEquals(1, filter.getStaleCount());
+        assertEquals(0, filter.getSize());
+
+        // the statement is not configured
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserByName("User-2"));
+        assertEquals(0, filter.getSize());
+    }
+
+    @Test
+    void testPendingWrites() throws Throwable {
+        assertNull(getUserById(2));
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(2, "User-2"));
+            // the transaction sees its own uncommitted insert
+            assertEquals(new User(2, "User-2"), userMapper.getUserById(2));
+            sqlSession.commit();
+        });
+        assertEquals(new User(2, "User-2"), getUserById(2));
+        assertEquals(0, filter.getHitCount());
+    }
+
+    @Test
+    void testTtlAndMaxEntries() throws Throwable {
+        assertNull(getUserById(3));
+        time.set(1000);
+        assertNull(getUserById(3));
+        assertEquals(0, filter.getHitCount());
+        assertEquals(1, filter.getStaleCount());
+
+        assertNull(getUserById(4));
+        assertNull(getUserById(5));
+        assertEquals(2, filter.getSize());
+    }
+
+    @Test
+    void testBumpVersions() throws Throwable {
+        assertNull(getUserById(6));
+        filter.bumpVersions(Set.of("roles"));
+        assertNull(getUserById(6));
+        assertEquals(1, filter.getHitCount());
+        filter.bumpVersions(Set.of(TableInvalidationExecutorFilter.UNKNOWN_TABLE));
+        assertNull(getUserById(6));
+        assertEquals(1, filter.getHitCount());
+    }
+
+    @Test
+    void testDynamicWriter() throws Throwable {
+        assertNull(getUserById(8));
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(DynamicInsertMapper.class).insert("father", 2, "Father-2");
+            sqlSession.commit();
+        });
+        // the later rendering writes the other table than the first one
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(DynamicInsertMapper.class).insert("users", 8, "User-8");
+            sqlSession.commit();
+        });
+        assertEquals(new User(8, "User-8"), getUserById(8));
+    }
+
+    @Test
+    void testConstructor() {
+        NegativeCacheExecutorFilter filter = new NegativeCacheExecutorFilter();
+        assertEquals(NegativeCacheExecutorFilter.DEFAULT_MAX_ENTRIES, filter.getMaxEntries());
+        assertEquals(NegativeCacheExecutorFilter.DEFAULT_TTL, filter.getTtl());
+        assertEquals(Set.of(), filter.getStatementIds());
+        assertThrows(IllegalArgumentException.class, () -> new NegativeCacheExecutorFilter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new NegativeCacheExecutorFilter(1, 0));
+    }
+
+    private User getUserById(int id) throws Throwable {
+        User[] user = new User[1];
+        doInMapper(UserMapper.class, userMapper -> user[0] = userMapper.getUserById(id));
+        return user[0];
+    }
+
+    interface DynamicInsertMapper {
+
+        @Insert("<script>INSERT INTO ${table} (id, name) VALUES (#{id}, #{name})</script>")
+        int insert(@Param("table") String table, @Param("id") int id, @Param("name") String name);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.executor.SessionLeakDetector.TrackedSession;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.microsphere.mybatis.util.MyBatisUtils.getConnection;
+import static io.microsphere.util.ArrayUtils.of;
+import static java.lang.Thread.sleep;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SessionLeakDetector} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SessionLeakDetector
+ * @since 1.0.0
+ */
+class SessionLeakDetectorTest extends AbstractMapperTest {
+
+    private final AtomicLong time = new AtomicLong(1000);
+
+    private final List<String> reports = new CopyOnWriteArrayList<>();
+
+    private final SessionLeakDetector detector = new SessionLeakDetector(100, 1) {
+
+        @Override
+        protected void report(TrackedSession session, boolean collected) {
+            super.report(session, collected);
+            reports.add(session.getId() + ":" + collected + ":" + session.getStackTrace().getMessage());
+        }
+
+        @Override
+        protected long currentTime() {
+            return time.get();
+        }
+    };
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.setCacheEnabled(false);
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(detector)));
+    }
+
+    @AfterEach
+    void closeDetector() {
+        detector.close();
+    }
+
+    @Test
+    void testAgedSession() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.getUserById(1);
+            List<TrackedSession> sessions = detector.getSessions();
+            assertEquals(1, sessions.size());
+            assertFalse(sessions.get(0).isClosed());
+            assertNotNull(sessions.get(0).getStackTrace());
+
+            assertTrue(detector.inspect().isEmpty());
+            time.addAndGet(101);
+            assertEquals(1, detector.inspect().size());
+            // reported once
+            assertTrue(detector.inspect().isEmpty());
+            assertEquals(1, reports.size());
+            assertTrue(reports.get(0).endsWith(":false:The session[id : " + sessions.get(0).getId() + "] was opened"));
+        });
+        assertTrue(detector.getSessions().isEmpty());
+        assertTrue(detector.inspect().isEmpty());
+        assertEquals(0, detector.getLeakCount());
+    }
+
+    @Test
+    void testCollectedSession() throws Throwable {
+        openAndLeakConnection();
+        for (int i = 0; i < 100 && detector.getLeakCount() == 0; i++) {
+            System.gc();
+            sleep(50);
+        }
+        assertEquals(1, detector.getLeakCount());
+        assertEquals(1, reports.size());
+        assertTrue(reports.get(0).contains(":true:"));
+        assertTrue(detector.getSessions().isEmpty());
+    }
+
+    @Test
+    void testWatchdog() throws Throwable {
+        assertFalse(detector.isWatchdogRunning());
+        detector.startWatchdog(10);
+        assertTrue(detector.isWatchdogRunning());
+        assertThrows(IllegalStateException.class, () -> detector.startWatchdog(10));
+        detector.close();
+        assertFalse(detector.isWatchdogRunning());
+        assertThrows(IllegalArgumentException.class, () -> detector.startWatchdog(0));
+    }
+
+    @Test
+    void testConstructor() {
+        SessionLeakDetector detector = new SessionLeakDetector();
+        assertEquals(SessionLeakDetector.DEFAULT_MAX_AGE, detector.getMaxAge());
+        assertEquals(SessionLeakDetector.DEFAULT_STACK_TRACE_SAMPLING_INTERVAL, detector.getStackTraceSamplingInterval());
+        assertThrows(IllegalArgumentException.class, () -> new SessionLeakDetector(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SessionLeakDetector(1, 0));
+    }
+
+    private void openAndLeakConnection() throws Exception {
+        // the session opened by MyBatisUtils.getConnection(Configuration) is never closed
+        try (Connection connection = getConnection(getConfiguration())) {
+            assertFalse(connection.isClosed());
+        }
+        assertEquals(1, detector.getSessions().size());
+    }
+}
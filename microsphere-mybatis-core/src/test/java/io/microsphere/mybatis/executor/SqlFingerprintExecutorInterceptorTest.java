@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.plugin.InterceptingStatementHandlerInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.SelectProvider;
+import org.apache.ibatis.annotations.UpdateProvider;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.microsphere.mybatis.executor.ExecutorFilterPlacement.OUTSIDE;
+import static io.microsphere.mybatis.executor.SqlFingerprintExecutorInterceptor.normalize;
+import static io.microsphere.mybatis.test.MyBatisTestUtils.buildDefaultSqlSessionFactory;
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link SqlFingerprintExecutorInterceptor} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see SqlFingerprintExecutorInterceptor
+ * @since 1.0.0
+ */
+class SqlFingerprintExecutorInterceptorTest extends AbstractMapperTest {
+
+    private static final String SAVE_USER_SQL = "INSERT INTO users (id,name) VALUES (?,?)";
+
+    private static final String USER_BY_ID_SQL = "SELECT id,name FROM users WHERE id = ?";
+
+    private static final String ERROR_USER_BY_NAME_SQL = "SELECT id,name FROM error_users WHERE name = ?";
+
+    private final SqlFingerprintExecutorInterceptor interceptor = new SqlFingerprintExecutorInterceptor(3);
+
+    @Override
+    protected void customize(Configuration configuration) {
+        // the hits of second-level cache are not counted
+        configuration.setCacheEnabled(false);
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(), interceptor));
+        configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(interceptor));
+        configuration.addMapper(ProviderUserMapper.class);
+    }
+
+    @Test
+    void testNormalize() {
+        assertEquals("SELECT * FROM users WHERE id = ? AND name = ?",
+                normalize("SELECT *\n  FROM users -- the users\n WHERE id = 10 AND /* name */ name = 'it''s'"));
+        assertEquals("SELECT * FROM t1 WHERE a IN (...) AND b in (...) AND c IN (SELECT id FROM t2)",
+                normalize("SELECT * FROM t1 WHERE a IN (?, ?, ?) AND b in(1,2.5) AND c IN (SELECT id FROM t2)"));
+        assertEquals("INSERT INTO users (id,name) VALUES (?,?), ...",
+                normalize("INSERT INTO users (id,name) VALUES (?,?), (?,?),(3,'User-3')"));
+        assertEquals("SELECT \"col 1\", `col2`, [col 3] FROM t WHERE x > -? AND y = ?",
+                normalize("SELECT \"col 1\", `col2`, [col 3] FROM t WHERE x > -1.5e3 AND y = 0x1F"));
+    }
+
+    @Test
+    void testStatistics() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(1, "User-1"));
+            userMapper.saveUser(new User(2, "User-2"));
+            sqlSession.commit();
+        });
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserById(1));
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserById(3));
+        assertThrows(Throwable.class, () -> doInMapper(UserMapper.class, userMapper -> userMapper.getErrorUserByName("User-1")));
+
+        SqlFingerprintStatistics saveUser = interceptor.getStatistics(SAVE_USER_SQL);
+        assertEquals(MS_ID_SAVE_USER, saveUser.getStatementId());
+        assertEquals(2, saveUser.getCalls());
+        assertEquals(2, saveUser.getRows());
+        assertEquals(0, saveUser.getErrors());
+
+        SqlFingerprintStatistics userById = interceptor.getStatistics(USER_BY_ID_SQL);
+        assertEquals(MS_ID_USER_BY_ID, userById.getStatementId());
+        assertEquals(2, userById.getCalls());
+        assertEquals(1, userById.getRows());
+        assertTrue(userById.getMinTime() <= userById.getMeanTime());
+        assertTrue(userById.getMeanTime() <= userById.getMaxTime());
+        assertEquals(userById.getTotalTime() / 2, userById.getMeanTime());
+
+        SqlFingerprintStatistics errorUserByName = interceptor.getStatistics(ERROR_USER_BY_NAME_SQL);
+        assertEquals(1, errorUserByName.getCalls());
+        assertEquals(1, errorUserByName.getErrors());
+
+        List<SqlFingerprintStatistics> topStatistics = interceptor.getTopStatistics(2);
+        assertEquals(2, topStatistics.size());
+        assertTrue(topStatistics.get(0).getTotalTime() >= topStatistics.get(1).getTotalTime());
+        assertEquals(3, interceptor.getTopStatistics(10).size());
+        assertEquals(3, interceptor.getStatistics().size());
+
+        // beyond the max fingerprints
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserByName("User-1"));
+        assertNull(interceptor.getStatistics("SELECT id,name FROM users WHERE name = ?"));
+        assertEquals(1, interceptor.getOverflowStatistics().getCalls());
+
+        interceptor.reset();
+        assertEquals(0, interceptor.getStatistics().size());
+        assertEquals(0, interceptor.getOverflowStatistics().getCalls());
+        assertEquals(0, interceptor.getOverflowStatistics().getMinTime());
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserById(1));
+        assertNotNull(interceptor.getStatistics(USER_BY_ID_SQL));
+    }
+
+    @Test
+    void testOutsidePlacement() throws Throwable {
+        SqlFingerprintExecutorInterceptor outsideInterceptor = new SqlFingerprintExecutorInterceptor();
+        SqlSessionFactory sqlSessionFactory = buildDefaultSqlSessionFactory();
+        // the hits of second-level cache are counted
+        sqlSessionFactory.getConfiguration().addInterceptor(new InterceptingExecutorInterceptor(of(), OUTSIDE,
+                outsideInterceptor));
+        for (int i = 0; i < 2; i++) {
+            try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+                sqlSession.getMapper(UserMapper.class).getUserById(1);
+                sqlSession.commit();
+            }
+        }
+        assertEquals(2, outsideInterceptor.getStatistics(USER_BY_ID_SQL).getCalls());
+    }
+
+    @Test
+    void testStaticStatement() throws Throwable {
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserById(1));
+        SqlFingerprintStatistics statistics = interceptor.getStatistics(USER_BY_ID_SQL);
+        doInMapper(UserMapper.class, userMapper -> userMapper.getUserById(2));
+        assertSame(statistics, interceptor.getStatistics(USER_BY_ID_SQL));
+        assertEquals(2, statistics.getCalls());
+    }
+
+    @Test
+    void testConstructor() {
+        assertEquals(SqlFingerprintExecutorInterceptor.DEFAULT_MAX_FINGERPRINTS,
+                new SqlFingerprintExecutorInterceptor().getMaxFingerprints());
+        assertThrows(IllegalArgumentException.class, () -> new SqlFingerprintExecutorInterceptor(0));
+        assertThrows(IllegalArgumentException.class, () -> interceptor.getTopStatistics(0));
+    }
+
+    @Test
+    void testDynamicSqlRenderedOnce() throws Throwable {
+        UserSqlProvider.renderings.set(0);
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.getMapper(ProviderUserMapper.class).renameUser(1, "User-X");
+            sqlSession.commit();
+        });
+        assertEquals(1, UserSqlProvider.renderings.get());
+        assertEquals(1, interceptor.getStatistics("UPDATE users SET name = ? WHERE id = ?").getCalls());
+
+        doInMapper(ProviderUserMapper.class, mapper -> assertEquals(new User(1, "User-X"), mapper.getUserById(1)));
+        assertEquals(2, UserSqlProvider.renderings.get());
+        assertEquals(1, interceptor.getStatistics(USER_BY_ID_SQL).getCalls());
+    }
+
+    interface ProviderUserMapper {
+
+        @UpdateProvider(type = UserSqlProvider.class, method = "renameUser")
+        int renameUser(@Param("id") int id, @Param("name") String name);
+
+        @SelectProvider(type = UserSqlProvider.class, method = "getUserById")
+        User getUserById(int id);
+    }
+
+    static class UserSqlProvider {
+
+        static final AtomicInteger renderings = new AtomicInteger();
+
+        public static String renameUser() {
+            renderings.incrementAndGet();
+            return "UPDATE users SET name = #{name} WHERE id = #{id}";
+        }
+
+        public static String getUserById() {
+            renderings.incrementAndGet();
+            return "SELECT id,name FROM users WHERE id = #{id}";
+        }
+    }
+}
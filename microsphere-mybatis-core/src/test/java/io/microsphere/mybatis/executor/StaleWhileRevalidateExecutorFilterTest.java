@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * {@link StaleWhileRevalidateExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StaleWhileRevalidateExecutorFilter
+ * @since 1.0.0
+ */
+class StaleWhileRevalidateExecutorFilterTest extends AbstractMapperTest {
+
+    private final AtomicLong time = new AtomicLong();
+
+    private final List<Runnable> deferredRefreshes = new ArrayList<>();
+
+    private boolean deferRefresh;
+
+    // refreshes in the caller thread unless deferred
+    private final StaleWhileRevalidateExecutorFilter filter = new StaleWhileRevalidateExecutorFilter(1000, 5000, 0.5,
+            2, 2, this::runRefresh) {
+        @Override
+        protected long currentTime() {
+            return time.get();
+        }
+    };
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+    }
+
+    @Test
+    void testStaleWhileRevalidate() throws Throwable {
+        assertNull(getUser(1));
+        // the write bypasses MyBatis, the cached entry is stale
+        insertUser(1);
+
+        time.set(999);
+        assertNull(getUser(1));
+        assertEquals(0, filter.getRefreshCount());
+
+        // served past the soft TTL, then refreshed
+        time.set(1000);
+        assertNull(getUser(1));
+        assertEquals(1, filter.getStaleHitCount());
+        assertEquals(1, filter.getRefreshCount());
+        assertEquals(0, filter.getRefreshAheadCount());
+        assertEquals(new User(1, "User-1"), getUser(1));
+    }
+
+    @Test
+    void testRefreshAhead() throws Throwable {
+        assertNull(getUser(2));
+        insertUser(2);
+
+        time.set(100);
+        assertNull(getUser(2));
+        // the popular entry is refreshed ahead of the soft TTL
+        time.set(500);
+        assertNull(getUser(2));
+        assertEquals(1, filter.getRefreshAheadCount());
+        assertEquals(1, filter.getRefreshCount());
+        assertEquals(0, filter.getStaleHitCount());
+        assertEquals(new User(2, "User-2"), getUser(2));
+    }
+
+    @Test
+    void testHardTtl() throws Throwable {
+        assertNull(getUser(3));
+        insertUser(3);
+
+        // the caller waits for the query past the hard TTL
+        time.set(5000);
+        assertEquals(new User(3, "User-3"), getUser(3));
+        assertEquals(1, filter.getExpiredCount());
+        assertEquals(0, filter.getRefreshCount());
+    }
+
+    @Test
+    void testReloadAfterFlush() throws Throwable {
+        assertNull(getUser(7));
+        getMappedStatement(MS_ID_USER_BY_ID).getCache().clear();
+        insertUser(7);
+
+        // the entry reloaded after the flush is tracked as a new one
+        time.set(900);
+        assertEquals(new User(7, "User-7"), getUser(7));
+        time.set(1500);
+        assertEquals(new User(7, "User-7"), getUser(7));
+        assertEquals(0, filter.getStaleHitCount());
+        assertEquals(0, filter.getRefreshCount());
+        assertEquals(0, filter.getRefreshAheadCount());
+    }
+
+    @Test
+    void testReloadDuringRefresh() throws Throwable {
+        assertNull(getUser(8));
+        insertUser(8);
+
+        deferRefresh = true;
+        time.set(1000);
+        assertNull(getUser(8));
+        assertEquals(1, deferredRefreshes.size());
+
+        // the entry reloaded during the refresh is newer than the refreshed one
+        getMappedStatement(MS_ID_USER_BY_ID).getCache().clear();
+        time.set(1100);
+        assertEquals(new User(8, "User-8"), getUser(8));
+        deferredRefreshes.forEach(Runnable::run);
+        assertEquals(0, filter.getRefreshCount());
+        assertEquals(0, filter.getFailedRefreshCount());
+    }
+
+    @Test
+    void testMaxTrackedEntries() throws Throwable {
+        for (int id = 4; id <= 6; id++) {
+            getUser(id);
+        }
+        // the eldest untracked entry is removed from the cache
+        assertEquals(2, getMappedStatement(MS_ID_USER_BY_ID).getCache().getSize());
+        assertEquals(2, filter.getMaxTrackedEntries());
+    }
+
+    @Test
+    void testConstructor() {
+        StaleWhileRevalidateExecutorFilter filter = new StaleWhileRevalidateExecutorFilter(1000, 2000);
+        assertEquals(1000, filter.getSoftTtl());
+        assertEquals(2000, filter.getHardTtl());
+        assertEquals(StaleWhileRevalidateExecutorFilter.DEFAULT_REFRESH_AHEAD_RATIO, filter.getRefreshAheadRatio());
+        assertEquals(StaleWhileRevalidateExecutorFilter.DEFAULT_REFRESH_AHEAD_HITS, filter.getRefreshAheadHits());
+        filter.shutdown();
+        assertThrows(IllegalArgumentException.class, () -> new StaleWhileRevalidateExecutorFilter(1000, 999));
+        assertThrows(IllegalArgumentException.class, () -> new StaleWhileRevalidateExecutorFilter(1000, 2000, 1.5,
+                1, 1, Runnable::run));
+    }
+
+    private void runRefresh(Runnable refresh) {
+        if (deferRefresh) {
+            deferredRefreshes.add(refresh);
+        } else {
+            refresh.run();
+        }
+    }
+
+    private User getUser(int id) throws Throwable {
+        AtomicReference<User> user = new AtomicReference<>();
+        doInSqlSession(sqlSession -> {
+            user.set(sqlSession.getMapper(UserMapper.class).getUserById(id));
+            sqlSession.commit();
+        });
+        return user.get();
+    }
+
+    private void insertUser(int id) throws SQLException {
+        try (Connection connection = getDataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO users (id,name) VALUES (?,?)")) {
+            statement.setInt(1, id);
+            statement.setString(2, "User-" + id);
+            statement.executeUpdate();
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        }
+    }
+}
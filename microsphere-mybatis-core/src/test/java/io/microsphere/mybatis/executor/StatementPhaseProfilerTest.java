@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase;
+import io.microsphere.mybatis.plugin.InterceptingResultSetHandlerInterceptor;
+import io.microsphere.mybatis.plugin.InterceptingStatementHandlerInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.EXECUTE;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.FETCH;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.MAP;
+import static io.microsphere.mybatis.executor.StatementPhaseStatistics.Phase.PREPARE;
+import static org.apache.ibatis.session.RowBounds.DEFAULT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link StatementPhaseProfiler} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementPhaseProfiler
+ * @since 1.0.0
+ */
+class StatementPhaseProfilerTest extends AbstractMapperTest {
+
+    private static final String MS_ID_SELECT_ALL_CHILDREN = "io.microsphere.mybatis.test.mapper.ChildMapper.selectAll";
+
+    private StatementPhaseProfiler profiler;
+
+    @Override
+    protected void customize(Configuration configuration) {
+        this.profiler = new StatementPhaseProfiler();
+        configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(this.profiler));
+        configuration.addInterceptor(new InterceptingResultSetHandlerInterceptor(this.profiler));
+    }
+
+    @Test
+    void testProfile() throws Throwable {
+        User user = createUser();
+        doInSqlSession(sqlSession -> {
+            assertEquals(1, sqlSession.insert(MS_ID_SAVE_USER, user));
+            assertEquals(user, sqlSession.selectOne(MS_ID_USER_BY_ID, user.getId()));
+            assertEquals(2, sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN).size());
+        });
+
+        StatementPhaseStatistics statistics = profiler.getStatistics(MS_ID_SAVE_USER);
+        assertEquals(1, statistics.getExecutions());
+        assertEquals(0, statistics.getTimeNanos(FETCH));
+        assertEquals(0, statistics.getTimeNanos(MAP));
+        assertTrue(statistics.getTimeNanos(PREPARE) > 0);
+
+        statistics = profiler.getStatistics(MS_ID_USER_BY_ID);
+        assertEquals(1, statistics.getExecutions());
+        assertTrue(statistics.getTimeNanos(FETCH) > 0);
+        assertBreakdown(statistics);
+
+        // the nested queries of fathers are excluded from the execution of children
+        statistics = profiler.getStatistics(MS_ID_SELECT_ALL_CHILDREN);
+        assertEquals(1, statistics.getExecutions());
+        assertBreakdown(statistics);
+        assertNotNull(profiler.getStatistics("io.microsphere.mybatis.test.mapper.FatherMapper.selectById"));
+
+        assertTrue(profiler.getStatisticsMap().size() >= 4);
+        assertTrue(statistics.toString().contains(MS_ID_SELECT_ALL_CHILDREN));
+
+        statistics.reset();
+        assertEquals(0, statistics.getExecutions());
+        assertEquals(0, statistics.getTotalTimeNanos());
+
+        profiler.reset();
+        assertNull(profiler.getStatistics(MS_ID_USER_BY_ID));
+        assertTrue(profiler.getStatisticsMap().isEmpty());
+    }
+
+    @Test
+    void testProfileOnCursor() throws Throwable {
+        User user = createUser();
+        doInSqlSession(sqlSession -> {
+            assertEquals(1, sqlSession.insert(MS_ID_SAVE_USER, user));
+            try (Cursor<User> cursor = sqlSession.selectCursor(MS_ID_USER_BY_NAME, user.getName(), DEFAULT)) {
+                cursor.forEach(u -> assertEquals(user, u));
+            }
+        });
+
+        StatementPhaseStatistics statistics = profiler.getStatistics(MS_ID_USER_BY_NAME);
+        assertEquals(1, statistics.getExecutions());
+        assertTrue(statistics.getTimeNanos(FETCH) > 0);
+        assertEquals(0, statistics.getTimeNanos(MAP));
+    }
+
+    private void assertBreakdown(StatementPhaseStatistics statistics) {
+        for (Phase phase : Phase.values()) {
+            assertTrue(statistics.getTimeNanos(phase) >= 0, phase::name);
+        }
+        assertTrue(statistics.getTimeNanos(EXECUTE) > 0);
+        assertEquals(statistics.getTotalTimeNanos(), statistics.getBreakdown().values().stream().mapToLong(Long::longValue).sum());
+    }
+}
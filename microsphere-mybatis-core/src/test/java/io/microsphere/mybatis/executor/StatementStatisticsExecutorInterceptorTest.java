@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static io.microsphere.mybatis.executor.StatementStatistics.Scope.SESSION;
+import static io.microsphere.mybatis.executor.StatementStatistics.Scope.TRANSACTION;
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link StatementStatisticsExecutorInterceptor} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementStatisticsExecutorInterceptor
+ * @since 1.0.0
+ */
+class StatementStatisticsExecutorInterceptorTest extends AbstractMapperTest {
+
+    private final List<String> reports = new CopyOnWriteArrayList<>();
+
+    private final List<List<String>> violations = new CopyOnWriteArrayList<>();
+
+    private StatementStatisticsExecutorInterceptor interceptor;
+
+    @Override
+    protected void customize(Configuration configuration) {
+        this.interceptor = new StatementStatisticsExecutorInterceptor(3, 5, 100, 60000) {
+            @Override
+            protected void report(Executor executor, StatementStatistics statistics, List<String> violations) {
+                super.report(executor, statistics, violations);
+                reports.add(statistics.getScope() + ":" + statistics.getStatements() + ":" + statistics.getDistinctStatements());
+                StatementStatisticsExecutorInterceptorTest.this.violations.add(violations);
+            }
+        };
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(), this.interceptor));
+    }
+
+    @Test
+    void testInvalidConstructorArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new StatementStatisticsExecutorInterceptor(1, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new StatementStatisticsExecutorInterceptor(2, 0, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new StatementStatisticsExecutorInterceptor(2, 1, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new StatementStatisticsExecutorInterceptor(2, 1, 1, 0));
+    }
+
+    @Test
+    void testNPlusOne() throws Throwable {
+        reports.clear();
+        violations.clear();
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            for (int i = 0; i < 3; i++) {
+                User user = new User(i + 1000, "User - " + i);
+                userMapper.saveUser(user);
+            }
+            sqlSession.commit(true);
+            for (int i = 0; i < 3; i++) {
+                userMapper.getUserById(i + 1000);
+            }
+        });
+
+        // transaction (3 inserts), transaction (3 queries), session (3 inserts + 3 queries)
+        assertEquals(3, reports.size());
+        assertEquals(TRANSACTION + ":3:1", reports.get(0));
+        assertTrue(violations.get(0).get(0).contains(MS_ID_SAVE_USER));
+        assertEquals(TRANSACTION + ":3:1", reports.get(1));
+        assertTrue(violations.get(1).get(0).contains(MS_ID_USER_BY_ID));
+        assertEquals(SESSION + ":6:2", reports.get(2));
+        List<String> sessionViolations = violations.get(violations.size() - 1);
+        assertEquals(3, sessionViolations.size());
+        assertTrue(sessionViolations.get(0).contains(MS_ID_SAVE_USER));
+        assertTrue(sessionViolations.get(1).contains(MS_ID_USER_BY_ID));
+        assertTrue(sessionViolations.get(2).startsWith("statements"));
+    }
+
+    @Test
+    void testStatistics() throws Throwable {
+        doInExecutor(executor -> {
+            assertNull(interceptor.getStatistics(executor));
+            assertNull(interceptor.getTransactionStatistics(executor));
+        });
+
+        StatementStatistics statistics = new StatementStatistics(SESSION, 2);
+        assertTrue(interceptor.getViolations(statistics).isEmpty());
+        statistics.record(getMappedStatement(MS_ID_USER_BY_ID), 1, 1, 10);
+        statistics.record(getMappedStatement(MS_ID_USER_BY_ID), 2, 1, 10);
+        statistics.record(getMappedStatement(MS_ID_USER_BY_ID), 3, 1, 10);
+        StatementStatistics.Entry entry = statistics.getEntries().get(MS_ID_USER_BY_ID);
+        assertEquals(3, entry.getExecutions());
+        assertEquals(2, entry.getDistinctParameters());
+        assertEquals(3, entry.getRows());
+        assertEquals(30, entry.getTimeNanos());
+        assertEquals(30, statistics.getTimeNanos());
+        assertEquals(0, statistics.getTimeMillis());
+        assertFalse(statistics.toString().isEmpty());
+
+        statistics.reset();
+        assertEquals(0, statistics.getStatements());
+        assertEquals(0, statistics.getRows());
+        assertTrue(statistics.getEntries().isEmpty());
+    }
+}
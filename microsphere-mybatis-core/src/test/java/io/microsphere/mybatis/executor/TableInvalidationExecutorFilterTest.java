@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.cache.SqlTables;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.annotations.CacheNamespace;
+import org.apache.ibatis.annotations.CacheNamespaceRef;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static io.microsphere.mybatis.executor.TableInvalidationExecutorFilter.UNKNOWN_TABLE;
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TableInvalidationExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see TableInvalidationExecutorFilter
+ * @since 1.0.0
+ */
+class TableInvalidationExecutorFilterTest extends AbstractMapperTest {
+
+    private final TableInvalidationExecutorFilter filter = new TableInvalidationExecutorFilter(2);
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+        configuration.addMapper(DynamicUserMapper.class);
+    }
+
+    @Test
+    void testInvalidation() throws Throwable {
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        MappedStatement saveUser = getMappedStatement(MS_ID_SAVE_USER);
+        Cache cache = userById.getCache();
+
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+            userMapper.getUserById(1);
+            sqlSession.commit();
+        });
+        assertFalse(saveUser.isFlushCacheRequired());
+        assertEquals(Set.of("users"), filter.getSqlTables(saveUser).getWriteTables());
+        assertEquals(Set.of("users"), filter.getSqlTables(userById).getReadTables());
+        assertTrue(filter.getReaders("users").contains(userById));
+        assertEquals(1, filter.getTrackedKeyCount(userById));
+        assertEquals(1, cache.getSize());
+
+        // the entry that doesn't read the table 'users' is kept
+        cache.putObject("unrelated", "value");
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(2, "User-2"));
+            sqlSession.commit();
+        });
+        assertEquals(1, cache.getSize());
+        assertEquals("value", cache.getObject("unrelated"));
+        assertEquals(1, filter.getInvalidatedCount());
+        assertEquals(0, filter.getTrackedKeyCount(userById));
+    }
+
+    @Test
+    void testInvalidationInSameSession() throws Throwable {
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            assertNull(userMapper.getUserById(3));
+            // the entry put by current session is invalidated after the commit
+            userMapper.saveUser(new User(3, "User-3"));
+            sqlSession.commit();
+        });
+        assertEquals(0, userById.getCache().getSize());
+        doInSqlSession(sqlSession -> assertEquals(new User(3, "User-3"), sqlSession.getMapper(UserMapper.class).getUserById(3)));
+    }
+
+    @Test
+    void testDeferredToCommit() throws Throwable {
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        Cache cache = userById.getCache();
+        doInSqlSession(sqlSession -> {
+            assertNull(sqlSession.getMapper(UserMapper.class).getUserById(5));
+            sqlSession.commit();
+        });
+        assertEquals(1, cache.getSize());
+
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(5, "User-5"));
+            // the writing session sees its own uncommitted write
+            assertEquals(new User(5, "User-5"), userMapper.getUserById(5));
+            // the other sessions keep reading the cache
+            doInSqlSession(otherSession -> assertNull(otherSession.getMapper(UserMapper.class).getUserById(5)));
+            assertEquals(1, cache.getSize());
+            assertEquals(0, filter.getInvalidatedCount());
+            sqlSession.commit();
+        });
+        assertEquals(0, cache.getSize());
+        assertEquals(1, filter.getInvalidatedCount());
+        doInSqlSession(sqlSession -> assertEquals(new User(5, "User-5"), sqlSession.getMapper(UserMapper.class).getUserById(5)));
+    }
+
+    @Test
+    void testRollback() throws Throwable {
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        Cache cache = userById.getCache();
+        doInSqlSession(sqlSession -> {
+            assertNull(sqlSession.getMapper(UserMapper.class).getUserById(6));
+            sqlSession.commit();
+        });
+
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(6, "User-6"));
+            assertEquals(new User(6, "User-6"), userMapper.getUserById(6));
+            sqlSession.rollback();
+        });
+        assertEquals(1, cache.getSize());
+        assertEquals(0, filter.getInvalidatedCount());
+        assertEquals(1, filter.getTrackedKeyCount(userById));
+        doInSqlSession(sqlSession -> assertNull(sqlSession.getMapper(UserMapper.class).getUserById(6)));
+    }
+
+    @Test
+    void testOverflow() throws Throwable {
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            for (int i = 1; i <= 3; i++) {
+                userMapper.getUserById(i);
+            }
+            sqlSession.commit();
+        });
+        assertEquals(0, filter.getTrackedKeyCount(userById));
+        assertEquals(3, userById.getCache().getSize());
+
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(4, "User-4"));
+            sqlSession.commit();
+        });
+        assertEquals(0, userById.getCache().getSize());
+        assertEquals(1, filter.getClearedCount());
+        assertEquals(2, filter.getMaxTrackedKeys());
+        assertThrows(IllegalArgumentException.class, () -> new TableInvalidationExecutorFilter(0));
+    }
+
+    @Test
+    void testAnalyzedUpFront() throws Throwable {
+        MappedStatement userById = getMappedStatement(MS_ID_USER_BY_ID);
+        MappedStatement saveUser = getMappedStatement(MS_ID_SAVE_USER);
+        MappedStatement findUser = getMappedStatement(DynamicUserMapper.class.getName() + ".findUser");
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(8, "User-8"));
+            sqlSession.commit();
+        });
+        // the queries not yet executed are analyzed before the writer takes over the flush
+        assertEquals(Set.of("users"), filter.getSqlTables(userById).getReadTables());
+        assertTrue(filter.getReaders("users").contains(userById));
+        assertSame(SqlTables.UNKNOWN, filter.getSqlTables(findUser));
+        assertTrue(filter.isManaged(saveUser));
+        assertFalse(saveUser.isFlushCacheRequired());
+    }
+
+    @Test
+    void testReaderAddedLater() throws Throwable {
+        doInSqlSession(sqlSession -> sqlSession.getMapper(UserMapper.class).getUserById(1));
+        getConfiguration().addMapper(LateUserMapper.class);
+        MappedStatement renameUser = getMappedStatement(LateUserMapper.class.getName() + ".renameUser");
+        MappedStatement getUserName = getMappedStatement(LateUserMapper.class.getName() + ".getUserName");
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(LateUserMapper.class).renameUser(1, "User-Y");
+            sqlSession.commit();
+        });
+        // the query sharing the cache was not analyzed before the writer
+        assertNull(filter.getSqlTables(getUserName));
+        assertFalse(filter.isManaged(renameUser));
+        assertTrue(renameUser.isFlushCacheRequired());
+    }
+
+    @Test
+    void testDynamicSql() throws Throwable {
+        MappedStatement findUser = getMappedStatement(DynamicUserMapper.class.getName() + ".findUser");
+        MappedStatement renameUser = getMappedStatement(DynamicUserMapper.class.getName() + ".renameUser");
+        Cache cache = findUser.getCache();
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(7, "User-7"));
+            assertEquals(new User(7, "User-7"), sqlSession.getMapper(DynamicUserMapper.class).findUser(7, null));
+            sqlSession.commit();
+        });
+        // the tables of the dynamic reader vary with the renderings
+        assertSame(SqlTables.UNKNOWN, filter.getSqlTables(findUser));
+        assertTrue(filter.getReaders(UNKNOWN_TABLE).contains(findUser));
+        assertEquals(1, cache.getSize());
+
+        doInSqlSession(sqlSession -> {
+            assertEquals(1, sqlSession.getMapper(DynamicUserMapper.class).renameUser(7, "User-X"));
+            sqlSession.commit();
+        });
+        // the dynamic writer is left to the namespace-wide flush
+        assertSame(SqlTables.UNKNOWN, filter.getSqlTables(renameUser));
+        assertFalse(filter.isManaged(renameUser));
+        assertTrue(renameUser.isFlushCacheRequired());
+        assertEquals(0, cache.getSize());
+        doInSqlSession(sqlSession -> assertEquals(new User(7, "User-X"),
+                sqlSession.getMapper(DynamicUserMapper.class).findUser(null, "User-X")));
+    }
+
+    @CacheNamespace
+    interface DynamicUserMapper {
+
+        @Select("<script>SELECT id,name FROM users <where>" +
+                "<if test=\"id != null\">id = #{id}</if><if test=\"name != null\">AND name = #{name}</if>" +
+                "</where></script>")
+        User findUser(@Param("id") Integer id, @Param("name") String name);
+
+        @Update("<script>UPDATE users <set>name = #{name}</set> WHERE id = #{id}</script>")
+        int renameUser(@Param("id") int id, @Param("name") String name);
+    }
+
+    @CacheNamespaceRef(UserMapper.class)
+    interface LateUserMapper {
+
+        @Select("SELECT name FROM users WHERE id = #{id}")
+        String getUserName(@Param("id") int id);
+
+        @Update("UPDATE users SET name = #{name} WHERE id = #{id}")
+        int renameUser(@Param("id") int id, @Param("name") String name);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import io.microsphere.mybatis.executor.TransactionMetricsExecutorFilter.LongTransaction;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static io.microsphere.util.ArrayUtils.of;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link TransactionMetricsExecutorFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see TransactionMetricsExecutorFilter
+ * @see DurationHistogram
+ * @since 1.0.0
+ */
+class TransactionMetricsExecutorFilterTest extends AbstractMapperTest {
+
+    private final AtomicLong time = new AtomicLong(1000);
+
+    private final List<String> reports = new CopyOnWriteArrayList<>();
+
+    private final TransactionMetricsExecutorFilter filter = new TransactionMetricsExecutorFilter(100, 1) {
+
+        @Override
+        protected void report(String entryPoint, long duration, Throwable stackTrace) {
+            super.report(entryPoint, duration, stackTrace);
+            reports.add(entryPoint + ":" + duration + ":" + stackTrace.getMessage());
+        }
+
+        @Override
+        protected boolean isFrameworkClass(String className) {
+            // the test class is the entry point
+            return super.isFrameworkClass(className)
+                    && !className.startsWith(TransactionMetricsExecutorFilterTest.class.getName());
+        }
+
+        @Override
+        protected long currentTime() {
+            return time.get();
+        }
+    };
+
+    @Override
+    protected void customize(Configuration configuration) {
+        configuration.setCacheEnabled(false);
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(of(filter)));
+    }
+
+    @Test
+    void testHistograms() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(1, "User-1"));
+            time.addAndGet(50);
+            sqlSession.commit();
+
+            time.addAndGet(10);
+            userMapper.getUserById(1);
+            time.addAndGet(200);
+            sqlSession.rollback();
+        });
+
+        assertEquals(1, filter.getTransactionHistograms().size());
+        String entryPoint = filter.getTransactionHistograms().keySet().iterator().next();
+        assertTrue(entryPoint.startsWith(TransactionMetricsExecutorFilterTest.class.getName() + "#lambda$"));
+
+        DurationHistogram transactionHistogram = filter.getTransactionHistogram(entryPoint);
+        assertEquals(2, transactionHistogram.getCount());
+        assertEquals(250, transactionHistogram.getTotal());
+        assertEquals(200, transactionHistogram.getMax());
+
+        DurationHistogram connectionHoldHistogram = filter.getConnectionHoldHistogram(entryPoint);
+        assertEquals(1, connectionHoldHistogram.getCount());
+        assertEquals(260, connectionHoldHistogram.getMax());
+
+        // the stack trace was sampled on the start
+        assertEquals(1, filter.getLongTransactionCount());
+        assertEquals(List.of(entryPoint + ":200:The transaction of the entry point['" + entryPoint + "'] started"), reports);
+    }
+
+    @Test
+    void testTransactionEndedByClose() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).getUserById(1);
+            time.addAndGet(20);
+        });
+        DurationHistogram transactionHistogram = filter.getTransactionHistograms().values().iterator().next();
+        assertEquals(1, transactionHistogram.getCount());
+        assertEquals(20, transactionHistogram.getMax());
+        assertEquals(0, filter.getLongTransactionCount());
+
+        // no statement
+        doInSqlSession(sqlSession -> {
+        });
+        assertEquals(1, transactionHistogram.getCount());
+    }
+
+    @Test
+    void testLongTransactions() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).getUserById(1);
+            time.addAndGet(100);
+            assertTrue(filter.getLongTransactions().isEmpty());
+
+            // the active transaction exceeding the threshold before it ends
+            time.addAndGet(50);
+            List<LongTransaction> longTransactions = filter.getLongTransactions();
+            assertEquals(1, longTransactions.size());
+            LongTransaction longTransaction = longTransactions.get(0);
+            assertEquals(150, longTransaction.getDuration());
+            assertSame(Thread.currentThread(), longTransaction.getThread());
+            assertTrue(longTransaction.getEntryPoint().startsWith(TransactionMetricsExecutorFilterTest.class.getName()));
+            assertNotNull(longTransaction.getStackTrace());
+            assertEquals(0, filter.getLongTransactionCount());
+
+            sqlSession.commit();
+            assertTrue(filter.getLongTransactions().isEmpty());
+            assertEquals(1, filter.getLongTransactionCount());
+        });
+    }
+
+    @Test
+    void testDurationHistogram() {
+        DurationHistogram histogram = new DurationHistogram();
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0, histogram.getMean());
+        histogram.record(50);
+        histogram.record(200);
+        assertEquals(50, histogram.getPercentile(0.5));
+        assertEquals(200, histogram.getPercentile(1));
+        assertEquals(125, histogram.getMean());
+        histogram.record(400000);
+        assertEquals(400000, histogram.getPercentile(1));
+
+        long[] counts = histogram.getBucketCounts();
+        assertEquals(DurationHistogram.getBucketBounds().length + 1, counts.length);
+        assertEquals(1, counts[counts.length - 1]);
+
+        histogram.reset();
+        assertArrayEquals(new long[counts.length], histogram.getBucketCounts());
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(0));
+    }
+
+    @Test
+    void testConstructor() {
+        TransactionMetricsExecutorFilter filter = new TransactionMetricsExecutorFilter();
+        assertEquals(TransactionMetricsExecutorFilter.DEFAULT_LONG_TRANSACTION_THRESHOLD, filter.getLongTransactionThreshold());
+        assertEquals(TransactionMetricsExecutorFilter.DEFAULT_STACK_TRACE_SAMPLING_INTERVAL, filter.getStackTraceSamplingInterval());
+        assertThrows(IllegalArgumentException.class, () -> new TransactionMetricsExecutorFilter(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionMetricsExecutorFilter(1, 0));
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor;
+
+import org.apache.ibatis.executor.Executor;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Thread.sleep;
+import static java.lang.reflect.Proxy.newProxyInstance;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * {@link WeakExecutorMap} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see WeakExecutorMap
+ * @since 1.0.0
+ */
+class WeakExecutorMapTest {
+
+    private final WeakExecutorMap<StringBuilder> map = new WeakExecutorMap<>();
+
+    @Test
+    void testIdentity() {
+        Executor executor = newExecutor();
+        StringBuilder state = map.computeIfAbsent(executor, e -> new StringBuilder());
+        assertSame(state, map.computeIfAbsent(executor, e -> new StringBuilder()));
+        assertSame(state, map.get(executor));
+        assertNull(map.get(newExecutor()));
+        assertEquals(1, map.size());
+        assertSame(state, map.remove(executor));
+        assertNull(map.get(executor));
+        assertEquals(0, map.size());
+    }
+
+    @Test
+    void testExpunge() throws InterruptedException {
+        putState();
+        for (int i = 0; i < 100 && map.size() > 0; i++) {
+            System.gc();
+            sleep(50);
+        }
+        assertEquals(0, map.size());
+        assertEquals(0, map.values().size());
+    }
+
+    private void putState() {
+        // the executor is never closed
+        map.computeIfAbsent(newExecutor(), e -> new StringBuilder());
+        assertEquals(1, map.size());
+    }
+
+    private static Executor newExecutor() {
+        return (Executor) newProxyInstance(Executor.class.getClassLoader(), new Class[]{Executor.class},
+                (proxy, method, args) -> method.getName().equals("hashCode") ? System.identityHashCode(proxy) : null);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.resultset;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultContext;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ResultSetHandlerFilter} class to test {@link ResultSetHandlerFilter} and {@link ResultSetHandlerFilterChain}
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ResultSetHandlerFilter
+ * @see ResultSetHandlerFilterChain
+ * @since 1.0.0
+ */
+public class TestResultSetHandlerFilter implements ResultSetHandlerFilter {
+
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+    private int maxRows = Integer.MAX_VALUE;
+
+    private Function<Object, Object> transformer;
+
+    private boolean sink;
+
+    @Override
+    public <E> List<E> handleResultSets(Statement statement, ResultSetHandlerFilterChain chain) throws SQLException {
+        count("handleResultSets", chain);
+        return chain.handleResultSets(statement);
+    }
+
+    @Override
+    public <E> Cursor<E> handleCursorResultSets(Statement statement, ResultSetHandlerFilterChain chain) throws SQLException {
+        count("handleCursorResultSets", chain);
+        return chain.handleCursorResultSets(statement);
+    }
+
+    @Override
+    public void handleResult(ResultContext<?> resultContext, ResultSetHandlerFilterChain chain) {
+        count("handleResult", chain);
+        if (sink) {
+            return;
+        }
+        if (transformer == null) {
+            chain.handleResult(resultContext);
+        } else {
+            chain.handleResult(resultContext, transformer.apply(resultContext.getResultObject()));
+        }
+        if (resultContext.getResultCount() >= maxRows) {
+            resultContext.stop();
+        }
+    }
+
+    public void setMaxRows(int maxRows) {
+        this.maxRows = maxRows;
+    }
+
+    public void setTransformer(Function<Object, Object> transformer) {
+        this.transformer = transformer;
+    }
+
+    public void setSink(boolean sink) {
+        this.sink = sink;
+    }
+
+    public int getCount(String method) {
+        AtomicInteger counter = counters.get(method);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private void count(String method, ResultSetHandlerFilterChain chain) {
+        assertNotNull(chain.getResultSetHandler());
+        assertNotNull(chain.getMappedStatement());
+        assertTrue(chain.getPosition() <= chain.getSize());
+        assertTrue(asList(chain.getFilters()).contains(this));
+        counters.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import io.microsphere.mybatis.plugin.InterceptingStatementHandlerInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+
+import static org.apache.ibatis.session.ExecutorType.BATCH;
+import static org.apache.ibatis.session.ExecutorType.REUSE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link PreparedStatementCachingStatementHandlerFilter} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see PreparedStatementCachingStatementHandlerFilter
+ * @since 1.0.0
+ */
+class PreparedStatementCachingStatementHandlerFilterTest extends AbstractMapperTest {
+
+    private static final String MS_ID_SELECT_ALL_CHILDREN = "io.microsphere.mybatis.test.mapper.ChildMapper.selectAll";
+
+    private PreparedStatementCachingStatementHandlerFilter filter;
+
+    @Override
+    protected void customize(Configuration configuration) {
+        this.filter = new PreparedStatementCachingStatementHandlerFilter(2);
+        configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(this.filter));
+    }
+
+    @Test
+    void testInvalidConstructorArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new PreparedStatementCachingStatementHandlerFilter(0));
+        assertEquals(PreparedStatementCachingStatementHandlerFilter.DEFAULT_MAX_STATEMENTS,
+                new PreparedStatementCachingStatementHandlerFilter().getMaxStatements());
+    }
+
+    @Test
+    void testCacheAcrossSessions() throws Throwable {
+        doInSqlSession(sqlSession -> assertEquals(2, sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN).size()));
+        long misses = filter.getMisses();
+        assertTrue(misses >= 2);
+        // the statements of children and fathers
+        assertEquals(2, filter.getCachedStatementCount());
+
+        doInSqlSession(sqlSession -> assertEquals(2, sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN).size()));
+        assertEquals(misses, filter.getMisses());
+        assertTrue(filter.getHits() >= 2);
+        assertEquals(2, filter.getCachedStatementCount());
+
+        filter.evictAll();
+        assertEquals(0, filter.getCachedStatementCount());
+    }
+
+    @Test
+    void testEviction() throws Throwable {
+        User user = createUser();
+        doInSqlSession(sqlSession -> {
+            assertEquals(1, sqlSession.insert(MS_ID_SAVE_USER, user));
+            assertEquals(user, sqlSession.selectOne(MS_ID_USER_BY_ID, user.getId()));
+            assertEquals(user, sqlSession.selectOne(MS_ID_USER_BY_NAME, user.getName()));
+            // bounded by max statements
+            assertEquals(2, filter.getCachedStatementCount());
+        });
+
+        try (SqlSession sqlSession = new DefaultSqlSessionFactory(getConfiguration()).openSession(REUSE)) {
+            assertEquals(2, sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN).size());
+            Connection connection = sqlSession.getConnection();
+            filter.evict(connection);
+            assertEquals(0, filter.getCachedStatementCount());
+        }
+        // the statements reused by the session are closed rather than being returned to the evicted cache
+        assertEquals(0, filter.getCachedStatementCount());
+    }
+
+    @Test
+    void testBatch() throws Throwable {
+        try (SqlSession sqlSession = new DefaultSqlSessionFactory(getConfiguration()).openSession(BATCH)) {
+            sqlSession.insert(MS_ID_SAVE_USER, createUser());
+            sqlSession.insert(MS_ID_SAVE_USER, createUser());
+            sqlSession.flushStatements();
+            sqlSession.commit();
+        }
+        assertEquals(1, filter.getCachedStatementCount());
+        assertEquals(1, filter.getMisses());
+    }
+}
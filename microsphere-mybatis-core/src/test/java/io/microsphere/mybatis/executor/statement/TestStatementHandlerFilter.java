@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.executor.statement;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link StatementHandlerFilter} class to test {@link StatementHandlerFilter} and {@link StatementHandlerFilterChain}
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatementHandlerFilter
+ * @see StatementHandlerFilterChain
+ * @since 1.0.0
+ */
+public class TestStatementHandlerFilter implements StatementHandlerFilter {
+
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+
+    @Override
+    public Statement prepare(Connection connection, Integer transactionTimeout, StatementHandlerFilterChain chain) throws SQLException {
+        count("prepare", chain);
+        return chain.prepare(connection, transactionTimeout);
+    }
+
+    @Override
+    public void parameterize(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        count("parameterize", chain);
+        chain.parameterize(statement);
+    }
+
+    @Override
+    public void batch(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        count("batch", chain);
+        chain.batch(statement);
+    }
+
+    @Override
+    public int update(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        count("update", chain);
+        return chain.update(statement);
+    }
+
+    @Override
+    public <E> List<E> query(Statement statement, ResultHandler resultHandler, StatementHandlerFilterChain chain) throws SQLException {
+        count("query", chain);
+        return chain.query(statement, resultHandler);
+    }
+
+    @Override
+    public <E> Cursor<E> queryCursor(Statement statement, StatementHandlerFilterChain chain) throws SQLException {
+        count("queryCursor", chain);
+        return chain.queryCursor(statement);
+    }
+
+    public int getCount(String method) {
+        AtomicInteger counter = counters.get(method);
+        return counter == null ? 0 : counter.get();
+    }
+
+    private void count(String method, StatementHandlerFilterChain chain) {
+        assertNotNull(chain.getStatementHandler());
+        assertNotNull(chain.getMappedStatement());
+        assertTrue(chain.getPosition() <= chain.getSize());
+        assertTrue(asList(chain.getFilters()).contains(this));
+        counters.computeIfAbsent(method, m -> new AtomicInteger()).incrementAndGet();
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.plugin;
+
+import io.microsphere.mybatis.executor.resultset.InterceptingResultSetHandler;
+import io.microsphere.mybatis.executor.resultset.ResultSetHandlerFilter;
+import io.microsphere.mybatis.executor.resultset.ResultSetHandlers;
+import io.microsphere.mybatis.executor.resultset.TestResultSetHandlerFilter;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.Child;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.isRowFilter;
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.isRowFilteringSupported;
+import static io.microsphere.mybatis.executor.resultset.ResultSetHandlers.unwrap;
+import static io.microsphere.util.ArrayUtils.ofArray;
+import static org.apache.ibatis.session.RowBounds.DEFAULT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link InterceptingResultSetHandlerInterceptor} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InterceptingResultSetHandlerInterceptor
+ * @since 1.0.0
+ */
+class InterceptingResultSetHandlerInterceptorTest extends AbstractMapperTest {
+
+    private static final String MS_ID_SELECT_ALL_CHILDREN = "io.microsphere.mybatis.test.mapper.ChildMapper.selectAll";
+
+    private TestResultSetHandlerFilter filter;
+
+    private TestResultSetHandlerFilter anotherFilter;
+
+    @Override
+    protected void customize(Configuration configuration) {
+        this.filter = new TestResultSetHandlerFilter();
+        this.anotherFilter = new TestResultSetHandlerFilter();
+        InterceptingResultSetHandlerInterceptor interceptor = new InterceptingResultSetHandlerInterceptor(this.filter);
+        Properties properties = new Properties();
+        properties.setProperty("test", "true");
+        interceptor.setProperties(properties);
+        configuration.addInterceptor(interceptor);
+        configuration.addInterceptor(new InterceptingResultSetHandlerInterceptor(this.anotherFilter));
+    }
+
+    @Test
+    void testInvalidConstructorArgs() {
+        ResultSetHandlerFilter[] filters = ofArray();
+        assertThrows(IllegalArgumentException.class, () -> new InterceptingResultSetHandlerInterceptor(filters));
+        assertThrows(IllegalArgumentException.class, () -> new InterceptingResultSetHandlerInterceptor((ResultSetHandlerFilter) null));
+    }
+
+    @Test
+    void testPlugin() {
+        InterceptingResultSetHandlerInterceptor interceptor = new InterceptingResultSetHandlerInterceptor(this.filter);
+        assertSame(this, interceptor.plugin(this));
+        assertEquals(1, interceptor.getFilters().length);
+    }
+
+    @Test
+    void testRowFiltering() throws Throwable {
+        doInSqlSession(sqlSession -> {
+            List<Child> children = sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN);
+            assertEquals(2, children.size());
+        });
+        for (TestResultSetHandlerFilter filter : ofArray(this.filter, this.anotherFilter)) {
+            // 2 children and their fathers
+            assertTrue(filter.getCount("handleResultSets") >= 2);
+            assertTrue(filter.getCount("handleResult") >= 3);
+        }
+    }
+
+    @Test
+    void testRowFilteringOnStop() throws Throwable {
+        this.anotherFilter.setMaxRows(1);
+        doInSqlSession(sqlSession -> {
+            List<Child> children = sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN);
+            assertEquals(1, children.size());
+        });
+    }
+
+    @Test
+    void testRowFilteringOnTransform() throws Throwable {
+        this.filter.setTransformer(row -> row instanceof Child child ? child.getName() : row);
+        doInSqlSession(sqlSession -> {
+            List<Object> names = sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN);
+            assertEquals(2, names.size());
+            for (Object name : names) {
+                assertInstanceOf(String.class, name);
+            }
+        });
+    }
+
+    @Test
+    void testRowFilteringOnSink() throws Throwable {
+        this.filter.setSink(true);
+        doInSqlSession(sqlSession -> {
+            List<Child> children = sqlSession.selectList(MS_ID_SELECT_ALL_CHILDREN);
+            assertTrue(children.isEmpty());
+        });
+        assertEquals(0, this.anotherFilter.getCount("handleResult"));
+    }
+
+    @Test
+    void testRowFilteringOnCursor() throws Throwable {
+        this.anotherFilter.setMaxRows(1);
+        doInSqlSession(sqlSession -> {
+            try (Cursor<Child> cursor = sqlSession.selectCursor(MS_ID_SELECT_ALL_CHILDREN, null, DEFAULT)) {
+                List<Child> children = new ArrayList<>();
+                cursor.forEach(children::add);
+                assertEquals(1, children.size());
+                assertTrue(cursor.isOpen() || cursor.isConsumed());
+            }
+        });
+        assertEquals(1, this.filter.getCount("handleCursorResultSets"));
+    }
+
+    @Test
+    void testResultSetHandlers() throws Throwable {
+        MappedStatement ms = getMappedStatement(MS_ID_USER_BY_ID);
+        assertTrue(isRowFilteringSupported(ms));
+        assertFalse(isRowFilteringSupported(null));
+        assertTrue(isRowFilter(this.filter));
+        assertFalse(isRowFilter(new ResultSetHandlerFilter() {
+        }));
+        assertFalse(InterceptingResultSetHandler.hasRowFilter(null));
+
+        doInExecutor(executor -> {
+            BoundSql boundSql = ms.getBoundSql(1);
+            InterceptingResultSetHandler handler = (InterceptingResultSetHandler) getConfiguration().newResultSetHandler(executor,
+                    ms, DEFAULT, null, null, boundSql);
+            assertEquals(2, handler.getFilters().length);
+            assertTrue(handler.isRowFiltering());
+            assertEquals("true", handler.getProperties().getProperty("test"));
+            assertFalse(unwrap(handler) instanceof InterceptingResultSetHandler);
+            assertSame(ms, ResultSetHandlers.getMappedStatement(handler));
+            assertInstanceOf(String.class, handler.toString());
+        });
+    }
+}
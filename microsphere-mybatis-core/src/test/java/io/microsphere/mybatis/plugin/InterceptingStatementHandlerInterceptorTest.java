@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.plugin;
+
+import io.microsphere.mybatis.executor.statement.InterceptingStatementHandler;
+import io.microsphere.mybatis.executor.statement.StatementHandlerFilter;
+import io.microsphere.mybatis.executor.statement.StatementHandlers;
+import io.microsphere.mybatis.executor.statement.TestStatementHandlerFilter;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+
+import static io.microsphere.mybatis.executor.statement.StatementHandlers.unwrap;
+import static io.microsphere.util.ArrayUtils.ofArray;
+import static org.apache.ibatis.session.ExecutorType.BATCH;
+import static org.apache.ibatis.session.RowBounds.DEFAULT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link InterceptingStatementHandlerInterceptor} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see InterceptingStatementHandlerInterceptor
+ * @since 1.0.0
+ */
+class InterceptingStatementHandlerInterceptorTest extends AbstractMapperTest {
+
+    private TestStatementHandlerFilter filter;
+
+    private TestStatementHandlerFilter anotherFilter;
+
+    @Override
+    protected void customize(Configuration configuration) {
+        this.filter = new TestStatementHandlerFilter();
+        this.anotherFilter = new TestStatementHandlerFilter();
+        InterceptingStatementHandlerInterceptor interceptor = new InterceptingStatementHandlerInterceptor(this.filter);
+        Properties properties = new Properties();
+        properties.setProperty("test", "true");
+        interceptor.setProperties(properties);
+        configuration.addInterceptor(interceptor);
+        configuration.addInterceptor(new InterceptingStatementHandlerInterceptor(this.anotherFilter));
+    }
+
+    @Test
+    void testInvalidConstructorArgs() {
+        StatementHandlerFilter[] filters = ofArray();
+        assertThrows(IllegalArgumentException.class, () -> new InterceptingStatementHandlerInterceptor(filters));
+        assertThrows(IllegalArgumentException.class, () -> new InterceptingStatementHandlerInterceptor((StatementHandlerFilter) null));
+    }
+
+    @Test
+    void testPlugin() {
+        InterceptingStatementHandlerInterceptor interceptor = new InterceptingStatementHandlerInterceptor(this.filter);
+        assertSame(this, interceptor.plugin(this));
+        assertEquals(1, interceptor.getFilters().length);
+    }
+
+    @Test
+    void testFilters() throws Throwable {
+        User user = createUser();
+        doInSqlSession(sqlSession -> {
+            assertEquals(1, sqlSession.insert(MS_ID_SAVE_USER, user));
+            assertEquals(user, sqlSession.selectOne(MS_ID_USER_BY_ID, user.getId()));
+            try (Cursor<User> cursor = sqlSession.selectCursor(MS_ID_USER_BY_NAME, user.getName(), DEFAULT)) {
+                assertTrue(cursor.iterator().hasNext());
+            }
+        });
+
+        try (SqlSession sqlSession = new DefaultSqlSessionFactory(getConfiguration()).openSession(BATCH)) {
+            sqlSession.insert(MS_ID_SAVE_USER, createUser());
+            sqlSession.flushStatements();
+        }
+
+        for (TestStatementHandlerFilter filter : ofArray(this.filter, this.anotherFilter)) {
+            assertTrue(filter.getCount("prepare") >= 4);
+            assertTrue(filter.getCount("parameterize") >= 4);
+            assertEquals(1, filter.getCount("update"));
+            assertTrue(filter.getCount("query") >= 1);
+            assertEquals(1, filter.getCount("queryCursor"));
+            assertEquals(1, filter.getCount("batch"));
+        }
+    }
+
+    @Test
+    void testStatementHandlers() throws Throwable {
+        doInExecutor(executor -> {
+            InterceptingStatementHandler handler = (InterceptingStatementHandler) getConfiguration().newStatementHandler(executor,
+                    getMappedStatement(MS_ID_USER_BY_ID), 1, DEFAULT, null,
+                    getMappedStatement(MS_ID_USER_BY_ID).getBoundSql(1));
+            assertEquals(2, handler.getFilters().length);
+            assertEquals("true", handler.getProperties().getProperty("test"));
+            assertFalse(unwrap(handler) instanceof InterceptingStatementHandler);
+            assertSame(getMappedStatement(MS_ID_USER_BY_ID), StatementHandlers.getMappedStatement(handler));
+            assertSame(handler.getBoundSql(), handler.getDelegate().getBoundSql());
+            assertSame(handler.getParameterHandler(), handler.getDelegate().getParameterHandler());
+            assertInstanceOf(String.class, handler.toString());
+        });
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.scripting;
+
+import io.microsphere.mybatis.test.entity.User;
+import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.microsphere.mybatis.scripting.CompiledExpression.compile;
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CompiledExpression} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CompiledExpression
+ * @since 1.0.0
+ */
+class CompiledExpressionTest {
+
+    private static final String[] EXPRESSIONS = {
+            "id != null",
+            "id == null",
+            "missing == null",
+            "id == 1",
+            "id eq 1L",
+            "id > 0 and id lte 10",
+            "id >= 2 || name != ''",
+            "!(id < 1)",
+            "not active",
+            "active && amount > 0.5",
+            "amount == 1.5",
+            "name == 'Mercy'",
+            "name != \"Mercy\" or ids.size() > 1",
+            "ids != null and !ids.isEmpty()",
+            "user.name == 'Mercy' and user.id > 0",
+            "user.name.length() > 3",
+            "nested.key == 'value'",
+            "id + 1 > 1",
+            "amount",
+            "name"
+    };
+
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+
+    @Test
+    void testEvaluateBoolean() {
+        Map<String, Object> bindings = bindings();
+        for (String expression : EXPRESSIONS) {
+            assertEquals(evaluator.evaluateBoolean(expression, bindings), compile(expression).evaluateBoolean(bindings), expression);
+        }
+    }
+
+    @Test
+    void testCompile() {
+        assertTrue(compile("id != null and user.name.length() > 0").isCompiled());
+        assertTrue(compile("(a or b) and not c").isCompiled());
+        assertTrue(compile("order != null").isCompiled());
+        // the char literal
+        assertFalse(compile("name == 'M'").isCompiled());
+        // the arithmetic operators
+        assertFalse(compile("id + 1 > 1").isCompiled());
+        assertFalse(compile("id == 1L").isCompiled());
+        assertFalse(compile("@java.lang.Math@abs(id) > 0").isCompiled());
+        assertFalse(compile("id == ").isCompiled());
+        assertFalse(compile("name.substring(1) == ''").isCompiled());
+        assertEquals("id != null", compile("id != null").getExpression());
+        assertTrue(compile("id != null").toString().contains("id != null"));
+    }
+
+    @Test
+    void testEvaluate() {
+        Map<String, Object> bindings = bindings();
+        assertEquals("Mercy", compile("user.name").evaluate(bindings));
+        assertEquals(2, compile("ids.size()").evaluate(bindings));
+        assertEquals("value", compile("nested.key").evaluate(bindings));
+        assertNull(compile("missing").evaluate(bindings));
+        assertEquals("%Mercy%", compile("'%' + name + '%'").evaluate(bindings));
+        // the getter of the root
+        assertEquals("Mercy", compile("name").evaluate(new User(1, "Mercy")));
+    }
+
+    @Test
+    void testEvaluateIterable() {
+        Map<String, Object> bindings = bindings();
+        assertSame(bindings.get("ids"), compile("ids").evaluateIterable(bindings, false));
+        assertEquals(asList(1, 2), toList(compile("array").evaluateIterable(bindings, false)));
+        assertNull(compile("missing").evaluateIterable(bindings, true));
+    }
+
+    private static List<Object> toList(Iterable<?> iterable) {
+        List<Object> list = new ArrayList<>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    private static Map<String, Object> bindings() {
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put("id", 1);
+        bindings.put("name", "Mercy");
+        bindings.put("active", Boolean.TRUE);
+        bindings.put("amount", new BigDecimal("1.5"));
+        bindings.put("ids", asList(1, 2));
+        bindings.put("array", new int[]{1, 2});
+        bindings.put("user", new User(1, "Mercy"));
+        Map<String, Object> nested = new HashMap<>();
+        nested.put("key", "value");
+        bindings.put("nested", nested);
+        return bindings;
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.scripting;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link ShapeCachingLanguageDriver} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see ShapeCachingLanguageDriver
+ * @see ShapeCachingSqlSource
+ * @since 1.0.0
+ */
+class ShapeCachingLanguageDriverTest {
+
+    private Configuration configuration;
+
+    private ShapeCachingLanguageDriver languageDriver;
+
+    @BeforeEach
+    void init() {
+        this.configuration = new Configuration();
+        this.languageDriver = new ShapeCachingLanguageDriver();
+    }
+
+    @Test
+    void testInvalidConstructorArgs() {
+        assertThrows(IllegalArgumentException.class, () -> new ShapeCachingLanguageDriver(0));
+        assertEquals(ShapeCachingLanguageDriver.DEFAULT_MAX_SHAPES, languageDriver.getMaxShapes());
+    }
+
+    @Test
+    void testStaticSql() {
+        SqlSource sqlSource = languageDriver.createSqlSource(configuration, "SELECT id,name FROM users WHERE id = #{id}", Map.class);
+        assertFalse(sqlSource instanceof ShapeCachingSqlSource);
+    }
+
+    @Test
+    void testConditions() {
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script>SELECT id,name FROM users <where>" +
+                "<if test=\"id != null\">id = #{id}</if>" +
+                "<if test=\"name != null\">AND name = #{name}</if>" +
+                "</where></script>");
+        assertTrue(sqlSource.isCacheable());
+
+        BoundSql boundSql = assertBoundSql(sqlSource, params("id", 1));
+        assertEquals(1, sqlSource.getShapeCount());
+        assertSame(boundSql.getSql(), assertBoundSql(sqlSource, params("id", 2)).getSql());
+        assertEquals(1, sqlSource.getShapeCount());
+
+        assertBoundSql(sqlSource, params("name", "Mercy"));
+        assertBoundSql(sqlSource, new HashMap<>());
+        assertBoundSql(sqlSource, params("id", 1, "name", "Mercy"));
+        assertEquals(4, sqlSource.getShapeCount());
+    }
+
+    @Test
+    void testChoose() {
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script>SELECT id,name FROM users WHERE " +
+                "<choose><when test=\"id != null\">id = #{id}</when><otherwise>name = #{name}</otherwise></choose>" +
+                "</script>");
+        assertBoundSql(sqlSource, params("id", 1));
+        assertBoundSql(sqlSource, params("name", "Mercy"));
+        assertBoundSql(sqlSource, params("name", "Mercy"));
+        assertEquals(2, sqlSource.getShapeCount());
+    }
+
+    @Test
+    void testForEach() {
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script>SELECT id,name FROM users WHERE id IN " +
+                "<foreach collection=\"ids\" item=\"id\" index=\"i\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>" +
+                "</script>");
+        assertBoundSql(sqlSource, params("ids", asList(1, 2)));
+        BoundSql boundSql = assertBoundSql(sqlSource, params("ids", asList(3, 4)));
+        assertEquals(1, sqlSource.getShapeCount());
+        assertEquals(3, boundSql.getAdditionalParameter(ShapeNode.ITEM_PREFIX + "id_0"));
+        assertEquals(4, boundSql.getAdditionalParameter(ShapeNode.ITEM_PREFIX + "id_1"));
+
+        assertBoundSql(sqlSource, params("ids", asList(1, 2, 3)));
+        assertEquals(2, sqlSource.getShapeCount());
+    }
+
+    @Test
+    void testBind() {
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script><bind name=\"pattern\" value=\"'%' + name + '%'\"/>" +
+                "SELECT id,name FROM users WHERE name LIKE #{pattern}</script>");
+        assertBoundSql(sqlSource, params("name", "a"));
+        BoundSql boundSql = assertBoundSql(sqlSource, params("name", "b"));
+        assertEquals(1, sqlSource.getShapeCount());
+        assertEquals("%b%", boundSql.getAdditionalParameter("pattern"));
+    }
+
+    @Test
+    void testTextSubstitution() {
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script>SELECT id,name FROM ${table}" +
+                "<if test=\"id != null\"> WHERE id = #{id}</if></script>");
+        assertFalse(sqlSource.isCacheable());
+        assertEquals("SELECT id,name FROM users", sqlSource.getBoundSql(params("table", "users")).getSql());
+        assertEquals(0, sqlSource.getShapeCount());
+    }
+
+    @Test
+    void testMaxShapes() {
+        this.languageDriver = new ShapeCachingLanguageDriver(1);
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script>SELECT id,name FROM users" +
+                "<if test=\"id != null\"> WHERE id = #{id}</if></script>");
+        assertBoundSql(sqlSource, params("id", 1));
+        assertBoundSql(sqlSource, new HashMap<>());
+        assertEquals(1, sqlSource.getShapeCount());
+    }
+
+    @Test
+    void testInternedSql() {
+        ShapeCachingSqlSource sqlSource = createSqlSource("<script>SELECT id,name FROM users WHERE id = #{id}" +
+                "<if test=\"name != null\"></if></script>");
+        ShapeCachingSqlSource anotherSqlSource = createSqlSource("<script>SELECT id,name FROM users WHERE id = #{id}" +
+                "<if test=\"name == null\"></if></script>");
+        assertNotSame(sqlSource, anotherSqlSource);
+        assertSame(sqlSource.getBoundSql(params("id", 1)).getSql(), anotherSqlSource.getBoundSql(params("id", 1)).getSql());
+        assertEquals(1, languageDriver.getSqlTextCount());
+    }
+
+    private ShapeCachingSqlSource createSqlSource(String script) {
+        SqlSource sqlSource = languageDriver.createSqlSource(configuration, script, Map.class);
+        return assertInstanceOf(ShapeCachingSqlSource.class, sqlSource);
+    }
+
+    private BoundSql assertBoundSql(ShapeCachingSqlSource sqlSource, Map<String, Object> params) {
+        BoundSql expected = sqlSource.getDelegate().getBoundSql(params);
+        BoundSql boundSql = sqlSource.getBoundSql(params);
+        assertEquals(expected.getSql(), boundSql.getSql());
+        assertEquals(expected.getParameterMappings().size(), boundSql.getParameterMappings().size());
+        for (int i = 0; i < expected.getParameterMappings().size(); i++) {
+            assertEquals(expected.getParameterMappings().get(i).getProperty(), boundSql.getParameterMappings().get(i).getProperty());
+            assertEquals(expected.getParameterMappings().get(i).getJavaType(), boundSql.getParameterMappings().get(i).getJavaType());
+        }
+        return boundSql;
+    }
+
+    private static Map<String, Object> params(Object... keysAndValues) {
+        Map<String, Object> params = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            params.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return params;
+    }
+}
@@ -17,10 +17,23 @@
 
 package io.microsphere.mybatis.spring.boot.autoconfigure;
 
+import io.microsphere.mybatis.cache.CacheSnapshot;
 import io.microsphere.mybatis.spring.annotation.EnableMyBatisExtension;
 import io.microsphere.mybatis.spring.boot.autoconfigure.condition.ConditionalOnMyBatisAvailable;
+import io.microsphere.mybatis.spring.cache.CacheSnapshotLifecycle;
+import io.microsphere.mybatis.spring.cache.StatisticsCacheBeanPostProcessor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME;
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_SCHEMA_VERSION_PROPERTY_NAME;
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_STATISTICS_ENABLED_PROPERTY_NAME;
 
 /**
  * The Auto-{@link Configuration} for MyBatis
@@ -39,6 +52,13 @@ import org.springframework.context.annotation.Configuration;
  *           return new LoggingExecutorFilter();
  *       }
  *   }
+ *
+ *   // To warm up the caches on restart from the snapshot saved on the graceful shutdown:
+ *   //   microsphere.mybatis.cache.snapshot.file=/data/cache/mybatis.snapshot
+ *   //   microsphere.mybatis.cache.snapshot.schema-version=2
+ *
+ *   // To record the statistics of the second-level caches:
+ *   //   microsphere.mybatis.cache.statistics.enabled=true
  * }</pre>
  *
  * @author <a href="mailto:mercyblitz@gmail.com">Mercy</a>
@@ -52,4 +72,22 @@ import org.springframework.context.annotation.Configuration;
         "org.mybatis.spring.boot.autoconfigure.MybatisAutoConfiguration"
 })
 public class MyBatisAutoConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME)
+    @ConditionalOnMissingBean
+    public CacheSnapshotLifecycle cacheSnapshotLifecycle(Environment environment,
+                                                         ObjectProvider<SqlSessionFactory> sqlSessionFactories) {
+        CacheSnapshot cacheSnapshot = new CacheSnapshot(environment.getRequiredProperty(MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME),
+                environment.getProperty(MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_SCHEMA_VERSION_PROPERTY_NAME));
+        return new CacheSnapshotLifecycle(cacheSnapshot,
+                () -> sqlSessionFactories.stream().map(SqlSessionFactory::getConfiguration).toList());
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = MICROSPHERE_MYBATIS_CACHE_STATISTICS_ENABLED_PROPERTY_NAME, havingValue = "true")
+    @ConditionalOnMissingBean
+    public static StatisticsCacheBeanPostProcessor statisticsCacheBeanPostProcessor() {
+        return new StatisticsCacheBeanPostProcessor();
+    }
 }
\ No newline at end of file
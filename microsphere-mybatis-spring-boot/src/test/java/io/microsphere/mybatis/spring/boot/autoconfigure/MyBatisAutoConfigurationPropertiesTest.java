@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.boot.autoconfigure;
+
+import io.microsphere.mybatis.spring.cache.CacheSnapshotLifecycle;
+import io.microsphere.mybatis.spring.cache.StatisticsCacheBeanPostProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.nio.file.Path;
+
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME;
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_SCHEMA_VERSION_PROPERTY_NAME;
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_CACHE_STATISTICS_ENABLED_PROPERTY_NAME;
+import static io.microsphere.mybatis.constants.PropertyConstants.MICROSPHERE_MYBATIS_ENABLED_PROPERTY_NAME;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The property-conditional beans of {@link MyBatisAutoConfiguration} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see MyBatisAutoConfiguration
+ * @see CacheSnapshotLifecycle
+ * @see StatisticsCacheBeanPostProcessor
+ * @since 1.0.0
+ */
+class MyBatisAutoConfigurationPropertiesTest {
+
+    @TempDir
+    Path directory;
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(MyBatisAutoConfiguration.class));
+
+    @Test
+    void testCacheSnapshotLifecycle() {
+        Path file = directory.resolve("mybatis.snapshot");
+        contextRunner.withPropertyValues(MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME + "=" + file,
+                        MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_SCHEMA_VERSION_PROPERTY_NAME + "=2")
+                .run(context -> {
+                    assertThat(context).hasSingleBean(CacheSnapshotLifecycle.class);
+                    CacheSnapshotLifecycle lifecycle = context.getBean(CacheSnapshotLifecycle.class);
+                    assertEquals(file, lifecycle.getCacheSnapshot().getFile());
+                    assertEquals("2", lifecycle.getCacheSnapshot().getSchemaVersion());
+                    assertThat(lifecycle.isRunning()).isTrue();
+                });
+    }
+
+    @Test
+    void testCacheSnapshotLifecycleWithoutFile() {
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(CacheSnapshotLifecycle.class));
+    }
+
+    @Test
+    void testCacheSnapshotLifecycleOnDisabled() {
+        contextRunner.withPropertyValues(MICROSPHERE_MYBATIS_CACHE_SNAPSHOT_FILE_PROPERTY_NAME + "=" + directory.resolve("mybatis.snapshot"),
+                        MICROSPHERE_MYBATIS_ENABLED_PROPERTY_NAME + "=false")
+                .run(context -> assertThat(context).doesNotHaveBean(CacheSnapshotLifecycle.class));
+    }
+
+    @Test
+    void testStatisticsCacheBeanPostProcessor() {
+        contextRunner.withPropertyValues(MICROSPHERE_MYBATIS_CACHE_STATISTICS_ENABLED_PROPERTY_NAME + "=true")
+                .run(context -> assertThat(context).hasSingleBean(StatisticsCacheBeanPostProcessor.class));
+        contextRunner.withPropertyValues(MICROSPHERE_MYBATIS_CACHE_STATISTICS_ENABLED_PROPERTY_NAME + "=false")
+                .run(context -> assertThat(context).doesNotHaveBean(StatisticsCacheBeanPostProcessor.class));
+        contextRunner.run(context -> assertThat(context).doesNotHaveBean(StatisticsCacheBeanPostProcessor.class));
+    }
+}
@@ -17,8 +17,18 @@
 
 package io.microsphere.mybatis.spring.cloud.autoconfigure;
 
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
 import io.microsphere.mybatis.spring.boot.autoconfigure.condition.ConditionalOnMyBatisAvailable;
+import io.microsphere.mybatis.spring.cloud.cache.CacheInvalidationBus;
+import io.microsphere.mybatis.spring.cloud.cache.CacheInvalidationExecutorFilter;
+import io.microsphere.mybatis.spring.cloud.cache.CacheInvalidationTransport;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 /**
@@ -32,16 +42,46 @@ import org.springframework.context.annotation.Configuration;
  *
  *   // application.properties:
  *   // microsphere.mybatis.enabled=true
+ *
+ *   // The cluster-wide cache invalidation is enabled by declaring a CacheInvalidationTransport bean:
+ *   @Bean
+ *   public CacheInvalidationTransport cacheInvalidationTransport() {
+ *       return new LoopbackCacheInvalidationTransport();
+ *   }
  * }</pre>
  *
  * @author <a href="mailto:mercyblitz@gmail.com">Mercy</a>
  * @see Configuration
  * @see org.mybatis.spring.boot.autoconfigure.MybatisAutoConfiguration
+ * @see CacheInvalidationBus
  * @since 1.0.0
  */
 @ConditionalOnMyBatisAvailable
 @AutoConfigureAfter(name = {
         "org.mybatis.spring.boot.autoconfigure.MybatisAutoConfiguration"
 })
+@AutoConfigureBefore(name = {
+        // the ExecutorFilter beans must be registered before the InterceptingExecutorInterceptor
+        "io.microsphere.mybatis.spring.boot.autoconfigure.MyBatisAutoConfiguration"
+})
 public class MyBatisCloudAutoConfiguration {
+
+    @Bean
+    @ConditionalOnBean(CacheInvalidationTransport.class)
+    @ConditionalOnMissingBean
+    public CacheInvalidationBus cacheInvalidationBus(CacheInvalidationTransport cacheInvalidationTransport,
+                                                     ObjectProvider<SqlSessionFactory> sqlSessionFactories,
+                                                     ObjectProvider<TableInvalidationExecutorFilter> tableInvalidationExecutorFilters) {
+        return new CacheInvalidationBus(cacheInvalidationTransport,
+                () -> sqlSessionFactories.stream().map(SqlSessionFactory::getConfiguration).toList(),
+                () -> tableInvalidationExecutorFilters.stream().toList());
+    }
+
+    @Bean
+    @ConditionalOnBean(CacheInvalidationTransport.class)
+    @ConditionalOnMissingBean
+    public CacheInvalidationExecutorFilter cacheInvalidationExecutorFilter(CacheInvalidationBus cacheInvalidationBus,
+                                                                           ObjectProvider<TableInvalidationExecutorFilter> tableInvalidationExecutorFilter) {
+        return new CacheInvalidationExecutorFilter(cacheInvalidationBus, tableInvalidationExecutorFilter.getIfUnique());
+    }
 }
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cloud.cache;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.cache.FingerprintCacheKey;
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.session.Configuration;
+
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertNotNull;
+import static java.util.Collections.newSetFromMap;
+
+/**
+ * The cluster-wide cache invalidation bus publishes the {@link CacheInvalidationMessage messages} of the local
+ * node through the {@link CacheInvalidationTransport}, and evicts the matching entries from the local caches when the
+ * messages of the peers arrive:
+ * <ul>
+ *     <li>namespace : the cache of the namespace is cleared</li>
+ *     <li>table : the queries that read the table, and the queries whose tables are unknown in the caches of the
+ *     writers, are invalidated by the {@link TableInvalidationExecutorFilter} instances, all caches are cleared if no
+ *     {@link TableInvalidationExecutorFilter} is present</li>
+ *     <li>key : the entry of the key is removed from the cache of the namespace</li>
+ * </ul>
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CacheInvalidationBus bus = new CacheInvalidationBus(transport, () -> List.of(configuration), List::of);
+ *   // publish the invalidation of a key computed by FingerprintCacheKeyExecutorFilter(false)
+ *   bus.publish(bus.newMessage().addKey("io.microsphere.mybatis.test.mapper.UserMapper", cacheKey));
+ *   bus.close();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheInvalidationMessage
+ * @see CacheInvalidationTransport
+ * @see CacheInvalidationExecutorFilter
+ * @since 1.0.0
+ */
+public class CacheInvalidationBus implements Consumer<CacheInvalidationMessage>, AutoCloseable {
+
+    private static final Logger logger = getLogger(CacheInvalidationBus.class);
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final CacheInvalidationTransport transport;
+
+    private final Supplier<? extends Collection<Configuration>> configurationsSupplier;
+
+    private final Supplier<? extends Collection<TableInvalidationExecutorFilter>> tableInvalidationFiltersSupplier;
+
+    private final LongAdder publishedCount = new LongAdder();
+
+    private final LongAdder receivedCount = new LongAdder();
+
+    /**
+     * Create a {@link CacheInvalidationBus} subscribing the specified {@link CacheInvalidationTransport}
+     *
+     * @param transport                        {@link CacheInvalidationTransport}
+     * @param configurationsSupplier           the supplier of the local MyBatis {@link Configuration configurations}
+     * @param tableInvalidationFiltersSupplier the supplier of the local {@link TableInvalidationExecutorFilter}
+     *                                         instances
+     */
+    public CacheInvalidationBus(CacheInvalidationTransport transport,
+                                Supplier<? extends Collection<Configuration>> configurationsSupplier,
+                                Supplier<? extends Collection<TableInvalidationExecutorFilter>> tableInvalidationFiltersSupplier) {
+        assertNotNull(transport, () -> "The 'transport' must not be null");
+        assertNotNull(configurationsSupplier, () -> "The 'configurationsSupplier' must not be null");
+        assertNotNull(tableInvalidationFiltersSupplier, () -> "The 'tableInvalidationFiltersSupplier' must not be null");
+        this.transport = transport;
+        this.configurationsSupplier = configurationsSupplier;
+        this.tableInvalidationFiltersSupplier = tableInvalidationFiltersSupplier;
+        transport.subscribe(this);
+    }
+
+    /**
+     * Create a new {@link CacheInvalidationMessage} of the local node
+     *
+     * @return non-null
+     */
+    public CacheInvalidationMessage newMessage() {
+        return new CacheInvalidationMessage(nodeId);
+    }
+
+    /**
+     * Publish the {@link CacheInvalidationMessage} to the peers, the local caches are not touched
+     *
+     * @param message {@link CacheInvalidationMessage}
+     */
+    public void publish(CacheInvalidationMessage message) {
+        if (message.isEmpty()) {
+            return;
+        }
+        transport.publish(message);
+        publishedCount.increment();
+        logger.trace("The message was published : {}", message);
+    }
+
+    /**
+     * Evict the entries of the local caches by the {@link CacheInvalidationMessage} of the peer, the messages of the
+     * local node are ignored
+     *
+     * @param message {@link CacheInvalidationMessage}
+     */
+    @Override
+    public void accept(CacheInvalidationMessage message) {
+        if (nodeId.equals(message.getOrigin())) {
+            return;
+        }
+        receivedCount.increment();
+        Collection<Configuration> configurations = configurationsSupplier.get();
+        for (Configuration configuration : configurations) {
+            for (String namespace : message.getNamespaces()) {
+                if (configuration.hasCache(namespace)) {
+                    configuration.getCache(namespace).clear();
+                }
+            }
+            for (Map.Entry<String, Set<FingerprintCacheKey>> entry : message.getKeys().entrySet()) {
+                String namespace = entry.getKey();
+                if (configuration.hasCache(namespace)) {
+                    Cache cache = configuration.getCache(namespace);
+                    entry.getValue().forEach(cache::removeObject);
+                }
+            }
+        }
+        Set<String> tables = message.getTables();
+        Set<String> cacheIds = message.getCacheIds();
+        if (!tables.isEmpty() || !cacheIds.isEmpty()) {
+            invalidateTables(tables, cacheIds, configurations);
+        }
+        logger.trace("The message was received : {}", message);
+    }
+
+    private void invalidateTables(Set<String> tables, Set<String> cacheIds, Collection<Configuration> configurations) {
+        Collection<TableInvalidationExecutorFilter> filters = tableInvalidationFiltersSupplier.get();
+        if (filters.isEmpty()) {
+            // the tables read by the cached queries are unknown
+            Set<Cache> caches = newSetFromMap(new IdentityHashMap<>());
+            for (Configuration configuration : configurations) {
+                // the short names map to the same caches, or the ambiguities
+                for (Object value : configuration.getCaches()) {
+                    if (value instanceof Cache cache) {
+                        caches.add(cache);
+                    }
+                }
+            }
+            caches.forEach(Cache::clear);
+            return;
+        }
+        for (TableInvalidationExecutorFilter filter : filters) {
+            filter.invalidate(tables, cacheIds);
+        }
+    }
+
+    /**
+     * Get the id of the local node
+     *
+     * @return non-null
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Get the count of the published messages
+     *
+     * @return the count of the published messages
+     */
+    public long getPublishedCount() {
+        return publishedCount.sum();
+    }
+
+    /**
+     * Get the count of the received messages of the peers
+     *
+     * @return the count of the received messages
+     */
+    public long getReceivedCount() {
+        return receivedCount.sum();
+    }
+
+    /**
+     * Unsubscribe the {@link CacheInvalidationTransport}
+     */
+    @Override
+    public void close() {
+        transport.unsubscribe(this);
+    }
+}
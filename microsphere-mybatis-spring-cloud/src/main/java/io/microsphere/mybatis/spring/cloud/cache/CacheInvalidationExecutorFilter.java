@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cloud.cache;
+
+import io.microsphere.annotation.Nullable;
+import io.microsphere.mybatis.cache.SqlTables;
+import io.microsphere.mybatis.executor.ExecutorFilter;
+import io.microsphere.mybatis.executor.ExecutorFilterChain;
+import io.microsphere.mybatis.executor.ExecutorFilterPlacement;
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
+import io.microsphere.mybatis.executor.WeakExecutorMap;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.sql.SQLException;
+
+import static io.microsphere.util.Assert.assertNotNull;
+
+/**
+ * The {@link ExecutorFilter} coalesces the invalidations of the updates per transaction into one
+ * {@link CacheInvalidationMessage}, and publishes it through the {@link CacheInvalidationBus} after the commit:
+ * <ul>
+ *     <li>the written tables and the cache ids of the writers managed by the specified
+ *     {@link TableInvalidationExecutorFilter}</li>
+ *     <li>the namespaces of the other writers that flush their caches</li>
+ * </ul>
+ * The message is discarded by the rollback.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CacheInvalidationBus bus = new CacheInvalidationBus(transport, () -> List.of(configuration), () -> List.of(tableFilter));
+ *   InterceptingExecutorInterceptor interceptor = new InterceptingExecutorInterceptor(
+ *       new ExecutorFilter[]{tableFilter, new CacheInvalidationExecutorFilter(bus, tableFilter)});
+ *   configuration.addInterceptor(interceptor);
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheInvalidationBus
+ * @see TableInvalidationExecutorFilter
+ * @since 1.0.0
+ */
+public class CacheInvalidationExecutorFilter implements ExecutorFilter {
+
+    private final CacheInvalidationBus bus;
+
+    @Nullable
+    private final TableInvalidationExecutorFilter tableInvalidationFilter;
+
+    private final WeakExecutorMap<CacheInvalidationMessage> pendingMessages = new WeakExecutorMap<>();
+
+    /**
+     * Create a {@link CacheInvalidationExecutorFilter} without the {@link TableInvalidationExecutorFilter}, the
+     * writers are published by their namespaces
+     *
+     * @param bus {@link CacheInvalidationBus}
+     */
+    public CacheInvalidationExecutorFilter(CacheInvalidationBus bus) {
+        this(bus, null);
+    }
+
+    /**
+     * Create a {@link CacheInvalidationExecutorFilter}
+     *
+     * @param bus                     {@link CacheInvalidationBus}
+     * @param tableInvalidationFilter the {@link TableInvalidationExecutorFilter} analyzing the writers, may be
+     *                                <code>null</code>
+     */
+    public CacheInvalidationExecutorFilter(CacheInvalidationBus bus, @Nullable TableInvalidationExecutorFilter tableInvalidationFilter) {
+        assertNotNull(bus, () -> "The 'bus' must not be null");
+        this.bus = bus;
+        this.tableInvalidationFilter = tableInvalidationFilter;
+    }
+
+    @Override
+    public int update(MappedStatement ms, Object parameter, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        TableInvalidationExecutorFilter tableFilter = this.tableInvalidationFilter;
+        int rows = chain.update(ms, parameter);
+        // the writer has been analyzed by the TableInvalidationExecutorFilter
+        if (tableFilter != null && tableFilter.isManaged(ms)) {
+            SqlTables tables = tableFilter.getSqlTables(ms);
+            CacheInvalidationMessage message = getPendingMessage(executor).addTables(tables.getWriteTables());
+            Cache cache = ms.getCache();
+            if (cache != null) {
+                // the queries whose tables are unknown in the cache of writer
+                message.addCacheId(cache.getId());
+            }
+        } else {
+            Cache cache = ms.getCache();
+            if (cache != null && ms.isFlushCacheRequired()) {
+                getPendingMessage(executor).addNamespace(cache.getId());
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public void commit(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        chain.commit(required);
+        publish(executor);
+    }
+
+    @Override
+    public void rollback(boolean required, ExecutorFilterChain chain) throws SQLException {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.rollback(required);
+        } finally {
+            pendingMessages.remove(executor);
+        }
+    }
+
+    @Override
+    public void close(boolean forceRollback, ExecutorFilterChain chain) {
+        Executor executor = chain.getExecutor();
+        try {
+            chain.close(forceRollback);
+        } finally {
+            if (forceRollback) {
+                pendingMessages.remove(executor);
+            } else {
+                publish(executor);
+            }
+        }
+    }
+
+    /**
+     * The writers are published before the {@link org.apache.ibatis.executor.CachingExecutor} flushes the caches, and
+     * after the transaction is committed.
+     *
+     * @return {@link ExecutorFilterPlacement#OUTSIDE}
+     */
+    @Override
+    public ExecutorFilterPlacement getPlacement() {
+        return ExecutorFilterPlacement.OUTSIDE;
+    }
+
+    /**
+     * Get the {@link CacheInvalidationBus}
+     *
+     * @return non-null
+     */
+    public CacheInvalidationBus getBus() {
+        return bus;
+    }
+
+    /**
+     * Get the {@link TableInvalidationExecutorFilter}
+     *
+     * @return <code>null</code> if absent
+     */
+    @Nullable
+    public TableInvalidationExecutorFilter getTableInvalidationFilter() {
+        return tableInvalidationFilter;
+    }
+
+    private CacheInvalidationMessage getPendingMessage(Executor executor) {
+        return pendingMessages.computeIfAbsent(executor, e -> bus.newMessage());
+    }
+
+    private void publish(Executor executor) {
+        CacheInvalidationMessage message = pendingMessages.remove(executor);
+        if (message != null) {
+            bus.publish(message);
+        }
+    }
+
+}
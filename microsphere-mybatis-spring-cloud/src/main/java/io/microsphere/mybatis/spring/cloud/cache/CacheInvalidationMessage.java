@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cloud.cache;
+
+import io.microsphere.mybatis.cache.FingerprintCacheKey;
+import org.apache.ibatis.cache.CacheException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static io.microsphere.util.Assert.assertNotNull;
+import static io.microsphere.util.Assert.assertTrue;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * The message of the cluster-wide cache invalidation, which coalesces the invalidations of one transaction:
+ * <ul>
+ *     <li>namespace : the whole cache of the namespace is cleared</li>
+ *     <li>table : the cached queries that read the table are invalidated, along with the queries whose tables are
+ *     unknown in the caches of the writers</li>
+ *     <li>key : the entry of the {@link FingerprintCacheKey} without parameters is removed from the cache of the
+ *     namespace</li>
+ * </ul>
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CacheInvalidationMessage message = new CacheInvalidationMessage("node-1");
+ *   message.addNamespace("io.microsphere.mybatis.test.mapper.UserMapper");
+ *   message.addTable("users");
+ *   message.addCacheId("io.microsphere.mybatis.test.mapper.UserMapper");
+ *   byte[] bytes = message.encode();
+ *   CacheInvalidationMessage decoded = CacheInvalidationMessage.decode(bytes);
+ *   // decoded.equals(message)
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheInvalidationTransport
+ * @see CacheInvalidationBus
+ * @since 1.0.0
+ */
+public class CacheInvalidationMessage implements Serializable {
+
+    private static final long serialVersionUID = 4195328863510718372L;
+
+    /**
+     * The version of the binary format
+     */
+    static final byte VERSION = 2;
+
+    private final String origin;
+
+    private final Set<String> namespaces = new LinkedHashSet<>();
+
+    private final Set<String> tables = new LinkedHashSet<>();
+
+    private final Set<String> cacheIds = new LinkedHashSet<>();
+
+    private final Map<String, Set<FingerprintCacheKey>> keys = new LinkedHashMap<>();
+
+    /**
+     * Create a {@link CacheInvalidationMessage}
+     *
+     * @param origin the id of node that publishes the message
+     */
+    public CacheInvalidationMessage(String origin) {
+        assertNotNull(origin, () -> "The 'origin' must not be null");
+        this.origin = origin;
+    }
+
+    /**
+     * Add the namespace whose cache is cleared
+     *
+     * @param namespace the namespace
+     * @return this
+     */
+    public CacheInvalidationMessage addNamespace(String namespace) {
+        namespaces.add(namespace);
+        return this;
+    }
+
+    /**
+     * Add the written table
+     *
+     * @param table the name of table
+     * @return this
+     */
+    public CacheInvalidationMessage addTable(String table) {
+        tables.add(table);
+        return this;
+    }
+
+    /**
+     * Add the written tables
+     *
+     * @param tables the names of tables
+     * @return this
+     */
+    public CacheInvalidationMessage addTables(Collection<String> tables) {
+        this.tables.addAll(tables);
+        return this;
+    }
+
+    /**
+     * Add the id of the cache of the writer whose tables are written, the queries whose tables are unknown in the cache
+     * are invalidated along with the tables
+     *
+     * @param cacheId the {@link org.apache.ibatis.cache.Cache#getId() id} of cache
+     * @return this
+     */
+    public CacheInvalidationMessage addCacheId(String cacheId) {
+        cacheIds.add(cacheId);
+        return this;
+    }
+
+    /**
+     * Add the key whose entry is removed from the cache of the specified namespace
+     *
+     * @param namespace the namespace
+     * @param key       the {@link FingerprintCacheKey} without parameters
+     * @return this
+     * @throws IllegalArgumentException if the key retains any parameter
+     */
+    public CacheInvalidationMessage addKey(String namespace, FingerprintCacheKey key) {
+        assertTrue(key.getParameterCount() == 0, () -> "The key must not retain any parameter : " + key);
+        keys.computeIfAbsent(namespace, n -> new LinkedHashSet<>()).add(key);
+        return this;
+    }
+
+    /**
+     * Get the id of node that published the message
+     *
+     * @return non-null
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    /**
+     * Get the namespaces whose caches are cleared
+     *
+     * @return non-null
+     */
+    public Set<String> getNamespaces() {
+        return unmodifiableSet(namespaces);
+    }
+
+    /**
+     * Get the written tables
+     *
+     * @return non-null
+     */
+    public Set<String> getTables() {
+        return unmodifiableSet(tables);
+    }
+
+    /**
+     * Get the ids of the caches of the writers
+     *
+     * @return non-null
+     */
+    public Set<String> getCacheIds() {
+        return unmodifiableSet(cacheIds);
+    }
+
+    /**
+     * Get the keys whose entries are removed, grouped by the namespaces
+     *
+     * @return non-null
+     */
+    public Map<String, Set<FingerprintCacheKey>> getKeys() {
+        return unmodifiableMap(keys);
+    }
+
+    /**
+     * Is there no invalidation or not
+     *
+     * @return <code>true</code> if empty
+     */
+    public boolean isEmpty() {
+        return namespaces.isEmpty() && tables.isEmpty() && cacheIds.isEmpty() && keys.isEmpty();
+    }
+
+    /**
+     * Encode the message into the compact binary format
+     *
+     * @return non-null
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(64);
+        try (DataOutputStream output = new DataOutputStream(outputStream)) {
+            output.writeByte(VERSION);
+            output.writeUTF(origin);
+            writeStrings(output, namespaces);
+            writeStrings(output, tables);
+            writeStrings(output, cacheIds);
+            output.writeInt(keys.size());
+            for (Map.Entry<String, Set<FingerprintCacheKey>> entry : keys.entrySet()) {
+                output.writeUTF(entry.getKey());
+                Set<FingerprintCacheKey> namespaceKeys = entry.getValue();
+                output.writeInt(namespaceKeys.size());
+                for (FingerprintCacheKey key : namespaceKeys) {
+                    long[] state = key.getState();
+                    output.writeLong(state[0]);
+                    output.writeLong(state[1]);
+                    output.writeInt((int) state[2]);
+                }
+            }
+        } catch (IOException e) {
+            throw new CacheException("The message can't be encoded : " + this, e);
+        }
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Decode the message from the compact binary format
+     *
+     * @param bytes the bytes from {@link #encode()}
+     * @return non-null
+     */
+    public static CacheInvalidationMessage decode(byte[] bytes) {
+        try (DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes))) {
+            byte version = input.readByte();
+            if (version != VERSION) {
+                throw new CacheException("The version of message is not supported : " + version);
+            }
+            CacheInvalidationMessage message = new CacheInvalidationMessage(input.readUTF());
+            readStrings(input, message.namespaces);
+            readStrings(input, message.tables);
+            readStrings(input, message.cacheIds);
+            int namespaceCount = input.readInt();
+            for (int i = 0; i < namespaceCount; i++) {
+                String namespace = input.readUTF();
+                int keyCount = input.readInt();
+                Set<FingerprintCacheKey> namespaceKeys = new LinkedHashSet<>();
+                for (int j = 0; j < keyCount; j++) {
+                    namespaceKeys.add(FingerprintCacheKey.restore(new long[]{input.readLong(), input.readLong(), input.readInt()}));
+                }
+                message.keys.put(namespace, namespaceKeys);
+            }
+            return message;
+        } catch (IOException e) {
+            throw new CacheException("The message can't be decoded", e);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream output, Set<String> values) throws IOException {
+        output.writeInt(values.size());
+        for (String value : values) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static void readStrings(DataInputStream input, Set<String> values) throws IOException {
+        int size = input.readInt();
+        for (int i = 0; i < size; i++) {
+            values.add(input.readUTF());
+        }
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (this == object) {
+            return true;
+        }
+        if (!(object instanceof CacheInvalidationMessage that)) {
+            return false;
+        }
+        return origin.equals(that.origin) && namespaces.equals(that.namespaces) && tables.equals(that.tables)
+                && cacheIds.equals(that.cacheIds) && keys.equals(that.keys);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(origin, namespaces, tables, cacheIds, keys);
+    }
+
+    @Override
+    public String toString() {
+        return "CacheInvalidationMessage{" +
+                "origin='" + origin + '\'' +
+                ", namespaces=" + namespaces +
+                ", tables=" + tables +
+                ", cacheIds=" + cacheIds +
+                ", keys=" + keys +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cloud.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * The pluggable transport of {@link CacheInvalidationMessage} between the nodes of cluster, the implementation
+ * decides the wire format and the delivery guarantees, e.g. the message broker, the Redis Pub/Sub or the UDP
+ * multicast.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   CacheInvalidationTransport transport = new LoopbackCacheInvalidationTransport("cluster");
+ *   transport.subscribe(message -> System.out.println("Received : " + message));
+ *   transport.publish(new CacheInvalidationMessage("node-1").addTable("users"));
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheInvalidationMessage
+ * @see LoopbackCacheInvalidationTransport
+ * @since 1.0.0
+ */
+public interface CacheInvalidationTransport {
+
+    /**
+     * Publish the {@link CacheInvalidationMessage} to all nodes, the publisher itself may receive it
+     *
+     * @param message {@link CacheInvalidationMessage}
+     */
+    void publish(CacheInvalidationMessage message);
+
+    /**
+     * Subscribe the {@link CacheInvalidationMessage messages} published by any node
+     *
+     * @param subscriber the subscriber of {@link CacheInvalidationMessage}
+     */
+    void subscribe(Consumer<CacheInvalidationMessage> subscriber);
+
+    /**
+     * Unsubscribe the {@link CacheInvalidationMessage messages}
+     *
+     * @param subscriber the subscriber of {@link CacheInvalidationMessage}
+     */
+    void unsubscribe(Consumer<CacheInvalidationMessage> subscriber);
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cloud.cache;
+
+import io.microsphere.logging.Logger;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+
+/**
+ * The in-JVM {@link CacheInvalidationTransport} delivers the {@link CacheInvalidationMessage messages} to all
+ * transports of the same channel synchronously, which simulates the nodes of cluster in one JVM for testing. The
+ * messages are passed through the binary format of {@link CacheInvalidationMessage#encode()}.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   LoopbackCacheInvalidationTransport node1 = new LoopbackCacheInvalidationTransport("cluster");
+ *   LoopbackCacheInvalidationTransport node2 = new LoopbackCacheInvalidationTransport("cluster");
+ *   node2.subscribe(message -> System.out.println("Received : " + message));
+ *   node1.publish(new CacheInvalidationMessage("node-1").addTable("users"));
+ *   node1.close();
+ *   node2.close();
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheInvalidationTransport
+ * @since 1.0.0
+ */
+public class LoopbackCacheInvalidationTransport implements CacheInvalidationTransport, AutoCloseable {
+
+    private static final Logger logger = getLogger(LoopbackCacheInvalidationTransport.class);
+
+    /**
+     * The default channel
+     */
+    public static final String DEFAULT_CHANNEL = "default";
+
+    private static final ConcurrentMap<String, Set<LoopbackCacheInvalidationTransport>> channels = new ConcurrentHashMap<>();
+
+    private final String channel;
+
+    private final List<Consumer<CacheInvalidationMessage>> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Create a {@link LoopbackCacheInvalidationTransport} joining the {@link #DEFAULT_CHANNEL default channel}
+     */
+    public LoopbackCacheInvalidationTransport() {
+        this(DEFAULT_CHANNEL);
+    }
+
+    /**
+     * Create a {@link LoopbackCacheInvalidationTransport} joining the specified channel
+     *
+     * @param channel the channel
+     */
+    public LoopbackCacheInvalidationTransport(String channel) {
+        this.channel = channel;
+        channels.computeIfAbsent(channel, c -> ConcurrentHashMap.newKeySet()).add(this);
+    }
+
+    @Override
+    public void publish(CacheInvalidationMessage message) {
+        byte[] bytes = message.encode();
+        for (LoopbackCacheInvalidationTransport transport : channels.getOrDefault(channel, Set.of())) {
+            transport.deliver(CacheInvalidationMessage.decode(bytes));
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    @Override
+    public void unsubscribe(Consumer<CacheInvalidationMessage> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /**
+     * Get the channel
+     *
+     * @return non-null
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    /**
+     * Leave the channel
+     */
+    @Override
+    public void close() {
+        channels.computeIfPresent(channel, (c, transports) -> {
+            transports.remove(this);
+            return transports.isEmpty() ? null : transports;
+        });
+        subscribers.clear();
+    }
+
+    private void deliver(CacheInvalidationMessage message) {
+        for (Consumer<CacheInvalidationMessage> subscriber : subscribers) {
+            try {
+                subscriber.accept(message);
+            } catch (RuntimeException e) {
+                logger.warn("The subscriber[{}] failed to consume the message : {}", subscriber, message, e);
+            }
+        }
+    }
+}
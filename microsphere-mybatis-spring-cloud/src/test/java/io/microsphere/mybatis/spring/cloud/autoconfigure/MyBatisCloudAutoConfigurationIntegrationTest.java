@@ -19,6 +19,10 @@ package io.microsphere.mybatis.spring.cloud.autoconfigure;
 
 import io.microsphere.mybatis.executor.LoggingExecutorFilter;
 import io.microsphere.mybatis.executor.LoggingExecutorInterceptor;
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
+import io.microsphere.mybatis.spring.cloud.cache.CacheInvalidationBus;
+import io.microsphere.mybatis.spring.cloud.cache.CacheInvalidationExecutorFilter;
+import io.microsphere.mybatis.spring.cloud.cache.LoopbackCacheInvalidationTransport;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
@@ -32,6 +36,7 @@ import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.NONE;
 
@@ -45,6 +50,8 @@ import static org.springframework.boot.test.context.SpringBootTest.WebEnvironmen
 @SpringBootTest(classes = {
         LoggingExecutorFilter.class,
         LoggingExecutorInterceptor.class,
+        LoopbackCacheInvalidationTransport.class,
+        TableInvalidationExecutorFilter.class,
         MyBatisCloudAutoConfigurationIntegrationTest.class
 }, webEnvironment = NONE,
         properties = {
@@ -61,6 +68,15 @@ class MyBatisCloudAutoConfigurationIntegrationTest {
     @Autowired
     private FeaturesEndpoint featuresEndpoint;
 
+    @Autowired
+    private CacheInvalidationBus cacheInvalidationBus;
+
+    @Autowired
+    private CacheInvalidationExecutorFilter cacheInvalidationExecutorFilter;
+
+    @Autowired
+    private TableInvalidationExecutorFilter tableInvalidationExecutorFilter;
+
     @Test
     public void test() {
         assertTrue(this.hasFeaturesMap.size() > 0);
@@ -77,6 +93,9 @@ class MyBatisCloudAutoConfigurationIntegrationTest {
         assertNotNull(hadFeatures);
 
         assertNotNull(featuresEndpoint.features());
+
+        assertSame(cacheInvalidationBus, cacheInvalidationExecutorFilter.getBus());
+        assertSame(tableInvalidationExecutorFilter, cacheInvalidationExecutorFilter.getTableInvalidationFilter());
     }
 
     private void assertNamedFeature(List<NamedFeature> namedFeatures, int index, String name, Class<?> type) {
@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cloud.cache;
+
+import io.microsphere.mybatis.cache.FingerprintCacheKey;
+import io.microsphere.mybatis.cache.StatisticsCache;
+import io.microsphere.mybatis.executor.ExecutorFilter;
+import io.microsphere.mybatis.executor.FingerprintCacheKeyExecutorFilter;
+import io.microsphere.mybatis.executor.TableInvalidationExecutorFilter;
+import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.test.AbstractMapperTest;
+import io.microsphere.mybatis.test.entity.User;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.annotations.CacheNamespaceRef;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static io.microsphere.mybatis.test.MyBatisTestUtils.buildDefaultSqlSessionFactory;
+import static io.microsphere.mybatis.util.MyBatisUtils.doInSqlSession;
+import static org.apache.ibatis.session.RowBounds.DEFAULT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CacheInvalidationBus} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheInvalidationBus
+ * @see CacheInvalidationExecutorFilter
+ * @see LoopbackCacheInvalidationTransport
+ * @since 1.0.0
+ */
+class CacheInvalidationBusTest extends AbstractMapperTest {
+
+    private static final String CHANNEL = "CacheInvalidationBusTest";
+
+    private static final String NAMESPACE = "io.microsphere.mybatis.test.mapper.UserMapper";
+
+    private LoopbackCacheInvalidationTransport transport;
+
+    private CacheInvalidationBus bus;
+
+    private LoopbackCacheInvalidationTransport peerTransport;
+
+    private CacheInvalidationBus peerBus;
+
+    private Configuration peerConfiguration;
+
+    @Override
+    protected void customize(Configuration configuration) {
+        TableInvalidationExecutorFilter tableFilter = new TableInvalidationExecutorFilter();
+        this.transport = new LoopbackCacheInvalidationTransport(CHANNEL);
+        this.bus = new CacheInvalidationBus(transport, () -> List.of(configuration), () -> List.of(tableFilter));
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[]{
+                tableFilter, new CacheInvalidationExecutorFilter(bus, tableFilter)}));
+    }
+
+    @BeforeEach
+    void initPeer() throws Throwable {
+        // the peer node shares the same database
+        Configuration configuration = buildDefaultSqlSessionFactory().getConfiguration();
+        TableInvalidationExecutorFilter tableFilter = new TableInvalidationExecutorFilter();
+        this.peerTransport = new LoopbackCacheInvalidationTransport(CHANNEL);
+        this.peerBus = new CacheInvalidationBus(peerTransport, () -> List.of(configuration), () -> List.of(tableFilter));
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[]{
+                tableFilter, new FingerprintCacheKeyExecutorFilter(false), new CacheInvalidationExecutorFilter(peerBus, tableFilter)}));
+        configuration.addMapper(DynamicUserMapper.class);
+        this.peerConfiguration = configuration;
+    }
+
+    @AfterEach
+    void destroyPeer() {
+        bus.close();
+        peerBus.close();
+        transport.close();
+        peerTransport.close();
+    }
+
+    @Test
+    void testTableInvalidation() throws Throwable {
+        Cache peerCache = peerConfiguration.getCache(NAMESPACE);
+        doInSqlSession(peerConfiguration, sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).getUserById(1);
+            sqlSession.commit();
+        });
+        assertEquals(1, peerCache.getSize());
+
+        // the rollback publishes nothing
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.rollback();
+        });
+        assertEquals(0, bus.getPublishedCount());
+        assertEquals(1, peerCache.getSize());
+
+        // the updates of one transaction are coalesced into one message
+        doInSqlSession(sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.saveUser(new User(1, "User-1"));
+            userMapper.saveUser(new User(2, "User-2"));
+            sqlSession.commit();
+        });
+        assertEquals(1, bus.getPublishedCount());
+        assertEquals(1, peerBus.getReceivedCount());
+        // the local node ignores its own message
+        assertEquals(0, bus.getReceivedCount());
+        assertEquals(0, peerCache.getSize());
+    }
+
+    @Test
+    void testUnknownTablesInvalidation() throws Throwable {
+        Cache peerCache = peerConfiguration.getCache(NAMESPACE);
+        // the tables of the dynamic query are unknown
+        doInSqlSession(peerConfiguration, sqlSession -> {
+            sqlSession.getMapper(DynamicUserMapper.class).findUsers(1);
+            sqlSession.commit();
+        });
+        assertEquals(1, peerCache.getSize());
+
+        doInSqlSession(sqlSession -> {
+            sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+            sqlSession.commit();
+        });
+        // the queries whose tables are unknown in the cache of writer are invalidated by the peer
+        assertEquals(1, peerBus.getReceivedCount());
+        assertEquals(0, peerCache.getSize());
+    }
+
+    @Test
+    void testCacheEnabled() throws Throwable {
+        // the TableInvalidationExecutorFilter is registered by the other interceptor
+        Configuration configuration = buildDefaultSqlSessionFactory().getConfiguration();
+        configuration.setCacheEnabled(true);
+        TableInvalidationExecutorFilter tableFilter = new TableInvalidationExecutorFilter();
+        CacheInvalidationBus otherBus = new CacheInvalidationBus(transport, () -> List.of(configuration), () -> List.of(tableFilter));
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[]{tableFilter}));
+        configuration.addInterceptor(new InterceptingExecutorInterceptor(new ExecutorFilter[]{
+                new CacheInvalidationExecutorFilter(otherBus, tableFilter)}));
+
+        List<CacheInvalidationMessage> messages = new ArrayList<>();
+        peerTransport.subscribe(messages::add);
+        try {
+            doInSqlSession(configuration, sqlSession -> {
+                sqlSession.getMapper(UserMapper.class).saveUser(new User(1, "User-1"));
+                sqlSession.commit();
+            });
+        } finally {
+            otherBus.close();
+        }
+        assertEquals(1, messages.size());
+        CacheInvalidationMessage message = messages.get(0);
+        assertEquals(Set.of("users"), message.getTables());
+        assertEquals(Set.of(NAMESPACE), message.getCacheIds());
+        assertTrue(message.getNamespaces().isEmpty());
+    }
+
+    @Test
+    void testClearWithoutTableInvalidation() throws Throwable {
+        Configuration configuration = buildDefaultSqlSessionFactory().getConfiguration();
+        StatisticsCache cache = new StatisticsCache(new PerpetualCache("x.SharedCache"));
+        configuration.addCache(cache);
+        // the short name 'SharedCache' is ambiguous
+        configuration.addCache(new PerpetualCache("y.SharedCache"));
+        LoopbackCacheInvalidationTransport localTransport = new LoopbackCacheInvalidationTransport(CHANNEL + ".local");
+        CacheInvalidationBus localBus = new CacheInvalidationBus(localTransport, () -> List.of(configuration), List::of);
+        try {
+            cache.putObject("key", "value");
+            localBus.accept(new CacheInvalidationMessage("peer").addTable("users"));
+            assertEquals(0, cache.getSize());
+            // the cache mapped by the long and short names is cleared once
+            assertEquals(1, cache.getClearCount());
+        } finally {
+            localBus.close();
+            localTransport.close();
+        }
+    }
+
+    @Test
+    void testNamespaceAndKeyInvalidation() throws Throwable {
+        Cache peerCache = peerConfiguration.getCache(NAMESPACE);
+        doInSqlSession(peerConfiguration, sqlSession -> {
+            UserMapper userMapper = sqlSession.getMapper(UserMapper.class);
+            userMapper.getUserById(1);
+            userMapper.getUserById(2);
+            sqlSession.commit();
+        });
+        assertEquals(2, peerCache.getSize());
+
+        MappedStatement ms = getMappedStatement(MS_ID_USER_BY_ID);
+        FingerprintCacheKey cacheKey = new FingerprintCacheKeyExecutorFilter(false)
+                .createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1));
+        bus.publish(bus.newMessage().addKey(NAMESPACE, cacheKey));
+        assertEquals(1, peerCache.getSize());
+
+        bus.publish(bus.newMessage().addNamespace(NAMESPACE));
+        assertEquals(0, peerCache.getSize());
+
+        // the empty message is not published
+        bus.publish(bus.newMessage());
+        assertEquals(2, bus.getPublishedCount());
+        assertEquals(2, peerBus.getReceivedCount());
+    }
+
+    @Test
+    void testMessage() {
+        MappedStatement ms = getMappedStatement(MS_ID_USER_BY_ID);
+        FingerprintCacheKey cacheKey = new FingerprintCacheKeyExecutorFilter(false)
+                .createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1));
+        CacheInvalidationMessage message = new CacheInvalidationMessage("node")
+                .addNamespace(NAMESPACE)
+                .addTables(Set.of("users", "roles"))
+                .addTable("users")
+                .addCacheId(NAMESPACE)
+                .addKey(NAMESPACE, cacheKey);
+        assertEquals(Set.of("users", "roles"), message.getTables());
+        assertEquals(Set.of(NAMESPACE), message.getCacheIds());
+        assertTrue(new CacheInvalidationMessage("node").addCacheId(NAMESPACE).getNamespaces().isEmpty());
+
+        CacheInvalidationMessage decoded = CacheInvalidationMessage.decode(message.encode());
+        assertEquals(message, decoded);
+        assertEquals(message.hashCode(), decoded.hashCode());
+        assertEquals(message.toString(), decoded.toString());
+        assertNotEquals(message, new CacheInvalidationMessage("node"));
+        assertTrue(new CacheInvalidationMessage("node").isEmpty());
+
+        // the keys retaining parameters can't be restored by the peers
+        assertThrows(IllegalArgumentException.class, () -> message.addKey(NAMESPACE,
+                new FingerprintCacheKeyExecutorFilter().createCacheKey(ms, 1, DEFAULT, ms.getBoundSql(1))));
+
+        byte[] bytes = message.encode();
+        bytes[0] = 0;
+        assertThrows(CacheException.class, () -> CacheInvalidationMessage.decode(bytes));
+    }
+
+    @CacheNamespaceRef(name = NAMESPACE)
+    interface DynamicUserMapper {
+
+        @Select("<script>SELECT id,name FROM users <where><if test=\"id != null\">id = #{id}</if></where></script>")
+        List<User> findUsers(@Param("id") Integer id);
+    }
+}
@@ -93,4 +93,13 @@ public @interface EnableMyBatisExtension {
      * it indicates to search in Spring Bean Factory,  "META-INF/spring.factories" files and "META-INF/services" files.
      */
     BeanSource[] sources() default {BEAN_FACTORY, SPRING_FACTORIES, JAVA_SERVICE_PROVIDER};
+
+    /**
+     * Indicate whether the second-level caches of MyBatis should be decorated by
+     * {@link io.microsphere.mybatis.cache.StatisticsCache} to record the hits, misses, puts and evictions.
+     *
+     * @see io.microsphere.mybatis.cache.StatisticsCache
+     * @see io.microsphere.mybatis.spring.cache.StatisticsCacheBeanPostProcessor
+     */
+    boolean cacheStatistics() default false;
 }
\ No newline at end of file
@@ -22,6 +22,7 @@ import io.microsphere.mybatis.executor.ExecutorFilter;
 import io.microsphere.mybatis.executor.ExecutorInterceptor;
 import io.microsphere.mybatis.executor.InterceptingExecutor;
 import io.microsphere.mybatis.plugin.InterceptingExecutorInterceptor;
+import io.microsphere.mybatis.spring.cache.StatisticsCacheBeanPostProcessor;
 import io.microsphere.spring.beans.BeanSource;
 import io.microsphere.spring.core.annotation.ResolvablePlaceholderAnnotationAttributes;
 import org.springframework.beans.factory.config.BeanDefinition;
@@ -63,7 +64,9 @@ public class MyBatisExtensionBeanDefinitionRegistrar extends MyBatisImportBeanDe
 
     /**
      * Registers the relevant {@link BeanDefinition}s for the intercepting executor components
-     * if the {@link EnableMyBatisExtension#interceptExecutor()} attribute is enabled.
+     * if the {@link EnableMyBatisExtension#interceptExecutor()} attribute is enabled, and the
+     * {@link StatisticsCacheBeanPostProcessor} if the {@link EnableMyBatisExtension#cacheStatistics()} attribute is
+     * enabled.
      * <p>
      * This includes registering {@link ExecutorFilter}s and {@link ExecutorInterceptor}s
      * from the specified sources, and conditionally registering the
@@ -84,6 +87,9 @@ public class MyBatisExtensionBeanDefinitionRegistrar extends MyBatisImportBeanDe
             registerExecutorInterceptors(sources);
             registerInterceptingExecutorInterceptorIfRequired(registry);
         }
+        if (attributes.getBoolean("cacheStatistics")) {
+            registerBeanDefinition(registry, StatisticsCacheBeanPostProcessor.class);
+        }
     }
 
     /**
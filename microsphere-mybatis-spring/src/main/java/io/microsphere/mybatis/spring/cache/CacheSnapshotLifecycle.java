@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cache;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.cache.CacheSnapshot;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.session.Configuration;
+import org.springframework.context.SmartLifecycle;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+import static io.microsphere.util.Assert.assertNotNull;
+
+/**
+ * The {@link SmartLifecycle} loads the {@link CacheSnapshot} on the start, and saves it on the graceful stop.
+ * <p>
+ * The {@link #DEFAULT_PHASE default phase} is lower than the phases of the web server and its graceful shutdown, so
+ * that the caches are loaded before the traffic arrives, and saved after the traffic is drained. The failures are
+ * logged rather than propagated, since the application works with the cold caches.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   @Bean
+ *   public CacheSnapshotLifecycle cacheSnapshotLifecycle(ObjectProvider<SqlSessionFactory> sqlSessionFactories) {
+ *       CacheSnapshot cacheSnapshot = new CacheSnapshot("/data/cache/mybatis.snapshot", "2");
+ *       return new CacheSnapshotLifecycle(cacheSnapshot,
+ *               () -> sqlSessionFactories.stream().map(SqlSessionFactory::getConfiguration).toList());
+ *   }
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheSnapshot
+ * @see SmartLifecycle
+ * @since 1.0.0
+ */
+public class CacheSnapshotLifecycle implements SmartLifecycle {
+
+    private static final Logger logger = getLogger(CacheSnapshotLifecycle.class);
+
+    /**
+     * The default phase
+     */
+    public static final int DEFAULT_PHASE = 0;
+
+    private final CacheSnapshot cacheSnapshot;
+
+    private final Supplier<? extends Collection<Configuration>> configurations;
+
+    private int phase = DEFAULT_PHASE;
+
+    private volatile boolean running;
+
+    /**
+     * Create a {@link CacheSnapshotLifecycle}
+     *
+     * @param cacheSnapshot  {@link CacheSnapshot}
+     * @param configurations the {@link Supplier} of MyBatis {@link Configuration configurations}
+     */
+    public CacheSnapshotLifecycle(CacheSnapshot cacheSnapshot, Supplier<? extends Collection<Configuration>> configurations) {
+        assertNotNull(cacheSnapshot, () -> "The 'cacheSnapshot' argument must not be null");
+        assertNotNull(configurations, () -> "The 'configurations' argument must not be null");
+        this.cacheSnapshot = cacheSnapshot;
+        this.configurations = configurations;
+    }
+
+    @Override
+    public void start() {
+        try {
+            cacheSnapshot.load(configurations.get());
+        } catch (CacheException e) {
+            logger.warn("The cache snapshot can't be loaded from the file : {}", cacheSnapshot.getFile(), e);
+        } finally {
+            running = true;
+        }
+    }
+
+    @Override
+    public void stop() {
+        try {
+            cacheSnapshot.save(configurations.get());
+        } catch (CacheException e) {
+            logger.warn("The cache snapshot can't be saved into the file : {}", cacheSnapshot.getFile(), e);
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Set the phase, which should be lower than the phase of the web server's graceful shutdown, so that the caches
+     * are saved after the traffic is drained
+     *
+     * @param phase the phase of {@link SmartLifecycle}
+     */
+    public void setPhase(int phase) {
+        this.phase = phase;
+    }
+
+    /**
+     * Get the {@link CacheSnapshot}
+     *
+     * @return non-null
+     */
+    public CacheSnapshot getCacheSnapshot() {
+        return cacheSnapshot;
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cache;
+
+import io.microsphere.logging.Logger;
+import io.microsphere.mybatis.cache.StatisticsCache;
+import io.microsphere.spring.beans.factory.config.GenericBeanPostProcessorAdapter;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import java.util.Map;
+
+import static io.microsphere.logging.LoggerFactory.getLogger;
+
+/**
+ * The {@link BeanPostProcessor} decorates the second-level caches of every {@link SqlSessionFactory} by
+ * {@link StatisticsCache} once it's initialized, whose mappers have been parsed.
+ *
+ * <h3>Example Usage</h3>
+ * <pre>{@code
+ *   @Bean
+ *   public static StatisticsCacheBeanPostProcessor statisticsCacheBeanPostProcessor() {
+ *       return new StatisticsCacheBeanPostProcessor();
+ *   }
+ *
+ *   // later
+ *   Map<String, StatisticsCache> caches = StatisticsCache.getStatisticsCaches(sqlSessionFactory.getConfiguration());
+ * }</pre>
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see StatisticsCache
+ * @see SqlSessionFactory
+ * @see BeanPostProcessor
+ * @since 1.0.0
+ */
+public class StatisticsCacheBeanPostProcessor extends GenericBeanPostProcessorAdapter<SqlSessionFactory> {
+
+    private static final Logger logger = getLogger(StatisticsCacheBeanPostProcessor.class);
+
+    @Override
+    protected void processAfterInitialization(SqlSessionFactory bean, String beanName) throws BeansException {
+        Map<String, StatisticsCache> caches = StatisticsCache.decorate(bean.getConfiguration());
+        logger.trace("The caches{} of SqlSessionFactory[name : '{}'] are decorated by StatisticsCache",
+                caches.keySet(), beanName);
+    }
+}
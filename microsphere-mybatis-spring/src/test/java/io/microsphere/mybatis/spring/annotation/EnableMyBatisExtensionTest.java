@@ -17,15 +17,25 @@
 
 package io.microsphere.mybatis.spring.annotation;
 
+import io.microsphere.mybatis.cache.StatisticsCache;
 import io.microsphere.mybatis.executor.LoggingExecutorFilter;
 import io.microsphere.mybatis.executor.LoggingExecutorInterceptor;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSessionFactory;
 import org.junit.jupiter.api.Test;
 import org.springframework.context.annotation.Import;
 
+import java.util.HashSet;
+import java.util.Map;
+
+import static io.microsphere.mybatis.cache.StatisticsCache.getStatisticsCaches;
 import static io.microsphere.spring.beans.BeanSource.BEAN_FACTORY;
 import static io.microsphere.spring.beans.BeanSource.JAVA_SERVICE_PROVIDER;
 import static io.microsphere.spring.beans.BeanSource.SPRING_FACTORIES;
 import static io.microsphere.spring.test.util.SpringTestUtils.testInSpringContainer;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * {@link EnableMyBatisExtension} Test
@@ -76,10 +86,25 @@ class EnableMyBatisExtensionTest {
         testInSpringContainer(EnableMyBatisTest::assertTest, EnableMyBatisTest.DefaultConfig.class, DisabledConfig.class);
     }
 
+    @Test
+    void testCacheStatisticsConfig() {
+        testInSpringContainer(context -> {
+            EnableMyBatisTest.assertTest(context);
+            Configuration configuration = context.getBean(SqlSessionFactory.class).getConfiguration();
+            Map<String, StatisticsCache> caches = getStatisticsCaches(configuration);
+            assertTrue(caches.get(UserMapper.class.getName()).getRequestCount() > 0);
+            assertEquals(caches.size(), new HashSet<>(configuration.getCaches()).size());
+        }, EnableMyBatisTest.SpecifiedConfig.class, CacheStatisticsConfig.class);
+    }
+
     @EnableMyBatisExtension
     static class DefaultConfig {
     }
 
+    @EnableMyBatisExtension(cacheStatistics = true)
+    static class CacheStatisticsConfig {
+    }
+
     @EnableMyBatisExtension(sources = BEAN_FACTORY)
     @Import(value = {
             LoggingExecutorFilter.class,
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.microsphere.mybatis.spring.cache;
+
+import io.microsphere.mybatis.cache.CacheSnapshot;
+import io.microsphere.mybatis.spring.annotation.EnableMyBatis;
+import io.microsphere.mybatis.spring.test.config.MyBatisDataBaseTestConfiguration;
+import io.microsphere.mybatis.spring.test.config.MyBatisDataSourceTestConfiguration;
+import io.microsphere.mybatis.test.mapper.UserMapper;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Import;
+
+import java.nio.file.Path;
+
+import static io.microsphere.mybatis.test.AbstractExecutorTest.MS_ID_USER_BY_ID;
+import static io.microsphere.mybatis.test.MyBatisTestUtils.DEFAULT_CONFIG_RESOURCE_NAME;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.write;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link CacheSnapshotLifecycle} Test
+ *
+ * @author <a href="mailto:mercyblitz@gmail.com">Mercy<a/>
+ * @see CacheSnapshotLifecycle
+ * @since 1.0.0
+ */
+class CacheSnapshotLifecycleTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testSaveOnStopAndLoadOnStart() {
+        Path file = directory.resolve("mybatis.snapshot");
+        try (ConfigurableApplicationContext context = createContext(file)) {
+            context.getBean(SqlSessionTemplate.class).getMapper(UserMapper.class).getUserById(1);
+            assertEquals(1, getCache(context).getSize());
+            assertFalse(exists(file));
+        }
+        // saved on the stop
+        assertTrue(exists(file));
+
+        // the restarted application
+        try (ConfigurableApplicationContext context = createContext(file)) {
+            CacheSnapshotLifecycle lifecycle = context.getBean(CacheSnapshotLifecycle.class);
+            assertTrue(lifecycle.isRunning());
+            // loaded on the start
+            assertEquals(1, getCache(context).getSize());
+            assertFalse(exists(file));
+
+            lifecycle.stop();
+            assertFalse(lifecycle.isRunning());
+            assertTrue(exists(file));
+        }
+    }
+
+    @Test
+    void testLoadFailure() throws Exception {
+        // the truncated file
+        Path file = directory.resolve("mybatis.snapshot");
+        write(file, new byte[]{0x4D, 0x42, 0x43, 0x53, 0});
+        try (ConfigurableApplicationContext context = createContext(file)) {
+            // the failure is logged rather than failing the startup
+            assertTrue(context.getBean(CacheSnapshotLifecycle.class).isRunning());
+            assertEquals(0, getCache(context).getSize());
+            assertFalse(exists(file));
+        }
+    }
+
+    @Test
+    void testPhase() {
+        CacheSnapshotLifecycle lifecycle = new CacheSnapshotLifecycle(new CacheSnapshot(directory.resolve("mybatis.snapshot"), null), () -> null);
+        assertEquals(CacheSnapshotLifecycle.DEFAULT_PHASE, lifecycle.getPhase());
+        lifecycle.setPhase(1);
+        assertEquals(1, lifecycle.getPhase());
+        assertEquals(directory.resolve("mybatis.snapshot"), lifecycle.getCacheSnapshot().getFile());
+        assertThrows(IllegalArgumentException.class, () -> new CacheSnapshotLifecycle(null, () -> null));
+        assertThrows(IllegalArgumentException.class, () -> new CacheSnapshotLifecycle(lifecycle.getCacheSnapshot(), null));
+    }
+
+    private ConfigurableApplicationContext createContext(Path file) {
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.register(Config.class);
+        context.registerBean(CacheSnapshotLifecycle.class, () -> new CacheSnapshotLifecycle(new CacheSnapshot(file, "1"),
+                () -> context.getBeanProvider(SqlSessionFactory.class).stream().map(SqlSessionFactory::getConfiguration).toList()));
+        context.refresh();
+        return context;
+    }
+
+    private Cache getCache(ConfigurableApplicationContext context) {
+        return context.getBean(SqlSessionFactory.class).getConfiguration().getMappedStatement(MS_ID_USER_BY_ID).getCache();
+    }
+
+    @EnableMyBatis(configLocation = DEFAULT_CONFIG_RESOURCE_NAME)
+    @Import(value = {
+            MyBatisDataSourceTestConfiguration.class,
+            MyBatisDataBaseTestConfiguration.class
+    })
+    static class Config {
+    }
+}